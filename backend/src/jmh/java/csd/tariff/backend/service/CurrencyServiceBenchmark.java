@@ -0,0 +1,111 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import csd.tariff.backend.model.CurrencyExchangeRate;
+import csd.tariff.backend.repository.CurrencyExchangeRateRepository;
+
+/**
+ * Benchmarks for {@link CurrencyService#convertCurrency} against a stubbed rate repository holding
+ * USD to EUR only, so USD to EUR takes the direct path and EUR to USD the reverse path. The
+ * {@code *Database} variants run with no rate matrix loaded, as before the first load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CurrencyServiceBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1315.22");
+
+    private CurrencyService currencyService;
+    private CurrencyService databaseCurrencyService;
+
+    /** A currency service with a loaded rate matrix holding the USD to EUR rate */
+    static CurrencyService currencyService() {
+        CurrencyExchangeRateRepository repository = repository();
+        FxRateService fxRateService = new FxRateService(repository, new FxRateHistoryService(repository, 256));
+        fxRateService.refresh();
+        return currencyService(repository, fxRateService);
+    }
+
+    /** A currency service with no rate matrix, reading the USD to EUR rate from its repository */
+    static CurrencyService databaseCurrencyService() {
+        return currencyService(repository(), SyntheticTariffSchedule.stub(FxRateService.class));
+    }
+
+    private static CurrencyService currencyService(
+            CurrencyExchangeRateRepository repository, FxRateService fxRateService) {
+        CurrencyService currencyService = new CurrencyService();
+        ReflectionTestUtils.setField(currencyService, "currencyExchangeRateRepository", repository);
+        ReflectionTestUtils.setField(currencyService, "fxRateService", fxRateService);
+        return currencyService;
+    }
+
+    private static CurrencyExchangeRateRepository repository() {
+        CurrencyExchangeRate usdToEur = new CurrencyExchangeRate();
+        usdToEur.setBaseCurrencyCode("USD");
+        usdToEur.setTargetCurrencyCode("EUR");
+        usdToEur.setExchangeRate(new BigDecimal("0.921500"));
+        usdToEur.setEffectiveDate(LocalDate.of(2024, 1, 1));
+
+        CurrencyExchangeRateRepository repository = SyntheticTariffSchedule.stub(CurrencyExchangeRateRepository.class);
+        when(repository.findLatestExchangeRate(eq("USD"), eq("EUR"), any())).thenReturn(Optional.of(usdToEur));
+        when(repository.findLatestExchangeRate(eq("EUR"), eq("USD"), any())).thenReturn(Optional.empty());
+        when(repository.findAll()).thenReturn(List.of(usdToEur));
+        return repository;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        currencyService = currencyService();
+        databaseCurrencyService = databaseCurrencyService();
+    }
+
+    @Benchmark
+    public BigDecimal convertDirect() {
+        return currencyService.convertCurrency(AMOUNT, "USD", "EUR");
+    }
+
+    @Benchmark
+    public BigDecimal convertReverse() {
+        return currencyService.convertCurrency(AMOUNT, "EUR", "USD");
+    }
+
+    @Benchmark
+    public BigDecimal convertDirectDatabase() {
+        return databaseCurrencyService.convertCurrency(AMOUNT, "USD", "EUR");
+    }
+
+    @Benchmark
+    public BigDecimal convertReverseDatabase() {
+        return databaseCurrencyService.convertCurrency(AMOUNT, "EUR", "USD");
+    }
+
+    @Benchmark
+    public BigDecimal convertSameCurrency() {
+        return currencyService.convertCurrency(AMOUNT, "USD", "USD");
+    }
+}
@@ -0,0 +1,73 @@
+package csd.tariff.backend.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Benchmark for {@link JwtService#parseClaims}, which runs on every authenticated request:
+ * {@code parseClaims} repeats one token, as a client between logins does, and is answered from
+ * the verified-token cache; {@code parseClaimsUncached} cycles through more distinct tokens than
+ * the cache holds, so every call checks a signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    /** Distinct tokens for the uncached benchmark; a power of two */
+    private static final int DISTINCT_TOKENS = 1024;
+
+    private JwtService jwtService;
+    private String token;
+    private JwtService uncachedJwtService;
+    private String[] tokens;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", "benchmarkSecretKeyThatIsLongEnoughForHS256Algorithm");
+        ReflectionTestUtils.setField(jwtService, "ttlSeconds", 3600L);
+        token = jwtService.generate("benchmark@example.com", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        uncachedJwtService = new JwtService();
+        ReflectionTestUtils.setField(uncachedJwtService, "secret", "benchmarkSecretKeyThatIsLongEnoughForHS256Algorithm");
+        ReflectionTestUtils.setField(uncachedJwtService, "ttlSeconds", 3600L);
+        ReflectionTestUtils.setField(uncachedJwtService, "cacheSize", 1);
+        tokens = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = uncachedJwtService.generate("benchmark" + i + "@example.com",
+                    List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        }
+    }
+
+    @Benchmark
+    public Claims parseClaims() {
+        return jwtService.parseClaims(token);
+    }
+
+    @Benchmark
+    public Claims parseClaimsUncached() {
+        next = (next + 1) & (DISTINCT_TOKENS - 1);
+        return uncachedJwtService.parseClaims(tokens[next]);
+    }
+}
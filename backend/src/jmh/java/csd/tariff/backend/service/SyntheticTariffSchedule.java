@@ -0,0 +1,116 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import csd.tariff.backend.model.AgreementParticipant;
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.Country;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+import csd.tariff.backend.repository.AgreementParticipantRepository;
+import csd.tariff.backend.repository.AgreementRateRepository;
+import csd.tariff.backend.repository.MfnTariffRateRepository;
+import csd.tariff.backend.repository.ProductRepository;
+import csd.tariff.backend.repository.TariffCalculationRepository;
+
+/**
+ * Deterministic in-memory tariff dataset for the benchmarks.
+ *
+ * <p>Every product has an MFN rate cycling through the text rate shapes seen in the schedule
+ * (free, ad valorem, compound, specific, alternative); every other product also has a free USMCA
+ * rate into the US. Repositories are stub-only Mockito mocks, so no database is involved.
+ */
+final class SyntheticTariffSchedule {
+
+    static final int PRODUCT_COUNT = 5_000;
+
+    private static final String[] TEXT_RATES = {"Free", "5%", "2.5%", "6.8¢/kg + 5%", "$1.035/kg", "25% or $1.00 each"};
+    private static final BigDecimal[] AD_VALOREM = {BigDecimal.ZERO, new BigDecimal("0.05"), new BigDecimal("0.025"), new BigDecimal("0.05"), null, new BigDecimal("0.25")};
+    private static final BigDecimal[] SPECIFIC = {null, null, null, new BigDecimal("0.068"), new BigDecimal("1.035"), null};
+
+    private SyntheticTariffSchedule() {}
+
+    /** HTS code of the i-th synthetic product */
+    static String htsCode(int i) {
+        return String.valueOf(10_000_000 + i);
+    }
+
+    /**
+     * A calculation service whose schedule snapshot was loaded from stubbed repositories
+     */
+    static TariffCalculationServiceImpl calculationService(CurrencyService currencyService) {
+        Country us = new Country("US", "United States");
+        Country mx = new Country("MX", "Mexico");
+        Country ca = new Country("CA", "Canada");
+        TradeAgreement usmca = new TradeAgreement("USMCA", "United States-Mexico-Canada Agreement", "FTA");
+        usmca.setEffectiveDate(LocalDate.of(2020, 7, 1));
+
+        List<Product> products = new ArrayList<>(PRODUCT_COUNT);
+        List<MfnTariffRate> mfnRates = new ArrayList<>(PRODUCT_COUNT);
+        List<AgreementRate> agreementRates = new ArrayList<>(PRODUCT_COUNT / 2);
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            Product product = new Product(htsCode(i), "Synthetic product " + i);
+            products.add(product);
+
+            int shape = i % TEXT_RATES.length;
+            MfnTariffRate mfnRate = new MfnTariffRate();
+            mfnRate.setProduct(product);
+            mfnRate.setMfnTextRate(TEXT_RATES[shape]);
+            mfnRate.setMfnadValoremRate(AD_VALOREM[shape]);
+            mfnRate.setMfnSpecificRate(SPECIFIC[shape]);
+            mfnRates.add(mfnRate);
+
+            if (i % 2 == 0) {
+                AgreementRate agreementRate = new AgreementRate(product, usmca, us);
+                agreementRate.setadValoremRate(BigDecimal.ZERO);
+                agreementRate.setTextRate("Free");
+                agreementRates.add(agreementRate);
+            }
+        }
+
+        ProductRepository productRepository = stub(ProductRepository.class);
+        MfnTariffRateRepository mfnTariffRateRepository = stub(MfnTariffRateRepository.class);
+        AgreementRateRepository agreementRateRepository = stub(AgreementRateRepository.class);
+        AgreementParticipantRepository agreementParticipantRepository = stub(AgreementParticipantRepository.class);
+        when(productRepository.findAll()).thenReturn(products);
+        when(mfnTariffRateRepository.findAll()).thenReturn(mfnRates);
+        when(agreementRateRepository.findAll()).thenReturn(agreementRates);
+        when(agreementParticipantRepository.findAll()).thenReturn(List.of(
+            new AgreementParticipant(usmca, us, "PARTNER"),
+            new AgreementParticipant(usmca, mx, "PARTNER"),
+            new AgreementParticipant(usmca, ca, "PARTNER")));
+
+        TariffScheduleService tariffScheduleService = new TariffScheduleService(
+            productRepository,
+            mfnTariffRateRepository,
+            agreementRateRepository,
+            agreementParticipantRepository,
+            stub(ScheduleVersionService.class),
+            stub(PlatformTransactionManager.class));
+        tariffScheduleService.refresh();
+
+        return new TariffCalculationServiceImpl(
+            productRepository,
+            stub(TariffCalculationRepository.class),
+            stub(MfnService.class),
+            stub(ProductService.class),
+            stub(TradeAgreementService.class),
+            currencyService,
+            tariffScheduleService,
+            stub(TariffCalculationWriter.class),
+            stub(ScheduleVersionService.class));
+    }
+
+    static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+}
@@ -0,0 +1,128 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import csd.tariff.backend.dto.TariffCalculationRequest;
+import csd.tariff.backend.dto.TariffCalculationResponse;
+
+/**
+ * Hot-path benchmarks for tariff calculation over {@link SyntheticTariffSchedule}.
+ *
+ * <p>Run with {@code mvn -P benchmark test-compile exec:exec}; the profile adds the gc profiler,
+ * so each benchmark reports allocation per operation alongside throughput and average time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TariffCalculationBenchmark {
+
+    private static final BigDecimal AD_VALOREM_RATE = new BigDecimal("0.068");
+    private static final BigDecimal SPECIFIC_RATE = new BigDecimal("1.035");
+
+    private TariffCalculationServiceImpl tariffCalculationService;
+    private ObjectMapper objectMapper;
+    private TariffCalculationRequest request;
+    private TariffCalculationResult compoundResult;
+    private TariffCalculationResponse response;
+    private String[] htsCodes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CurrencyService currencyService = CurrencyServiceBenchmark.currencyService();
+        tariffCalculationService = SyntheticTariffSchedule.calculationService(currencyService);
+        objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        htsCodes = new String[SyntheticTariffSchedule.PRODUCT_COUNT];
+        for (int i = 0; i < htsCodes.length; i++) {
+            htsCodes[i] = SyntheticTariffSchedule.htsCode(i);
+        }
+
+        request = new TariffCalculationRequest(
+            SyntheticTariffSchedule.htsCode(3), "MX", "US", new BigDecimal("1250.00"), 40, "EUR");
+        response = tariffCalculationService.calculateTariffCalculation(
+            request, tariffCalculationService.getScheduleLookup());
+
+        RateExpression compound = RateExpressionCompiler.compile("6.8¢/kg + 5%");
+        TariffCalculationResult.RateLeg mfn = new TariffCalculationResult.RateLeg(
+            new BigDecimal("0.05"), new BigDecimal("0.068"), "6.8¢/kg + 5%", "4",
+            new BigDecimal("65.22"), null, null, compound);
+        compoundResult = new TariffCalculationResult(
+            request.getHtsCode(),
+            "Synthetic product 3",
+            "MX",
+            "US",
+            1250.0,
+            40,
+            false,
+            null,
+            null,
+            null,
+            mfn,
+            mfn.calculatedDuty(),
+            List.of(),
+            new TariffCalculationResult.Recommendation(false, mfn.calculatedDuty(), BigDecimal.ZERO, "MFN"),
+            List.of(),
+            List.of("Ensure proper documentation for preferential treatment"),
+            new BigDecimal("1315.22"));
+    }
+
+    private String nextHtsCode() {
+        String htsCode = htsCodes[next];
+        next = next + 1 == htsCodes.length ? 0 : next + 1;
+        return htsCode;
+    }
+
+    @Benchmark
+    public BigDecimal calculateDuty() {
+        return tariffCalculationService.calculateDuty(AD_VALOREM_RATE, SPECIFIC_RATE, 1250.0, 40);
+    }
+
+    @Benchmark
+    public Map<String, Object> calculateTariff() {
+        return tariffCalculationService.calculateTariff(nextHtsCode(), "MX", "US", 1250.0, 40);
+    }
+
+    @Benchmark
+    public TariffCalculationResponse calculateTariffCalculation() {
+        return tariffCalculationService.calculateTariffCalculation(
+            request, tariffCalculationService.getScheduleLookup());
+    }
+
+    @Benchmark
+    public TariffCalculationResponse populateResponseFromCalculationResult() {
+        TariffCalculationResponse populated = new TariffCalculationResponse(
+            request.getHtsCode(), "Synthetic product 3", "MX", "US", request.getProductValue(), 40, "EUR");
+        tariffCalculationService.populateResponseFromCalculationResult(populated, compoundResult);
+        return populated;
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
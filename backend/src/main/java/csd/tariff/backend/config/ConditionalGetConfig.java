@@ -0,0 +1,37 @@
+package csd.tariff.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import csd.tariff.backend.service.DatasetVersionService;
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
+
+/**
+ * ETag and Last-Modified validation for reference data. Each path group is tied to the data sets
+ * its responses are built from. Saved calculations take their validators from their own row in
+ * TariffCalculationController instead, so new saves never invalidate them.
+ */
+@Configuration
+public class ConditionalGetConfig implements WebMvcConfigurer {
+
+  private final DatasetVersionService datasetVersionService;
+
+  public ConditionalGetConfig(DatasetVersionService datasetVersionService) {
+    this.datasetVersionService = datasetVersionService;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry
+        .addInterceptor(new DatasetETagInterceptor(datasetVersionService, Dataset.COUNTRIES))
+        .addPathPatterns("/country");
+    registry
+        .addInterceptor(new DatasetETagInterceptor(datasetVersionService, Dataset.TRADE_AGREEMENTS))
+        .addPathPatterns("/trade-agreements", "/trade-agreements/*");
+    // MFN views carry the product's HTS code, and autocomplete shows MFN rates
+    registry
+        .addInterceptor(new DatasetETagInterceptor(datasetVersionService, Dataset.MFN_RATES, Dataset.PRODUCTS))
+        .addPathPatterns("/mfn", "/mfn/mfn-rate/*", "/products", "/products/*");
+  }
+}
@@ -0,0 +1,63 @@
+package csd.tariff.backend.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import csd.tariff.backend.service.DatasetVersionService;
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
+import csd.tariff.backend.service.DatasetVersionService.Version;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Answers conditional GETs for endpoints backed by versioned data sets.
+ *
+ * <p>Runs before the handler: the ETag and Last-Modified headers come from the data set versions
+ * alone, and when the client already holds the current version the request ends with 304 before
+ * the controller, the database or the serializer is reached. Responses are marked
+ * {@code no-cache} so clients keep them but revalidate on every use.
+ */
+public class DatasetETagInterceptor implements HandlerInterceptor {
+
+  private final DatasetVersionService datasetVersionService;
+  private final Dataset[] datasets;
+
+  public DatasetETagInterceptor(DatasetVersionService datasetVersionService, Dataset... datasets) {
+    this.datasetVersionService = datasetVersionService;
+    this.datasets = datasets;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    String method = request.getMethod();
+    if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+      return true;
+    }
+
+    Version version = datasetVersionService.current(datasets);
+    response.setHeader(HttpHeaders.ETAG, version.etag());
+    response.setDateHeader(HttpHeaders.LAST_MODIFIED, version.lastModified());
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+
+    // If-None-Match takes precedence; If-Modified-Since only counts without it
+    String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    boolean notModified = ifNoneMatch != null
+        ? version.matches(ifNoneMatch)
+        : version.notModifiedSince(ifModifiedSince(request));
+    if (notModified) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return false;
+    }
+    return true;
+  }
+
+  private static long ifModifiedSince(HttpServletRequest request) {
+    try {
+      return request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+    } catch (IllegalArgumentException e) {
+      // Unparseable date: treat as absent
+      return -1;
+    }
+  }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,10 +15,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.Country;
 import csd.tariff.backend.service.CountryService;
+import csd.tariff.backend.service.JsonArrayStreamer;
 import jakarta.validation.Valid;
 import jakarta.persistence.EntityNotFoundException;
 
@@ -28,6 +33,9 @@ public class CountryController {
     
     @Autowired
     private CountryService CountryService;
+
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
     
     
     /**
@@ -39,6 +47,24 @@ public class CountryController {
         return ResponseEntity.ok(countries);
     }
 
+    /**
+     * Get one page of countries ordered by ID; pass the returned nextCursor as cursor
+     */
+    @GetMapping(value = "", params = {"limit", "stream!=true"})
+    public ResponseEntity<CursorPage<Country>> getCountryPage(
+            @RequestParam(required = false) Long cursor, @RequestParam int limit) {
+        return ResponseEntity.ok(CountryService.getCountryPage(cursor, limit));
+    }
+
+    /**
+     * Stream every country as one JSON array, read through a database cursor
+     */
+    @GetMapping(value = "", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllCountries() {
+        StreamingResponseBody body = out -> jsonArrayStreamer.write(CountryService::streamAllCountries, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     /**
      * Create a new country entry
      */
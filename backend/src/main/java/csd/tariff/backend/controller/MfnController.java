@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,10 +16,15 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import csd.tariff.backend.dto.CursorPage;
+import csd.tariff.backend.dto.MfnRateView;
 import csd.tariff.backend.model.MfnTariffRate;
 import csd.tariff.backend.model.Product;
+import csd.tariff.backend.service.JsonArrayStreamer;
 import csd.tariff.backend.service.MfnService;
 import csd.tariff.backend.service.TariffCalculationService;
 import jakarta.validation.Valid;
@@ -33,22 +39,44 @@ public class MfnController {
 
     @Autowired
     private MfnService MfnService;
+
+    @Autowired
+    private JsonArrayStreamer JsonArrayStreamer;
     
     /**
      * Get all MFN tariff rates
      */
     @GetMapping("")
-    public ResponseEntity<List<MfnTariffRate>> getAllMfnTariffRates() {
-        List<MfnTariffRate> rates = MfnService.getAllMfnTariffRates();
+    public ResponseEntity<List<MfnRateView>> getAllMfnTariffRates() {
+        List<MfnRateView> rates = MfnService.getAllMfnTariffRates();
         return ResponseEntity.ok(rates);
     }
+
+    /**
+     * Get one page of MFN tariff rates ordered by ID. Pass the returned nextCursor as cursor for the next page.
+     */
+    @GetMapping(value = "", params = {"limit", "stream!=true"})
+    public ResponseEntity<CursorPage<MfnTariffRate>> getMfnTariffRatePage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(MfnService.getMfnTariffRatePage(cursor, limit));
+    }
+
+    /**
+     * Stream every MFN tariff rate as one JSON array, read from the database through a cursor
+     */
+    @GetMapping(value = "", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllMfnTariffRates() {
+        StreamingResponseBody body = out -> JsonArrayStreamer.write(MfnService::streamAllMfnTariffRates, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
     
     /**
      * Get MFN tariff rates for a specific product
      */
     @GetMapping("/mfn-rate/{htsCode}")
-    public ResponseEntity<Optional<MfnTariffRate>> getMfnTariffRatesForProduct(@PathVariable String htsCode) {
-        Optional<MfnTariffRate> rates = MfnService.getMfnTariffRatesForProduct(htsCode);
+    public ResponseEntity<Optional<MfnRateView>> getMfnTariffRatesForProduct(@PathVariable String htsCode) {
+        Optional<MfnRateView> rates = MfnService.getMfnTariffRatesForProduct(htsCode);
         return ResponseEntity.ok(rates);
     }
 
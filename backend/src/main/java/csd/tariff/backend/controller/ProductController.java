@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,9 +15,17 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import csd.tariff.backend.dto.CursorPage;
+import csd.tariff.backend.dto.ProductDTOs.AutocompleteResponse;
+import csd.tariff.backend.dto.ProductDTOs.ProductMatch;
+import csd.tariff.backend.dto.ProductDTOs.ProductSearchPage;
+import csd.tariff.backend.dto.ProductSummary;
 import csd.tariff.backend.model.Product;
+import csd.tariff.backend.service.JsonArrayStreamer;
 import csd.tariff.backend.service.ProductService;
 import jakarta.validation.Valid;
 import jakarta.persistence.EntityNotFoundException;
@@ -29,16 +38,84 @@ public class ProductController {
     
     @Autowired
     private ProductService ProductService;
+
+    @Autowired
+    private JsonArrayStreamer JsonArrayStreamer;
     
     /**
      * Get all products from the database
      */
     @GetMapping("")
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = ProductService.getAllProducts();
+    public ResponseEntity<List<ProductSummary>> getAllProducts() {
+        List<ProductSummary> products = ProductService.getAllProducts();
         return ResponseEntity.ok(products);
     }
+
+    /**
+     * Get one page of products ordered by ID. Pass the returned nextCursor as cursor for the next page.
+     */
+    @GetMapping(value = "", params = {"limit", "stream!=true"})
+    public ResponseEntity<CursorPage<Product>> getProductPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(ProductService.getProductPage(cursor, limit));
+    }
+
+    /**
+     * Stream every product as one JSON array, read from the database through a cursor
+     */
+    @GetMapping(value = "", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllProducts() {
+        StreamingResponseBody body = out -> JsonArrayStreamer.write(ProductService::streamAllProducts, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
     
+    /**
+     * Autocomplete HTS codes by prefix, with product counts for the next level down
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<?> autocomplete(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            AutocompleteResponse response = ProductService.autocomplete(prefix, limit);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    /**
+     * Search product descriptions, best match first. Pass the returned cursor to get the next page.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor) {
+        try {
+            ProductSearchPage page = ProductService.searchProducts(q, limit, cursor);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    /**
+     * Suggest products for a free-text description, tolerating misspellings
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggestProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<ProductMatch> matches = ProductService.suggestProducts(q, limit);
+            return ResponseEntity.ok(matches);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
     /**
      * Create a new product entry
      */
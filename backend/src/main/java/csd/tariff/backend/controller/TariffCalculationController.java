@@ -1,10 +1,16 @@
 package csd.tariff.backend.controller;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,11 +20,17 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.dto.TariffCalculationRequest;
 import csd.tariff.backend.dto.TariffCalculationResponse;
 import csd.tariff.backend.model.TariffCalculation;
+import csd.tariff.backend.service.JsonArrayStreamer;
+import csd.tariff.backend.service.TariffCalculationBatchService;
 import csd.tariff.backend.service.TariffCalculationService;
 import jakarta.validation.Valid;
 
@@ -30,6 +42,12 @@ public class TariffCalculationController {
     @Autowired
     private TariffCalculationService TariffCalculationService;
 
+    @Autowired
+    private TariffCalculationBatchService TariffCalculationBatchService;
+
+    @Autowired
+    private JsonArrayStreamer JsonArrayStreamer;
+
 
     
     // ===== CRUD OPERATIONS FOR TARIFF CALCULATIONS =====
@@ -50,20 +68,68 @@ public class TariffCalculationController {
     }
     
     /**
-     * Get tariff calculation by ID
+     * Calculate a batch of tariffs. The body is newline-delimited JSON or a JSON array of
+     * calculation requests; one response (or {"index", "error"} line) is streamed back per request,
+     * in order. Set persist=true to also save the calculations.
+     */
+    @PostMapping(value = "/calculate/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> calculateTariffBatch(
+            InputStream requestBody,
+            @RequestParam(defaultValue = "false") boolean persist) {
+        StreamingResponseBody body =
+                out -> TariffCalculationBatchService.calculateBatch(requestBody, out, persist);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    /**
+     * Get tariff calculation by ID; answers 304 when the client holds the row's current ETag
      */
     @GetMapping("/calculate/{id}")
-    public ResponseEntity<?> getTariffCalculationById(@PathVariable Long id) {
-        Optional<TariffCalculation> result = TariffCalculationService.getTariffCalculationById(id);
+    public ResponseEntity<?> getTariffCalculationById(@PathVariable Long id, WebRequest webRequest) {
+        Optional<TariffCalculation> result;
+        try {
+            result = TariffCalculationService.getTariffCalculationById(id);
+        } catch (IllegalStateException e) {
+            // The ID was handed out but its row is not saved (yet): not a 404
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
         
         if (result.isPresent()) {
-            return ResponseEntity.ok(result.get());
+            TariffCalculation calculation = result.get();
+            if (webRequest.checkNotModified(rowETag(calculation), rowLastModified(calculation))) {
+                return null;
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(calculation);
         } else {
             Map<String, Object> error = Map.of("error", "Tariff calculation not found with ID: " + id);
             return ResponseEntity.notFound().build();
         }
     }
     
+    /**
+     * Price a saved tariff calculation again against the schedule version it recorded
+     */
+    @GetMapping("/calculate/{id}/replay")
+    public ResponseEntity<?> replayTariffCalculation(@PathVariable Long id, WebRequest webRequest) {
+        try {
+            // A replay follows from the saved row alone, so it shares the row's validators
+            Optional<TariffCalculation> saved = TariffCalculationService.getTariffCalculationById(id);
+            if (saved.isPresent()
+                    && webRequest.checkNotModified(rowETag(saved.get()), rowLastModified(saved.get()))) {
+                return null;
+            }
+            Optional<TariffCalculationResponse> result = TariffCalculationService.replayTariffCalculation(id);
+            if (result.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(result.get());
+
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of("error", "Cannot replay calculation: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     /**
      * Get all tariff calculations
      */
@@ -72,6 +138,26 @@ public class TariffCalculationController {
         List<TariffCalculation> calculations = TariffCalculationService.getAllTariffCalculations();
         return ResponseEntity.ok(calculations);
     }
+
+    /**
+     * Get one page of tariff calculations ordered by ID. Pass the returned nextCursor as cursor for the next page.
+     */
+    @GetMapping(value = "/calculate-all", params = {"limit", "stream!=true"})
+    public ResponseEntity<CursorPage<TariffCalculation>> getTariffCalculationPage(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(TariffCalculationService.getTariffCalculationPage(cursor, limit));
+    }
+
+    /**
+     * Stream every tariff calculation as one JSON array, read from the database through a cursor
+     */
+    @GetMapping(value = "/calculate-all", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllTariffCalculations() {
+        StreamingResponseBody body = out ->
+                JsonArrayStreamer.write(TariffCalculationService::streamAllTariffCalculations, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
     
     /**
      * Update tariff calculation
@@ -106,4 +192,19 @@ public class TariffCalculationController {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Validators of a saved calculation from the row itself. Saved rows change only through an
+     * update or re-pricing, which move its schedule version or updated_at, so other saves never
+     * invalidate it.
+     */
+    private static String rowETag(TariffCalculation calculation) {
+        return "\"c" + calculation.getId() + "-" + calculation.getScheduleVersion() + "-"
+            + rowLastModified(calculation) + "\"";
+    }
+
+    private static long rowLastModified(TariffCalculation calculation) {
+        LocalDateTime modified =
+            calculation.getUpdatedAt() != null ? calculation.getUpdatedAt() : calculation.getCreatedAt();
+        return modified != null ? modified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+}
@@ -0,0 +1,107 @@
+package csd.tariff.backend.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import csd.tariff.backend.service.TariffImportService;
+import csd.tariff.backend.service.TariffImportService.ImportMode;
+import csd.tariff.backend.service.TariffImportService.ImportProgress;
+
+@RestController
+@RequestMapping("/tariff/import")
+@CrossOrigin(origins = "*")
+public class TariffImportController {
+
+  private final TariffImportService tariffImportService;
+  private final ObjectMapper objectMapper;
+
+  public TariffImportController(TariffImportService tariffImportService, ObjectMapper objectMapper) {
+    this.tariffImportService = tariffImportService;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Import a USITC tariff database CSV (with header) sent as the request body. INCREMENTAL mode
+   * only rewrites rows that changed, FULL rewrites every row in the file. Progress reports are
+   * streamed back one JSON object per line; the last line has phase COMPLETED or FAILED and the
+   * counts of inserted, updated and closed rows.
+   */
+  @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<?> importTariffs(
+      InputStream requestBody,
+      @RequestParam(defaultValue = "upload") String source,
+      @RequestParam(defaultValue = "INCREMENTAL") ImportMode mode) {
+    if (tariffImportService.isRunning()) {
+      return ResponseEntity.status(HttpStatus.CONFLICT)
+          .contentType(MediaType.APPLICATION_JSON)
+          .body(Map.of("error", "A tariff import is already running"));
+    }
+    StreamingResponseBody body = out -> {
+      AtomicBoolean reported = new AtomicBoolean();
+      try {
+        tariffImportService.importCsv(requestBody, source, mode, progress -> {
+          reported.set(true);
+          writeLine(out, progress);
+        });
+      } catch (IOException | RuntimeException e) {
+        // Failures after the import started were already streamed as a FAILED report
+        if (!reported.get()) {
+          writeLine(out, Map.of("error", String.valueOf(e.getMessage())));
+        }
+      }
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  /**
+   * Progress of the running import, or of the last one since startup
+   */
+  @GetMapping("/status")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<ImportProgress> getImportStatus() {
+    return tariffImportService.latestProgress()
+        .map(ResponseEntity::ok)
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Change manifest of an import run, one JSON object per inserted, updated or closed row
+   */
+  @GetMapping(value = "/{runId}/changes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<StreamingResponseBody> getImportChanges(@PathVariable long runId) {
+    StreamingResponseBody body = out -> tariffImportService.streamChanges(runId, change -> writeLine(out, change));
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  private void writeLine(OutputStream out, Object value) {
+    try {
+      out.write(objectMapper.writeValueAsBytes(value));
+      out.write("\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
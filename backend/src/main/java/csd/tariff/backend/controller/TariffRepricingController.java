@@ -0,0 +1,92 @@
+package csd.tariff.backend.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import csd.tariff.backend.service.CalculationRepricingService;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingProgress;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingScope;
+
+@RestController
+@RequestMapping("/tariff/repricing")
+@CrossOrigin(origins = "*")
+public class TariffRepricingController {
+
+  private final CalculationRepricingService calculationRepricingService;
+  private final ObjectMapper objectMapper;
+
+  public TariffRepricingController(
+      CalculationRepricingService calculationRepricingService, ObjectMapper objectMapper) {
+    this.calculationRepricingService = calculationRepricingService;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Queue re-pricing of the saved calculations for an HTS code, to one destination or to all of
+   * them, e.g. after a tariff import. Rate changes made through the API are queued automatically.
+   */
+  @PostMapping
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Map<String, Object>> requestRepricing(
+      @RequestParam String hts8, @RequestParam(required = false) String destination) {
+    if (!hts8.matches("\\d{8}")) {
+      return ResponseEntity.badRequest().body(Map.of("error", "hts8 must be 8 digits"));
+    }
+    calculationRepricingService.request(
+        "Requested for " + hts8 + (destination != null ? " into " + destination : ""),
+        List.of(new RepricingScope(hts8, destination)));
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("queued", hts8));
+  }
+
+  /**
+   * Progress of the running re-pricing run, or of the last one since startup
+   */
+  @GetMapping("/status")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<RepricingProgress> getRepricingStatus() {
+    return calculationRepricingService.latestProgress()
+        .map(ResponseEntity::ok)
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Delta report of a run, one JSON object per re-priced calculation with its totals before and
+   * after
+   */
+  @GetMapping(value = "/{runId}/changes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<StreamingResponseBody> getRepricingChanges(@PathVariable long runId) {
+    StreamingResponseBody body =
+        out -> calculationRepricingService.streamChanges(runId, change -> writeLine(out, change));
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  private void writeLine(OutputStream out, Object value) {
+    try {
+      out.write(objectMapper.writeValueAsBytes(value));
+      out.write("\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
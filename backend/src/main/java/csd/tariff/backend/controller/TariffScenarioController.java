@@ -0,0 +1,115 @@
+package csd.tariff.backend.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import csd.tariff.backend.service.TariffScenarioService;
+import csd.tariff.backend.service.TariffScenarioService.ScenarioRequest;
+import csd.tariff.backend.service.TariffScenarioService.ScenarioRun;
+
+@RestController
+@RequestMapping("/tariff/scenarios")
+@CrossOrigin(origins = "*")
+public class TariffScenarioController {
+
+  private final TariffScenarioService tariffScenarioService;
+  private final ObjectMapper objectMapper;
+
+  public TariffScenarioController(
+      TariffScenarioService tariffScenarioService, ObjectMapper objectMapper) {
+    this.tariffScenarioService = tariffScenarioService;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Evaluate a scenario against the portfolio in the request. Each line's baseline, scenario and
+   * delta is streamed back as one JSON object per line in portfolio order, followed by a last
+   * line holding the totals.
+   */
+  @PostMapping(value = "/evaluate", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<?> evaluateScenario(@RequestBody ScenarioRequest request) {
+    ScenarioRequest scenario;
+    try {
+      scenario = tariffScenarioService.validate(request, true);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest()
+          .contentType(MediaType.APPLICATION_JSON)
+          .body(Map.of("error", e.getMessage()));
+    }
+    StreamingResponseBody body = out -> {
+      try {
+        writeLine(out, Map.of("totals",
+            tariffScenarioService.evaluate(scenario, line -> writeLine(out, line))));
+      } catch (RuntimeException e) {
+        writeLine(out, Map.of("error", String.valueOf(e.getMessage())));
+      }
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  /**
+   * Run a scenario in the background against the portfolio in the request or, without one, every
+   * saved calculation under the scenario's HTS prefixes
+   */
+  @PostMapping("/jobs")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Map<String, Object>> submitScenario(@RequestBody ScenarioRequest request) {
+    try {
+      long runId = tariffScenarioService.submit(request);
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("runId", runId));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+  }
+
+  /**
+   * Status of a background run and its totals so far
+   */
+  @GetMapping("/jobs/{runId}")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<ScenarioRun> getScenarioRun(@PathVariable long runId) {
+    return tariffScenarioService.findRun(runId)
+        .map(ResponseEntity::ok)
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Lines of a background run whose tariff changed or that could not be priced, one JSON object
+   * per line
+   */
+  @GetMapping(value = "/jobs/{runId}/lines", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<StreamingResponseBody> getScenarioLines(@PathVariable long runId) {
+    StreamingResponseBody body =
+        out -> tariffScenarioService.streamLines(runId, line -> writeLine(out, line));
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  private void writeLine(OutputStream out, Object value) {
+    try {
+      out.write(objectMapper.writeValueAsBytes(value));
+      out.write("\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
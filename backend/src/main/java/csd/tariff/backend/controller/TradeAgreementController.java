@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,9 +14,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.TradeAgreement;
+import csd.tariff.backend.service.JsonArrayStreamer;
 import csd.tariff.backend.service.TradeAgreementService;
 import jakarta.validation.Valid;
 
@@ -26,6 +31,8 @@ public class TradeAgreementController {
 
   @Autowired private TradeAgreementService tradeAgreementService;
 
+  @Autowired private JsonArrayStreamer jsonArrayStreamer;
+
   /** Get all trade agreements */
   @GetMapping
   public ResponseEntity<List<TradeAgreement>> getAllTradeAgreements() {
@@ -33,6 +40,21 @@ public class TradeAgreementController {
     return ResponseEntity.ok(agreements);
   }
 
+  /** Get one page of trade agreements ordered by ID; pass the returned nextCursor as cursor */
+  @GetMapping(params = {"limit", "stream!=true"})
+  public ResponseEntity<CursorPage<TradeAgreement>> getTradeAgreementPage(
+      @RequestParam(required = false) Long cursor, @RequestParam int limit) {
+    return ResponseEntity.ok(tradeAgreementService.getTradeAgreementPage(cursor, limit));
+  }
+
+  /** Stream every trade agreement as one JSON array, read through a database cursor */
+  @GetMapping(params = "stream=true")
+  public ResponseEntity<StreamingResponseBody> streamAllTradeAgreements() {
+    StreamingResponseBody body =
+        out -> jsonArrayStreamer.write(tradeAgreementService::streamAllTradeAgreements, out);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
   /** Get trade agreement by agreement code */
   @GetMapping("/{agreementCode}")
   public ResponseEntity<TradeAgreement> getTradeAgreementByCode(
@@ -3,6 +3,7 @@ package csd.tariff.backend.controller;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -14,9 +15,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.User;
+import csd.tariff.backend.service.JsonArrayStreamer;
 import csd.tariff.backend.service.UserService;
 import jakarta.validation.Valid;
 
@@ -26,9 +31,11 @@ import jakarta.validation.Valid;
 public class UserController {
 
   private final UserService userService;
+  private final JsonArrayStreamer jsonArrayStreamer;
 
-  public UserController(UserService userService) {
+  public UserController(UserService userService, JsonArrayStreamer jsonArrayStreamer) {
     this.userService = userService;
+    this.jsonArrayStreamer = jsonArrayStreamer;
   }
 
   public record UserSummary(Long id, String username, String email, User.Role role) {}
@@ -44,11 +51,34 @@ public class UserController {
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<List<UserSummary>> getAllUsers() {
     List<UserSummary> result = userService.getAllUsers().stream()
-        .map(user -> new UserSummary(user.getId(), user.getUsername(), user.getEmail(), user.getRole()))
+        .map(UserController::summary)
         .toList();
     return ResponseEntity.ok(result);
   }
 
+  /** Get one page of users ordered by ID; pass the returned nextCursor as cursor */
+  @GetMapping(params = {"limit", "stream!=true"})
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<CursorPage<UserSummary>> getUserPage(
+      @RequestParam(required = false) Long cursor, @RequestParam int limit) {
+    CursorPage<User> page = userService.getUserPage(cursor, limit);
+    List<UserSummary> items = page.items().stream().map(UserController::summary).toList();
+    return ResponseEntity.ok(new CursorPage<>(items, page.nextCursor()));
+  }
+
+  /** Stream every user as one JSON array, read through a database cursor */
+  @GetMapping(params = "stream=true")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+    StreamingResponseBody body =
+        out -> jsonArrayStreamer.write(() -> userService.streamAllUsers().map(UserController::summary), out);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
+  private static UserSummary summary(User user) {
+    return new UserSummary(user.getId(), user.getUsername(), user.getEmail(), user.getRole());
+  }
+
   @GetMapping("/{id}")
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<UserSummary> getUserById(@PathVariable Long id) {
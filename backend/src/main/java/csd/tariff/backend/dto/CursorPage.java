@@ -0,0 +1,32 @@
+package csd.tariff.backend.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One keyset page of a list ordered by ID. Pass {@code nextCursor} as the {@code cursor} of the
+ * next request; it is null on the last page.
+ */
+public record CursorPage<T>(List<T> items, Long nextCursor) {
+
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * Page size actually served for a requested limit
+     */
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Build a page from up to {@code limit + 1} rows read after the cursor; the extra row only
+     * signals that another page exists
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, Long> idOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(List.copyOf(items), idOf.apply(items.get(limit - 1)));
+    }
+}
@@ -0,0 +1,57 @@
+package csd.tariff.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import csd.tariff.backend.model.MfnTariffRate;
+
+/**
+ * Read-only MFN rate for list and detail views, selected with a JPQL constructor expression that
+ * joins the product once instead of loading it per row. Serializes to the same JSON as
+ * {@link MfnTariffRate} plus the product's {@code hts8}.
+ */
+public record MfnRateView(
+        Long id,
+        String hts8,
+        String mfnTextRate,
+        String mfnRateTypeCode,
+        BigDecimal mfnAve,
+        BigDecimal mfnadValoremRate,
+        BigDecimal mfnSpecificRate,
+        BigDecimal mfnOtherRate,
+        String col1SpecialText,
+        String col1SpecialMod,
+        String col2TextRate,
+        String col2RateTypeCode,
+        BigDecimal col2adValoremRate,
+        BigDecimal col2SpecificRate,
+        BigDecimal col2OtherRate,
+        LocalDate beginEffectDate,
+        LocalDate endEffectiveDate,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+
+    public static MfnRateView from(MfnTariffRate rate) {
+        return new MfnRateView(
+            rate.getId(),
+            rate.getProduct() != null ? rate.getProduct().getHts8() : null,
+            rate.getMfnTextRate(),
+            rate.getMfnRateTypeCode(),
+            rate.getMfnAve(),
+            rate.getMfnadValoremRate(),
+            rate.getMfnSpecificRate(),
+            rate.getMfnOtherRate(),
+            rate.getCol1SpecialText(),
+            rate.getCol1SpecialMod(),
+            rate.getCol2TextRate(),
+            rate.getCol2RateTypeCode(),
+            rate.getCol2adValoremRate(),
+            rate.getCol2SpecificRate(),
+            rate.getCol2OtherRate(),
+            rate.getBeginEffectDate(),
+            rate.getEndEffectiveDate(),
+            rate.getCreatedAt(),
+            rate.getUpdatedAt());
+    }
+}
@@ -0,0 +1,44 @@
+package csd.tariff.backend.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Objects for product lookups
+ */
+public class ProductDTOs {
+
+    /**
+     * Compact product entry for autocomplete results
+     */
+    public record ProductSuggestion(String hts8, String description, String mfnRate) {}
+
+    /**
+     * Number of products under an HTS prefix, for drill-down
+     */
+    public record HtsPrefixCount(String prefix, String level, int count) {}
+
+    /**
+     * Response DTO for HTS prefix autocomplete
+     */
+    public record AutocompleteResponse(
+            String prefix,
+            String level,
+            int total,
+            List<HtsPrefixCount> children,
+            List<ProductSuggestion> suggestions) {}
+
+    /**
+     * One ranked description search result; the snippet marks matched terms with {@code <b>}
+     */
+    public record ProductSearchHit(Long id, String hts8, String description, float rank, String snippet) {}
+
+    /**
+     * Response DTO for description search; pass {@code nextCursor} back to get the next page
+     */
+    public record ProductSearchPage(String query, List<ProductSearchHit> results, String nextCursor) {}
+
+    /**
+     * Product ranked by relevance to a free-text classification query
+     */
+    public record ProductMatch(Long id, String hts8, String description, float score) {}
+}
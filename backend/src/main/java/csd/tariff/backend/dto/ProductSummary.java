@@ -0,0 +1,32 @@
+package csd.tariff.backend.dto;
+
+import java.time.LocalDateTime;
+
+import csd.tariff.backend.model.Product;
+
+/**
+ * Read-only product row for list views, selected column by column with a JPQL constructor
+ * expression so no entity or association is loaded. Serializes to the same JSON as {@link Product}.
+ */
+public record ProductSummary(
+        Long id,
+        String hts8,
+        String briefDescription,
+        String quantity1Code,
+        String quantity2Code,
+        String wtoBindingCode,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+
+    public static ProductSummary from(Product product) {
+        return new ProductSummary(
+            product.getId(),
+            product.getHts8(),
+            product.getBriefDescription(),
+            product.getQuantity1Code(),
+            product.getQuantity2Code(),
+            product.getWtoBindingCode(),
+            product.getCreatedAt(),
+            product.getUpdatedAt());
+    }
+}
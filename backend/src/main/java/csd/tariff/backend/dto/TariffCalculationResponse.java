@@ -6,6 +6,7 @@ import java.util.List;
 
 public class TariffCalculationResponse {
     
+    private Long calculationId;       // set when the calculation is saved
     private String htsCode;
     private String productDescription;
     private String originCountry;
@@ -29,6 +30,7 @@ public class TariffCalculationResponse {
     private String effectiveDate;
     private String notes;
     private LocalDateTime calculationTimestamp;
+    private Long scheduleVersion;     // schedule version the calculation was priced against
     
     // Constructors
     public TariffCalculationResponse() {
@@ -48,6 +50,14 @@ public class TariffCalculationResponse {
     }
     
     // Getters and Setters
+    public Long getCalculationId() {
+        return calculationId;
+    }
+    
+    public void setCalculationId(Long calculationId) {
+        this.calculationId = calculationId;
+    }
+    
     public String getHtsCode() {
         return htsCode;
     }
@@ -184,10 +194,19 @@ public class TariffCalculationResponse {
         this.calculationTimestamp = calculationTimestamp;
     }
     
+    public Long getScheduleVersion() {
+        return scheduleVersion;
+    }
+    
+    public void setScheduleVersion(Long scheduleVersion) {
+        this.scheduleVersion = scheduleVersion;
+    }
+    
     @Override
     public String toString() {
         return "TariffCalculationResponse{" +
-                "htsCode='" + htsCode + '\'' +
+                "calculationId=" + calculationId +
+                ", htsCode='" + htsCode + '\'' +
                 ", originCountry='" + originCountry + '\'' +
                 ", destinationCountry='" + destinationCountry + '\'' +
                 ", productValue=" + productValue +
@@ -203,6 +222,7 @@ public class TariffCalculationResponse {
                 ", effectiveDate='" + effectiveDate + '\'' +
                 ", notes='" + notes + '\'' +
                 ", calculationTimestamp=" + calculationTimestamp +
+                ", scheduleVersion=" + scheduleVersion +
                 '}';
     }
 }
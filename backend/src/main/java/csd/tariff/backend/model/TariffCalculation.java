@@ -13,14 +13,21 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
 @Table(name = "calculations", schema = "tariff")
 public class TariffCalculation {
 
+  // Pooled: each sequence call reserves a block of IDs (see V7 and TariffCalculationWriter)
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "calculations_id")
+  @SequenceGenerator(
+      name = "calculations_id",
+      sequenceName = "calculations_id_seq",
+      schema = "tariff",
+      allocationSize = 50)
   private Long id;
 
   @Column(name = "hts_code", nullable = false, length = 8)
@@ -61,6 +68,15 @@ public class TariffCalculation {
   @Column(name = "currency", length = 3)
   private String currency;
 
+  // Schedule version the calculation was priced against (V10); null for older rows
+  @Column(name = "schedule_version")
+  private Long scheduleVersion;
+
+  // Date of the exchange rates the totals were converted at; null for older rows
+  @Column(name = "fx_date")
+  @JsonFormat(pattern = "yyyy-MM-dd")
+  private LocalDate fxDate;
+
   @Column(name = "created_at")
   @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
   private LocalDateTime createdAt;
@@ -115,6 +131,10 @@ public class TariffCalculation {
     return id;
   }
 
+  public void setId(Long id) {
+    this.id = id;
+  }
+
   public String getHtsCode() {
     return htsCode;
   }
@@ -191,6 +211,10 @@ public class TariffCalculation {
     return createdAt;
   }
 
+  public void setCreatedAt(LocalDateTime createdAt) {
+    this.createdAt = createdAt;
+  }
+
   public LocalDateTime getUpdatedAt() {
     return updatedAt;
   }
@@ -222,4 +246,28 @@ public class TariffCalculation {
   public void setCurrency(String currency) {
     this.currency = currency;
   }
+
+  public Long getScheduleVersion() {
+    return scheduleVersion;
+  }
+
+  public void setScheduleVersion(Long scheduleVersion) {
+    this.scheduleVersion = scheduleVersion;
+  }
+
+  public LocalDate getFxDate() {
+    return fxDate;
+  }
+
+  public void setFxDate(LocalDate fxDate) {
+    this.fxDate = fxDate;
+  }
+
+  /** The date the totals were converted at: the recorded one, or the creation date for older rows */
+  public LocalDate getPricedFxDate() {
+    if (fxDate != null) {
+      return fxDate;
+    }
+    return createdAt != null ? createdAt.toLocalDate() : null;
+  }
 }
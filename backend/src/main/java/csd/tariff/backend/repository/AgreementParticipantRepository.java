@@ -1,5 +1,6 @@
 package csd.tariff.backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +27,11 @@ public interface AgreementParticipantRepository extends JpaRepository<AgreementP
     // Find participants by country code
     @Query("SELECT ap FROM AgreementParticipant ap JOIN ap.country c WHERE c.countryCode = :countryCode")
     List<AgreementParticipant> findByCountryCode(@Param("countryCode") String countryCode);
+
+    // Participants of a set of countries, with agreement and country fetched in the same statement
+    @Query("SELECT ap FROM AgreementParticipant ap JOIN FETCH ap.agreement JOIN FETCH ap.country c " +
+           "WHERE c.countryCode IN :countryCodes")
+    List<AgreementParticipant> findByCountryCodeIn(@Param("countryCodes") Collection<String> countryCodes);
     
     // Find specific participant by agreement and country
     @Query("SELECT ap FROM AgreementParticipant ap WHERE ap.agreement.id = :agreementId AND ap.country.id = :countryId")
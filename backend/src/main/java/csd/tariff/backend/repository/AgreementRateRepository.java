@@ -1,5 +1,6 @@
 package csd.tariff.backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -36,7 +37,24 @@ public interface AgreementRateRepository extends JpaRepository<AgreementRate, Lo
     // Find rates for specific product and country
     @Query("SELECT atr FROM AgreementRate atr JOIN atr.product p JOIN atr.country c WHERE p.hts8 = :hts8 AND c.countryCode = :countryCode")
     List<AgreementRate> findByHts8AndCountryCode(@Param("hts8") String hts8, @Param("countryCode") String countryCode);
+
+    // Rates for a set of products into any country, fetched like findByHts8InAndCountryCodeIn
+    @Query("SELECT atr FROM AgreementRate atr JOIN FETCH atr.product p JOIN FETCH atr.agreement " +
+           "JOIN FETCH atr.country WHERE p.hts8 IN :hts8s ORDER BY atr.id")
+    List<AgreementRate> findByHts8In(@Param("hts8s") Collection<String> hts8s);
+
+    // Rates for a set of products and countries, with product, agreement and country fetched in
+    // the same statement
+    @Query("SELECT atr FROM AgreementRate atr JOIN FETCH atr.product p JOIN FETCH atr.agreement " +
+           "JOIN FETCH atr.country c WHERE p.hts8 IN :hts8s AND c.countryCode IN :countryCodes ORDER BY atr.id")
+    List<AgreementRate> findByHts8InAndCountryCodeIn(
+        @Param("hts8s") Collection<String> hts8s, @Param("countryCodes") Collection<String> countryCodes);
     
+    // HTS code and partner country of every rate under an agreement, as {hts8, countryCode} pairs
+    @Query("SELECT DISTINCT p.hts8, c.countryCode FROM AgreementRate atr JOIN atr.product p JOIN atr.country c " +
+           "WHERE atr.agreement.id = :agreementId")
+    List<Object[]> findHts8AndCountryCodesByAgreementId(@Param("agreementId") Long agreementId);
+
     // Find rates for specific product and agreement
     @Query("SELECT atr FROM AgreementRate atr JOIN atr.product p JOIN atr.agreement ta WHERE p.hts8 = :hts8 AND ta.agreementCode = :agreementCode")
     List<AgreementRate> findByHts8AndAgreementCode(@Param("hts8") String hts8, @Param("agreementCode") String agreementCode);
@@ -2,13 +2,19 @@ package csd.tariff.backend.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import csd.tariff.backend.model.Country;
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface CountryRepository extends JpaRepository<Country, Long> {
@@ -36,6 +42,16 @@ public interface CountryRepository extends JpaRepository<Country, Long> {
     // Find countries by agreement code
     @Query("SELECT DISTINCT c FROM Country c JOIN c.agreementParticipants ap JOIN ap.agreement ta WHERE ta.agreementCode = :agreementCode")
     List<Country> findCountriesByAgreementCode(@Param("agreementCode") String agreementCode);
+    // One keyset page of countries with IDs after the cursor, ordered by ID
+    @Query("SELECT c FROM Country c WHERE c.id > :afterId ORDER BY c.id")
+    List<Country> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Every country ordered by ID, read through a cursor; consume inside a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT c FROM Country c ORDER BY c.id")
+    Stream<Country> streamAllOrderById();
     
     // Count total countries
     long count();
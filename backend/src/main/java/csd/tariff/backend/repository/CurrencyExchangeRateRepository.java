@@ -1,6 +1,8 @@
 package csd.tariff.backend.repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -37,4 +39,16 @@ public interface CurrencyExchangeRateRepository extends JpaRepository<CurrencyEx
         @Param("baseCurrencyCode") String baseCurrencyCode,
         @Param("targetCurrencyCode") String targetCurrencyCode,
         @Param("date") LocalDate date);
+    
+    /**
+     * Every rate between two currencies, oldest first
+     */
+    List<CurrencyExchangeRate> findByBaseCurrencyCodeAndTargetCurrencyCodeOrderByEffectiveDateAsc(
+        String baseCurrencyCode, String targetCurrencyCode);
+    
+    /**
+     * Latest update time across all rates, used to detect changes to the rate table
+     */
+    @Query("SELECT MAX(cer.updatedAt) FROM CurrencyExchangeRate cer")
+    LocalDateTime findLastUpdatedAt();
 }
@@ -1,17 +1,32 @@
 package csd.tariff.backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import csd.tariff.backend.dto.MfnRateView;
 import csd.tariff.backend.model.MfnTariffRate;
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface MfnTariffRateRepository extends JpaRepository<MfnTariffRate, Long> {
+
+    String MFN_RATE_VIEW_SELECT =
+        "SELECT new csd.tariff.backend.dto.MfnRateView(mfn.id, p.hts8, mfn.mfnTextRate, mfn.mfnRateTypeCode, " +
+        "mfn.mfnAve, mfn.mfnadValoremRate, mfn.mfnSpecificRate, mfn.mfnOtherRate, " +
+        "mfn.col1SpecialText, mfn.col1SpecialMod, mfn.col2TextRate, mfn.col2RateTypeCode, " +
+        "mfn.col2adValoremRate, mfn.col2SpecificRate, mfn.col2OtherRate, " +
+        "mfn.beginEffectDate, mfn.endEffectiveDate, mfn.createdAt, mfn.updatedAt) " +
+        "FROM MfnTariffRate mfn JOIN mfn.product p ";
     
     // Find by product ID
     Optional<MfnTariffRate> findByProductId(Long productId);
@@ -19,6 +34,10 @@ public interface MfnTariffRateRepository extends JpaRepository<MfnTariffRate, Lo
     // Find by HTS code
     @Query("SELECT mfn FROM MfnTariffRate mfn JOIN mfn.product p WHERE p.hts8 = :hts8")
     Optional<MfnTariffRate> findByHts8(@Param("hts8") String hts8);
+
+    // Every MFN row of a set of HTS codes, with its product, in one statement
+    @Query("SELECT mfn FROM MfnTariffRate mfn JOIN FETCH mfn.product p WHERE p.hts8 IN :hts8s ORDER BY mfn.id")
+    List<MfnTariffRate> findByHts8In(@Param("hts8s") Collection<String> hts8s);
     
     // Find products with specific MFN rates
     @Query("SELECT mfn FROM MfnTariffRate mfn WHERE mfn.mfnadValoremRate IS NOT NULL AND mfn.mfnadValoremRate > :minRate")
@@ -40,4 +59,24 @@ public interface MfnTariffRateRepository extends JpaRepository<MfnTariffRate, Lo
     // Find products with low tariff rates
     @Query("SELECT mfn FROM MfnTariffRate mfn WHERE mfn.mfnadValoremRate IS NOT NULL AND mfn.mfnadValoremRate > 0 AND mfn.mfnadValoremRate <= 0.05")
     List<MfnTariffRate> findLowTariffRates();
-}
\ No newline at end of file
+
+    // Every MFN rate as a view row with its product's HTS code, in one statement
+    @Query(MFN_RATE_VIEW_SELECT + "ORDER BY mfn.id")
+    List<MfnRateView> findAllViews();
+
+    // The MFN rate of one HTS code as a view row
+    @Query(MFN_RATE_VIEW_SELECT + "WHERE p.hts8 = :hts8")
+    Optional<MfnRateView> findViewByHts8(@Param("hts8") String hts8);
+
+    // One keyset page of MFN rates with IDs after the cursor, ordered by ID; the eager product
+    // association is fetched in the same query
+    @Query("SELECT mfn FROM MfnTariffRate mfn JOIN FETCH mfn.product WHERE mfn.id > :afterId ORDER BY mfn.id")
+    List<MfnTariffRate> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Every MFN rate ordered by ID, read through a cursor; consume inside a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT mfn FROM MfnTariffRate mfn JOIN FETCH mfn.product ORDER BY mfn.id")
+    Stream<MfnTariffRate> streamAllOrderById();
+}
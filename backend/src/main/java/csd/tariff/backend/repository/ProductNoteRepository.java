@@ -0,0 +1,22 @@
+package csd.tariff.backend.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import csd.tariff.backend.model.ProductNote;
+
+@Repository
+public interface ProductNoteRepository extends JpaRepository<ProductNote, Long> {
+
+    // Note text of every product, as [productId, noteContent] rows
+    @Query("SELECT n.product.id, n.noteContent FROM ProductNote n WHERE n.noteContent IS NOT NULL")
+    List<Object[]> findAllNoteContents();
+
+    // Note text of one product
+    @Query("SELECT n.noteContent FROM ProductNote n WHERE n.product.id = :productId AND n.noteContent IS NOT NULL")
+    List<String> findNoteContentsByProductId(@Param("productId") Long productId);
+}
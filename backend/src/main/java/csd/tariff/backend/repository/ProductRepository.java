@@ -1,25 +1,56 @@
 package csd.tariff.backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import csd.tariff.backend.dto.ProductSummary;
 import csd.tariff.backend.model.Product;
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
     // Find by HTS code
     Optional<Product> findByHts8(String hts8);
+
+    // Find every product of a set of HTS codes
+    List<Product> findByHts8In(Collection<String> hts8s);
+
+    // Schedule rows for a set of HTS codes in one statement: each product with every MFN row and
+    // its agreement rates into the given countries, each rate's agreement and country selected
+    // alongside so none is loaded separately. Rows are [Product, MfnTariffRate, AgreementRate,
+    // TradeAgreement, Country]; the last four may be null, and entities repeat across rows.
+    @Query("SELECT p, mfn, atr, ta, c FROM Product p " +
+           "LEFT JOIN MfnTariffRate mfn ON mfn.product = p " +
+           "LEFT JOIN AgreementRate atr ON atr.product = p AND atr.country.id IN " +
+           "(SELECT dc.id FROM Country dc WHERE dc.countryCode IN :countryCodes) " +
+           "LEFT JOIN atr.agreement ta " +
+           "LEFT JOIN atr.country c " +
+           "WHERE p.hts8 IN :hts8s " +
+           "ORDER BY p.id, mfn.id, atr.id")
+    List<Object[]> findScheduleRows(
+        @Param("hts8s") Collection<String> hts8s, @Param("countryCodes") Collection<String> countryCodes);
     
     // Search by product description
     @Query("SELECT p FROM Product p WHERE LOWER(p.briefDescription) LIKE LOWER(CONCAT('%', :description, '%'))")
     List<Product> findByBriefDescriptionContainingIgnoreCase(@Param("description") String description);
     
+    // Search by product description, one keyset page ordered by ID
+    @Query("SELECT p FROM Product p WHERE LOWER(p.briefDescription) LIKE LOWER(CONCAT('%', :description, '%')) " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<Product> findByBriefDescriptionContainingAfterId(
+        @Param("description") String description, @Param("afterId") Long afterId, Pageable pageable);
+
     // Search by HTS code pattern
     @Query("SELECT p FROM Product p WHERE p.hts8 LIKE CONCAT(:pattern, '%')")
     List<Product> findByHts8StartingWith(@Param("pattern") String pattern);
@@ -41,10 +72,27 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT DISTINCT p FROM Product p JOIN p.productIndicators pi WHERE pi.indicatorType = :indicatorType")
     List<Product> findProductsByIndicatorType(@Param("indicatorType") String indicatorType);
     
+    // Every product as a list row, columns only; no entity or association is loaded
+    @Query("SELECT new csd.tariff.backend.dto.ProductSummary(p.id, p.hts8, p.briefDescription, " +
+           "p.quantity1Code, p.quantity2Code, p.wtoBindingCode, p.createdAt, p.updatedAt) " +
+           "FROM Product p ORDER BY p.id")
+    List<ProductSummary> findAllSummaries();
+
     // Find all products with MFN rates 
     @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.mfnTariffRates")
     List<Product> findAllWithMfnRates();
 
+    // One keyset page of products with IDs after the cursor, ordered by ID
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Product> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Every product ordered by ID, read through a cursor; consume inside a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllOrderById();
+
     // Count total products
     long count();
 }
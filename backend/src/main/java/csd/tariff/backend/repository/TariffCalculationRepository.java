@@ -1,8 +1,15 @@
 package csd.tariff.backend.repository;
 
 import csd.tariff.backend.model.TariffCalculation;
+import jakarta.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -25,4 +32,15 @@ public interface TariffCalculationRepository extends JpaRepository<TariffCalcula
 
   /** Count tariff calculations by country code */
   long countByCountryCode(String countryCode);
+
+  /** One keyset page of tariff calculations with IDs after the cursor, ordered by ID */
+  @Query("SELECT c FROM TariffCalculation c WHERE c.id > :afterId ORDER BY c.id")
+  List<TariffCalculation> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+  /** Every tariff calculation ordered by ID, read through a cursor; consume inside a transaction */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+  @Query("SELECT c FROM TariffCalculation c ORDER BY c.id")
+  Stream<TariffCalculation> streamAllOrderById();
 }
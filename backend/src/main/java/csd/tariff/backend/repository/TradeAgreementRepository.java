@@ -1,11 +1,16 @@
 package csd.tariff.backend.repository;
 
 import csd.tariff.backend.model.TradeAgreement;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -74,6 +79,17 @@ public interface TradeAgreementRepository extends JpaRepository<TradeAgreement,
   List<TradeAgreement> findActiveBetweenDates(
       @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
+  // One keyset page of agreements with IDs after the cursor, ordered by ID
+  @Query("SELECT ta FROM TradeAgreement ta WHERE ta.id > :afterId ORDER BY ta.id")
+  List<TradeAgreement> findPageAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+  // Every agreement ordered by ID, read through a cursor; consume inside a transaction
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+  @Query("SELECT ta FROM TradeAgreement ta ORDER BY ta.id")
+  Stream<TradeAgreement> streamAllOrderById();
+
   // Count total agreements
   long count();
 }
@@ -5,12 +5,13 @@ import java.io.IOException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import csd.tariff.backend.service.JwtService;
+import csd.tariff.backend.service.UserPrincipalService;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.DispatcherType;
@@ -23,11 +24,11 @@ import jakarta.servlet.http.HttpServletResponse;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
   private final JwtService jwt;
-  private final UserDetailsService uds;
+  private final UserPrincipalService principals;
 
-  public JwtAuthFilter(JwtService jwt, UserDetailsService uds) {
+  public JwtAuthFilter(JwtService jwt, UserPrincipalService principals) {
     this.jwt = jwt;
-    this.uds = uds;
+    this.principals = principals;
   }
 
   @Override
@@ -51,10 +52,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     if (header != null && header.startsWith("Bearer ")) {
       String token = header.substring(7);
       try {
-        String email = jwt.extractEmail(token);
-        UserDetails user = uds.loadUserByUsername(email);
+        // Verified once here; the validity check reuses the claims
+        Claims claims = jwt.parseClaims(token);
+        String email = claims.getSubject();
+        UserDetails user = principals.resolve(claims);
 
-        if (jwt.isValid(token, user)) {
+        if (jwt.isValidClaims(claims, user)) {
           var auth = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
           auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
           SecurityContextHolder.getContext().setAuthentication(auth);
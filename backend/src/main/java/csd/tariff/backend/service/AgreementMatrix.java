@@ -0,0 +1,159 @@
+package csd.tariff.backend.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import csd.tariff.backend.model.AgreementParticipant;
+import csd.tariff.backend.model.TradeAgreement;
+
+/**
+ * Trade agreement membership as one bitset per country, indexed by agreement.
+ *
+ * <p>The agreements two countries share are the bitwise AND of their rows, and the programs that
+ * apply on a date are that AND with the mask of agreements active on the date. The mask for the
+ * current day is cached and rebuilt on the first lookup after the date rolls over; membership
+ * changes produce a new matrix with the next {@link TariffScheduleSnapshot}.
+ */
+public final class AgreementMatrix {
+
+    private record ActiveMask(long day, long[] bits) {}
+
+    private final TradeAgreement[] agreements;
+    // "CODE - Name", as listed by getApplicableTradePrograms
+    private final String[] programLabels;
+    private final Map<String, long[]> membersByCountry;
+    private final int words;
+
+    private volatile ActiveMask activeMask;
+
+    private AgreementMatrix(TradeAgreement[] agreements, Map<String, long[]> membersByCountry) {
+        this.agreements = agreements;
+        this.membersByCountry = membersByCountry;
+        this.words = words(agreements.length);
+        this.programLabels = new String[agreements.length];
+        for (int i = 0; i < agreements.length; i++) {
+            programLabels[i] = agreements[i].getAgreementCode() + " - " + agreements[i].getAgreementName();
+        }
+    }
+
+    /**
+     * Build the matrix from agreement participants. Agreements are indexed in order of first
+     * appearance; country codes are upper-cased.
+     */
+    public static AgreementMatrix of(List<AgreementParticipant> participants) {
+        Map<TradeAgreement, Integer> indexByAgreement = new IdentityHashMap<>();
+        List<TradeAgreement> agreements = new ArrayList<>();
+        Map<String, List<Integer>> indexesByCountry = new HashMap<>();
+        for (AgreementParticipant participant : participants) {
+            if (participant.getAgreement() == null
+                    || participant.getCountry() == null
+                    || participant.getCountry().getCountryCode() == null) {
+                continue;
+            }
+            int index = indexByAgreement.computeIfAbsent(participant.getAgreement(), agreement -> {
+                agreements.add(agreement);
+                return agreements.size() - 1;
+            });
+            indexesByCountry
+                .computeIfAbsent(participant.getCountry().getCountryCode().toUpperCase(Locale.ROOT), k -> new ArrayList<>())
+                .add(index);
+        }
+
+        int words = words(agreements.size());
+        Map<String, long[]> membersByCountry = new HashMap<>(indexesByCountry.size() * 2);
+        indexesByCountry.forEach((country, indexes) -> {
+            long[] bits = new long[words];
+            for (int index : indexes) {
+                bits[index >>> 6] |= 1L << index;
+            }
+            membersByCountry.put(country, bits);
+        });
+        return new AgreementMatrix(agreements.toArray(new TradeAgreement[0]), membersByCountry);
+    }
+
+    /**
+     * Agreements both countries participate in, in index order
+     */
+    public List<TradeAgreement> between(String country1, String country2) {
+        long[] first = members(country1);
+        long[] second = members(country2);
+        if (first == null || second == null) {
+            return List.of();
+        }
+        List<TradeAgreement> out = new ArrayList<>();
+        for (int w = 0; w < words; w++) {
+            for (long bits = first[w] & second[w]; bits != 0; bits &= bits - 1) {
+                out.add(agreements[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * "CODE - Name" of every agreement both countries participate in that is active on the date
+     */
+    public List<String> activePrograms(String country1, String country2, LocalDate date) {
+        long[] first = members(country1);
+        long[] second = members(country2);
+        if (first == null || second == null) {
+            return new ArrayList<>();
+        }
+        long[] active = activeOn(date);
+        List<String> out = new ArrayList<>();
+        for (int w = 0; w < words; w++) {
+            for (long bits = first[w] & second[w] & active[w]; bits != 0; bits &= bits - 1) {
+                out.add(programLabels[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Mask of agreements in force on a date: started before it and not yet expired
+     */
+    long[] activeOn(LocalDate date) {
+        long day = date.toEpochDay();
+        ActiveMask mask = activeMask;
+        if (mask != null && mask.day() == day) {
+            return mask.bits();
+        }
+        long[] bits = new long[words];
+        for (int i = 0; i < agreements.length; i++) {
+            if (isActive(agreements[i], date)) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        // Keep the mask for today only; other dates are computed per call
+        if (date.equals(LocalDate.now())) {
+            activeMask = new ActiveMask(day, bits);
+        }
+        return bits;
+    }
+
+    static boolean isActive(TradeAgreement agreement, LocalDate date) {
+        return agreement.getEffectiveDate() != null
+            && agreement.getEffectiveDate().isBefore(date)
+            && (agreement.getExpirationDate() == null || agreement.getExpirationDate().isAfter(date));
+    }
+
+    public int agreementCount() {
+        return agreements.length;
+    }
+
+    public int countryCount() {
+        return membersByCountry.size();
+    }
+
+    private long[] members(String country) {
+        return country == null ? null : membersByCountry.get(country.toUpperCase(Locale.ROOT));
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+}
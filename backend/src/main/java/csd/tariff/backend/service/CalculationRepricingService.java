@@ -0,0 +1,480 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import csd.tariff.backend.dto.TariffCalculationRequest;
+import csd.tariff.backend.dto.TariffCalculationResponse;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Re-prices saved calculations after the rates they were priced against change.
+ *
+ * <p>Rate writes publish a {@link RatesChanged} event naming the HTS codes, and where known the
+ * destinations, they affect. The calculations that depend on them are found through the
+ * {@code (hts_code, destination_country, id)} dependency index (V11) and priced again on a
+ * background thread, a chunk of {@code app.calculations.repricing.chunk-size} rows at a time
+ * against one schedule lookup. Each row is priced as on the day it was first priced, so a change
+ * to rates that were not in effect that day leaves it, and its schedule version, untouched. Only
+ * rows whose totals changed are written, each chunk in its own transaction, together with a
+ * before/after entry in the run's delta report ({@code tariff.repricing_changes}). A row changed
+ * by someone else since it was read is left alone.
+ *
+ * <p>One run at a time: changes published while a run is in progress are merged and re-priced by
+ * the next run. Each run is recorded in {@code tariff.repricing_runs}.
+ */
+@Service
+public class CalculationRepricingService {
+
+    private static final Logger log = LoggerFactory.getLogger(CalculationRepricingService.class);
+
+    /**
+     * Calculations to re-price: those for an HTS code and destination, or for every destination
+     * when {@code destinationCountry} is null
+     */
+    public record RepricingScope(String hts8, String destinationCountry) {
+
+        public static RepricingScope of(String hts8) {
+            return new RepricingScope(hts8, null);
+        }
+    }
+
+    /**
+     * Published after rates were written and the schedule refreshed; {@code trigger} names the
+     * change for the run record
+     */
+    public record RatesChanged(String trigger, Collection<RepricingScope> scopes) {}
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /** State of a run: scopes done out of the total, and rows read, re-priced and left unpriced */
+    public record RepricingProgress(
+            long runId,
+            String trigger,
+            Status status,
+            int scopesDone,
+            int scopesTotal,
+            long rowsScanned,
+            long rowsRepriced,
+            long rowsFailed,
+            String message) {}
+
+    /** One delta report entry: a calculation's totals and schedule version before and after */
+    public record RepricedCalculation(
+            long calculationId,
+            String htsCode,
+            String destinationCountry,
+            BigDecimal oldTotalTariffAmount,
+            BigDecimal newTotalTariffAmount,
+            BigDecimal oldCalculationResult,
+            BigDecimal newCalculationResult,
+            Long oldScheduleVersion,
+            Long newScheduleVersion) {}
+
+    /** A saved calculation as read for re-pricing */
+    record StoredCalculation(
+            long id,
+            String htsCode,
+            String originCountry,
+            String destinationCountry,
+            BigDecimal productValue,
+            Integer quantity,
+            String currency,
+            LocalDate tariffEffectiveDate,
+            LocalDate tariffExpirationDate,
+            BigDecimal totalTariffAmount,
+            BigDecimal calculationResult,
+            Long scheduleVersion,
+            LocalDate pricedOn,
+            LocalDate fxDate) {}
+
+    private static final String CALCULATION_COLUMNS =
+            "SELECT id, hts_code, origin_country, destination_country, product_value, quantity, currency, "
+            + "tariff_effective_date, tariff_expiration_date, total_tariff_amount, calculation_result, schedule_version, "
+            + "CAST(created_at AS DATE) AS priced_on, COALESCE(fx_date, CAST(created_at AS DATE)) AS fx_date "
+            + "FROM tariff.calculations ";
+
+    // Both page in dependency index order, so every chunk is one index range scan
+    private static final String CHUNK_FOR_DESTINATION_SQL = CALCULATION_COLUMNS
+            + "WHERE hts_code = ? AND destination_country = ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String CHUNK_FOR_CODE_SQL = CALCULATION_COLUMNS
+            + "WHERE hts_code = ? AND (destination_country, id) > (?, ?) ORDER BY destination_country, id LIMIT ?";
+
+    // Skips rows whose totals changed since they were read
+    private static final String REPRICE_SQL =
+            "UPDATE tariff.calculations SET total_tariff_amount = ?, calculation_result = ?, schedule_version = ?, "
+            + "updated_at = CURRENT_TIMESTAMP WHERE id = ? AND total_tariff_amount = ? AND calculation_result = ?";
+
+    private static final String INSERT_CHANGE_SQL =
+            "INSERT INTO tariff.repricing_changes (run_id, calculation_id, hts_code, destination_country, "
+            + "old_total_tariff_amount, new_total_tariff_amount, old_calculation_result, new_calculation_result, "
+            + "old_schedule_version, new_schedule_version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String START_RUN_SQL =
+            "INSERT INTO tariff.repricing_runs (trigger_name, status, scopes) VALUES (?, 'RUNNING', ?) RETURNING id";
+
+    private static final String UPDATE_RUN_SQL =
+            "UPDATE tariff.repricing_runs SET rows_scanned = ?, rows_repriced = ?, rows_failed = ? WHERE id = ?";
+
+    private static final String FINISH_RUN_SQL =
+            "UPDATE tariff.repricing_runs SET status = ?, rows_scanned = ?, rows_repriced = ?, rows_failed = ?, "
+            + "error_message = ?, finished_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    private static final String SELECT_CHANGES_SQL =
+            "SELECT calculation_id, hts_code, destination_country, old_total_tariff_amount, new_total_tariff_amount, "
+            + "old_calculation_result, new_calculation_result, old_schedule_version, new_schedule_version "
+            + "FROM tariff.repricing_changes WHERE run_id = ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TariffCalculationService tariffCalculationService;
+    private final TariffCalculationWriter tariffCalculationWriter;
+    private final ScheduleVersionService scheduleVersionService;
+    private final int chunkSize;
+
+    private final ExecutorService executor;
+    private final Set<RepricingScope> pending = new LinkedHashSet<>();
+    private final Set<String> pendingTriggers = new LinkedHashSet<>();
+    private boolean scheduled;
+    private final AtomicReference<RepricingProgress> latest = new AtomicReference<>();
+
+    public CalculationRepricingService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            TariffCalculationService tariffCalculationService,
+            TariffCalculationWriter tariffCalculationWriter,
+            ScheduleVersionService scheduleVersionService,
+            @Value("${app.calculations.repricing.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tariffCalculationService = tariffCalculationService;
+        this.tariffCalculationWriter = tariffCalculationWriter;
+        this.scheduleVersionService = scheduleVersionService;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "calculation-repricing");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @EventListener
+    public void onRatesChanged(RatesChanged event) {
+        request(event.trigger(), event.scopes());
+    }
+
+    /**
+     * Queue calculations for re-pricing. Returns at once; the work is done by the next run.
+     */
+    public void request(String trigger, Collection<RepricingScope> scopes) {
+        if (scopes.isEmpty()) {
+            return;
+        }
+        synchronized (pending) {
+            pending.addAll(scopes);
+            pendingTriggers.add(trigger);
+            if (!scheduled) {
+                scheduled = true;
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * Progress of the running re-pricing run, or of the last one since startup
+     */
+    public Optional<RepricingProgress> latestProgress() {
+        return Optional.ofNullable(latest.get());
+    }
+
+    /**
+     * Delta report of a run, in the order the rows were re-priced
+     */
+    public void streamChanges(long runId, Consumer<RepricedCalculation> sink) {
+        jdbcTemplate.query(SELECT_CHANGES_SQL, rs -> {
+            sink.accept(new RepricedCalculation(rs.getLong("calculation_id"), rs.getString("hts_code"),
+                    rs.getString("destination_country"), rs.getBigDecimal("old_total_tariff_amount"),
+                    rs.getBigDecimal("new_total_tariff_amount"), rs.getBigDecimal("old_calculation_result"),
+                    rs.getBigDecimal("new_calculation_result"), nullableLong(rs, "old_schedule_version"),
+                    nullableLong(rs, "new_schedule_version")));
+        }, runId);
+    }
+
+    /**
+     * Run until nothing is queued
+     */
+    private void drain() {
+        while (true) {
+            List<RepricingScope> scopes;
+            String trigger;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+                scopes = merge(pending);
+                trigger = String.join(", ", pendingTriggers);
+                pending.clear();
+                pendingTriggers.clear();
+            }
+            try {
+                reprice(trigger, scopes);
+            } catch (RuntimeException e) {
+                log.warn("Re-pricing for {} failed: {}", trigger, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The scopes without those another scope already covers
+     */
+    static List<RepricingScope> merge(Collection<RepricingScope> scopes) {
+        Set<String> wholeCodes = new HashSet<>();
+        for (RepricingScope scope : scopes) {
+            if (scope.destinationCountry() == null) {
+                wholeCodes.add(scope.hts8());
+            }
+        }
+        List<RepricingScope> merged = new ArrayList<>();
+        for (RepricingScope scope : new LinkedHashSet<>(scopes)) {
+            if (scope.destinationCountry() == null || !wholeCodes.contains(scope.hts8())) {
+                merged.add(scope);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * One run: every calculation in the scopes, a chunk at a time
+     */
+    RepricingProgress reprice(String trigger, List<RepricingScope> scopes) {
+        long runId = jdbcTemplate.queryForObject(START_RUN_SQL, Long.class, trigger, scopes.size());
+        Run run = new Run(runId, trigger, scopes.size());
+        log.info("Re-pricing run {} started for {} ({} scopes)", runId, trigger, scopes.size());
+        try {
+            // Rows still queued by the write-behind writer would be missed
+            tariffCalculationWriter.flush();
+            for (RepricingScope scope : scopes) {
+                repriceScope(run, scope);
+                run.scopesDone++;
+                run.report(Status.RUNNING, null);
+            }
+            finishRun(run, Status.COMPLETED, null);
+            RepricingProgress done = run.report(Status.COMPLETED, "Re-priced " + run.rowsRepriced + " of "
+                    + run.rowsScanned + " calculations; " + run.rowsFailed + " could not be priced");
+            log.info("Re-pricing run {} completed: {}", runId, done);
+            return done;
+        } catch (RuntimeException e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            try {
+                finishRun(run, Status.FAILED, message);
+            } catch (RuntimeException recordFailure) {
+                log.warn("Could not record failure of re-pricing run {}: {}", runId, recordFailure.getMessage());
+            }
+            run.report(Status.FAILED, message);
+            throw e;
+        }
+    }
+
+    private void repriceScope(Run run, RepricingScope scope) {
+        String lastDestination = "";
+        long lastId = 0;
+        while (true) {
+            List<StoredCalculation> chunk = scope.destinationCountry() != null
+                    ? jdbcTemplate.query(CHUNK_FOR_DESTINATION_SQL, this::mapCalculation,
+                            scope.hts8(), scope.destinationCountry(), lastId, chunkSize)
+                    : jdbcTemplate.query(CHUNK_FOR_CODE_SQL, this::mapCalculation,
+                            scope.hts8(), lastDestination, lastId, chunkSize);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            repriceChunk(run, chunk);
+            StoredCalculation last = chunk.get(chunk.size() - 1);
+            lastDestination = last.destinationCountry();
+            lastId = last.id();
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Price a chunk against one lookup and write the rows whose totals changed, in one transaction
+     */
+    private void repriceChunk(Run run, List<StoredCalculation> chunk) {
+        Set<String> htsCodes = new HashSet<>();
+        Set<String> countries = new HashSet<>();
+        for (StoredCalculation calculation : chunk) {
+            htsCodes.add(calculation.htsCode());
+            countries.add(calculation.originCountry());
+            countries.add(calculation.destinationCountry());
+        }
+        countries.remove(null);
+        TariffScheduleLookup lookup = tariffCalculationService.getScheduleLookup(htsCodes, countries);
+        Long version = lookup.getScheduleVersion();
+        Long newVersion = version != null ? version : scheduleVersionService.currentVersion();
+
+        List<RepricedCalculation> changed = new ArrayList<>();
+        for (StoredCalculation calculation : chunk) {
+            run.rowsScanned++;
+            TariffCalculationResponse response;
+            try {
+                // The rates in effect on the day the row was priced, at the exchange rates it was
+                // converted at, so a run only rewrites rows whose own rate changed
+                response = tariffCalculationService.calculateTariffCalculation(
+                        request(calculation), lookup, calculation.pricedOn(), calculation.fxDate());
+            } catch (RuntimeException e) {
+                run.rowsFailed++;
+                continue;
+            }
+            BigDecimal totalTariff = money(response.getTotalTariffAmount());
+            BigDecimal importPrice = money(response.getTotalImportPrice());
+            if (!sameAmount(totalTariff, calculation.totalTariffAmount())
+                    || !sameAmount(importPrice, calculation.calculationResult())) {
+                changed.add(new RepricedCalculation(calculation.id(), calculation.htsCode(),
+                        calculation.destinationCountry(), calculation.totalTariffAmount(), totalTariff,
+                        calculation.calculationResult(), importPrice, calculation.scheduleVersion(), newVersion));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!changed.isEmpty()) {
+                List<Object[]> updates = new ArrayList<>(changed.size());
+                for (RepricedCalculation change : changed) {
+                    updates.add(new Object[] {change.newTotalTariffAmount(), change.newCalculationResult(),
+                        change.newScheduleVersion(), change.calculationId(), change.oldTotalTariffAmount(),
+                        change.oldCalculationResult()});
+                }
+                int[] updated = jdbcTemplate.batchUpdate(REPRICE_SQL, updates);
+                List<Object[]> report = new ArrayList<>(changed.size());
+                for (int i = 0; i < changed.size(); i++) {
+                    // Statement.SUCCESS_NO_INFO (-2) means the row was updated but not counted
+                    if (updated[i] != 0) {
+                        RepricedCalculation change = changed.get(i);
+                        report.add(new Object[] {run.runId, change.calculationId(), change.htsCode(),
+                            change.destinationCountry(), change.oldTotalTariffAmount(), change.newTotalTariffAmount(),
+                            change.oldCalculationResult(), change.newCalculationResult(),
+                            change.oldScheduleVersion(), change.newScheduleVersion()});
+                    }
+                }
+                if (!report.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_CHANGE_SQL, report);
+                    run.rowsRepriced += report.size();
+                }
+            }
+            jdbcTemplate.update(UPDATE_RUN_SQL, run.rowsScanned, run.rowsRepriced, run.rowsFailed, run.runId);
+        });
+        run.report(Status.RUNNING, null);
+    }
+
+    private static TariffCalculationRequest request(StoredCalculation calculation) {
+        return new TariffCalculationRequest(
+                calculation.htsCode(),
+                calculation.originCountry(),
+                calculation.destinationCountry(),
+                calculation.productValue(),
+                calculation.quantity(),
+                calculation.currency(),
+                calculation.tariffEffectiveDate(),
+                calculation.tariffExpirationDate());
+    }
+
+    /** Amounts are stored with two decimals */
+    static BigDecimal money(BigDecimal amount) {
+        return amount == null ? null : amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null || b == null ? Objects.equals(a, b) : a.compareTo(b) == 0;
+    }
+
+    private StoredCalculation mapCalculation(ResultSet rs, int rowNum) throws SQLException {
+        return new StoredCalculation(
+                rs.getLong("id"),
+                rs.getString("hts_code"),
+                rs.getString("origin_country"),
+                rs.getString("destination_country"),
+                rs.getBigDecimal("product_value"),
+                rs.getInt("quantity"),
+                rs.getString("currency"),
+                rs.getObject("tariff_effective_date", LocalDate.class),
+                rs.getObject("tariff_expiration_date", LocalDate.class),
+                rs.getBigDecimal("total_tariff_amount"),
+                rs.getBigDecimal("calculation_result"),
+                nullableLong(rs, "schedule_version"),
+                rs.getObject("priced_on", LocalDate.class),
+                rs.getObject("fx_date", LocalDate.class));
+    }
+
+    private static Long nullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private void finishRun(Run run, Status status, String error) {
+        jdbcTemplate.update(FINISH_RUN_SQL, status.name(), run.rowsScanned, run.rowsRepriced, run.rowsFailed,
+                error, run.runId);
+    }
+
+    /**
+     * Counters of one run, updated by the run's thread and published through {@link #latest}
+     */
+    private final class Run {
+
+        final long runId;
+        final String trigger;
+        final int scopesTotal;
+        int scopesDone;
+        long rowsScanned;
+        long rowsRepriced;
+        long rowsFailed;
+
+        Run(long runId, String trigger, int scopesTotal) {
+            this.runId = runId;
+            this.trigger = trigger;
+            this.scopesTotal = scopesTotal;
+            report(Status.RUNNING, null);
+        }
+
+        RepricingProgress report(Status status, String message) {
+            RepricingProgress progress = new RepricingProgress(runId, trigger, status, scopesDone, scopesTotal,
+                    rowsScanned, rowsRepriced, rowsFailed, message);
+            latest.set(progress);
+            return progress;
+        }
+    }
+}
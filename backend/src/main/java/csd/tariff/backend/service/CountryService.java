@@ -1,6 +1,8 @@
 package csd.tariff.backend.service;
 import java.util.List;
+import java.util.stream.Stream;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.Country;
 
 public interface CountryService {
@@ -10,6 +12,16 @@ public interface CountryService {
     */
     List<Country> getAllCountries();
 
+    /**
+     * Get one keyset page of countries with IDs after the cursor
+     */
+    CursorPage<Country> getCountryPage(Long cursor, int limit);
+
+    /**
+     * Stream every country by ID; must be consumed inside a transaction
+     */
+    Stream<Country> streamAllCountries();
+
     /**
      * Create a new country entry.
      */
@@ -3,12 +3,16 @@ package csd.tariff.backend.service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Locale;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.Country;
 import csd.tariff.backend.repository.CountryRepository;
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
 import jakarta.persistence.EntityNotFoundException;
 
 @Service
@@ -17,11 +21,27 @@ public class CountryServiceImpl implements CountryService {
     @Autowired
     private CountryRepository countryRepository;
 
+    @Autowired
+    private DatasetVersionService datasetVersionService;
+
     @Override
     public List<Country> getAllCountries() {
         return countryRepository.findAll();
     }
 
+    @Override
+    public CursorPage<Country> getCountryPage(Long cursor, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<Country> rows = countryRepository.findPageAfterId(
+            cursor != null ? cursor : 0L, PageRequest.of(0, pageSize + 1));
+        return CursorPage.of(rows, pageSize, Country::getId);
+    }
+
+    @Override
+    public Stream<Country> streamAllCountries() {
+        return countryRepository.streamAllOrderById();
+    }
+
     @Override
     public Country createCountry(Country countryRequest) {
         if (countryRequest == null) {
@@ -56,7 +76,9 @@ public class CountryServiceImpl implements CountryService {
         country.setCurrency(currency != null ? currency.toUpperCase(Locale.ROOT) : null);
         country.setUpdatedAt(LocalDateTime.now());
 
-        return countryRepository.save(country);
+        Country saved = countryRepository.save(country);
+        datasetVersionService.bump(Dataset.COUNTRIES);
+        return saved;
     }
 
     @Override
@@ -101,7 +123,9 @@ public class CountryServiceImpl implements CountryService {
         existing.setCurrency(currency != null ? currency.toUpperCase(Locale.ROOT) : null);
         existing.setUpdatedAt(LocalDateTime.now());
 
-        return countryRepository.save(existing);
+        Country saved = countryRepository.save(existing);
+        datasetVersionService.bump(Dataset.COUNTRIES);
+        return saved;
     }
 
     @Override
@@ -115,6 +139,7 @@ public class CountryServiceImpl implements CountryService {
             .orElseThrow(() -> new IllegalArgumentException("Country not found with ID: " + id));
 
         countryRepository.delete(existing);
+        datasetVersionService.bump(Dataset.COUNTRIES);
     }
 
     private String nullIfBlank(String value) {
@@ -11,12 +11,23 @@ import org.springframework.stereotype.Service;
 import csd.tariff.backend.model.CurrencyExchangeRate;
 import csd.tariff.backend.repository.CurrencyExchangeRateRepository;
 
+/**
+ * Currency conversion. Latest-rate conversions read the in-memory {@link FxRateMatrix} once it is
+ * loaded for today and the database otherwise; dated conversions read cached per-pair rate
+ * histories from {@link FxRateHistoryService}.
+ */
 @Service
 public class CurrencyService {
     
     @Autowired
     private CurrencyExchangeRateRepository currencyExchangeRateRepository;
     
+    @Autowired
+    private FxRateService fxRateService;
+    
+    @Autowired
+    private FxRateHistoryService fxRateHistoryService;
+    
     /**
      * Convert amount from one currency to another using the latest exchange rate
      */
@@ -30,6 +41,13 @@ public class CurrencyService {
             return amount;
         }
         
+        Optional<FxRateMatrix> matrix = fxRateService.current();
+        if (matrix.isPresent()) {
+            return matrix.get().rate(fromCurrency, toCurrency)
+                .map(rate -> amount.multiply(rate).setScale(2, RoundingMode.HALF_UP))
+                .orElse(amount);
+        }
+        
         // Try to find direct exchange rate
         Optional<CurrencyExchangeRate> directRate = currencyExchangeRateRepository
             .findLatestExchangeRate(fromCurrency, toCurrency, LocalDate.now());
@@ -55,7 +73,9 @@ public class CurrencyService {
     }
     
     /**
-     * Convert amount from one currency to another using exchange rate for a specific date
+     * Convert amount from one currency to another using the exchange rate in effect on a specific
+     * date: the most recent rate on or before it, so weekends and holidays use the last rate
+     * published. Falls back to the latest rate if the pair has no rate that early.
      */
     public BigDecimal convertCurrency(BigDecimal amount, String fromCurrency, String toCurrency, LocalDate date) {
         if (amount == null || fromCurrency == null || toCurrency == null || date == null) {
@@ -67,27 +87,12 @@ public class CurrencyService {
             return amount;
         }
         
-        // Try to find direct exchange rate for the specific date
-        Optional<CurrencyExchangeRate> directRate = currencyExchangeRateRepository
-            .findExchangeRateByDate(fromCurrency, toCurrency, date);
-        
-        if (directRate.isPresent()) {
-            return amount.multiply(directRate.get().getExchangeRate())
-                        .setScale(2, RoundingMode.HALF_UP);
-        }
-        
-        // Try reverse exchange rate for the specific date
-        Optional<CurrencyExchangeRate> reverseRate = currencyExchangeRateRepository
-            .findExchangeRateByDate(toCurrency, fromCurrency, date);
-        
-        if (reverseRate.isPresent()) {
-            BigDecimal reverseExchangeRate = BigDecimal.ONE.divide(
-                reverseRate.get().getExchangeRate(), 6, RoundingMode.HALF_UP);
-            return amount.multiply(reverseExchangeRate)
-                        .setScale(2, RoundingMode.HALF_UP);
+        Optional<BigDecimal> rate = fxRateHistoryService.rateOn(fromCurrency, toCurrency, date);
+        if (rate.isPresent()) {
+            return amount.multiply(rate.get()).setScale(2, RoundingMode.HALF_UP);
         }
         
-        // Fallback to latest rate if specific date not found
+        // Fallback to latest rate if no rate is in effect on that date
         return convertCurrency(amount, fromCurrency, toCurrency);
     }
     
@@ -103,6 +108,11 @@ public class CurrencyService {
             return Optional.of(BigDecimal.ONE);
         }
         
+        Optional<FxRateMatrix> matrix = fxRateService.current();
+        if (matrix.isPresent()) {
+            return matrix.get().rate(fromCurrency, toCurrency);
+        }
+        
         Optional<CurrencyExchangeRate> directRate = currencyExchangeRateRepository
             .findLatestExchangeRate(fromCurrency, toCurrency, LocalDate.now());
         
@@ -0,0 +1,278 @@
+package csd.tariff.backend.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Version counters for the data sets behind cacheable GET endpoints.
+ *
+ * <p>Every write through the service layer calls {@link #bump}, which advances the data set's
+ * counter and its modification time. Readers take the version before reading, which at worst
+ * labels fresh rows with the previous version and costs the client one extra full response.
+ *
+ * <p>On PostgreSQL the counters are rows of {@code tariff.dataset_versions} (V13), so every node
+ * behind a load balancer hands out the same validators. Inside a transaction the counters are
+ * updated just before the commit, in one statement per data set and always in the same order, so
+ * the new version commits with the rows it describes and row locks are held only for the commit.
+ * {@link #current} never touches the database: it serves a copy of the counters that the writing
+ * node reloads after each commit and every node polls every
+ * {@code app.conditional-get.version-poll-ms}, so another node's write is seen within one poll. A
+ * copy that could not be refreshed for {@link #STALE_POLLS} polls is reloaded on the next read.
+ *
+ * <p>On any other database the counters live in this process and start over on restart, with the
+ * start time in the ETag so tags from an earlier run never match; they are only correct while a
+ * single node serves the API. Inside a transaction the bump then waits until after the commit, so
+ * a reader never sees a new version paired with old rows.
+ */
+@Service
+public class DatasetVersionService {
+
+    private static final Logger log = LoggerFactory.getLogger(DatasetVersionService.class);
+
+    // clock_timestamp(), not the transaction start, and never backwards
+    private static final String BUMP_SQL = "UPDATE tariff.dataset_versions SET version = version + 1, "
+            + "modified_at = GREATEST(modified_at, clock_timestamp()) WHERE dataset = ?";
+
+    private static final String CURRENT_SQL = "SELECT dataset, version, modified_at FROM tariff.dataset_versions";
+
+    static final int STALE_POLLS = 5;
+
+    public enum Dataset {
+        COUNTRIES,
+        TRADE_AGREEMENTS,
+        MFN_RATES,
+        PRODUCTS
+    }
+
+    /**
+     * Validators for one response: a strong ETag and the last modification time in epoch millis
+     */
+    public record Version(String etag, long lastModified) {
+
+        /**
+         * Whether an {@code If-None-Match} header names this version. Tags are compared weakly, as
+         * RFC 9110 requires for {@code If-None-Match}.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Whether nothing changed after an {@code If-Modified-Since} time; HTTP dates have whole
+         * second precision
+         */
+        public boolean notModifiedSince(long ifModifiedSince) {
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+    }
+
+    /** One data set's shared counter row */
+    private record Counter(long version, long modifiedAt) {
+    }
+
+    /** The shared counters as last read, and when */
+    private record Counters(Map<Dataset, Counter> byDataset, long readAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long pollMillis;
+    private final long startedAt = System.currentTimeMillis();
+    private final String epoch = Long.toString(startedAt, 36);
+    private final AtomicLongArray versions = new AtomicLongArray(Dataset.values().length);
+    private final AtomicLongArray modifiedAt = new AtomicLongArray(Dataset.values().length);
+
+    /** Whether the counters are shared through the database; decided on first use */
+    private volatile Boolean shared;
+    private final AtomicReference<Counters> sharedCounters = new AtomicReference<>();
+
+    public DatasetVersionService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.conditional-get.version-poll-ms:1000}") long pollMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pollMillis = pollMillis;
+        for (int i = 0; i < modifiedAt.length(); i++) {
+            modifiedAt.set(i, startedAt);
+        }
+    }
+
+    /**
+     * Record a write to the given data sets. Inside a transaction, bumps are collected and applied
+     * once at its commit.
+     */
+    public void bump(Dataset... datasets) {
+        if (datasets.length == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bumpNow(EnumSet.copyOf(List.of(datasets)));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        EnumSet<Dataset> pending = (EnumSet<Dataset>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            EnumSet<Dataset> collected = EnumSet.noneOf(Dataset.class);
+            TransactionSynchronizationManager.bindResource(this, collected);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (shared()) {
+                        bumpNow(collected);
+                    }
+                }
+
+                @Override
+                public void afterCommit() {
+                    if (shared()) {
+                        reloadSharedCounters();
+                    } else {
+                        bumpNow(collected);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DatasetVersionService.this);
+                }
+            });
+            pending = collected;
+        }
+        pending.addAll(List.of(datasets));
+    }
+
+    /**
+     * Current validators for a response built from the given data sets
+     */
+    public Version current(Dataset... datasets) {
+        if (shared()) {
+            Map<Dataset, Counter> counters = sharedCounters().byDataset();
+            StringBuilder etag = new StringBuilder("\"d");
+            long lastModified = 0;
+            for (Dataset dataset : datasets) {
+                Counter counter = counters.getOrDefault(dataset, new Counter(0, 0));
+                etag.append('-').append(counter.version());
+                lastModified = Math.max(lastModified, counter.modifiedAt());
+            }
+            return new Version(etag.append('"').toString(), lastModified);
+        }
+        StringBuilder etag = new StringBuilder("\"").append(epoch);
+        long lastModified = startedAt;
+        for (Dataset dataset : datasets) {
+            etag.append('-').append(versions.get(dataset.ordinal()));
+            lastModified = Math.max(lastModified, modifiedAt.get(dataset.ordinal()));
+        }
+        return new Version(etag.append('"').toString(), lastModified);
+    }
+
+    private void bumpNow(EnumSet<Dataset> datasets) {
+        if (datasets.isEmpty()) {
+            return;
+        }
+        if (shared()) {
+            // EnumSet iterates in ordinal order, so concurrent writers lock the rows in the same order
+            List<Object[]> rows = new ArrayList<>();
+            for (Dataset dataset : datasets) {
+                rows.add(new Object[] {dataset.name()});
+            }
+            jdbcTemplate.batchUpdate(BUMP_SQL, rows);
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                reloadSharedCounters();
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Dataset dataset : datasets) {
+            // Time first: a reader that sees the new version must not see an older time
+            modifiedAt.accumulateAndGet(dataset.ordinal(), now, Math::max);
+            versions.incrementAndGet(dataset.ordinal());
+        }
+    }
+
+    /**
+     * Pick up other nodes' writes to the shared counters
+     */
+    @Scheduled(fixedDelayString = "${app.conditional-get.version-poll-ms:1000}")
+    public void pollSharedCounters() {
+        try {
+            if (shared()) {
+                reloadSharedCounters();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Data set version poll failed, keeping previous versions: {}", e.getMessage());
+        }
+    }
+
+    private Counters sharedCounters() {
+        Counters counters = sharedCounters.get();
+        if (counters == null || System.currentTimeMillis() - counters.readAt() > STALE_POLLS * pollMillis) {
+            counters = reloadSharedCounters();
+        }
+        return counters;
+    }
+
+    private Counters reloadSharedCounters() {
+        long readAt = System.currentTimeMillis();
+        Map<Dataset, Counter> read = readCounters();
+        // Reloads may finish out of order; never go back to an older version
+        return sharedCounters.updateAndGet(previous -> {
+            if (previous != null) {
+                previous.byDataset().forEach((dataset, counter) ->
+                        read.merge(dataset, counter, (a, b) -> a.version() >= b.version() ? a : b));
+            }
+            return new Counters(read, Math.max(readAt, previous != null ? previous.readAt() : 0));
+        });
+    }
+
+    private Map<Dataset, Counter> readCounters() {
+        Map<Dataset, Counter> counters = new EnumMap<>(Dataset.class);
+        jdbcTemplate.query(CURRENT_SQL, rs -> {
+            Timestamp modified = rs.getTimestamp("modified_at");
+            counters.put(Dataset.valueOf(rs.getString("dataset")),
+                    new Counter(rs.getLong("version"), modified != null ? modified.getTime() : 0));
+        });
+        return counters;
+    }
+
+    /** Whether the database holds the counters (PostgreSQL with V13) */
+    private boolean shared() {
+        Boolean known = shared;
+        if (known == null) {
+            String database = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            known = "PostgreSQL".equalsIgnoreCase(database);
+            if (!known) {
+                log.info("{} does not hold data set versions; ETags are per process and only valid on a single node",
+                        database);
+            }
+            shared = known;
+        }
+        return known;
+    }
+}
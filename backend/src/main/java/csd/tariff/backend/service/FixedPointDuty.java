@@ -0,0 +1,144 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Scaled-{@code long} duty arithmetic.
+ *
+ * <p>Amounts and rates are held in micro-units (6 decimal places, the scale of the rate columns);
+ * products of two micro values are pico-units (12 decimal places) and are exact. Results are
+ * rounded HALF_UP to cents once, so they equal the {@code BigDecimal} computation cent for cent.
+ * Values that need more than 6 decimal places, or that overflow a {@code long}, fall back to
+ * {@code BigDecimal}.
+ */
+public final class FixedPointDuty {
+
+  /** Marker for a value that has no exact micro-unit representation */
+  public static final long NOT_FIXED = Long.MIN_VALUE;
+
+  static final long MICROS_PER_UNIT = 1_000_000L;
+  private static final long PICOS_PER_CENT = 10_000_000_000L;
+  private static final long MICROS_PER_CENT = 10_000L;
+  private static final int MAX_SCALE = 6;
+  private static final long[] POWERS_OF_TEN = {
+    1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+  };
+  // Doubles below 2^33 have an ulp under a micro-unit, so a micro value that round-trips is exact
+  private static final double MAX_EXACT_DOUBLE = 1_000_000_000d;
+
+  private FixedPointDuty() {}
+
+  /**
+   * Duty for ad valorem and specific rates, equal to {@code (adValoremRate * productValue +
+   * specificRate * quantity).setScale(2, HALF_UP)}
+   */
+  public static BigDecimal calculateDuty(
+      BigDecimal adValoremRate, BigDecimal specificRate, Double productValue, Integer quantity) {
+    try {
+      long picos = 0;
+      if (adValoremRate != null && productValue != null) {
+        picos = adValoremPicos(toMicros(adValoremRate), toMicros(productValue));
+      }
+      if (specificRate != null && quantity != null) {
+        picos = Math.addExact(picos, specificPicos(toMicros(specificRate), quantity));
+      }
+      return cents(roundPicosToCents(picos));
+    } catch (ArithmeticException overflow) {
+      return calculateDutyExact(adValoremRate, specificRate, productValue, quantity);
+    }
+  }
+
+  /** The {@code BigDecimal} reference computation */
+  static BigDecimal calculateDutyExact(
+      BigDecimal adValoremRate, BigDecimal specificRate, Double productValue, Integer quantity) {
+    BigDecimal duty = BigDecimal.ZERO;
+    if (adValoremRate != null && productValue != null) {
+      duty = duty.add(adValoremRate.multiply(BigDecimal.valueOf(productValue)));
+    }
+    if (specificRate != null && quantity != null) {
+      duty = duty.add(specificRate.multiply(BigDecimal.valueOf(quantity)));
+    }
+    return duty.setScale(2, RoundingMode.HALF_UP);
+  }
+
+  /** Duty of a compiled rate, equal to {@code expression.duty(customsValue, quantity).setScale(2, HALF_UP)} */
+  public static BigDecimal duty(RateExpression expression, BigDecimal customsValue, int quantity) {
+    try {
+      return cents(roundPicosToCents(expression.dutyPicos(toMicros(customsValue), quantity)));
+    } catch (ArithmeticException overflow) {
+      return expression
+          .duty(customsValue, BigDecimal.valueOf(quantity))
+          .setScale(2, RoundingMode.HALF_UP);
+    }
+  }
+
+  /** {@code rate * value} in pico-units */
+  static long adValoremPicos(long rateMicros, long valueMicros) {
+    return Math.multiplyExact(requireFixed(rateMicros), requireFixed(valueMicros));
+  }
+
+  /** {@code amount * quantity} in pico-units */
+  static long specificPicos(long amountMicros, long quantity) {
+    return Math.multiplyExact(
+        Math.multiplyExact(requireFixed(amountMicros), quantity), MICROS_PER_UNIT);
+  }
+
+  /** Micro-unit value of a decimal, or {@link #NOT_FIXED} if it needs more than 6 decimals */
+  public static long toMicros(BigDecimal value) {
+    if (value.scale() < 0) {
+      value = value.setScale(0);
+    } else if (value.scale() > MAX_SCALE) {
+      // Agreement rates are stored with 8 decimals; 0.05000000 is still 50,000 micros
+      value = value.stripTrailingZeros();
+      if (value.scale() < 0) {
+        value = value.setScale(0);
+      }
+    }
+    int scale = value.scale();
+    // At most 12 integer digits and 6 decimals keep the micro value under 10^18
+    if (scale > MAX_SCALE || value.precision() - scale > 12) {
+      return NOT_FIXED;
+    }
+    return value.unscaledValue().longValue() * POWERS_OF_TEN[MAX_SCALE - scale];
+  }
+
+  /** Micro-unit value of {@code BigDecimal.valueOf(value)}, or {@link #NOT_FIXED} */
+  public static long toMicros(double value) {
+    if (!(Math.abs(value) < MAX_EXACT_DOUBLE)) {
+      return NOT_FIXED;
+    }
+    long micros = Math.round(value * MICROS_PER_UNIT);
+    return micros / (double) MICROS_PER_UNIT == value ? micros : NOT_FIXED;
+  }
+
+  /** Round pico-units to cents, HALF_UP (ties away from zero) */
+  static long roundPicosToCents(long picos) {
+    return roundHalfUp(picos, PICOS_PER_CENT);
+  }
+
+  /** Round micro-units to cents, HALF_UP (ties away from zero) */
+  static long roundMicrosToCents(long micros) {
+    return roundHalfUp(micros, MICROS_PER_CENT);
+  }
+
+  static BigDecimal cents(long cents) {
+    return BigDecimal.valueOf(cents, 2);
+  }
+
+  private static long roundHalfUp(long value, long divisor) {
+    long quotient = value / divisor;
+    long remainder = value % divisor;
+    if (Math.abs(remainder) >= divisor / 2) {
+      quotient += Long.signum(value);
+    }
+    return quotient;
+  }
+
+  private static long requireFixed(long micros) {
+    if (micros == NOT_FIXED) {
+      throw new ArithmeticException("Value has no micro-unit representation");
+    }
+    return micros;
+  }
+}
@@ -0,0 +1,104 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import csd.tariff.backend.repository.CurrencyExchangeRateRepository;
+
+/**
+ * Historical exchange rates for dated conversions.
+ *
+ * <p>Each currency pair's full history is read once, on first use, into an {@link FxRateSeries}
+ * and kept in an LRU cache of at most {@code app.fx.history.max-pairs} pairs. Pairs with no rows
+ * are cached too, so the reverse-pair lookup costs no query either. {@link FxRateService} clears
+ * the cache whenever the rate table changes.
+ */
+@Service
+public class FxRateHistoryService {
+
+    private final CurrencyExchangeRateRepository currencyExchangeRateRepository;
+    private final Map<String, FxRateSeries> seriesByPair;
+    // Bumped by invalidateAll so a load that raced with it is not cached
+    private long generation;
+
+    public FxRateHistoryService(
+            CurrencyExchangeRateRepository currencyExchangeRateRepository,
+            @Value("${app.fx.history.max-pairs:256}") int maxPairs) {
+        this.currencyExchangeRateRepository = currencyExchangeRateRepository;
+        this.seriesByPair = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FxRateSeries> eldest) {
+                return size() > maxPairs;
+            }
+        };
+    }
+
+    /**
+     * Rate converting one unit of {@code fromCurrency} into {@code toCurrency} on a date, from the
+     * most recent row on or before it. The pair's own rows and the inverse of the opposite pair's
+     * rows are both considered; the later-dated row wins, and the pair's own row on a tie.
+     */
+    public Optional<BigDecimal> rateOn(String fromCurrency, String toCurrency, LocalDate date) {
+        if (fromCurrency.equals(toCurrency)) {
+            return Optional.of(BigDecimal.ONE);
+        }
+        FxRateSeries direct = series(fromCurrency, toCurrency);
+        FxRateSeries reverse = series(toCurrency, fromCurrency);
+        int d = direct.indexOn(date);
+        int r = reverse.indexOn(date);
+        if (d >= 0 && (r < 0 || !reverse.dateAt(r).isAfter(direct.dateAt(d)))) {
+            return Optional.of(direct.rateAt(d));
+        }
+        if (r >= 0) {
+            return Optional.of(BigDecimal.ONE.divide(reverse.rateAt(r), FxRateMatrix.RATE_SCALE, RoundingMode.HALF_UP));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The cached series for a pair, loading it on first use
+     */
+    public FxRateSeries series(String baseCurrency, String targetCurrency) {
+        String key = baseCurrency + '>' + targetCurrency;
+        long loadGeneration;
+        synchronized (seriesByPair) {
+            FxRateSeries cached = seriesByPair.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            loadGeneration = generation;
+        }
+        // Loaded outside the lock; a concurrent miss on the same pair just loads it twice
+        FxRateSeries loaded = FxRateSeries.of(currencyExchangeRateRepository
+            .findByBaseCurrencyCodeAndTargetCurrencyCodeOrderByEffectiveDateAsc(baseCurrency, targetCurrency));
+        synchronized (seriesByPair) {
+            if (loadGeneration == generation) {
+                seriesByPair.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop every cached series
+     */
+    public void invalidateAll() {
+        synchronized (seriesByPair) {
+            seriesByPair.clear();
+            generation++;
+        }
+    }
+
+    public int cachedPairs() {
+        synchronized (seriesByPair) {
+            return seriesByPair.size();
+        }
+    }
+}
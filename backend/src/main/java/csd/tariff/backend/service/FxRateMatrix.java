@@ -0,0 +1,139 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import csd.tariff.backend.model.CurrencyExchangeRate;
+
+/**
+ * Immutable matrix of the exchange rates in effect on one date, indexed by currency.
+ *
+ * <p>Every pair is resolved when the matrix is built, in this order: the pair's own latest rate,
+ * the inverse of the opposite pair's latest rate, then a cross rate through USD. Derived rates are
+ * rounded to six decimals like the stored ones, so a direct or inverse conversion matches what
+ * {@link CurrencyService} computes from the database. A pair with no rate on any path is absent.
+ */
+public final class FxRateMatrix {
+
+    /** Pivot currency for cross rates */
+    static final String PIVOT = "USD";
+
+    /** Decimal places of stored and derived rates (numeric(20,6)) */
+    static final int RATE_SCALE = 6;
+
+    private final Map<String, Integer> indexByCurrency;
+    // rates[from * size + to]; null where no rate is known
+    private final BigDecimal[] rates;
+    private final int size;
+    private final LocalDate asOf;
+    private final int sourceRows;
+
+    private FxRateMatrix(Map<String, Integer> indexByCurrency, BigDecimal[] rates, LocalDate asOf, int sourceRows) {
+        this.indexByCurrency = indexByCurrency;
+        this.rates = rates;
+        this.size = indexByCurrency.size();
+        this.asOf = asOf;
+        this.sourceRows = sourceRows;
+    }
+
+    /**
+     * Build the matrix from stored rates. Rows effective after {@code asOf} are ignored; for each
+     * base and target pair the row with the latest effective date wins.
+     */
+    public static FxRateMatrix of(List<CurrencyExchangeRate> rows, LocalDate asOf) {
+        Map<String, Integer> index = new HashMap<>();
+        Map<Long, CurrencyExchangeRate> latest = new HashMap<>();
+        for (CurrencyExchangeRate row : rows) {
+            if (row.getBaseCurrencyCode() == null
+                    || row.getTargetCurrencyCode() == null
+                    || row.getExchangeRate() == null
+                    || row.getExchangeRate().signum() <= 0
+                    || row.getEffectiveDate() == null
+                    || row.getEffectiveDate().isAfter(asOf)) {
+                continue;
+            }
+            int from = index.computeIfAbsent(row.getBaseCurrencyCode(), c -> index.size());
+            int to = index.computeIfAbsent(row.getTargetCurrencyCode(), c -> index.size());
+            latest.merge(pairKey(from, to), row,
+                (a, b) -> b.getEffectiveDate().isAfter(a.getEffectiveDate()) ? b : a);
+        }
+
+        int n = index.size();
+        BigDecimal[] rates = new BigDecimal[n * n];
+        for (CurrencyExchangeRate row : latest.values()) {
+            int from = index.get(row.getBaseCurrencyCode());
+            int to = index.get(row.getTargetCurrencyCode());
+            rates[from * n + to] = row.getExchangeRate();
+        }
+        // Inverses, only where the pair has no rate of its own
+        for (CurrencyExchangeRate row : latest.values()) {
+            int from = index.get(row.getBaseCurrencyCode());
+            int to = index.get(row.getTargetCurrencyCode());
+            if (from != to && rates[to * n + from] == null) {
+                rates[to * n + from] = BigDecimal.ONE.divide(row.getExchangeRate(), RATE_SCALE, RoundingMode.HALF_UP);
+            }
+        }
+        // Cross rates through the pivot, from the direct and inverse rates above
+        Integer pivot = index.get(PIVOT);
+        if (pivot != null) {
+            BigDecimal[] toPivot = new BigDecimal[n];
+            BigDecimal[] fromPivot = new BigDecimal[n];
+            for (int i = 0; i < n; i++) {
+                toPivot[i] = rates[i * n + pivot];
+                fromPivot[i] = rates[pivot * n + i];
+            }
+            for (int from = 0; from < n; from++) {
+                if (from == pivot || toPivot[from] == null) {
+                    continue;
+                }
+                for (int to = 0; to < n; to++) {
+                    if (to != from && to != pivot && fromPivot[to] != null && rates[from * n + to] == null) {
+                        rates[from * n + to] = toPivot[from].multiply(fromPivot[to])
+                            .setScale(RATE_SCALE, RoundingMode.HALF_UP);
+                    }
+                }
+            }
+        }
+        return new FxRateMatrix(Map.copyOf(index), rates, asOf, latest.size());
+    }
+
+    /**
+     * Rate converting one unit of {@code fromCurrency} into {@code toCurrency}
+     */
+    public Optional<BigDecimal> rate(String fromCurrency, String toCurrency) {
+        if (fromCurrency.equals(toCurrency)) {
+            return Optional.of(BigDecimal.ONE);
+        }
+        Integer from = indexByCurrency.get(fromCurrency);
+        Integer to = indexByCurrency.get(toCurrency);
+        if (from == null || to == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(rates[from * size + to]);
+    }
+
+    /**
+     * Date the matrix was built for; rates effective after it are not included
+     */
+    public LocalDate asOf() {
+        return asOf;
+    }
+
+    public int currencyCount() {
+        return size;
+    }
+
+    private static long pairKey(int from, int to) {
+        return ((long) from << 32) | to;
+    }
+
+    @Override
+    public String toString() {
+        return "FxRateMatrix{asOf=" + asOf + ", currencies=" + size + ", pairs=" + sourceRows + "}";
+    }
+}
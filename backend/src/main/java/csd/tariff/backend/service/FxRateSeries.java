@@ -0,0 +1,97 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import csd.tariff.backend.model.CurrencyExchangeRate;
+
+/**
+ * Rate history of one base and target currency pair, kept as parallel primitive arrays of epoch
+ * day and rate in millionths, sorted by day. A lookup returns the rate effective on a date: the
+ * row on that date or, for weekends and other gaps, the nearest preceding one.
+ */
+public final class FxRateSeries {
+
+    private static final FxRateSeries EMPTY = new FxRateSeries(new long[0], new long[0]);
+
+    private final long[] days;
+    // Rates scaled by 10^RATE_SCALE (numeric(20,6))
+    private final long[] rates;
+
+    private FxRateSeries(long[] days, long[] rates) {
+        this.days = days;
+        this.rates = rates;
+    }
+
+    public static FxRateSeries empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a series from one pair's rows. Rows without a date or a positive rate are skipped;
+     * of several rows on the same date the last one given wins.
+     */
+    public static FxRateSeries of(List<CurrencyExchangeRate> rows) {
+        List<CurrencyExchangeRate> sorted = new ArrayList<>(rows.size());
+        for (CurrencyExchangeRate row : rows) {
+            if (row.getEffectiveDate() != null && row.getExchangeRate() != null && row.getExchangeRate().signum() > 0) {
+                sorted.add(row);
+            }
+        }
+        if (sorted.isEmpty()) {
+            return EMPTY;
+        }
+        sorted.sort(Comparator.comparing(CurrencyExchangeRate::getEffectiveDate));
+
+        long[] days = new long[sorted.size()];
+        long[] rates = new long[sorted.size()];
+        int n = 0;
+        for (CurrencyExchangeRate row : sorted) {
+            long day = row.getEffectiveDate().toEpochDay();
+            if (n > 0 && days[n - 1] == day) {
+                n--;
+            }
+            days[n] = day;
+            rates[n] = row.getExchangeRate()
+                .setScale(FxRateMatrix.RATE_SCALE, RoundingMode.HALF_UP)
+                .unscaledValue()
+                .longValueExact();
+            n++;
+        }
+        return new FxRateSeries(Arrays.copyOf(days, n), Arrays.copyOf(rates, n));
+    }
+
+    /**
+     * Index of the row effective on a date, or -1 if the series starts after it
+     */
+    public int indexOn(LocalDate date) {
+        int i = Arrays.binarySearch(days, date.toEpochDay());
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * The rate effective on a date
+     */
+    public Optional<BigDecimal> rateOn(LocalDate date) {
+        int i = indexOn(date);
+        return i < 0 ? Optional.empty() : Optional.of(rateAt(i));
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(days[index]);
+    }
+
+    public BigDecimal rateAt(int index) {
+        return BigDecimal.valueOf(rates[index], FxRateMatrix.RATE_SCALE);
+    }
+
+    public int size() {
+        return days.length;
+    }
+}
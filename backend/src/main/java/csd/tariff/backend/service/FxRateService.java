@@ -0,0 +1,99 @@
+package csd.tariff.backend.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import csd.tariff.backend.repository.CurrencyExchangeRateRepository;
+
+/**
+ * Holds the current {@link FxRateMatrix}.
+ *
+ * <p>The matrix is loaded once the application is ready. A scheduled check reloads it when the
+ * rate table has changed (row count or latest update time) or the date has rolled over, so rates
+ * effective from today are picked up. Every reload also clears the {@link FxRateHistoryService}
+ * cache. {@link #current()} is empty until the first load succeeds and while the loaded matrix is
+ * for an earlier date; callers read from the database instead.
+ */
+@Service
+public class FxRateService {
+
+    private static final Logger log = LoggerFactory.getLogger(FxRateService.class);
+
+    private record Fingerprint(long rows, LocalDateTime lastUpdated) {}
+
+    private final CurrencyExchangeRateRepository currencyExchangeRateRepository;
+    private final FxRateHistoryService fxRateHistoryService;
+
+    private final AtomicReference<FxRateMatrix> current = new AtomicReference<>();
+    private volatile Fingerprint loadedFingerprint;
+
+    public FxRateService(
+            CurrencyExchangeRateRepository currencyExchangeRateRepository,
+            FxRateHistoryService fxRateHistoryService) {
+        this.currencyExchangeRateRepository = currencyExchangeRateRepository;
+        this.fxRateHistoryService = fxRateHistoryService;
+    }
+
+    /**
+     * The matrix for today, or empty if none has been loaded for today yet
+     */
+    public Optional<FxRateMatrix> current() {
+        FxRateMatrix matrix = current.get();
+        if (matrix == null || !matrix.asOf().equals(LocalDate.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(matrix);
+    }
+
+    /**
+     * Reload every rate and swap in a new matrix for today. A failed load keeps the previous matrix.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void refresh() {
+        try {
+            Fingerprint fingerprint = fingerprint();
+            FxRateMatrix matrix = FxRateMatrix.of(currencyExchangeRateRepository.findAll(), LocalDate.now());
+            current.set(matrix);
+            fxRateHistoryService.invalidateAll();
+            loadedFingerprint = fingerprint;
+            log.info("Loaded {}", matrix);
+        } catch (RuntimeException e) {
+            log.warn("FX rate matrix refresh failed, keeping previous matrix: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload if the rate table changed or the loaded matrix is for an earlier date
+     */
+    @Scheduled(
+        initialDelayString = "${app.fx.refresh-interval-ms:60000}",
+        fixedDelayString = "${app.fx.refresh-interval-ms:60000}")
+    public void refreshIfChanged() {
+        try {
+            FxRateMatrix matrix = current.get();
+            if (matrix == null
+                    || !matrix.asOf().equals(LocalDate.now())
+                    || !Objects.equals(fingerprint(), loadedFingerprint)) {
+                refresh();
+            }
+        } catch (RuntimeException e) {
+            log.warn("FX rate change check failed: {}", e.getMessage());
+        }
+    }
+
+    private Fingerprint fingerprint() {
+        return new Fingerprint(
+            currencyExchangeRateRepository.count(),
+            currencyExchangeRateRepository.findLastUpdatedAt());
+    }
+}
@@ -0,0 +1,214 @@
+package csd.tariff.backend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import csd.tariff.backend.dto.ProductDTOs.AutocompleteResponse;
+import csd.tariff.backend.dto.ProductDTOs.HtsPrefixCount;
+import csd.tariff.backend.dto.ProductDTOs.ProductSuggestion;
+import csd.tariff.backend.model.Product;
+
+/**
+ * Immutable digit trie over HTS codes for prefix autocomplete.
+ *
+ * <p>Products are sorted by code, so every trie node covers one contiguous range of the sorted
+ * arrays: the first {@code limit} suggestions for a prefix are the start of its node's range and
+ * the number of products under it is the range length. A lookup walks at most eight nodes and
+ * copies only the entries it returns. Drill-down counts are reported at the next HTS level below
+ * the prefix: chapter (2 digits), heading (4), subheading (6) and tariff line (8).
+ */
+public final class HtsTrie {
+
+    public static final int CHAPTER = 2;
+    public static final int HEADING = 4;
+    public static final int SUBHEADING = 6;
+    public static final int TARIFF_LINE = 8;
+
+    private static final HtsTrie EMPTY = of(List.of(), hts8 -> null);
+
+    // Node 0 is the root and is never anyone's child, so 0 marks a missing child
+    private static final int NONE = 0;
+
+    private final String[] codes;
+    private final String[] descriptions;
+    private final String[] mfnRates;
+    // children[node * 10 + digit]
+    private final int[] children;
+    // Range [rangeStart, rangeEnd) of the sorted arrays under each node
+    private final int[] rangeStart;
+    private final int[] rangeEnd;
+
+    private HtsTrie(String[] codes, String[] descriptions, String[] mfnRates,
+                    int[] children, int[] rangeStart, int[] rangeEnd) {
+        this.codes = codes;
+        this.descriptions = descriptions;
+        this.mfnRates = mfnRates;
+        this.children = children;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+    }
+
+    /**
+     * Build the trie. Products without an all-digit code of at most eight digits are left out;
+     * {@code mfnRateByHts} supplies the MFN text rate shown with each suggestion, or null.
+     */
+    public static HtsTrie of(Collection<Product> products, Function<String, String> mfnRateByHts) {
+        List<Product> sorted = new ArrayList<>(products.size());
+        for (Product product : products) {
+            if (isDigits(product.getHts8()) && product.getHts8().length() <= TARIFF_LINE) {
+                sorted.add(product);
+            }
+        }
+        sorted.sort(Comparator.comparing(Product::getHts8));
+
+        int n = sorted.size();
+        String[] codes = new String[n];
+        String[] descriptions = new String[n];
+        String[] mfnRates = new String[n];
+        int capacity = n * TARIFF_LINE + 1;
+        int[] children = new int[capacity * 10];
+        int[] rangeStart = new int[capacity];
+        int[] rangeEnd = new int[capacity];
+        int nodes = 1;
+        rangeEnd[0] = n;
+
+        for (int i = 0; i < n; i++) {
+            Product product = sorted.get(i);
+            String code = product.getHts8();
+            codes[i] = code;
+            descriptions[i] = product.getBriefDescription();
+            mfnRates[i] = mfnRateByHts.apply(code);
+
+            int node = 0;
+            for (int d = 0; d < code.length(); d++) {
+                int slot = node * 10 + (code.charAt(d) - '0');
+                if (children[slot] == NONE) {
+                    children[slot] = nodes;
+                    rangeStart[nodes] = i;
+                    nodes++;
+                }
+                node = children[slot];
+                // Codes arrive in order, so extending the end keeps the range contiguous
+                rangeEnd[node] = i + 1;
+            }
+        }
+        return new HtsTrie(codes, descriptions, mfnRates,
+            Arrays.copyOf(children, nodes * 10),
+            Arrays.copyOf(rangeStart, nodes),
+            Arrays.copyOf(rangeEnd, nodes));
+    }
+
+    public static HtsTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Suggestions and drill-down counts for a digit prefix. An empty prefix covers every product;
+     * a prefix no product starts with yields an empty response.
+     */
+    public AutocompleteResponse autocomplete(String prefix, int limit) {
+        int node = find(prefix);
+        if (node < 0) {
+            return new AutocompleteResponse(prefix, levelOf(prefix.length()), 0, List.of(), List.of());
+        }
+        int start = rangeStart[node];
+        int end = Math.min(rangeEnd[node], start + Math.max(limit, 0));
+        List<ProductSuggestion> suggestions = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            suggestions.add(new ProductSuggestion(codes[i], descriptions[i], mfnRates[i]));
+        }
+
+        List<HtsPrefixCount> drillDown = new ArrayList<>();
+        int depth = nextLevel(prefix.length());
+        if (depth > 0) {
+            collect(node, new StringBuilder(prefix), depth, drillDown);
+        }
+        return new AutocompleteResponse(
+            prefix, levelOf(prefix.length()), rangeEnd[node] - rangeStart[node], drillDown, suggestions);
+    }
+
+    /**
+     * Number of products whose code starts with the prefix
+     */
+    public int count(String prefix) {
+        int node = find(prefix);
+        return node < 0 ? 0 : rangeEnd[node] - rangeStart[node];
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * HTS level a prefix of this length belongs to; partial levels report the level being typed
+     */
+    public static String levelOf(int digits) {
+        if (digits == 0) {
+            return "all";
+        }
+        if (digits <= CHAPTER) {
+            return "chapter";
+        }
+        if (digits <= HEADING) {
+            return "heading";
+        }
+        if (digits <= SUBHEADING) {
+            return "subheading";
+        }
+        return "tariff line";
+    }
+
+    static boolean isDigits(String value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int find(String prefix) {
+        if (!isDigits(prefix) || prefix.length() > TARIFF_LINE) {
+            return -1;
+        }
+        int node = 0;
+        for (int d = 0; d < prefix.length(); d++) {
+            node = children[node * 10 + (prefix.charAt(d) - '0')];
+            if (node == NONE) {
+                return -1;
+            }
+        }
+        return node;
+    }
+
+    private void collect(int node, StringBuilder path, int depth, List<HtsPrefixCount> out) {
+        if (path.length() == depth) {
+            out.add(new HtsPrefixCount(path.toString(), levelOf(depth), rangeEnd[node] - rangeStart[node]));
+            return;
+        }
+        for (int digit = 0; digit < 10; digit++) {
+            int child = children[node * 10 + digit];
+            if (child != NONE) {
+                path.append((char) ('0' + digit));
+                collect(child, path, depth, out);
+                path.setLength(path.length() - 1);
+            }
+        }
+    }
+
+    private static int nextLevel(int digits) {
+        if (digits >= TARIFF_LINE) {
+            return 0;
+        }
+        // 0 or 1 -> 2, 2 or 3 -> 4, ...
+        return (digits / 2 + 1) * 2;
+    }
+}
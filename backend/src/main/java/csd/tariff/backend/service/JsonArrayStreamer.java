@@ -0,0 +1,83 @@
+package csd.tariff.backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Writes a repository stream to the response as one JSON array, row by row.
+ *
+ * <p>The stream is opened and drained inside a read-only transaction, so the repository's
+ * {@code streamAllOrderById} queries read through a JDBC cursor with a bounded fetch size instead
+ * of materializing the table. Each row is serialized while still attached, and the persistence
+ * context is cleared every {@link #CLEAR_INTERVAL} rows, so heap use stays flat however large the
+ * table grows.
+ */
+@Service
+public class JsonArrayStreamer {
+
+    static final int CLEAR_INTERVAL = 500;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public JsonArrayStreamer(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        // Flushed every CLEAR_INTERVAL rows rather than after each one
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Write every row of the stream to {@code out} as a JSON array
+     *
+     * @return the number of rows written
+     */
+    public <T> long write(Supplier<Stream<T>> rows, OutputStream out) throws IOException {
+        try {
+            Long written = readOnlyTransaction.execute(status -> {
+                try (Stream<T> stream = rows.get();
+                     JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    generator.writeStartArray();
+                    long count = 0;
+                    for (Iterator<T> it = stream.iterator(); it.hasNext(); ) {
+                        rowWriter.writeValue(generator, it.next());
+                        if (++count % CLEAR_INTERVAL == 0) {
+                            generator.flush();
+                            entityManager.clear();
+                        }
+                    }
+                    generator.writeEndArray();
+                    generator.flush();
+                    return count;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return written != null ? written : 0L;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -1,31 +1,59 @@
 package csd.tariff.backend.service;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import javax.crypto.SecretKey;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 
+/**
+ * Issues and verifies the HS256 bearer tokens.
+ *
+ * <p>The signing key and parser are built once per secret. Verified tokens are remembered by
+ * their SHA-256 digest together with their claims and expiry, so a client repeating the same
+ * token costs a digest and a map lookup instead of a signature check. A remembered token is
+ * dropped at its expiry and verified again, which raises the usual {@code ExpiredJwtException}.
+ * The cache holds at most {@code app.jwt.cache-size} tokens; when full, expired tokens are
+ * evicted first and the whole cache is dropped if that frees nothing. Cached claims are shared
+ * between requests and must not be modified.
+ */
 @Service
 public class JwtService {
 
+  private record Signer(String secret, SecretKey key, JwtParser parser) {}
+
+  private record Verified(Claims claims, long expiresAt) {}
+
   @Value("${app.jwt.secret}")
-  private String secret; 
+  private String secret;
 
   @Value("${app.jwt.ttl-seconds:3600}")
   private long ttlSeconds;
 
+  @Value("${app.jwt.cache-size:10000}")
+  private int cacheSize = 10000;
+
+  private volatile Signer signer;
+  private final Map<String, Verified> verified = new ConcurrentHashMap<>();
+
   public String generate(String subjectEmail, Collection<? extends GrantedAuthority> authorities) {
     Date now = new Date();
     Date exp = new Date(now.getTime() + ttlSeconds * 1000);
@@ -37,16 +65,29 @@ public class JwtService {
         .claim("roles", roles)
         .setIssuedAt(now)
         .setExpiration(exp)
-        .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+        .signWith(signer().key(), SignatureAlgorithm.HS256)
         .compact();
   }
 
   public Claims parseClaims(String token) throws JwtException {
-    Jws<Claims> jws = Jwts.parserBuilder()
-        .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
-        .build()
-        .parseClaimsJws(token);
-    return jws.getBody();
+    Signer current = signer();
+    String digest = token == null || token.isEmpty() ? null : digest(token);
+    if (digest != null) {
+      Verified hit = verified.get(digest);
+      if (hit != null) {
+        if (System.currentTimeMillis() < hit.expiresAt()) {
+          return hit.claims();
+        }
+        // Expired since it was cached; the full parse below reports the expiry
+        verified.remove(digest, hit);
+      }
+    }
+
+    Claims claims = current.parser().parseClaimsJws(token).getBody();
+    if (digest != null && signer == current) {
+      remember(digest, claims);
+    }
+    return claims;
   }
 
   public String extractEmail(String token) throws JwtException {
@@ -58,11 +99,56 @@ public class JwtService {
       if (token == null || user == null || token.trim().isEmpty()) {
         return false;
       }
-      Claims c = parseClaims(token);
-      boolean notExpired = c.getExpiration() == null || c.getExpiration().after(new Date());
-      return notExpired && user.getUsername().equalsIgnoreCase(c.getSubject());
+      return isValidClaims(parseClaims(token), user);
     } catch (JwtException e) {
       return false;
     }
   }
+
+  /**
+   * Whether already verified claims are unexpired and belong to the user
+   */
+  public boolean isValidClaims(Claims claims, UserDetails user) {
+    if (claims == null || user == null) {
+      return false;
+    }
+    boolean notExpired = claims.getExpiration() == null || claims.getExpiration().after(new Date());
+    return notExpired && user.getUsername().equalsIgnoreCase(claims.getSubject());
+  }
+
+  /**
+   * Key and parser for the configured secret, rebuilt only when the secret changes
+   */
+  private Signer signer() {
+    Signer current = signer;
+    if (current == null || !current.secret().equals(secret)) {
+      SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+      current = new Signer(secret, key, Jwts.parserBuilder().setSigningKey(key).build());
+      signer = current;
+      // Tokens verified under another secret must be checked again
+      verified.clear();
+    }
+    return current;
+  }
+
+  private void remember(String digest, Claims claims) {
+    long expiresAt = claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime();
+    if (verified.size() >= cacheSize) {
+      long now = System.currentTimeMillis();
+      verified.values().removeIf(entry -> entry.expiresAt() <= now);
+      if (verified.size() >= cacheSize) {
+        verified.clear();
+      }
+    }
+    verified.put(digest, new Verified(claims, expiresAt));
+  }
+
+  private static String digest(String token) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
 }
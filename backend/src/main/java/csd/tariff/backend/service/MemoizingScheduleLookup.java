@@ -0,0 +1,76 @@
+package csd.tariff.backend.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+
+/**
+ * Caches every read of a delegate lookup so that a batch resolves each HTS code, HTS
+ * code/destination pair and origin/destination pair only once. As-of-date reads go through the
+ * cached timelines. Not thread-safe; create one per
+ * batch.
+ */
+final class MemoizingScheduleLookup implements TariffScheduleLookup {
+
+    private final TariffScheduleLookup delegate;
+    private final Map<String, Optional<Product>> products = new HashMap<>();
+    private final Map<String, Optional<MfnTariffRate>> mfnRates = new HashMap<>();
+    private final Map<String, List<AgreementRate>> agreementRates = new HashMap<>();
+    private final Map<String, List<TradeAgreement>> agreements = new HashMap<>();
+    private final Map<String, RateTimeline<MfnTariffRate>> mfnTimelines = new HashMap<>();
+    private final Map<String, List<RateTimeline<AgreementRate>>> agreementTimelines = new HashMap<>();
+
+    MemoizingScheduleLookup(TariffScheduleLookup delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Optional<Product> findProduct(String hts8) {
+        return products.computeIfAbsent(hts8, delegate::findProduct);
+    }
+
+    @Override
+    public Optional<MfnTariffRate> findMfnRate(String hts8) {
+        return mfnRates.computeIfAbsent(hts8, delegate::findMfnRate);
+    }
+
+    @Override
+    public List<AgreementRate> getAgreementRates(String hts8, String countryCode) {
+        return agreementRates.computeIfAbsent(
+            hts8 + '|' + countryCode, key -> delegate.getAgreementRates(hts8, countryCode));
+    }
+
+    @Override
+    public RateTimeline<MfnTariffRate> getMfnRateTimeline(String hts8) {
+        return mfnTimelines.computeIfAbsent(hts8, delegate::getMfnRateTimeline);
+    }
+
+    @Override
+    public List<RateTimeline<AgreementRate>> getAgreementRateTimelines(String hts8, String countryCode) {
+        return agreementTimelines.computeIfAbsent(
+            hts8 + '|' + countryCode, key -> delegate.getAgreementRateTimelines(hts8, countryCode));
+    }
+
+    @Override
+    public List<TradeAgreement> getAgreementsBetweenCountries(String country1, String country2) {
+        return agreements.computeIfAbsent(
+            country1 + '|' + country2, key -> delegate.getAgreementsBetweenCountries(country1, country2));
+    }
+
+    @Override
+    public RateExpression rateExpression(String textRate) {
+        // Already cached by the delegate
+        return delegate.rateExpression(textRate);
+    }
+
+    @Override
+    public Long getScheduleVersion() {
+        return delegate.getScheduleVersion();
+    }
+}
@@ -2,7 +2,10 @@ package csd.tariff.backend.service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import csd.tariff.backend.dto.CursorPage;
+import csd.tariff.backend.dto.MfnRateView;
 import csd.tariff.backend.model.MfnTariffRate;
 import csd.tariff.backend.model.Product;
 
@@ -14,9 +17,19 @@ public interface MfnService {
     Optional<MfnTariffRate> getMfnTariffRate(String htsCode);
 
     /**
-     * Get all MFN tariff rates
+     * Get all MFN tariff rates as view rows
      */
-    List<MfnTariffRate> getAllMfnTariffRates();
+    List<MfnRateView> getAllMfnTariffRates();
+
+    /**
+     * Get one keyset page of MFN tariff rates with IDs after the cursor
+     */
+    CursorPage<MfnTariffRate> getMfnTariffRatePage(Long cursor, int limit);
+
+    /**
+     * Stream every MFN tariff rate by ID; must be consumed inside a transaction
+     */
+    Stream<MfnTariffRate> streamAllMfnTariffRates();
     
     /**
      * Get products with MFN rates
@@ -26,7 +39,7 @@ public interface MfnService {
     /**
      * Get MFN tariff rates for a specific product
      */
-    Optional<MfnTariffRate> getMfnTariffRatesForProduct(String htsCode);
+    Optional<MfnRateView> getMfnTariffRatesForProduct(String htsCode);
     
     /**
      * Create a new MFN tariff rate
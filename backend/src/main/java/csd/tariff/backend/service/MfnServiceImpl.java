@@ -1,15 +1,26 @@
 package csd.tariff.backend.service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import csd.tariff.backend.dto.CursorPage;
+import csd.tariff.backend.dto.MfnRateView;
 import csd.tariff.backend.model.MfnTariffRate;
 import csd.tariff.backend.model.Product;
 import csd.tariff.backend.repository.MfnTariffRateRepository;
 import csd.tariff.backend.repository.ProductRepository;
+import csd.tariff.backend.service.CalculationRepricingService.RatesChanged;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingScope;
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
 
 @Service
 public class MfnServiceImpl implements MfnService {
@@ -19,15 +30,41 @@ public class MfnServiceImpl implements MfnService {
     
     @Autowired
     private MfnTariffRateRepository mfnTariffRateRepository;
+
+    @Autowired
+    private TariffScheduleService tariffScheduleService;
+
+    @Autowired
+    private DatasetVersionService datasetVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     @Override
-    public List<MfnTariffRate> getAllMfnTariffRates() {
-        return mfnTariffRateRepository.findAll();
+    public List<MfnRateView> getAllMfnTariffRates() {
+        return mfnTariffRateRepository.findAllViews();
     }
     
+    @Override
+    public CursorPage<MfnTariffRate> getMfnTariffRatePage(Long cursor, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<MfnTariffRate> rows = mfnTariffRateRepository.findPageAfterId(
+            cursor != null ? cursor : 0L, PageRequest.of(0, pageSize + 1));
+        return CursorPage.of(rows, pageSize, MfnTariffRate::getId);
+    }
+
+    @Override
+    public Stream<MfnTariffRate> streamAllMfnTariffRates() {
+        return mfnTariffRateRepository.streamAllOrderById();
+    }
+
     @Override
     public MfnTariffRate createMfnTariffRate(MfnTariffRate mfnRate) {
-        return mfnTariffRateRepository.save(mfnRate);
+        MfnTariffRate saved = mfnTariffRateRepository.save(mfnRate);
+        refreshSchedule(hts8(saved.getProduct()));
+        datasetVersionService.bump(Dataset.MFN_RATES);
+        repriceCalculations("MFN rate created", hts8(saved.getProduct()));
+        return saved;
     }
     
     @Override
@@ -35,6 +72,7 @@ public class MfnServiceImpl implements MfnService {
         Optional<MfnTariffRate> existingRate = mfnTariffRateRepository.findById(id);
         if (existingRate.isPresent()) {
             MfnTariffRate rate = existingRate.get();
+            String previousHts8 = hts8(rate.getProduct());
             rate.setProduct(mfnRate.getProduct());
             rate.setMfnTextRate(mfnRate.getMfnTextRate());
             rate.setMfnRateTypeCode(mfnRate.getMfnRateTypeCode());
@@ -43,7 +81,11 @@ public class MfnServiceImpl implements MfnService {
             rate.setMfnOtherRate(mfnRate.getMfnOtherRate());
             rate.setBeginEffectDate(mfnRate.getBeginEffectDate());
             rate.setEndEffectiveDate(mfnRate.getEndEffectiveDate());
-            return mfnTariffRateRepository.save(rate);
+            MfnTariffRate saved = mfnTariffRateRepository.save(rate);
+            refreshSchedule(previousHts8, hts8(saved.getProduct()));
+            datasetVersionService.bump(Dataset.MFN_RATES);
+            repriceCalculations("MFN rate " + id + " updated", previousHts8, hts8(saved.getProduct()));
+            return saved;
         }
         return null;
     }
@@ -55,16 +97,16 @@ public class MfnServiceImpl implements MfnService {
 
     @Override
     public void deleteMfnTariffRate(Long id) {
+        String hts8 = mfnTariffRateRepository.findById(id).map(rate -> hts8(rate.getProduct())).orElse(null);
         mfnTariffRateRepository.deleteById(id);
+        refreshSchedule(hts8);
+        datasetVersionService.bump(Dataset.MFN_RATES);
+        repriceCalculations("MFN rate " + id + " deleted", hts8);
     }
     
     @Override
-    public Optional<MfnTariffRate> getMfnTariffRatesForProduct(String htsCode) {
-        Optional<Product> product = productRepository.findByHts8(htsCode);
-        if (product.isPresent()) {
-            return mfnTariffRateRepository.findByProductId(product.get().getId());
-        }
-        return null;
+    public Optional<MfnRateView> getMfnTariffRatesForProduct(String htsCode) {
+        return mfnTariffRateRepository.findViewByHts8(htsCode);
     }
 
     @Override
@@ -88,7 +130,11 @@ public class MfnServiceImpl implements MfnService {
         rate.setMfnOtherRate(mfnRate.getMfnOtherRate());
         rate.setBeginEffectDate(mfnRate.getBeginEffectDate());
         rate.setEndEffectiveDate(mfnRate.getEndEffectiveDate());
-        return mfnTariffRateRepository.save(rate);
+        MfnTariffRate saved = mfnTariffRateRepository.save(rate);
+        refreshSchedule(htsCode, hts8(saved.getProduct()));
+        datasetVersionService.bump(Dataset.MFN_RATES);
+        repriceCalculations("MFN rate " + htsCode + " updated", htsCode, hts8(saved.getProduct()));
+        return saved;
     }
     
     @Override
@@ -104,10 +150,48 @@ public class MfnServiceImpl implements MfnService {
         }
         
         mfnTariffRateRepository.deleteById(existingRate.get().getId());
+        refreshSchedule(htsCode);
+        datasetVersionService.bump(Dataset.MFN_RATES);
+        repriceCalculations("MFN rate " + htsCode + " deleted", htsCode);
     }
 
     @Override
     public List<Product> getProductsWithMfnRates() {
         return productRepository.findProductsWithMfnRates();
     }
+
+    /**
+     * Reload just these HTS codes into the schedule snapshot, or all of it when a code is unknown,
+     * e.g. a rate posted with only its product's id
+     */
+    private void refreshSchedule(String... hts8s) {
+        Set<String> codes = new LinkedHashSet<>();
+        for (String hts8 : hts8s) {
+            if (hts8 == null) {
+                tariffScheduleService.refresh();
+                return;
+            }
+            codes.add(hts8);
+        }
+        tariffScheduleService.refresh(codes);
+    }
+
+    /**
+     * Queue re-pricing of the saved calculations for these HTS codes, to every destination
+     */
+    private void repriceCalculations(String trigger, String... hts8s) {
+        List<RepricingScope> scopes = new ArrayList<>();
+        for (String hts8 : hts8s) {
+            if (hts8 != null && scopes.stream().noneMatch(scope -> scope.hts8().equals(hts8))) {
+                scopes.add(RepricingScope.of(hts8));
+            }
+        }
+        if (!scopes.isEmpty()) {
+            eventPublisher.publishEvent(new RatesChanged(trigger, scopes));
+        }
+    }
+
+    private static String hts8(Product product) {
+        return product != null ? product.getHts8() : null;
+    }
 }
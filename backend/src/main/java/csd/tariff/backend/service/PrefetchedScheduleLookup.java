@@ -0,0 +1,97 @@
+package csd.tariff.backend.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+
+/**
+ * Answers reads for a known set of HTS codes and countries from a slice loaded up front by
+ * {@link TariffScheduleService#slice}, and everything else from a delegate. A code or country in
+ * the set that the slice does not hold is absent from the database, so it is not looked up again.
+ */
+final class PrefetchedScheduleLookup implements TariffScheduleLookup {
+
+    private final TariffScheduleSnapshot slice;
+    private final Set<String> htsCodes;
+    private final Set<String> countryCodes;
+    private final TariffScheduleLookup delegate;
+
+    PrefetchedScheduleLookup(
+            TariffScheduleSnapshot slice,
+            Set<String> htsCodes,
+            Set<String> countryCodes,
+            TariffScheduleLookup delegate) {
+        this.slice = slice;
+        this.htsCodes = htsCodes;
+        this.countryCodes = countryCodes;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Optional<Product> findProduct(String hts8) {
+        return covers(hts8) ? slice.findProduct(hts8) : delegate.findProduct(hts8);
+    }
+
+    @Override
+    public Optional<MfnTariffRate> findMfnRate(String hts8) {
+        return covers(hts8) ? slice.findMfnRate(hts8) : delegate.findMfnRate(hts8);
+    }
+
+    @Override
+    public List<AgreementRate> getAgreementRates(String hts8, String countryCode) {
+        return covers(hts8, countryCode)
+            ? slice.getAgreementRates(hts8, countryCode)
+            : delegate.getAgreementRates(hts8, countryCode);
+    }
+
+    @Override
+    public RateTimeline<MfnTariffRate> getMfnRateTimeline(String hts8) {
+        return covers(hts8) ? slice.getMfnRateTimeline(hts8) : delegate.getMfnRateTimeline(hts8);
+    }
+
+    @Override
+    public List<RateTimeline<AgreementRate>> getAgreementRateTimelines(String hts8, String countryCode) {
+        return covers(hts8, countryCode)
+            ? slice.getAgreementRateTimelines(hts8, countryCode)
+            : delegate.getAgreementRateTimelines(hts8, countryCode);
+    }
+
+    @Override
+    public List<TradeAgreement> getAgreementsBetweenCountries(String country1, String country2) {
+        return countryCodes.contains(country1) && countryCodes.contains(country2)
+            ? slice.getAgreementsBetweenCountries(country1, country2)
+            : delegate.getAgreementsBetweenCountries(country1, country2);
+    }
+
+    @Override
+    public List<String> getApplicableTradePrograms(String country1, String country2, LocalDate date) {
+        return countryCodes.contains(country1) && countryCodes.contains(country2)
+            ? slice.getApplicableTradePrograms(country1, country2, date)
+            : delegate.getApplicableTradePrograms(country1, country2, date);
+    }
+
+    @Override
+    public RateExpression rateExpression(String textRate) {
+        // The slice compiled every rate it holds; other text compiles on demand
+        return slice.rateExpression(textRate);
+    }
+
+    @Override
+    public Long getScheduleVersion() {
+        return slice.getScheduleVersion();
+    }
+
+    private boolean covers(String hts8) {
+        return hts8 != null && htsCodes.contains(hts8);
+    }
+
+    private boolean covers(String hts8, String countryCode) {
+        return covers(hts8) && countryCode != null && countryCodes.contains(countryCode);
+    }
+}
@@ -0,0 +1,170 @@
+package csd.tariff.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import csd.tariff.backend.dto.ProductDTOs.ProductSearchHit;
+import csd.tariff.backend.dto.ProductDTOs.ProductSearchPage;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.repository.ProductRepository;
+
+/**
+ * Ranked product description search.
+ *
+ * <p>On PostgreSQL the query is parsed with {@code websearch_to_tsquery} (quoted phrases, {@code or},
+ * {@code -term}) and matched against {@code to_tsvector('english', brief_description)}, the
+ * expression of the {@code idx_products_description} GIN index from V3, so matching never scans
+ * the table. Results are ordered by {@code ts_rank} then ID and paged by keyset: the cursor holds
+ * the last row's rank and ID, so later pages cost the same as the first. Snippets are built with
+ * {@code ts_headline} for the returned page only.
+ *
+ * <p>Other databases (H2 in tests) fall back to the case-insensitive substring match of
+ * {@link ProductRepository#findByBriefDescriptionContainingIgnoreCase}, ordered by ID with rank 0.
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+    static final int MAX_LIMIT = 100;
+
+    private static final String FULL_TEXT_SQL =
+            "SELECT id, hts8, brief_description, rank, "
+            + "ts_headline('english', brief_description, query, "
+            + "'StartSel=<b>, StopSel=</b>, MinWords=5, MaxWords=20') AS snippet "
+            + "FROM ("
+            + "SELECT p.id, p.hts8, p.brief_description, q.query, "
+            + "ts_rank(to_tsvector('english', p.brief_description), q.query) AS rank "
+            + "FROM tariff.products p, websearch_to_tsquery('english', ?) AS q(query) "
+            + "WHERE to_tsvector('english', p.brief_description) @@ q.query"
+            + ") ranked "
+            + "WHERE rank < ? OR (rank = ? AND id > ?) "
+            + "ORDER BY rank DESC, id "
+            + "LIMIT ?";
+
+    /** Keyset position: rows rank below {@code rank}, or equal with a higher ID, come next */
+    record Cursor(float rank, long id) {
+
+        static final Cursor FIRST = new Cursor(Float.POSITIVE_INFINITY, 0L);
+
+        String encode() {
+            String raw = Integer.toHexString(Float.floatToIntBits(rank)) + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return FIRST;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int colon = raw.indexOf(':');
+                return new Cursor(
+                    Float.intBitsToFloat(Integer.parseUnsignedInt(raw.substring(0, colon), 16)),
+                    Long.parseLong(raw.substring(colon + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid search cursor");
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+
+    private volatile Boolean fullText;
+
+    public ProductSearchService(JdbcTemplate jdbcTemplate, ProductRepository productRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * One page of products matching the query, best match first
+     */
+    public ProductSearchPage search(String query, int limit, String cursor) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        String q = query.trim();
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        Cursor after = Cursor.decode(cursor);
+
+        // One extra row tells whether there is a next page
+        List<ProductSearchHit> hits = isFullTextAvailable()
+            ? fullTextPage(q, after, pageSize + 1)
+            : likePage(q, after, pageSize + 1);
+
+        String nextCursor = null;
+        if (hits.size() > pageSize) {
+            hits = hits.subList(0, pageSize);
+            ProductSearchHit last = hits.get(pageSize - 1);
+            nextCursor = new Cursor(last.rank(), last.id()).encode();
+        }
+        return new ProductSearchPage(q, List.copyOf(hits), nextCursor);
+    }
+
+    private List<ProductSearchHit> fullTextPage(String query, Cursor after, int rows) {
+        return jdbcTemplate.query(FULL_TEXT_SQL,
+            (rs, rowNum) -> new ProductSearchHit(
+                rs.getLong("id"),
+                rs.getString("hts8"),
+                rs.getString("brief_description"),
+                rs.getFloat("rank"),
+                rs.getString("snippet")),
+            query, after.rank(), after.rank(), after.id(), rows);
+    }
+
+    private List<ProductSearchHit> likePage(String query, Cursor after, int rows) {
+        // Every LIKE match ranks 0, so a cursor from a ranked page continues from the start
+        long afterId = after.rank() > 0f ? 0L : after.id();
+        List<Product> products = productRepository.findByBriefDescriptionContainingAfterId(
+            query, afterId, PageRequest.of(0, rows));
+        List<ProductSearchHit> hits = new ArrayList<>(products.size());
+        for (Product product : products) {
+            hits.add(new ProductSearchHit(
+                product.getId(),
+                product.getHts8(),
+                product.getBriefDescription(),
+                0f,
+                highlight(product.getBriefDescription(), query)));
+        }
+        return hits;
+    }
+
+    /**
+     * Wrap the first case-insensitive occurrence of the term in {@code <b>} like ts_headline does
+     */
+    static String highlight(String text, String term) {
+        if (text == null) {
+            return null;
+        }
+        int at = text.toLowerCase(Locale.ROOT).indexOf(term.toLowerCase(Locale.ROOT));
+        if (at < 0) {
+            return text;
+        }
+        int end = at + term.length();
+        return text.substring(0, at) + "<b>" + text.substring(at, end) + "</b>" + text.substring(end);
+    }
+
+    private boolean isFullTextAvailable() {
+        Boolean available = fullText;
+        if (available == null) {
+            String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            available = "PostgreSQL".equalsIgnoreCase(product);
+            fullText = available;
+            log.info("Product search using {}", available ? "PostgreSQL full-text index" : "LIKE fallback");
+        }
+        return available;
+    }
+}
@@ -1,16 +1,32 @@
 package csd.tariff.backend.service;
 
 import java.util.List;
+import java.util.stream.Stream;
 
+import csd.tariff.backend.dto.CursorPage;
+import csd.tariff.backend.dto.ProductDTOs.AutocompleteResponse;
+import csd.tariff.backend.dto.ProductDTOs.ProductMatch;
+import csd.tariff.backend.dto.ProductDTOs.ProductSearchPage;
+import csd.tariff.backend.dto.ProductSummary;
 import csd.tariff.backend.model.AgreementRate;
 import csd.tariff.backend.model.Product;
 
 public interface ProductService {
     
     /**
-     * Get all products
+     * Get all products as list rows
      */
-    List<Product> getAllProducts();
+    List<ProductSummary> getAllProducts();
+
+    /**
+     * Get one keyset page of products with IDs after the cursor
+     */
+    CursorPage<Product> getProductPage(Long cursor, int limit);
+
+    /**
+     * Stream every product by ID; must be consumed inside a transaction
+     */
+    Stream<Product> streamAllProducts();
 
     /**
      * Get agreement tariff rates for a product
@@ -21,6 +37,21 @@ public interface ProductService {
      * Get agreement tariff rates for a product
      */
     List<AgreementRate> getAgreementRates(String htsCode);
+
+    /**
+     * Top products and drill-down counts for an HTS code prefix
+     */
+    AutocompleteResponse autocomplete(String prefix, int limit);
+
+    /**
+     * Ranked description search, one page after the given cursor
+     */
+    ProductSearchPage searchProducts(String query, int limit, String cursor);
+
+    /**
+     * Products best matching a free-text description, for classification suggestions
+     */
+    List<ProductMatch> suggestProducts(String query, int limit);
     
     /**
      * Create a new product entry.
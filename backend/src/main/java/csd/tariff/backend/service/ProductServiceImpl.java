@@ -3,29 +3,63 @@ package csd.tariff.backend.service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Locale;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import csd.tariff.backend.dto.CursorPage;
+import csd.tariff.backend.dto.ProductDTOs.AutocompleteResponse;
+import csd.tariff.backend.dto.ProductDTOs.ProductMatch;
+import csd.tariff.backend.dto.ProductDTOs.ProductSearchPage;
+import csd.tariff.backend.dto.ProductSummary;
 import csd.tariff.backend.model.AgreementRate;
 import csd.tariff.backend.model.Product;
 import csd.tariff.backend.repository.AgreementRateRepository;
 import csd.tariff.backend.repository.ProductRepository;
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
 import jakarta.persistence.EntityNotFoundException;
 
 @Service
 public class ProductServiceImpl implements ProductService {
+
+    static final int MAX_AUTOCOMPLETE_LIMIT = 50;
     
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
     private AgreementRateRepository agreementRateRepository;
+
+    @Autowired
+    private TariffScheduleService tariffScheduleService;
+
+    @Autowired
+    private DatasetVersionService datasetVersionService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductSuggestionService productSuggestionService;
     
     @Override
-    public List<Product> getAllProducts() {
-        // Use a custom query to fetch MFN rates
-        return productRepository.findAllWithMfnRates();
+    public List<ProductSummary> getAllProducts() {
+        return productRepository.findAllSummaries();
+    }
+
+    @Override
+    public CursorPage<Product> getProductPage(Long cursor, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<Product> rows = productRepository.findPageAfterId(
+            cursor != null ? cursor : 0L, PageRequest.of(0, pageSize + 1));
+        return CursorPage.of(rows, pageSize, Product::getId);
+    }
+
+    @Override
+    public Stream<Product> streamAllProducts() {
+        return productRepository.streamAllOrderById();
     }
 
     @Override
@@ -38,6 +72,32 @@ public class ProductServiceImpl implements ProductService {
         return agreementRateRepository.findByHts8AndCountryCode(htsCode, countryCode);
     }
     
+    @Override
+    public AutocompleteResponse autocomplete(String prefix, int limit) {
+        // Accept dotted HTS notation such as "8471.30"
+        String digits = prefix == null ? "" : prefix.replace(".", "").replace(" ", "");
+        if (!HtsTrie.isDigits(digits) || digits.length() > HtsTrie.TARIFF_LINE) {
+            throw new IllegalArgumentException("HTS prefix must be up to 8 digits");
+        }
+        int topK = Math.max(1, Math.min(limit, MAX_AUTOCOMPLETE_LIMIT));
+
+        // Until the first snapshot is loaded, index just the matching products (without MFN labels)
+        HtsTrie trie = tariffScheduleService.current()
+            .map(TariffScheduleSnapshot::getHtsTrie)
+            .orElseGet(() -> HtsTrie.of(productRepository.findByHts8StartingWith(digits), hts8 -> null));
+        return trie.autocomplete(digits, topK);
+    }
+
+    @Override
+    public ProductSearchPage searchProducts(String query, int limit, String cursor) {
+        return productSearchService.search(query, limit, cursor);
+    }
+
+    @Override
+    public List<ProductMatch> suggestProducts(String query, int limit) {
+        return productSuggestionService.suggest(query, limit);
+    }
+
     @Override
     public Product createProduct(Product productRequest) {
         if (productRequest == null) {
@@ -74,7 +134,11 @@ public class ProductServiceImpl implements ProductService {
         product.setWtoBindingCode(bindingCode != null ? bindingCode.toUpperCase(Locale.ROOT) : null);
         product.setUpdatedAt(LocalDateTime.now());
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        tariffScheduleService.refresh(List.of(normalizedCode));
+        datasetVersionService.bump(Dataset.PRODUCTS);
+        productSuggestionService.index(saved);
+        return saved;
     }
 
     @Override
@@ -109,6 +173,7 @@ public class ProductServiceImpl implements ProductService {
             throw new IllegalArgumentException("Product description is required.");
         }
 
+        String previousCode = existing.getHts8();
         existing.setHts8(normalizedCode);
         existing.setBriefDescription(description);
         existing.setQuantity1Code(nullIfBlank(productRequest.getQuantity1Code()));
@@ -118,7 +183,11 @@ public class ProductServiceImpl implements ProductService {
         existing.setWtoBindingCode(bindingCode != null ? bindingCode.toUpperCase(Locale.ROOT) : null);
         existing.setUpdatedAt(LocalDateTime.now());
 
-        return productRepository.save(existing);
+        Product saved = productRepository.save(existing);
+        tariffScheduleService.refresh(Stream.of(previousCode, normalizedCode).distinct().toList());
+        datasetVersionService.bump(Dataset.PRODUCTS);
+        productSuggestionService.index(saved);
+        return saved;
     }
 
     @Override
@@ -132,6 +201,9 @@ public class ProductServiceImpl implements ProductService {
             .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + id));
 
         productRepository.delete(existing);
+        tariffScheduleService.refresh(List.of(existing.getHts8()));
+        datasetVersionService.bump(Dataset.PRODUCTS);
+        productSuggestionService.remove(id);
     }
 
     private String nullIfBlank(String value) {
@@ -0,0 +1,112 @@
+package csd.tariff.backend.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import csd.tariff.backend.dto.ProductDTOs.ProductMatch;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.repository.ProductNoteRepository;
+import csd.tariff.backend.repository.ProductRepository;
+
+/**
+ * Classification suggestions from the in-memory {@link ProductTextIndex}.
+ *
+ * <p>The index covers each product's description and note text. It is built once the application
+ * is ready and then kept current by {@link ProductService}, which re-indexes a product after it is
+ * created or updated and removes it after it is deleted. Queries never touch the database; until
+ * the first build completes they return no suggestions.
+ */
+@Service
+public class ProductSuggestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestionService.class);
+
+    static final int MAX_LIMIT = 50;
+
+    private final ProductRepository productRepository;
+    private final ProductNoteRepository productNoteRepository;
+
+    private final AtomicReference<ProductTextIndex> current = new AtomicReference<>(new ProductTextIndex());
+
+    public ProductSuggestionService(
+            ProductRepository productRepository,
+            ProductNoteRepository productNoteRepository) {
+        this.productRepository = productRepository;
+        this.productNoteRepository = productNoteRepository;
+    }
+
+    /**
+     * Products best matching a free-text query
+     */
+    public List<ProductMatch> suggest(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        int topK = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<ProductTextIndex.Hit> hits = current.get().search(query, topK);
+        List<ProductMatch> matches = new ArrayList<>(hits.size());
+        for (ProductTextIndex.Hit hit : hits) {
+            matches.add(new ProductMatch(hit.productId(), hit.hts8(), hit.description(), hit.score()));
+        }
+        return matches;
+    }
+
+    /**
+     * Build a new index from every product and note and swap it in. A failed build keeps the
+     * previous index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        try {
+            Map<Long, StringBuilder> notesByProduct = new HashMap<>();
+            for (Object[] row : productNoteRepository.findAllNoteContents()) {
+                notesByProduct
+                    .computeIfAbsent((Long) row[0], k -> new StringBuilder())
+                    .append(row[1]).append('\n');
+            }
+            ProductTextIndex index = new ProductTextIndex();
+            for (Product product : productRepository.findAll()) {
+                StringBuilder notes = notesByProduct.get(product.getId());
+                index.put(product.getId(), product.getHts8(), product.getBriefDescription(),
+                    notes != null ? notes.toString() : null);
+            }
+            current.set(index);
+            log.info("Indexed {} products ({} terms) for suggestions", index.size(), index.vocabularySize());
+        } catch (RuntimeException e) {
+            log.warn("Product suggestion index rebuild failed, keeping previous index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Add or refresh one product's document
+     */
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        try {
+            String notes = String.join("\n", productNoteRepository.findNoteContentsByProductId(product.getId()));
+            current.get().put(product.getId(), product.getHts8(), product.getBriefDescription(), notes);
+        } catch (RuntimeException e) {
+            log.warn("Could not index product {}: {}", product.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Drop one product's document
+     */
+    public void remove(Long productId) {
+        if (productId != null) {
+            current.get().remove(productId);
+        }
+    }
+}
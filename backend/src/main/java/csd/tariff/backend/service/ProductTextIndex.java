@@ -0,0 +1,362 @@
+package csd.tariff.backend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory BM25 inverted index over product text.
+ *
+ * <p>Each product is one document. Terms come from {@link TextAnalyzer}; every term has a posting
+ * list of document slots and term frequencies in primitive {@code int} arrays. Queries are scored
+ * term at a time into a flat score array and the top hits are taken with a bounded heap, so a
+ * query touches only the postings of its own terms.
+ *
+ * <p>A query term missing from the vocabulary is matched against vocabulary terms within a small
+ * edit distance (one edit up to seven letters, two beyond), found through a trigram index of the
+ * vocabulary and scored at a discount.
+ *
+ * <p>Updates are incremental: a changed product is appended in a new slot and its old slot is
+ * marked deleted. Deleted slots are skipped when scoring and purged from the postings once they
+ * make up a quarter of the index. Reads share a lock; writes take it exclusively.
+ */
+public final class ProductTextIndex {
+
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+    /** Weight of a misspelling match relative to an exact term match, per edit */
+    static final float FUZZY_WEIGHT = 0.6f;
+    private static final int MAX_FUZZY_EXPANSIONS = 4;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    /** One ranked document */
+    public record Hit(long productId, String hts8, String description, float score) {}
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+        // Postings in live documents
+        int docFreq;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+            docFreq++;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Documents, by slot
+    private long[] productIds = new long[16];
+    private String[] hts8s = new String[16];
+    private String[] descriptions = new String[16];
+    private int[] lengths = new int[16];
+    private int[][] termsByDoc = new int[16][];
+    private final BitSet deleted = new BitSet();
+    private int slots;
+    private int liveDocs;
+    private long liveLength;
+    private final Map<Long, Integer> slotByProduct = new HashMap<>();
+
+    // Vocabulary
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private final Map<String, int[]> termsByTrigram = new HashMap<>();
+
+    /**
+     * Add or replace a product's document
+     */
+    public void put(long productId, String hts8, String description, String extraText) {
+        List<String> analyzed = TextAnalyzer.analyze(description);
+        analyzed.addAll(TextAnalyzer.analyze(extraText));
+
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Integer> freqs = new LinkedHashMap<>();
+            for (String term : analyzed) {
+                freqs.merge(termId(term), 1, Integer::sum);
+            }
+            removeLocked(productId);
+            int slot = slots++;
+            ensureSlotCapacity(slots);
+            productIds[slot] = productId;
+            hts8s[slot] = hts8;
+            descriptions[slot] = description;
+            lengths[slot] = analyzed.size();
+            int[] docTerms = new int[freqs.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> entry : freqs.entrySet()) {
+                postings.get(entry.getKey()).add(slot, entry.getValue());
+                docTerms[i++] = entry.getKey();
+            }
+            termsByDoc[slot] = docTerms;
+            slotByProduct.put(productId, slot);
+            liveDocs++;
+            liveLength += analyzed.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a product's document, if indexed
+     */
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Top documents for a free-text query, best first
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> queryTerms = TextAnalyzer.analyze(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return List.of();
+            }
+            // Weight per matched term id; a repeated query term counts once
+            Map<Integer, Float> weights = new LinkedHashMap<>();
+            for (String term : queryTerms) {
+                Integer id = termIds.get(term);
+                if (id != null && postings.get(id).docFreq > 0) {
+                    weights.merge(id, 1f, Math::max);
+                } else {
+                    fuzzyMatches(term).forEach((fuzzyId, weight) -> weights.merge(fuzzyId, weight, Math::max));
+                }
+            }
+
+            float[] scores = new float[slots];
+            float avgLength = (float) liveLength / liveDocs;
+            for (Map.Entry<Integer, Float> entry : weights.entrySet()) {
+                Postings list = postings.get(entry.getKey());
+                float idf = (float) Math.log(1 + (liveDocs - list.docFreq + 0.5) / (list.docFreq + 0.5));
+                float weight = entry.getValue() * idf;
+                for (int p = 0; p < list.size; p++) {
+                    int doc = list.docs[p];
+                    int tf = list.freqs[p];
+                    float norm = K1 * (1 - B + B * lengths[doc] / avgLength);
+                    scores[doc] += weight * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1,
+                (a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b]) : Long.compare(productIds[b], productIds[a]));
+            for (int doc = 0; doc < slots; doc++) {
+                if (scores[doc] > 0 && !deleted.get(doc)) {
+                    top.add(doc);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            Hit[] hits = new Hit[top.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                int doc = top.poll();
+                hits[i] = new Hit(productIds[doc], hts8s[doc], descriptions[doc], scores[doc]);
+            }
+            return List.of(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int vocabularySize() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(long productId) {
+        Integer slot = slotByProduct.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        deleted.set(slot);
+        for (int term : termsByDoc[slot]) {
+            postings.get(term).docFreq--;
+        }
+        termsByDoc[slot] = null;
+        descriptions[slot] = null;
+        liveDocs--;
+        liveLength -= lengths[slot];
+        if (deleted.cardinality() * 4L > slots && slots > 64) {
+            purgeDeleted();
+        }
+    }
+
+    /**
+     * Drop deleted slots from every posting list; slots themselves are not renumbered
+     */
+    private void purgeDeleted() {
+        for (Postings list : postings) {
+            int kept = 0;
+            for (int p = 0; p < list.size; p++) {
+                if (!deleted.get(list.docs[p])) {
+                    list.docs[kept] = list.docs[p];
+                    list.freqs[kept] = list.freqs[p];
+                    kept++;
+                }
+            }
+            list.size = kept;
+        }
+        // Purged slots can no longer be reached from the postings; forget them so the check above
+        // only counts deletions since this purge
+        deleted.clear();
+    }
+
+    /**
+     * Vocabulary terms within the allowed edit distance, weighted by distance
+     */
+    private Map<Integer, Float> fuzzyMatches(String term) {
+        Map<Integer, Float> matches = new HashMap<>();
+        if (term.length() < MIN_FUZZY_LENGTH) {
+            return matches;
+        }
+        int maxEdits = term.length() <= 7 ? 1 : 2;
+        List<String> grams = trigrams(term);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            int[] candidates = termsByTrigram.get(gram);
+            if (candidates != null) {
+                for (int i = 1; i <= candidates[0]; i++) {
+                    shared.merge(candidates[i], 1, Integer::sum);
+                }
+            }
+        }
+        // Each edit changes at most three trigrams
+        int minShared = Math.max(1, grams.size() - 3 * maxEdits);
+        List<int[]> ranked = new ArrayList<>();
+        shared.forEach((id, count) -> {
+            if (count >= minShared && postings.get(id).docFreq > 0) {
+                int distance = editDistance(term, terms.get(id), maxEdits);
+                if (distance <= maxEdits) {
+                    ranked.add(new int[] {id, distance, postings.get(id).docFreq});
+                }
+            }
+        });
+        // Closest first, then most common
+        ranked.sort((a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(b[2], a[2]));
+        for (int i = 0; i < Math.min(MAX_FUZZY_EXPANSIONS, ranked.size()); i++) {
+            matches.put(ranked.get(i)[0], (float) Math.pow(FUZZY_WEIGHT, ranked.get(i)[1]));
+        }
+        return matches;
+    }
+
+    private int termId(String term) {
+        Integer id = termIds.get(term);
+        if (id != null) {
+            return id;
+        }
+        int newId = terms.size();
+        termIds.put(term, newId);
+        terms.add(term);
+        postings.add(new Postings());
+        for (String gram : trigrams(term)) {
+            // int[0] holds the count of term ids that follow
+            termsByTrigram.merge(gram, new int[] {1, newId}, (list, single) -> {
+                int count = list[0] + 1;
+                int[] grown = count < list.length ? list : Arrays.copyOf(list, list.length * 2);
+                grown[count] = newId;
+                grown[0] = count;
+                return grown;
+            });
+        }
+        return newId;
+    }
+
+    private void ensureSlotCapacity(int capacity) {
+        if (capacity <= productIds.length) {
+            return;
+        }
+        int grown = Math.max(capacity, productIds.length * 2);
+        productIds = Arrays.copyOf(productIds, grown);
+        hts8s = Arrays.copyOf(hts8s, grown);
+        descriptions = Arrays.copyOf(descriptions, grown);
+        lengths = Arrays.copyOf(lengths, grown);
+        termsByDoc = Arrays.copyOf(termsByDoc, grown);
+    }
+
+    /** Distinct trigrams of the term padded with {@code $} at both ends */
+    static List<String> trigrams(String term) {
+        String padded = "$" + term + "$";
+        List<String> grams = new ArrayList<>(padded.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            String gram = padded.substring(i, i + 3);
+            if (!grams.contains(gram)) {
+                grams.add(gram);
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Damerau-Levenshtein (optimal string alignment) distance, or {@code max + 1} once it is
+     * certain to exceed {@code max}
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] prevPrev = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            row[0] = i;
+            int rowMin = row[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                row[j] = Math.min(Math.min(row[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    row[j] = Math.min(row[j], prevPrev[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, row[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = prevPrev;
+            prevPrev = prev;
+            prev = row;
+            row = recycled;
+        }
+        return Math.min(prev[b.length()], max + 1);
+    }
+}
@@ -0,0 +1,211 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A compiled tariff text rate such as {@code "Free"}, {@code "5%"}, {@code "6.8¢/kg + 5%"} or
+ * {@code "25% or $1.00 each"}. Built once by {@link RateExpressionCompiler}; evaluating it does not
+ * touch the original text.
+ *
+ * <p>Specific rates are applied per unit of the calculation's quantity, which is an item count, so
+ * only expressions that are {@link #perItem()} price a row on their own; other expressions are
+ * charged at their {@link #perItemPart()} and the rest is left unpriced. Rates are also held in
+ * micro-units so {@link FixedPointDuty} can evaluate them without {@code BigDecimal}.
+ */
+public sealed interface RateExpression {
+
+  /** Unrounded duty for a customs value and quantity */
+  BigDecimal duty(BigDecimal customsValue, BigDecimal quantity);
+
+  /**
+   * Exact duty in pico-units (12 decimal places) for a customs value in micro-units
+   *
+   * @throws ArithmeticException on overflow or when a rate has no micro-unit representation
+   */
+  long dutyPicos(long customsValueMicros, long quantity);
+
+  /**
+   * Whether every specific component is charged per item, so the duty follows from an item count;
+   * rates per kilogram, litre and so on need a measure calculations do not have
+   */
+  default boolean perItem() {
+    return true;
+  }
+
+  /**
+   * This expression without the specific components that are not charged per item; what an item
+   * count alone can price
+   */
+  default RateExpression perItemPart() {
+    return this;
+  }
+
+  /** Duty free */
+  record Free() implements RateExpression {
+    @Override
+    public BigDecimal duty(BigDecimal customsValue, BigDecimal quantity) {
+      return BigDecimal.ZERO;
+    }
+
+    @Override
+    public long dutyPicos(long customsValueMicros, long quantity) {
+      return 0;
+    }
+  }
+
+  /** Percentage of customs value; {@code rate} is a fraction (0.05 for 5%) */
+  record AdValorem(BigDecimal rate, long rateMicros) implements RateExpression {
+    public AdValorem(BigDecimal rate) {
+      this(rate, FixedPointDuty.toMicros(rate));
+    }
+
+    @Override
+    public BigDecimal duty(BigDecimal customsValue, BigDecimal quantity) {
+      return customsValue.multiply(rate);
+    }
+
+    @Override
+    public long dutyPicos(long customsValueMicros, long quantity) {
+      return FixedPointDuty.adValoremPicos(rateMicros, customsValueMicros);
+    }
+  }
+
+  /** Dollar amount per unit */
+  record Specific(BigDecimal amount, String unit, long amountMicros) implements RateExpression {
+    // "unit" is what the compiler records for a rate without one, e.g. "$2.50" or "$2.50 per unit"
+    private static final Set<String> ITEM_UNITS = Set.of("unit", "each", "no.", "no");
+
+    public Specific(BigDecimal amount, String unit) {
+      this(amount, unit, FixedPointDuty.toMicros(amount));
+    }
+
+    @Override
+    public boolean perItem() {
+      return ITEM_UNITS.contains(unit);
+    }
+
+    @Override
+    public RateExpression perItemPart() {
+      return perItem() ? this : new Free();
+    }
+
+    @Override
+    public BigDecimal duty(BigDecimal customsValue, BigDecimal quantity) {
+      return amount.multiply(quantity);
+    }
+
+    @Override
+    public long dutyPicos(long customsValueMicros, long quantity) {
+      return FixedPointDuty.specificPicos(amountMicros, quantity);
+    }
+  }
+
+  /** Sum of several components, e.g. {@code "6.8¢/kg + 5%"} */
+  record Compound(List<RateExpression> terms) implements RateExpression {
+    public Compound {
+      terms = List.copyOf(terms);
+    }
+
+    @Override
+    public BigDecimal duty(BigDecimal customsValue, BigDecimal quantity) {
+      BigDecimal total = BigDecimal.ZERO;
+      for (RateExpression term : terms) {
+        total = total.add(term.duty(customsValue, quantity));
+      }
+      return total;
+    }
+
+    @Override
+    public long dutyPicos(long customsValueMicros, long quantity) {
+      long total = 0;
+      for (RateExpression term : terms) {
+        total = Math.addExact(total, term.dutyPicos(customsValueMicros, quantity));
+      }
+      return total;
+    }
+
+    @Override
+    public boolean perItem() {
+      return terms.stream().allMatch(RateExpression::perItem);
+    }
+
+    @Override
+    public RateExpression perItemPart() {
+      return perItem() ? this : new Compound(terms.stream().map(RateExpression::perItemPart).toList());
+    }
+  }
+
+  /** Whichever of several alternatives is higher, e.g. {@code "25% or $1.00 each"} */
+  record Alternative(List<RateExpression> options) implements RateExpression {
+    public Alternative {
+      options = List.copyOf(options);
+    }
+
+    @Override
+    public BigDecimal duty(BigDecimal customsValue, BigDecimal quantity) {
+      BigDecimal highest = BigDecimal.ZERO;
+      for (RateExpression option : options) {
+        highest = highest.max(option.duty(customsValue, quantity));
+      }
+      return highest;
+    }
+
+    @Override
+    public long dutyPicos(long customsValueMicros, long quantity) {
+      long highest = 0;
+      for (RateExpression option : options) {
+        highest = Math.max(highest, option.dutyPicos(customsValueMicros, quantity));
+      }
+      return highest;
+    }
+
+    @Override
+    public boolean perItem() {
+      return options.stream().allMatch(RateExpression::perItem);
+    }
+
+    @Override
+    public RateExpression perItemPart() {
+      return perItem() ? this : new Alternative(options.stream().map(RateExpression::perItemPart).toList());
+    }
+  }
+
+  /**
+   * Text the compiler does not understand; charged at its leading percentage, e.g. 5% for {@code
+   * "5% + see note"}, and otherwise no duty
+   */
+  record Unparsed(String text, BigDecimal rate, long rateMicros) implements RateExpression {
+    public Unparsed(String text) {
+      this(text, leadingPercent(text));
+    }
+
+    private Unparsed(String text, BigDecimal rate) {
+      this(text, rate, FixedPointDuty.toMicros(rate));
+    }
+
+    @Override
+    public BigDecimal duty(BigDecimal customsValue, BigDecimal quantity) {
+      return customsValue.multiply(rate);
+    }
+
+    @Override
+    public long dutyPicos(long customsValueMicros, long quantity) {
+      return rate.signum() == 0 ? 0 : FixedPointDuty.adValoremPicos(rateMicros, customsValueMicros);
+    }
+
+    /** The number before the first {@code %} as a fraction, or zero */
+    private static BigDecimal leadingPercent(String text) {
+      int percent = text != null ? text.indexOf('%') : -1;
+      if (percent < 0) {
+        return BigDecimal.ZERO;
+      }
+      try {
+        return new BigDecimal(text.substring(0, percent).trim()).movePointLeft(2);
+      } catch (NumberFormatException e) {
+        return BigDecimal.ZERO;
+      }
+    }
+  }
+}
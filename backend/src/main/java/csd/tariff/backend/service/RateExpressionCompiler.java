@@ -0,0 +1,103 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses tariff text rates into {@link RateExpression}s.
+ *
+ * <p>Understands {@code Free}, percentages ({@code "5%"}, {@code "5% ad valorem"}), specific rates
+ * in cents or dollars ({@code "6.8¢/kg"}, {@code "$1.035/kg"}, {@code "$2.50 per unit"}, {@code
+ * "$1.00 each"}), sums joined by {@code +} and alternatives joined by {@code or} or ending in
+ * {@code "whichever is greater"}. Anything else compiles to {@link RateExpression.Unparsed}, which
+ * keeps only the text's leading percentage.
+ */
+public final class RateExpressionCompiler {
+
+  static final RateExpression FREE = new RateExpression.Free();
+
+  private static final Pattern WHICHEVER = Pattern.compile(",?\\s*whichever is (greater|higher)\\.?$");
+  private static final Pattern OR = Pattern.compile("\\s+or\\s+");
+  private static final Pattern PLUS = Pattern.compile("\\s*\\+\\s*");
+  private static final Pattern PERCENT =
+      Pattern.compile("^(\\d+(?:\\.\\d+)?)\\s*%(?:\\s*ad val(?:orem|\\.)?)?$");
+  private static final Pattern CENTS =
+      Pattern.compile("^(\\d+(?:\\.\\d+)?)\\s*¢\\s*(?:/\\s*|per\\s+)?(.*)$");
+  private static final Pattern DOLLARS =
+      Pattern.compile("^\\$\\s*(\\d+(?:\\.\\d+)?)\\s*(?:/\\s*|per\\s+)?(.*)$");
+
+  private RateExpressionCompiler() {}
+
+  /** Compile a text rate; null or blank text compiles to an empty {@link RateExpression.Unparsed} */
+  public static RateExpression compile(String textRate) {
+    if (textRate == null || textRate.isBlank()) {
+      return new RateExpression.Unparsed("");
+    }
+    String text = textRate.trim().toLowerCase(Locale.ROOT);
+    if (text.equals("free")) {
+      return FREE;
+    }
+
+    text = WHICHEVER.matcher(text).replaceFirst("");
+    String[] alternatives = OR.split(text);
+    if (alternatives.length > 1) {
+      List<RateExpression> options = new ArrayList<>(alternatives.length);
+      for (String alternative : alternatives) {
+        RateExpression option = compileSum(alternative);
+        if (option instanceof RateExpression.Unparsed) {
+          return new RateExpression.Unparsed(textRate);
+        }
+        options.add(option);
+      }
+      return new RateExpression.Alternative(options);
+    }
+
+    RateExpression sum = compileSum(text);
+    return sum instanceof RateExpression.Unparsed ? new RateExpression.Unparsed(textRate) : sum;
+  }
+
+  private static RateExpression compileSum(String text) {
+    String[] parts = PLUS.split(text.trim());
+    if (parts.length == 1) {
+      return compileTerm(parts[0]);
+    }
+    List<RateExpression> terms = new ArrayList<>(parts.length);
+    for (String part : parts) {
+      RateExpression term = compileTerm(part);
+      if (term instanceof RateExpression.Unparsed) {
+        return term;
+      }
+      terms.add(term);
+    }
+    return new RateExpression.Compound(terms);
+  }
+
+  private static RateExpression compileTerm(String term) {
+    String t = term.trim();
+    if (t.equals("free")) {
+      return FREE;
+    }
+    Matcher m = PERCENT.matcher(t);
+    if (m.matches()) {
+      return new RateExpression.AdValorem(new BigDecimal(m.group(1)).movePointLeft(2));
+    }
+    m = CENTS.matcher(t);
+    if (m.matches()) {
+      return new RateExpression.Specific(new BigDecimal(m.group(1)).movePointLeft(2), unit(m.group(2)));
+    }
+    m = DOLLARS.matcher(t);
+    if (m.matches()) {
+      return new RateExpression.Specific(new BigDecimal(m.group(1)), unit(m.group(2)));
+    }
+    return new RateExpression.Unparsed(t);
+  }
+
+  private static String unit(String raw) {
+    String unit = raw.trim();
+    return unit.isEmpty() ? "unit" : unit;
+  }
+}
@@ -0,0 +1,154 @@
+package csd.tariff.backend.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Validity periods of one rate series, such as every MFN row of an HTS code or one agreement's rows
+ * for an HTS code and country, kept as sorted parallel arrays for O(log n) as-of-date lookups.
+ *
+ * <p>Bounds are inclusive epoch days; a null start or end date is open. When periods overlap, the
+ * row that started most recently wins.
+ */
+public final class RateTimeline<T> {
+
+    private static final RateTimeline<?> EMPTY = new RateTimeline<>(new long[0], new long[0], new long[0], List.of());
+
+    private final long[] starts;
+    private final long[] ends;
+    // Highest end day among rows 0..i, so a lookup can stop once no earlier row reaches the date
+    private final long[] maxEnds;
+    private final List<T> rows;
+
+    private RateTimeline(long[] starts, long[] ends, long[] maxEnds, List<T> rows) {
+        this.starts = starts;
+        this.ends = ends;
+        this.maxEnds = maxEnds;
+        this.rows = rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> RateTimeline<T> empty() {
+        return (RateTimeline<T>) EMPTY;
+    }
+
+    /**
+     * Build a timeline from rows of one series. Rows with equal start dates keep their given order.
+     */
+    public static <T> RateTimeline<T> of(
+            List<T> rows, Function<T, LocalDate> startDate, Function<T, LocalDate> endDate) {
+        if (rows.isEmpty()) {
+            return empty();
+        }
+        List<T> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingLong(row -> startDay(startDate.apply(row))));
+
+        int n = sorted.size();
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        long[] maxEnds = new long[n];
+        for (int i = 0; i < n; i++) {
+            T row = sorted.get(i);
+            starts[i] = startDay(startDate.apply(row));
+            ends[i] = endDay(endDate.apply(row));
+            maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+        }
+        return new RateTimeline<>(starts, ends, maxEnds, List.copyOf(sorted));
+    }
+
+    /**
+     * Split rows into one timeline per series key, in order of first appearance
+     */
+    public static <T, K> List<RateTimeline<T>> bySeries(
+            List<T> rows,
+            Function<T, K> seriesKey,
+            Function<T, LocalDate> startDate,
+            Function<T, LocalDate> endDate) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Map<K, List<T>> series = new LinkedHashMap<>();
+        for (T row : rows) {
+            series.computeIfAbsent(seriesKey.apply(row), k -> new ArrayList<>()).add(row);
+        }
+        List<RateTimeline<T>> timelines = new ArrayList<>(series.size());
+        for (List<T> seriesRows : series.values()) {
+            timelines.add(of(seriesRows, startDate, endDate));
+        }
+        return List.copyOf(timelines);
+    }
+
+    /**
+     * The rows in effect on a date, at most one per timeline
+     */
+    public static <T> List<T> asOf(List<RateTimeline<T>> timelines, LocalDate date) {
+        List<T> out = new ArrayList<>(timelines.size());
+        for (RateTimeline<T> timeline : timelines) {
+            timeline.asOf(date).ifPresent(out::add);
+        }
+        return out;
+    }
+
+    /**
+     * The row in effect on a date
+     */
+    public Optional<T> asOf(LocalDate date) {
+        long day = date.toEpochDay();
+        // Last row starting on or before the date
+        int i = Arrays.binarySearch(starts, day);
+        if (i < 0) {
+            i = -i - 2;
+        } else {
+            while (i + 1 < starts.length && starts[i + 1] == day) {
+                i++;
+            }
+        }
+        for (; i >= 0 && maxEnds[i] >= day; i--) {
+            if (ends[i] >= day) {
+                return Optional.of(rows.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Start of the earliest row, or null if the series is open-ended in the past or empty
+     */
+    public LocalDate earliestStart() {
+        return rows.isEmpty() || starts[0] == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(starts[0]);
+    }
+
+    /**
+     * End of the latest-ending row, or null if the series is open-ended in the future or empty
+     */
+    public LocalDate latestEnd() {
+        long end = rows.isEmpty() ? Long.MAX_VALUE : maxEnds[maxEnds.length - 1];
+        return end == Long.MAX_VALUE ? null : LocalDate.ofEpochDay(end);
+    }
+
+    /**
+     * Rows ordered by start date
+     */
+    public List<T> rows() {
+        return rows;
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    private static long startDay(LocalDate date) {
+        return date == null ? Long.MIN_VALUE : date.toEpochDay();
+    }
+
+    private static long endDay(LocalDate date) {
+        return date == null ? Long.MAX_VALUE : date.toEpochDay();
+    }
+}
@@ -0,0 +1,241 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+import csd.tariff.backend.service.TariffScenarioService.RuleType;
+import csd.tariff.backend.service.TariffScenarioService.ScenarioRule;
+
+/**
+ * Reads a delegate lookup through the rules of a what-if scenario, for calculations from one
+ * origin country. Rates a rule touches are returned as adjusted copies and suspended agreements are
+ * left out; the delegate's rows are never changed, so the same snapshot keeps pricing the baseline.
+ *
+ * <p>Totals are priced from the compiled text rate, so an added ad valorem rate is also appended to
+ * the row's text ({@code "5% + 25%"}) and the text is mapped to the sum of the original expression
+ * and the addition. Thread-safe when the delegate is.
+ */
+final class ScenarioScheduleLookup implements TariffScheduleLookup {
+
+    /** Program name rules use to target MFN rows rather than an agreement's */
+    static final String MFN = "MFN";
+
+    private final TariffScheduleLookup delegate;
+    private final List<ScenarioRule> rules;
+    // Texts this lookup made up, so they never reach the compiler
+    private final Map<String, RateExpression> adjustedExpressions = new ConcurrentHashMap<>();
+
+    ScenarioScheduleLookup(TariffScheduleLookup delegate, List<ScenarioRule> rules, String originCountry) {
+        this.delegate = delegate;
+        List<ScenarioRule> applicable = new ArrayList<>();
+        for (ScenarioRule rule : rules) {
+            if (rule.originCountry() == null || rule.originCountry().equalsIgnoreCase(originCountry)) {
+                applicable.add(rule);
+            }
+        }
+        this.rules = List.copyOf(applicable);
+    }
+
+    @Override
+    public Optional<Product> findProduct(String hts8) {
+        return delegate.findProduct(hts8);
+    }
+
+    @Override
+    public Optional<MfnTariffRate> findMfnRate(String hts8) {
+        return delegate.findMfnRate(hts8).map(rate -> adjust(hts8, rate));
+    }
+
+    @Override
+    public List<AgreementRate> getAgreementRates(String hts8, String countryCode) {
+        List<AgreementRate> rates = delegate.getAgreementRates(hts8, countryCode);
+        List<AgreementRate> adjusted = new ArrayList<>(rates.size());
+        for (AgreementRate rate : rates) {
+            String agreement = agreementCode(rate);
+            if (!suspended(hts8, agreement)) {
+                adjusted.add(touches(hts8, agreement) ? adjust(hts8, agreement, rate) : rate);
+            }
+        }
+        return adjusted;
+    }
+
+    @Override
+    public RateTimeline<MfnTariffRate> getMfnRateTimeline(String hts8) {
+        RateTimeline<MfnTariffRate> timeline = delegate.getMfnRateTimeline(hts8);
+        if (timeline.isEmpty() || !touches(hts8, MFN)) {
+            return timeline;
+        }
+        List<MfnTariffRate> rows = new ArrayList<>(timeline.rows().size());
+        for (MfnTariffRate rate : timeline.rows()) {
+            rows.add(adjust(hts8, rate));
+        }
+        return RateTimeline.of(rows, MfnTariffRate::getBeginEffectDate, MfnTariffRate::getEndEffectiveDate);
+    }
+
+    @Override
+    public List<RateTimeline<AgreementRate>> getAgreementRateTimelines(String hts8, String countryCode) {
+        List<RateTimeline<AgreementRate>> timelines = delegate.getAgreementRateTimelines(hts8, countryCode);
+        List<RateTimeline<AgreementRate>> adjusted = new ArrayList<>(timelines.size());
+        for (RateTimeline<AgreementRate> timeline : timelines) {
+            // One timeline per agreement
+            String agreement = timeline.isEmpty() ? null : agreementCode(timeline.rows().get(0));
+            if (agreement != null && suspended(hts8, agreement)) {
+                continue;
+            }
+            if (agreement == null || !touches(hts8, agreement)) {
+                adjusted.add(timeline);
+                continue;
+            }
+            List<AgreementRate> rows = new ArrayList<>(timeline.rows().size());
+            for (AgreementRate rate : timeline.rows()) {
+                rows.add(adjust(hts8, agreement, rate));
+            }
+            adjusted.add(RateTimeline.of(rows, AgreementRate::getEffectiveDate, AgreementRate::getExpirationDate));
+        }
+        return adjusted;
+    }
+
+    @Override
+    public List<TradeAgreement> getAgreementsBetweenCountries(String country1, String country2) {
+        List<TradeAgreement> agreements = delegate.getAgreementsBetweenCountries(country1, country2);
+        List<TradeAgreement> active = new ArrayList<>(agreements.size());
+        for (TradeAgreement agreement : agreements) {
+            // Only a suspension of every code takes the agreement out of the applicable programs
+            if (!suspended(null, agreement.getAgreementCode())) {
+                active.add(agreement);
+            }
+        }
+        return active;
+    }
+
+    @Override
+    public RateExpression rateExpression(String textRate) {
+        RateExpression adjusted = textRate != null ? adjustedExpressions.get(textRate) : null;
+        return adjusted != null ? adjusted : delegate.rateExpression(textRate);
+    }
+
+    @Override
+    public Long getScheduleVersion() {
+        return delegate.getScheduleVersion();
+    }
+
+    /**
+     * Whether a rate rule applies to a code and program; a null code stands for every code
+     */
+    private static boolean matches(ScenarioRule rule, String hts8, String program) {
+        boolean codeMatches = rule.htsPrefix() == null || (hts8 != null && hts8.startsWith(rule.htsPrefix()));
+        return codeMatches && (rule.agreementCode() == null || rule.agreementCode().equalsIgnoreCase(program));
+    }
+
+    private boolean touches(String hts8, String program) {
+        for (ScenarioRule rule : rules) {
+            if (rule.type() != RuleType.SUSPEND_AGREEMENT && matches(rule, hts8, program)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean suspended(String hts8, String agreementCode) {
+        for (ScenarioRule rule : rules) {
+            if (rule.type() == RuleType.SUSPEND_AGREEMENT && matches(rule, hts8, agreementCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private MfnTariffRate adjust(String hts8, MfnTariffRate rate) {
+        if (!touches(hts8, MFN)) {
+            return rate;
+        }
+        Rate adjusted = apply(hts8, MFN,
+                new Rate(rate.getMfnadValoremRate(), rate.getMfnSpecificRate(), rate.getMfnTextRate()));
+        MfnTariffRate copy = new MfnTariffRate();
+        copy.setProduct(rate.getProduct());
+        copy.setMfnTextRate(adjusted.text());
+        copy.setMfnRateTypeCode(rate.getMfnRateTypeCode());
+        copy.setMfnAve(rate.getMfnAve());
+        copy.setMfnadValoremRate(adjusted.adValorem());
+        copy.setMfnSpecificRate(adjusted.specific());
+        copy.setMfnOtherRate(rate.getMfnOtherRate());
+        copy.setCol1SpecialText(rate.getCol1SpecialText());
+        copy.setCol1SpecialMod(rate.getCol1SpecialMod());
+        copy.setCol2TextRate(rate.getCol2TextRate());
+        copy.setCol2RateTypeCode(rate.getCol2RateTypeCode());
+        copy.setCol2adValoremRate(rate.getCol2adValoremRate());
+        copy.setCol2SpecificRate(rate.getCol2SpecificRate());
+        copy.setCol2OtherRate(rate.getCol2OtherRate());
+        copy.setBeginEffectDate(rate.getBeginEffectDate());
+        copy.setEndEffectiveDate(rate.getEndEffectiveDate());
+        return copy;
+    }
+
+    private AgreementRate adjust(String hts8, String agreementCode, AgreementRate rate) {
+        Rate adjusted = apply(hts8, agreementCode,
+                new Rate(rate.getadValoremRate(), rate.getSpecificRate(), rate.getTextRate()));
+        AgreementRate copy = new AgreementRate(rate.getProduct(), rate.getAgreement(), rate.getCountry());
+        copy.setRateTypeCode(rate.getRateTypeCode());
+        copy.setadValoremRate(adjusted.adValorem());
+        copy.setSpecificRate(adjusted.specific());
+        copy.setOtherRate(rate.getOtherRate());
+        copy.setTextRate(adjusted.text());
+        copy.setIndicator(rate.getIndicator());
+        copy.setEffectiveDate(rate.getEffectiveDate());
+        copy.setExpirationDate(rate.getExpirationDate());
+        return copy;
+    }
+
+    /** The numeric rates and text of one row */
+    private record Rate(BigDecimal adValorem, BigDecimal specific, String text) {}
+
+    /**
+     * Apply the rate rules matching a code and program, in the order they were given
+     */
+    private Rate apply(String hts8, String program, Rate rate) {
+        for (ScenarioRule rule : rules) {
+            if (rule.type() == RuleType.SUSPEND_AGREEMENT || !matches(rule, hts8, program)) {
+                continue;
+            }
+            if (rule.type() == RuleType.SET_AD_VALOREM) {
+                rate = new Rate(rule.rate(), null, rule.rate().signum() == 0 ? "Free" : percent(rule.rate()));
+            } else {
+                BigDecimal adValorem = rate.adValorem() != null ? rate.adValorem().add(rule.rate()) : rule.rate();
+                rate = new Rate(adValorem, rate.specific(), addedText(rate.text(), rule.rate()));
+            }
+        }
+        return rate;
+    }
+
+    /**
+     * Text of a rate with an ad valorem rate added, mapped to the sum of both expressions
+     */
+    private String addedText(String text, BigDecimal added) {
+        if (text == null || text.isBlank() || text.trim().equalsIgnoreCase("Free")) {
+            return percent(added);
+        }
+        String sum = text + " + " + percent(added);
+        // "25% or $1.00 each + 10%" would not compile as meant, so it is never compiled
+        RateExpression original = rateExpression(text);
+        adjustedExpressions.putIfAbsent(sum,
+                new RateExpression.Compound(List.of(original, new RateExpression.AdValorem(added))));
+        return sum;
+    }
+
+    /** "25%" for 0.25 */
+    static String percent(BigDecimal fraction) {
+        return fraction.movePointRight(2).stripTrailingZeros().toPlainString() + "%";
+    }
+
+    private static String agreementCode(AgreementRate rate) {
+        return rate.getAgreement() != null ? rate.getAgreement().getAgreementCode() : null;
+    }
+}
@@ -0,0 +1,462 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+
+import csd.tariff.backend.model.AgreementParticipant;
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.Country;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+import csd.tariff.backend.repository.AgreementParticipantRepository;
+import csd.tariff.backend.repository.AgreementRateRepository;
+import csd.tariff.backend.repository.CountryRepository;
+import csd.tariff.backend.repository.MfnTariffRateRepository;
+import csd.tariff.backend.repository.ProductRepository;
+import csd.tariff.backend.repository.TradeAgreementRepository;
+
+/**
+ * Versions of the tariff schedule, and the schedule as it was at a version.
+ *
+ * <p>Every transaction that writes products, MFN rates, agreement rates, trade agreements or
+ * agreement participants becomes one immutable version (V10 triggers), and the row as it was before
+ * each change is stored as a delta. Calculations record the version they were priced against, so
+ * a saved calculation can be priced again exactly as it was without storing its breakdown.
+ *
+ * <p>Version ids follow commit order, so the latest version a repeatable-read transaction can see
+ * describes exactly the rows it reads; readers never wait for writers. Versioning needs the V10
+ * triggers and PostgreSQL: on any other database no version is recorded and {@link #at} is
+ * unavailable.
+ *
+ * <p>{@link #at} rebuilds one HTS code and a few countries at a version: every row changed after
+ * the version takes the before-image of its first later delta, rows inserted after it are dropped,
+ * and everything else is read as it is now. The cost is one indexed read of the code's deltas on
+ * top of the usual slice reads, however old the version.
+ */
+@Service
+public class ScheduleVersionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleVersionService.class);
+
+    static final String PRODUCTS = "products";
+    static final String MFN_RATES = "mfn_tariff_rates";
+    static final String AGREEMENT_RATES = "agreement_tariff_rates";
+    static final String AGREEMENTS = "trade_agreements";
+    static final String PARTICIPANTS = "agreement_participants";
+
+    private static final String LATEST_VERSION_SQL = "SELECT COALESCE(MAX(id), 0) FROM tariff.schedule_versions";
+
+    // Agreement and participant deltas have no HTS code
+    private static final String DELTAS_AFTER_SQL =
+            "SELECT d.table_name, d.row_id, d.operation, d.old_row::text AS old_row FROM tariff.schedule_deltas d "
+            + "JOIN tariff.schedule_versions v ON v.transaction_id = d.transaction_id "
+            + "WHERE v.id > ? AND (d.hts8 = ? OR (d.hts8 IS NULL AND d.table_name IN ('" + AGREEMENTS + "', '"
+            + PARTICIPANTS + "'))) ORDER BY v.id, d.id";
+
+    /** The first change to a row after a version: its operation and the row before it */
+    record Delta(String tableName, long rowId, String operation, String oldRow) {
+
+        boolean inserted() {
+            return "I".equals(operation);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ProductRepository productRepository;
+    private final MfnTariffRateRepository mfnTariffRateRepository;
+    private final AgreementRateRepository agreementRateRepository;
+    private final AgreementParticipantRepository agreementParticipantRepository;
+    private final TradeAgreementRepository tradeAgreementRepository;
+    private final CountryRepository countryRepository;
+    private final ObjectReader rowReader;
+
+    /** Whether the database records versions; decided on first use */
+    private volatile Boolean versioned;
+
+    public ScheduleVersionService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ProductRepository productRepository,
+            MfnTariffRateRepository mfnTariffRateRepository,
+            AgreementRateRepository agreementRateRepository,
+            AgreementParticipantRepository agreementParticipantRepository,
+            TradeAgreementRepository tradeAgreementRepository,
+            CountryRepository countryRepository,
+            ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.productRepository = productRepository;
+        this.mfnTariffRateRepository = mfnTariffRateRepository;
+        this.agreementRateRepository = agreementRateRepository;
+        this.agreementParticipantRepository = agreementParticipantRepository;
+        this.tradeAgreementRepository = tradeAgreementRepository;
+        this.countryRepository = countryRepository;
+        // Exact decimals, scale included: rates are restored from the JSON before-images
+        this.rowReader = objectMapper.reader()
+                .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                .without(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES);
+    }
+
+    /**
+     * The latest version visible to the calling transaction, or null when the database does not
+     * record versions. Inside a repeatable-read transaction this is exactly the version of
+     * everything else the transaction reads; it takes no locks.
+     */
+    public Long pinCurrentVersion() {
+        if (!isVersioned()) {
+            return null;
+        }
+        Long version = jdbcTemplate.queryForObject(LATEST_VERSION_SQL, Long.class);
+        return version != null ? version : 0L;
+    }
+
+    /**
+     * The latest committed version, for a caller that reads the schedule on its own; null when the
+     * database does not record versions
+     */
+    public Long currentVersion() {
+        return isVersioned() ? transactionTemplate.execute(status -> pinCurrentVersion()) : null;
+    }
+
+    /**
+     * The schedule of one HTS code and the given countries as of a version, with the countries'
+     * agreement memberships as they were then
+     */
+    public TariffScheduleSnapshot at(long version, String hts8, Collection<String> countryCodes) {
+        if (!isVersioned()) {
+            throw new IllegalStateException("Schedule versions are only recorded on PostgreSQL");
+        }
+        // An empty IN list is not valid SQL on every database
+        Collection<String> countries = countryCodes.isEmpty() ? List.of("") : countryCodes;
+        // One snapshot, so the current rows and the committed deltas agree
+        return readOnlyTransaction.execute(status -> {
+            List<String> codes = List.of(hts8);
+            List<Product> products = productRepository.findByHts8In(codes);
+            List<MfnTariffRate> mfnRates = mfnTariffRateRepository.findByHts8In(codes);
+            List<AgreementRate> rates = agreementRateRepository.findByHts8InAndCountryCodeIn(codes, countries);
+            List<AgreementParticipant> participants = agreementParticipantRepository.findByCountryCodeIn(countries);
+
+            Map<String, Map<Long, Delta>> undo = firstDeltasAfter(version, hts8);
+            if (undo.isEmpty()) {
+                return TariffScheduleSnapshot.of(products, mfnRates, rates, participants).atVersion(version);
+            }
+            return new Replay(undo, countries).rebuild(products, mfnRates, rates, participants).atVersion(version);
+        });
+    }
+
+    private boolean isVersioned() {
+        Boolean known = versioned;
+        if (known == null) {
+            String database = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            known = "PostgreSQL".equalsIgnoreCase(database);
+            if (!known) {
+                log.info("{} does not record tariff schedule versions; calculations are saved unversioned", database);
+            }
+            versioned = known;
+        }
+        return known;
+    }
+
+    /**
+     * The first delta after the version of every row the code's schedule may depend on, by table
+     * and row id
+     */
+    private Map<String, Map<Long, Delta>> firstDeltasAfter(long version, String hts8) {
+        Map<String, Map<Long, Delta>> first = new HashMap<>();
+        List<Delta> deltas = jdbcTemplate.query(DELTAS_AFTER_SQL, (rs, rowNum) -> new Delta(
+                rs.getString("table_name"), rs.getLong("row_id"), rs.getString("operation"), rs.getString("old_row")),
+                version, hts8);
+        for (Delta delta : deltas) {
+            first.computeIfAbsent(delta.tableName(), k -> new HashMap<>()).putIfAbsent(delta.rowId(), delta);
+        }
+        return first;
+    }
+
+    /**
+     * Undoes the deltas of one {@link #at} call on the current rows. Restored rows are new,
+     * detached objects; every row of one agreement shares one {@link TradeAgreement}, as the
+     * agreement matrix requires.
+     */
+    private final class Replay {
+
+        private final Map<String, Map<Long, Delta>> undo;
+        private final Set<String> countryCodes;
+        private final Map<Long, TradeAgreement> agreements = new HashMap<>();
+        private final Map<Long, Country> countries = new HashMap<>();
+
+        Replay(Map<String, Map<Long, Delta>> undo, Collection<String> countryCodes) {
+            this.undo = undo;
+            this.countryCodes = new HashSet<>(countryCodes);
+        }
+
+        TariffScheduleSnapshot rebuild(
+                List<Product> currentProducts,
+                List<MfnTariffRate> currentMfnRates,
+                List<AgreementRate> currentRates,
+                List<AgreementParticipant> currentParticipants) {
+            Map<Long, JsonNode> restoredParticipants = restored(PARTICIPANTS);
+            Map<Long, JsonNode> restoredRates = restored(AGREEMENT_RATES);
+            loadAgreementsAndCountries(currentRates, currentParticipants, restoredRates, restoredParticipants);
+
+            TreeMap<Long, Product> products = atVersion(PRODUCTS, currentProducts, Product::getId, row -> {
+                Product product = new Product(text(row, "hts8"), text(row, "brief_description"));
+                product.setQuantity1Code(text(row, "quantity_1_code"));
+                product.setQuantity2Code(text(row, "quantity_2_code"));
+                product.setWtoBindingCode(text(row, "wto_binding_code"));
+                return product;
+            });
+            Long productId = products.isEmpty() ? null : products.firstKey();
+            Product product = products.isEmpty() ? null : products.firstEntry().getValue();
+
+            // Restored rates belong to the code's product only; older deltas may lack the code
+            List<MfnTariffRate> mfnRates = values(atVersion(MFN_RATES, currentMfnRates, MfnTariffRate::getId,
+                    row -> belongsTo(row, productId) ? mfnRate(row, product) : null));
+
+            List<AgreementRate> rates = new ArrayList<>();
+            for (AgreementRate rate : atVersion(AGREEMENT_RATES, currentRates, AgreementRate::getId,
+                    row -> belongsTo(row, productId) ? agreementRate(row, product) : null).values()) {
+                TradeAgreement agreement = agreementAt(rate.getAgreement());
+                if (agreement == rate.getAgreement()) {
+                    rates.add(rate);
+                } else if (agreement != null) {
+                    rates.add(copy(rate, agreement));
+                }
+            }
+
+            List<AgreementParticipant> participants = new ArrayList<>();
+            for (AgreementParticipant participant : atVersion(PARTICIPANTS, currentParticipants,
+                    AgreementParticipant::getId, this::participant).values()) {
+                TradeAgreement agreement = agreementAt(participant.getAgreement());
+                if (agreement == participant.getAgreement()) {
+                    participants.add(participant);
+                } else if (agreement != null) {
+                    participants.add(new AgreementParticipant(
+                            agreement, participant.getCountry(), participant.getParticipantType()));
+                }
+            }
+            return TariffScheduleSnapshot.of(values(products), mfnRates, rates, participants);
+        }
+
+        /**
+         * The agreement a row should point at: restored agreements (no id) already are, current
+         * ones are swapped for their state at the version, or null if they did not exist yet
+         */
+        private TradeAgreement agreementAt(TradeAgreement agreement) {
+            return agreement.getId() == null ? agreement : agreements.get(agreement.getId());
+        }
+
+        /**
+         * Rows of a table as of the version, by id: current rows without a later delta, and
+         * the before-image of every row whose first later delta is an update or delete
+         */
+        private <T> TreeMap<Long, T> atVersion(String table, List<T> current, Function<T, Long> id, Function<JsonNode, T> restore) {
+            Map<Long, Delta> deltas = undo.getOrDefault(table, Map.of());
+            TreeMap<Long, T> rows = new TreeMap<>();
+            for (T row : current) {
+                if (!deltas.containsKey(id.apply(row))) {
+                    rows.put(id.apply(row), row);
+                }
+            }
+            restored(table).forEach((rowId, before) -> {
+                T row = restore.apply(before);
+                if (row != null) {
+                    rows.put(rowId, row);
+                }
+            });
+            return rows;
+        }
+
+        private Map<Long, JsonNode> restored(String table) {
+            Map<Long, JsonNode> rows = new HashMap<>();
+            undo.getOrDefault(table, Map.of()).forEach((rowId, delta) -> {
+                if (!delta.inserted()) {
+                    rows.put(rowId, parse(delta.oldRow()));
+                }
+            });
+            return rows;
+        }
+
+        /**
+         * Agreements by id as of the version (absent if created after it) and the countries that
+         * restored rows refer to
+         */
+        private void loadAgreementsAndCountries(
+                List<AgreementRate> currentRates,
+                List<AgreementParticipant> currentParticipants,
+                Map<Long, JsonNode> restoredRates,
+                Map<Long, JsonNode> restoredParticipants) {
+            Set<Long> agreementIds = new HashSet<>(undo.getOrDefault(AGREEMENTS, Map.of()).keySet());
+            Set<Long> countryIds = new HashSet<>();
+            for (AgreementRate rate : currentRates) {
+                agreementIds.add(rate.getAgreement().getId());
+            }
+            for (AgreementParticipant participant : currentParticipants) {
+                agreementIds.add(participant.getAgreement().getId());
+            }
+            for (JsonNode row : restoredRates.values()) {
+                agreementIds.add(id(row, "agreement_id"));
+                countryIds.add(id(row, "country_id"));
+            }
+            for (JsonNode row : restoredParticipants.values()) {
+                agreementIds.add(id(row, "agreement_id"));
+                countryIds.add(id(row, "country_id"));
+            }
+            agreementIds.remove(null);
+            countryIds.remove(null);
+
+            for (TradeAgreement agreement : tradeAgreementRepository.findAllById(agreementIds)) {
+                agreements.put(agreement.getId(), agreement);
+            }
+            undo.getOrDefault(AGREEMENTS, Map.of()).forEach((agreementId, delta) -> {
+                if (delta.inserted()) {
+                    agreements.remove(agreementId);
+                } else {
+                    agreements.put(agreementId, agreement(parse(delta.oldRow())));
+                }
+            });
+            for (Country country : countryRepository.findAllById(countryIds)) {
+                countries.put(country.getId(), country);
+            }
+        }
+
+        /** Null when the rate's agreement or country did not exist or is not asked for */
+        private AgreementRate agreementRate(JsonNode row, Product product) {
+            TradeAgreement agreement = agreements.get(id(row, "agreement_id"));
+            Country country = countries.get(id(row, "country_id"));
+            if (agreement == null || country == null || !countryCodes.contains(country.getCountryCode())) {
+                return null;
+            }
+            AgreementRate rate = new AgreementRate(product, agreement, country);
+            rate.setRateTypeCode(text(row, "rate_type_code"));
+            rate.setadValoremRate(decimal(row, "ad_valorem_rate"));
+            rate.setSpecificRate(decimal(row, "specific_rate"));
+            rate.setOtherRate(decimal(row, "other_rate"));
+            rate.setTextRate(text(row, "text_rate"));
+            rate.setIndicator(text(row, "indicator"));
+            rate.setEffectiveDate(date(row, "effective_date"));
+            rate.setExpirationDate(date(row, "expiration_date"));
+            return rate;
+        }
+
+        private AgreementParticipant participant(JsonNode row) {
+            TradeAgreement agreement = agreements.get(id(row, "agreement_id"));
+            Country country = countries.get(id(row, "country_id"));
+            if (agreement == null || country == null || !countryCodes.contains(country.getCountryCode())) {
+                return null;
+            }
+            return new AgreementParticipant(agreement, country, text(row, "participant_type"));
+        }
+    }
+
+    private static <T> List<T> values(TreeMap<Long, T> rows) {
+        return new ArrayList<>(rows.values());
+    }
+
+    private static boolean belongsTo(JsonNode row, Long productId) {
+        return productId != null && productId.equals(id(row, "product_id"));
+    }
+
+    private static MfnTariffRate mfnRate(JsonNode row, Product product) {
+        MfnTariffRate rate = new MfnTariffRate();
+        rate.setProduct(product);
+        rate.setMfnTextRate(text(row, "mfn_text_rate"));
+        rate.setMfnRateTypeCode(text(row, "mfn_rate_type_code"));
+        rate.setMfnAve(decimal(row, "mfn_ave"));
+        rate.setMfnadValoremRate(decimal(row, "mfn_ad_val_rate"));
+        rate.setMfnSpecificRate(decimal(row, "mfn_specific_rate"));
+        rate.setMfnOtherRate(decimal(row, "mfn_other_rate"));
+        rate.setCol1SpecialText(text(row, "col1_special_text"));
+        rate.setCol1SpecialMod(text(row, "col1_special_mod"));
+        rate.setCol2TextRate(text(row, "col2_text_rate"));
+        rate.setCol2RateTypeCode(text(row, "col2_rate_type_code"));
+        rate.setCol2adValoremRate(decimal(row, "col2_ad_val_rate"));
+        rate.setCol2SpecificRate(decimal(row, "col2_specific_rate"));
+        rate.setCol2OtherRate(decimal(row, "col2_other_rate"));
+        rate.setBeginEffectDate(date(row, "begin_effect_date"));
+        rate.setEndEffectiveDate(date(row, "end_effective_date"));
+        return rate;
+    }
+
+    private static TradeAgreement agreement(JsonNode row) {
+        TradeAgreement agreement = new TradeAgreement(
+                text(row, "agreement_code"), text(row, "agreement_name"), text(row, "agreement_type"));
+        agreement.setEffectiveDate(date(row, "effective_date"));
+        agreement.setExpirationDate(date(row, "expiration_date"));
+        agreement.setIsMultilateral(row.path("is_multilateral").asBoolean(false));
+        return agreement;
+    }
+
+    /** A current rate re-pointed at its agreement as of the version */
+    private static AgreementRate copy(AgreementRate rate, TradeAgreement agreement) {
+        AgreementRate copy = new AgreementRate(rate.getProduct(), agreement, rate.getCountry());
+        copy.setRateTypeCode(rate.getRateTypeCode());
+        copy.setadValoremRate(rate.getadValoremRate());
+        copy.setSpecificRate(rate.getSpecificRate());
+        copy.setOtherRate(rate.getOtherRate());
+        copy.setTextRate(rate.getTextRate());
+        copy.setIndicator(rate.getIndicator());
+        copy.setEffectiveDate(rate.getEffectiveDate());
+        copy.setExpirationDate(rate.getExpirationDate());
+        return copy;
+    }
+
+    private JsonNode parse(String json) {
+        try {
+            return rowReader.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable schedule delta: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static String text(JsonNode row, String column) {
+        JsonNode value = row.get(column);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static BigDecimal decimal(JsonNode row, String column) {
+        JsonNode value = row.get(column);
+        return value == null || value.isNull() ? null : value.decimalValue();
+    }
+
+    private static LocalDate date(JsonNode row, String column) {
+        String value = text(row, column);
+        return value == null ? null : LocalDate.parse(value);
+    }
+
+    private static Long id(JsonNode row, String column) {
+        JsonNode value = row.get(column);
+        return value == null || value.isNull() ? null : value.asLong();
+    }
+}
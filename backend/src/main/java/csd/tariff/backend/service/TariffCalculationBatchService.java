@@ -0,0 +1,224 @@
+package csd.tariff.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import csd.tariff.backend.dto.TariffCalculationRequest;
+import csd.tariff.backend.dto.TariffCalculationResponse;
+import csd.tariff.backend.model.TariffCalculation;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Prices a stream of tariff calculation requests and streams the responses back one per line.
+ *
+ * <p>Requests are read incrementally from either newline-delimited JSON or a JSON array, so neither
+ * the input nor the output is held in memory as a whole. With the schedule snapshot loaded every lookup is in
+ * memory. Without it, requests are read {@value #PREFETCH_CHUNK_SIZE} at a time and the rows of each
+ * chunk's distinct HTS codes and countries are read in one query before the chunk is priced, so
+ * database work grows with the number of distinct codes rather than lines. A request that fails
+ * validation or pricing produces an error line at its position and the batch carries on.
+ *
+ * <p>Persisted calculations go through {@link TariffCalculationWriter} like single ones, so they
+ * take pooled IDs, are written in JDBC batches with retries and bump the calculations' dataset
+ * version.
+ */
+@Service
+public class TariffCalculationBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(TariffCalculationBatchService.class);
+
+    /** Responses are flushed to the client every this many lines */
+    static final int FLUSH_INTERVAL = 100;
+
+    /** Without the schedule snapshot, requests are read and prefetched this many at a time */
+    static final int PREFETCH_CHUNK_SIZE = 500;
+
+    /** One input line: a parsed request, or the error reported in its place */
+    private record PendingLine(long index, TariffCalculationRequest request, String error) {}
+
+    private final TariffCalculationService tariffCalculationService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TariffCalculationWriter tariffCalculationWriter;
+
+    public TariffCalculationBatchService(
+            TariffCalculationService tariffCalculationService,
+            ObjectMapper objectMapper,
+            Validator validator,
+            TariffCalculationWriter tariffCalculationWriter) {
+        this.tariffCalculationService = tariffCalculationService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.tariffCalculationWriter = tariffCalculationWriter;
+    }
+
+    /**
+     * Calculate every request read from {@code in} and write one JSON line per request to
+     * {@code out}, in input order. When {@code persist} is set, successful calculations are queued
+     * for saving as the stream is processed, each response carries its calculation ID, and the
+     * call returns once the writer has saved them or its wait times out.
+     *
+     * @return the number of requests read
+     */
+    public long calculateBatch(InputStream in, OutputStream out, boolean persist) throws IOException {
+        // With the snapshot loaded requests are priced as they arrive; otherwise they are read a
+        // chunk at a time and each chunk's codes are fetched in one query before pricing
+        TariffScheduleLookup snapshotLookup = tariffCalculationService.getScheduleLookup();
+        boolean prefetch = !(snapshotLookup instanceof TariffScheduleSnapshot);
+        int chunkSize = prefetch ? PREFETCH_CHUNK_SIZE : 1;
+
+        long index = 0;
+        long failed = 0;
+
+        try (MappingIterator<TariffCalculationRequest> requests =
+                     objectMapper.readerFor(TariffCalculationRequest.class).readValues(in);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            SequenceWriter writer = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n")
+                    .writeValues(generator);
+
+            boolean more = true;
+            while (more) {
+                List<PendingLine> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize) {
+                    try {
+                        if (!requests.hasNextValue()) {
+                            more = false;
+                            break;
+                        }
+                        TariffCalculationRequest request = requests.nextValue();
+                        chunk.add(new PendingLine(index++, request, null));
+                    } catch (JsonParseException e) {
+                        // Malformed JSON: the parser cannot find the next request, so stop here
+                        chunk.add(new PendingLine(index, null, "Malformed JSON: " + e.getOriginalMessage()));
+                        more = false;
+                        break;
+                    } catch (JsonMappingException e) {
+                        chunk.add(new PendingLine(index++, null, "Invalid request: " + e.getOriginalMessage()));
+                    }
+                }
+
+                TariffScheduleLookup lookup = prefetch ? prefetchedLookup(chunk, snapshotLookup) : snapshotLookup;
+                for (PendingLine line : chunk) {
+                    if (line.error() != null) {
+                        writer.write(error(line.index(), line.error()));
+                        failed++;
+                        continue;
+                    }
+                    try {
+                        String violations = validate(line.request());
+                        if (violations != null) {
+                            throw new IllegalArgumentException(violations);
+                        }
+                        TariffCalculationResponse response =
+                                tariffCalculationService.calculateTariffCalculation(line.request(), lookup);
+                        if (persist) {
+                            response.setCalculationId(
+                                    tariffCalculationWriter.submit(toEntity(line.request(), response)));
+                        }
+                        writer.write(response);
+                    } catch (RuntimeException e) {
+                        writer.write(error(line.index(), "Invalid request: " + e.getMessage()));
+                        failed++;
+                    }
+
+                    if ((line.index() + 1) % FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+
+            writer.flush();
+            if (persist) {
+                tariffCalculationWriter.flush();
+            }
+        }
+
+        log.info("Batch tariff calculation finished: {} requests, {} failed, persisted={}", index, failed, persist);
+        return index;
+    }
+
+    /**
+     * Schedule reads for one chunk: the rows of every HTS code and country it mentions, read up
+     * front, with anything else resolved once per chunk
+     */
+    private TariffScheduleLookup prefetchedLookup(List<PendingLine> chunk, TariffScheduleLookup fallback) {
+        Set<String> htsCodes = new HashSet<>();
+        Set<String> countryCodes = new HashSet<>();
+        for (PendingLine line : chunk) {
+            TariffCalculationRequest request = line.request();
+            if (request != null && request.getHtsCode() != null) {
+                htsCodes.add(request.getHtsCode());
+                countryCodes.add(request.getOriginCountry());
+                countryCodes.add(request.getDestinationCountry());
+            }
+        }
+        countryCodes.remove(null);
+        if (htsCodes.isEmpty()) {
+            return fallback;
+        }
+        return new MemoizingScheduleLookup(tariffCalculationService.getScheduleLookup(htsCodes, countryCodes));
+    }
+
+    private String validate(TariffCalculationRequest request) {
+        if (request == null) {
+            return "Request is empty";
+        }
+        Set<ConstraintViolation<TariffCalculationRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static Map<String, Object> error(long index, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("index", index);
+        error.put("error", message);
+        return error;
+    }
+
+    private static TariffCalculation toEntity(TariffCalculationRequest request, TariffCalculationResponse response) {
+        TariffCalculation calculation = new TariffCalculation(
+                response.getHtsCode(),
+                request.getDestinationCountry(), // countryCode for backward compatibility
+                request.getOriginCountry(),
+                request.getDestinationCountry(),
+                request.getProductValue(),
+                request.getQuantity(),
+                "STANDARD",
+                response.getTotalTariffAmount(),
+                response.getTotalImportPrice(),
+                request.getTariffEffectiveDate(),
+                request.getTariffExpirationDate(),
+                request.getCurrency());
+        calculation.setScheduleVersion(response.getScheduleVersion());
+        return calculation;
+    }
+}
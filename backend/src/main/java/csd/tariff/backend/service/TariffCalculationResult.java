@@ -0,0 +1,147 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable result of pricing one product between two countries.
+ *
+ * <p>Built once by rate resolution and read directly when filling a {@code
+ * TariffCalculationResponse}. {@link #toMap()} renders the legacy {@code Map} shape returned by
+ * {@link TariffCalculationService#calculateTariff}.
+ *
+ * @param mfnRate the MFN leg, or null when the product has no MFN rate
+ * @param dateRange whether the calculation was requested with a tariff date range
+ */
+public record TariffCalculationResult(
+    String htsCode,
+    String productDescription,
+    String countryOfOrigin,
+    String destinationCountry,
+    Double productValue,
+    Integer quantity,
+    boolean dateRange,
+    LocalDate tariffEffectiveDate,
+    LocalDate tariffExpirationDate,
+    String dateValidationWarning,
+    RateLeg mfnRate,
+    BigDecimal mfnTariffAmount,
+    List<RateLeg> preferentialRates,
+    Recommendation recommendation,
+    List<String> applicablePrograms,
+    List<String> complianceNotes,
+    BigDecimal totalImportPrice) {
+
+  public TariffCalculationResult {
+    preferentialRates = List.copyOf(preferentialRates);
+    applicablePrograms = List.copyOf(applicablePrograms);
+    complianceNotes = List.copyOf(complianceNotes);
+  }
+
+  /** Lowest duty across MFN and preferential legs */
+  public BigDecimal bestTariffAmount() {
+    return recommendation.calculatedDuty();
+  }
+
+  /** Agreement name of the lowest preferential leg, or "MFN" */
+  public String bestProgramName() {
+    return recommendation.bestProgram();
+  }
+
+  /**
+   * One priced rate row with its compiled text rate. Agreement fields are null for the MFN leg.
+   */
+  public record RateLeg(
+      BigDecimal adValoremRate,
+      BigDecimal specificRate,
+      String textRate,
+      String rateTypeCode,
+      BigDecimal calculatedDuty,
+      String agreementCode,
+      String agreementName,
+      RateExpression expression) {
+
+    Map<String, Object> toMap(boolean preferential) {
+      Map<String, Object> m = new HashMap<>();
+      m.put("adValoremRate", adValoremRate);
+      m.put("specificRate", specificRate);
+      m.put("textRate", textRate);
+      m.put("rateTypeCode", rateTypeCode);
+      m.put("calculatedDuty", calculatedDuty);
+      if (preferential) {
+        m.put("agreementCode", agreementCode);
+        m.put("agreementName", agreementName);
+        m.put("eligibilityStatus", "Unknown"); // placeholder; implement real checks
+      }
+      return m;
+    }
+  }
+
+  /**
+   * The recommended program; {@code bestProgram} is the cheapest agreement's name, or "MFN".
+   */
+  public record Recommendation(
+      boolean preferential, BigDecimal calculatedDuty, BigDecimal savings, String bestProgram) {
+
+    public String rateType() {
+      return preferential ? "Preferential" : "MFN";
+    }
+
+    public String programName() {
+      return preferential ? bestProgram : "MFN";
+    }
+
+    public String recommendation() {
+      return preferential
+          ? "Use " + bestProgram + " for lowest duty rate"
+          : "MFN rate is the best available option";
+    }
+
+    Map<String, Object> toMap() {
+      Map<String, Object> m = new HashMap<>();
+      m.put("rateType", rateType());
+      m.put("calculatedDuty", calculatedDuty);
+      m.put("savings", savings);
+      m.put("programName", programName());
+      m.put("recommendation", recommendation());
+      return m;
+    }
+  }
+
+  /** Render the legacy map returned by the {@code calculateTariff} API */
+  public Map<String, Object> toMap() {
+    Map<String, Object> result = new HashMap<>();
+    if (dateValidationWarning != null) {
+      result.put("dateValidationWarning", dateValidationWarning);
+    }
+    result.put("htsCode", htsCode);
+    result.put("countryOfOrigin", countryOfOrigin);
+    result.put("destinationCountry", destinationCountry);
+    result.put("productValue", productValue);
+    result.put("quantity", quantity);
+    if (dateRange) {
+      result.put("tariffEffectiveDate", tariffEffectiveDate);
+      result.put("tariffExpirationDate", tariffExpirationDate);
+    }
+    result.put("mfnRate", mfnRate != null ? mfnRate.toMap(false) : new HashMap<String, Object>());
+    result.put("mfnTariffAmount", mfnTariffAmount);
+
+    List<Map<String, Object>> prefs = new ArrayList<>(preferentialRates.size());
+    for (RateLeg leg : preferentialRates) {
+      prefs.add(leg.toMap(true));
+    }
+    result.put("preferentialRates", prefs);
+
+    result.put("recommendedRate", recommendation.toMap());
+    result.put("bestTariffAmount", bestTariffAmount());
+    result.put("bestProgramName", bestProgramName());
+    result.put("applicablePrograms", new ArrayList<>(applicablePrograms));
+    result.put("complianceNotes", new ArrayList<>(complianceNotes));
+    result.put("totalImportPrice", totalImportPrice);
+    return result;
+  }
+}
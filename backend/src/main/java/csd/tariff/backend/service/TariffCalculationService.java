@@ -1,10 +1,14 @@
 package csd.tariff.backend.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.dto.TariffCalculationRequest;
 import csd.tariff.backend.dto.TariffCalculationResponse;
 import csd.tariff.backend.model.Product;
@@ -67,18 +71,63 @@ public interface TariffCalculationService {
 
   // ===== CRUD OPERATIONS FOR TARIFF CALCULATIONS =====
 
-  /** Create a new tariff calculation record using DTO */
+  /**
+   * Calculate and save a tariff calculation using DTO. The row is written asynchronously; the
+   * response carries its assigned ID, and reads by that ID wait for the write.
+   */
   TariffCalculationResponse createTariffCalculation(TariffCalculationRequest request);
 
+  /**
+   * Calculate a tariff from a DTO against the given schedule lookup without saving it. Batch callers
+   * pass a shared lookup so repeated HTS codes and country pairs are resolved once.
+   */
+  TariffCalculationResponse calculateTariffCalculation(
+      TariffCalculationRequest request, TariffScheduleLookup lookup);
+
+  /**
+   * As {@link #calculateTariffCalculation(TariffCalculationRequest, TariffScheduleLookup)}, with an
+   * undated request priced against the rows in effect on {@code pricedOn} (the current rows where
+   * none were) and totals converted to the request's currency at the exchange rates of {@code
+   * fxDate}. A null {@code pricedOn} prices against the current rows, a null {@code fxDate} at the
+   * latest exchange rates.
+   */
+  TariffCalculationResponse calculateTariffCalculation(
+      TariffCalculationRequest request, TariffScheduleLookup lookup, LocalDate pricedOn, LocalDate fxDate);
+
+  /** Schedule reads used by calculations: the in-memory snapshot once loaded, otherwise the database */
+  TariffScheduleLookup getScheduleLookup();
+
+  /**
+   * Schedule reads for pricing a known set of HTS codes and countries: the in-memory snapshot once
+   * loaded, otherwise the rows of just those codes and countries read from the database up front
+   */
+  TariffScheduleLookup getScheduleLookup(Collection<String> htsCodes, Collection<String> countryCodes);
+
+  /**
+   * Price a saved calculation again against the schedule version it recorded, converting other
+   * currencies at the rates of the date it was priced, giving the same result and breakdown as when
+   * it was saved. Empty if there is no such calculation.
+   */
+  Optional<TariffCalculationResponse> replayTariffCalculation(Long id);
+
   /** Update tariff calculation using DTO */
   TariffCalculationResponse updateTariffCalculation(Long id, TariffCalculationRequest request);
 
-  /** Read/Get tariff calculation by ID */
+  /**
+   * Read/Get tariff calculation by ID. Throws IllegalStateException if the ID was handed out but
+   * its row could not be saved.
+   */
   Optional<TariffCalculation> getTariffCalculationById(Long id);
 
   /** Read/Get all tariff calculations */
   List<TariffCalculation> getAllTariffCalculations();
 
+  /** Read one keyset page of tariff calculations with IDs after the cursor */
+  CursorPage<TariffCalculation> getTariffCalculationPage(Long cursor, int limit);
+
+  /** Stream every tariff calculation by ID; must be consumed inside a transaction */
+  Stream<TariffCalculation> streamAllTariffCalculations();
+
   /** Read/Get tariff calculations by HTS code */
   List<TariffCalculation> getTariffCalculationsByHtsCode(String htsCode);
 
@@ -4,15 +4,22 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.dto.TariffCalculationRequest;
 import csd.tariff.backend.dto.TariffCalculationResponse;
 import csd.tariff.backend.model.AgreementRate;
@@ -33,6 +40,9 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
   private final ProductService productService;
   private final TradeAgreementService tradeAgreementService;
   private final CurrencyService currencyService;
+  private final TariffScheduleService tariffScheduleService;
+  private final TariffCalculationWriter tariffCalculationWriter;
+  private final ScheduleVersionService scheduleVersionService;
 
   public TariffCalculationServiceImpl(
       ProductRepository productRepository,
@@ -40,13 +50,19 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
       MfnService mfnService,
       ProductService productService,
       TradeAgreementService tradeAgreementService,
-      CurrencyService currencyService) {
+      CurrencyService currencyService,
+      TariffScheduleService tariffScheduleService,
+      TariffCalculationWriter tariffCalculationWriter,
+      ScheduleVersionService scheduleVersionService) {
     this.productRepository = productRepository;
     this.tariffCalculationRepository = tariffCalculationRepository;
     this.mfnService = mfnService;
     this.productService = productService;
     this.tradeAgreementService = tradeAgreementService;
     this.currencyService = currencyService;
+    this.tariffScheduleService = tariffScheduleService;
+    this.tariffCalculationWriter = tariffCalculationWriter;
+    this.scheduleVersionService = scheduleVersionService;
   }
 
   // ===== Basic lookups =====
@@ -55,7 +71,7 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
     if (htsCode == null) return Optional.empty();
     // Reuse the same normalization used in validate step
     String cleaned = cleanHtsCode(htsCode);
-    return cleaned.length() == 8 ? productRepository.findByHts8(cleaned) : Optional.empty();
+    return cleaned.length() == 8 ? getScheduleLookup().findProduct(cleaned) : Optional.empty();
   }
 
   // ===== Core calculation =====
@@ -73,119 +89,21 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
       String destinationCountry,
       Double productValue,
       Integer quantity) {
-    Map<String, Object> result = new HashMap<>();
     try {
-      // Validate & normalize inputs early
-      validateInputs(htsCode, productValue, quantity);
-      String cleanedHts = cleanHtsCode(htsCode);
-
-      Optional<Product> productOpt = productRepository.findByHts8(cleanedHts);
-      if (productOpt.isEmpty()) {
-        result.put("error", "HTS code not found");
-        return result;
-      }
-
-      result.put("htsCode", cleanedHts);
-      result.put("countryOfOrigin", originCountry);
-      result.put("destinationCountry", destinationCountry);
-      result.put("productValue", productValue);
-      result.put("quantity", quantity);
-
-      // --- MFN ---
-      Optional<MfnTariffRate> mfnRateOpt = mfnService.getMfnTariffRate(cleanedHts);
-      Map<String, Object> mfnInfo = new HashMap<>();
-      BigDecimal mfnDuty = BigDecimal.ZERO;
-      if (mfnRateOpt.isPresent()) {
-        MfnTariffRate mfnRate = mfnRateOpt.get();
-        mfnInfo.put("adValoremRate", mfnRate.getMfnadValoremRate());
-        mfnInfo.put("specificRate", mfnRate.getMfnSpecificRate());
-        mfnInfo.put("textRate", mfnRate.getMfnTextRate());
-        mfnInfo.put("rateTypeCode", mfnRate.getMfnRateTypeCode());
-        mfnDuty =
-            calculateDuty(
-                mfnRate.getMfnadValoremRate(), mfnRate.getMfnSpecificRate(), productValue, quantity);
-        mfnInfo.put("calculatedDuty", mfnDuty);
-      }
-      result.put("mfnRate", mfnInfo);
-      result.put("mfnTariffAmount", mfnDuty);
-
-      // --- Preferential ---
-      List<AgreementRate> agreementRates =
-          productService.getAgreementRates(cleanedHts, destinationCountry);
-      List<Map<String, Object>> preferentialRates = new ArrayList<>();
-      BigDecimal lowestDuty = mfnDuty;
-      String bestProgram = "MFN";
-
-      for (AgreementRate ar : agreementRates) {
-        Map<String, Object> prefInfo = new HashMap<>();
-        prefInfo.put("adValoremRate", ar.getadValoremRate());
-        prefInfo.put("specificRate", ar.getSpecificRate());
-        prefInfo.put("textRate", ar.getTextRate());
-        prefInfo.put("rateTypeCode", ar.getRateTypeCode());
-
-        BigDecimal prefDuty =
-            calculateDuty(ar.getadValoremRate(), ar.getSpecificRate(), productValue, quantity);
-        prefInfo.put("calculatedDuty", prefDuty);
-        prefInfo.put("agreementCode", ar.getAgreement().getAgreementCode());
-        prefInfo.put("agreementName", ar.getAgreement().getAgreementName());
-        prefInfo.put("eligibilityStatus", "Unknown"); // placeholder; implement real checks
-
-        preferentialRates.add(prefInfo);
-
-        if (prefDuty.compareTo(lowestDuty) < 0) {
-          lowestDuty = prefDuty;
-          bestProgram = ar.getAgreement().getAgreementName();
-        }
-      }
-      result.put("preferentialRates", preferentialRates);
-
-      // --- Recommendation ---
-      Map<String, Object> recommended = new HashMap<>();
-      boolean isMfnBest = lowestDuty.compareTo(mfnDuty) == 0;
-      recommended.put("rateType", isMfnBest ? "MFN" : "Preferential");
-      recommended.put("calculatedDuty", lowestDuty);
-      recommended.put("savings", mfnDuty.subtract(lowestDuty));
-      recommended.put("programName", isMfnBest ? "MFN" : bestProgram);
-      recommended.put(
-          "recommendation",
-          isMfnBest
-              ? "MFN rate is the best available option"
-              : ("Use " + bestProgram + " for lowest duty rate"));
-
-      result.put("recommendedRate", recommended);
-      result.put("bestTariffAmount", lowestDuty);
-      result.put("bestProgramName", bestProgram);
-
-      // --- Applicable programs ---
-      List<String> applicablePrograms =
-          getApplicableTradePrograms(originCountry, destinationCountry);
-      result.put("applicablePrograms", applicablePrograms);
-
-      // --- Compliance notes ---
-      List<String> notes = new ArrayList<>();
-      if (applicablePrograms.isEmpty()) {
-        notes.add("No preferential trade programs available for this product/country combination");
-      } else {
-        notes.add("ELIGIBLE programs (to be verified): " + String.join(", ", applicablePrograms));
-      }
-      if (applicablePrograms.stream().anyMatch(p -> p.contains("GSP"))) {
-        notes.add("GSP: Verify country eligibility and product requirements");
-      }
-      if (applicablePrograms.stream().anyMatch(p -> p.contains("USMCA"))) {
-        notes.add("USMCA: Verify rules of origin requirements");
-      }
-      notes.add("Ensure proper documentation for preferential treatment");
-      notes.add("Verify country of origin certification requirements");
-      result.put("complianceNotes", notes);
-
-      // --- Totals ---
-      BigDecimal totalImportPrice = BigDecimal.valueOf(productValue).add(lowestDuty);
-      result.put("totalImportPrice", totalImportPrice);
-
-      return result;
-    } catch (Exception e) {
-      result.put("error", "Calculation failed: " + e.getMessage());
-      return result;
+      return resolveTariff(
+              htsCode,
+              originCountry,
+              destinationCountry,
+              productValue,
+              quantity,
+              false,
+              null,
+              null,
+              getScheduleLookup(),
+              null)
+          .toMap();
+    } catch (CalculationRejectedException e) {
+      return errorResult(e.getMessage());
     }
   }
 
@@ -217,107 +135,131 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
       Integer quantity,
       java.time.LocalDate tariffEffectiveDate,
       java.time.LocalDate tariffExpirationDate) {
-    Map<String, Object> result = new HashMap<>();
+    try {
+      return resolveTariff(
+              htsCode,
+              originCountry,
+              destinationCountry,
+              productValue,
+              quantity,
+              true,
+              tariffEffectiveDate,
+              tariffExpirationDate,
+              getScheduleLookup(),
+              null)
+          .toMap();
+    } catch (CalculationRejectedException e) {
+      return errorResult(e.getMessage());
+    }
+  }
+
+  /**
+   * Resolve rates and price one product. Failures are reported as {@link
+   * CalculationRejectedException} carrying the message the map API puts under "error".
+   */
+  private TariffCalculationResult resolveTariff(
+      String htsCode,
+      String originCountry,
+      String destinationCountry,
+      Double productValue,
+      Integer quantity,
+      boolean dateRange,
+      LocalDate tariffEffectiveDate,
+      LocalDate tariffExpirationDate,
+      TariffScheduleLookup lookup,
+      LocalDate pricedOn) {
     try {
       // Validate & normalize inputs early
       validateInputs(htsCode, productValue, quantity);
       String cleanedHts = cleanHtsCode(htsCode);
 
-      Optional<Product> productOpt = productRepository.findByHts8(cleanedHts);
+      Optional<Product> productOpt = lookup.findProduct(cleanedHts);
       if (productOpt.isEmpty()) {
-        result.put("error", "HTS code not found");
-        return result;
-      }
-
-      // Validate tariff date range against MFN rates
-      Map<String, Object> mfnDateValidation =
-          validateTariffDateRange(cleanedHts, tariffEffectiveDate, tariffExpirationDate);
-      if (mfnDateValidation.containsKey("error")) {
-        return mfnDateValidation;
+        throw new CalculationRejectedException("HTS code not found");
       }
 
-      // Store any warnings from date validation
-      if (mfnDateValidation.containsKey("warning")) {
-        result.put("dateValidationWarning", mfnDateValidation.get("warning"));
+      String dateValidationWarning = null;
+      // Date-ranged calculations price with the rows in effect on the first requested day
+      LocalDate asOf = null;
+      if (dateRange) {
+        asOf = tariffEffectiveDate != null ? tariffEffectiveDate : tariffExpirationDate;
+        // Validate tariff date range against MFN rates
+        Map<String, Object> mfnDateValidation =
+            validateTariffDateRange(
+                cleanedHts, destinationCountry, tariffEffectiveDate, tariffExpirationDate, lookup);
+        if (mfnDateValidation.containsKey("error")) {
+          throw new CalculationRejectedException((String) mfnDateValidation.get("error"));
+        }
+        dateValidationWarning = (String) mfnDateValidation.get("warning");
       }
 
-      result.put("htsCode", cleanedHts);
-      result.put("countryOfOrigin", originCountry);
-      result.put("destinationCountry", destinationCountry);
-      result.put("productValue", productValue);
-      result.put("quantity", quantity);
-      result.put("tariffEffectiveDate", tariffEffectiveDate);
-      result.put("tariffExpirationDate", tariffExpirationDate);
-
       // --- MFN ---
-      Optional<MfnTariffRate> mfnRateOpt = mfnService.getMfnTariffRate(cleanedHts);
-      Map<String, Object> mfnInfo = new HashMap<>();
+      // Undated quotes price against the current rows, or as of their pricing day when one is given
+      Optional<MfnTariffRate> mfnRateOpt =
+          asOf != null
+              ? lookup.findMfnRate(cleanedHts, asOf)
+              : pricedOn != null
+                  ? mfnRateOn(lookup, cleanedHts, pricedOn)
+                  : lookup.findMfnRate(cleanedHts);
+      TariffCalculationResult.RateLeg mfnLeg = null;
       BigDecimal mfnDuty = BigDecimal.ZERO;
       if (mfnRateOpt.isPresent()) {
         MfnTariffRate mfnRate = mfnRateOpt.get();
-        mfnInfo.put("adValoremRate", mfnRate.getMfnadValoremRate());
-        mfnInfo.put("specificRate", mfnRate.getMfnSpecificRate());
-        mfnInfo.put("textRate", mfnRate.getMfnTextRate());
-        mfnInfo.put("rateTypeCode", mfnRate.getMfnRateTypeCode());
         mfnDuty =
             calculateDuty(
                 mfnRate.getMfnadValoremRate(), mfnRate.getMfnSpecificRate(), productValue, quantity);
-        mfnInfo.put("calculatedDuty", mfnDuty);
+        mfnLeg =
+            new TariffCalculationResult.RateLeg(
+                mfnRate.getMfnadValoremRate(),
+                mfnRate.getMfnSpecificRate(),
+                mfnRate.getMfnTextRate(),
+                mfnRate.getMfnRateTypeCode(),
+                mfnDuty,
+                null,
+                null,
+                lookup.rateExpression(mfnRate.getMfnTextRate()));
       }
-      result.put("mfnRate", mfnInfo);
-      result.put("mfnTariffAmount", mfnDuty);
 
       // --- Preferential ---
       List<AgreementRate> agreementRates =
-          productService.getAgreementRates(cleanedHts, destinationCountry);
-      List<Map<String, Object>> preferentialRates = new ArrayList<>();
+          asOf != null
+              ? lookup.getAgreementRates(cleanedHts, destinationCountry, asOf)
+              : pricedOn != null
+                  ? agreementRatesOn(lookup, cleanedHts, destinationCountry, pricedOn)
+                  : lookup.getAgreementRates(cleanedHts, destinationCountry);
+      List<TariffCalculationResult.RateLeg> preferentialRates = new ArrayList<>(agreementRates.size());
       BigDecimal lowestDuty = mfnDuty;
       String bestProgram = "MFN";
 
       for (AgreementRate ar : agreementRates) {
-        Map<String, Object> prefInfo = new HashMap<>();
-        prefInfo.put("adValoremRate", ar.getadValoremRate());
-        prefInfo.put("specificRate", ar.getSpecificRate());
-        prefInfo.put("textRate", ar.getTextRate());
-        prefInfo.put("rateTypeCode", ar.getRateTypeCode());
-
         BigDecimal prefDuty =
             calculateDuty(ar.getadValoremRate(), ar.getSpecificRate(), productValue, quantity);
-        prefInfo.put("calculatedDuty", prefDuty);
-        prefInfo.put("agreementCode", ar.getAgreement().getAgreementCode());
-        prefInfo.put("agreementName", ar.getAgreement().getAgreementName());
-        prefInfo.put("eligibilityStatus", "Unknown"); // placeholder; implement real checks
-
-        preferentialRates.add(prefInfo);
+        preferentialRates.add(
+            new TariffCalculationResult.RateLeg(
+                ar.getadValoremRate(),
+                ar.getSpecificRate(),
+                ar.getTextRate(),
+                ar.getRateTypeCode(),
+                prefDuty,
+                ar.getAgreement().getAgreementCode(),
+                ar.getAgreement().getAgreementName(),
+                lookup.rateExpression(ar.getTextRate())));
 
         if (prefDuty.compareTo(lowestDuty) < 0) {
           lowestDuty = prefDuty;
           bestProgram = ar.getAgreement().getAgreementName();
         }
       }
-      result.put("preferentialRates", preferentialRates);
 
       // --- Recommendation ---
-      Map<String, Object> recommended = new HashMap<>();
       boolean isMfnBest = lowestDuty.compareTo(mfnDuty) == 0;
-      recommended.put("rateType", isMfnBest ? "MFN" : "Preferential");
-      recommended.put("calculatedDuty", lowestDuty);
-      recommended.put("savings", mfnDuty.subtract(lowestDuty));
-      recommended.put("programName", isMfnBest ? "MFN" : bestProgram);
-      recommended.put(
-          "recommendation",
-          isMfnBest
-              ? "MFN rate is the best available option"
-              : ("Use " + bestProgram + " for lowest duty rate"));
-
-      result.put("recommendedRate", recommended);
-      result.put("bestTariffAmount", lowestDuty);
-      result.put("bestProgramName", bestProgram);
+      TariffCalculationResult.Recommendation recommendation =
+          new TariffCalculationResult.Recommendation(
+              !isMfnBest, lowestDuty, mfnDuty.subtract(lowestDuty), bestProgram);
 
       // --- Applicable programs ---
       List<String> applicablePrograms =
-          getApplicableTradePrograms(originCountry, destinationCountry);
-      result.put("applicablePrograms", applicablePrograms);
+          getApplicableTradePrograms(originCountry, destinationCountry, lookup);
 
       // --- Compliance notes ---
       List<String> notes = new ArrayList<>();
@@ -345,38 +287,75 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
         notes.add("Tariff rates effective until " + tariffExpirationDate);
       }
 
-      result.put("complianceNotes", notes);
-
       // --- Totals ---
       BigDecimal totalImportPrice = BigDecimal.valueOf(productValue).add(lowestDuty);
-      result.put("totalImportPrice", totalImportPrice);
 
-      return result;
+      return new TariffCalculationResult(
+          cleanedHts,
+          productOpt.get().getBriefDescription(),
+          originCountry,
+          destinationCountry,
+          productValue,
+          quantity,
+          dateRange,
+          tariffEffectiveDate,
+          tariffExpirationDate,
+          dateValidationWarning,
+          mfnLeg,
+          mfnDuty,
+          preferentialRates,
+          recommendation,
+          applicablePrograms,
+          notes,
+          totalImportPrice);
+    } catch (CalculationRejectedException e) {
+      throw e;
     } catch (Exception e) {
-      result.put("error", "Calculation failed: " + e.getMessage());
-      return result;
+      throw new CalculationRejectedException("Calculation failed: " + e.getMessage());
     }
   }
 
+  /**
+   * The code's MFN row in effect on the day, or its current row when none was; a missing date row
+   * never prices as duty-free
+   */
+  private static Optional<MfnTariffRate> mfnRateOn(
+      TariffScheduleLookup lookup, String hts8, LocalDate day) {
+    Optional<MfnTariffRate> rate = lookup.findMfnRate(hts8, day);
+    return rate.isPresent() ? rate : lookup.findMfnRate(hts8);
+  }
+
+  /** The agreement rates of a code and country in effect on the day, or the current ones when none were */
+  private static List<AgreementRate> agreementRatesOn(
+      TariffScheduleLookup lookup, String hts8, String countryCode, LocalDate day) {
+    List<AgreementRate> rates = lookup.getAgreementRates(hts8, countryCode, day);
+    return !rates.isEmpty() ? rates : lookup.getAgreementRates(hts8, countryCode);
+  }
+
+  /** A calculation that could not be priced; the message is reported as-is */
+  private static final class CalculationRejectedException extends RuntimeException {
+    CalculationRejectedException(String message) {
+      super(message);
+    }
+  }
+
+  private static Map<String, Object> errorResult(String message) {
+    Map<String, Object> result = new HashMap<>();
+    result.put("error", message);
+    return result;
+  }
+
   // ===== Programs =====
   @Override
   public List<String> getApplicableTradePrograms(String originCountry, String destinationCountry) {
+    return getApplicableTradePrograms(originCountry, destinationCountry, getScheduleLookup());
+  }
+
+  private List<String> getApplicableTradePrograms(
+      String originCountry, String destinationCountry, TariffScheduleLookup lookup) {
     try {
-      // Find trade agreements that apply between the two countries
-      List<TradeAgreement> agreements =
-          tradeAgreementService.getTradeAgreementsBetweenCountries(
-              originCountry, destinationCountry);
-      List<String> out = new ArrayList<>();
-      for (TradeAgreement agreement : agreements) {
-        // Only include active agreements
-        if (agreement.getEffectiveDate() != null
-            && agreement.getEffectiveDate().isBefore(java.time.LocalDate.now())
-            && (agreement.getExpirationDate() == null
-                || agreement.getExpirationDate().isAfter(java.time.LocalDate.now()))) {
-          out.add(agreement.getAgreementCode() + " - " + agreement.getAgreementName());
-        }
-      }
-      return out;
+      // Active agreements between the two countries (bitset AND on the snapshot)
+      return lookup.getApplicableTradePrograms(originCountry, destinationCountry, LocalDate.now());
     } catch (Exception e) {
       return new ArrayList<>();
     }
@@ -386,20 +365,17 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
   @Override
   public BigDecimal calculateDuty(
       BigDecimal adValoremRate, BigDecimal specificRate, Double productValue, Integer quantity) {
-    BigDecimal duty = BigDecimal.ZERO;
-    if (adValoremRate != null && productValue != null) {
-      // Assumes adValoremRate is a fraction (e.g., 0.05 for 5%)
-      duty = duty.add(adValoremRate.multiply(BigDecimal.valueOf(productValue)));
-    }
-    if (specificRate != null && quantity != null) {
-      duty = duty.add(specificRate.multiply(BigDecimal.valueOf(quantity)));
-    }
-    return duty.setScale(2, RoundingMode.HALF_UP);
+    // Assumes adValoremRate is a fraction (e.g., 0.05 for 5%); scaled-long math, BigDecimal on overflow
+    return FixedPointDuty.calculateDuty(adValoremRate, specificRate, productValue, quantity);
   }
 
   // ===== Validation =====
   @Override
   public Map<String, Object> validateHtsCode(String htsCode) {
+    return validateHtsCode(htsCode, getScheduleLookup());
+  }
+
+  private Map<String, Object> validateHtsCode(String htsCode, TariffScheduleLookup lookup) {
     Map<String, Object> res = new HashMap<>();
     if (htsCode == null || htsCode.isBlank()) {
       res.put("valid", false);
@@ -416,13 +392,13 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
       res.put("cleanedCode", cleaned);
       return res;
     }
-    Optional<Product> product = productRepository.findByHts8(cleaned);
+    Optional<Product> product = lookup.findProduct(cleaned);
     if (product.isPresent()) {
       res.put("valid", true);
       res.put("message", "Valid HTS code");
       res.put("htsCode", cleaned);
       res.put("productId", product.get().getId());
-      Optional<MfnTariffRate> mfnRate = mfnService.getMfnTariffRate(cleaned);
+      Optional<MfnTariffRate> mfnRate = lookup.findMfnRate(cleaned);
       res.put("hasMfnRate", mfnRate.isPresent());
       mfnRate.ifPresent(
           r -> {
@@ -446,12 +422,26 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
     Map<String, Object> res = new HashMap<>();
     try {
       validateInputs(htsCode, productValue, quantity);
-      Map<String, Object> calc =
-          calculateTariff(htsCode, destinationCountry, productValue, quantity);
-      if (calc.containsKey("error")) return calc;
+      TariffCalculationResult calc;
+      try {
+        calc =
+            resolveTariff(
+                htsCode,
+                null,
+                destinationCountry,
+                productValue,
+                quantity,
+                false,
+                null,
+                null,
+                getScheduleLookup(),
+                null);
+      } catch (CalculationRejectedException e) {
+        return errorResult(e.getMessage());
+      }
 
-      BigDecimal bestDuty = (BigDecimal) calc.getOrDefault("bestTariffAmount", BigDecimal.ZERO);
-      String program = (String) calc.getOrDefault("bestProgramName", "MFN");
+      BigDecimal bestDuty = calc.bestTariffAmount();
+      String program = calc.bestProgramName();
       BigDecimal purchase = BigDecimal.valueOf(productValue);
       BigDecimal total = purchase.add(bestDuty);
 
@@ -477,29 +467,50 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
   }
 
   // ===== CRUD over TariffCalculation =====
+  // New rows are written behind (TariffCalculationWriter); reads wait for pending writes first
   @Override
   public Optional<TariffCalculation> getTariffCalculationById(Long id) {
+    tariffCalculationWriter.awaitPersisted(id);
     return tariffCalculationRepository.findById(id);
   }
 
   @Override
   public List<TariffCalculation> getAllTariffCalculations() {
+    tariffCalculationWriter.flush();
     return tariffCalculationRepository.findAll();
   }
 
+  @Override
+  public CursorPage<TariffCalculation> getTariffCalculationPage(Long cursor, int limit) {
+    tariffCalculationWriter.flush();
+    int pageSize = CursorPage.clampLimit(limit);
+    List<TariffCalculation> rows = tariffCalculationRepository.findPageAfterId(
+        cursor != null ? cursor : 0L, PageRequest.of(0, pageSize + 1));
+    return CursorPage.of(rows, pageSize, TariffCalculation::getId);
+  }
+
+  @Override
+  public Stream<TariffCalculation> streamAllTariffCalculations() {
+    tariffCalculationWriter.flush();
+    return tariffCalculationRepository.streamAllOrderById();
+  }
+
   @Override
   public List<TariffCalculation> getTariffCalculationsByHtsCode(String htsCode) {
+    tariffCalculationWriter.flush();
     return tariffCalculationRepository.findByHtsCode(cleanHtsCode(htsCode));
   }
 
   @Override
   public List<TariffCalculation> getTariffCalculationsByCountryCode(String destinationCountry) {
+    tariffCalculationWriter.flush();
     return tariffCalculationRepository.findByCountryCode(destinationCountry);
   }
 
   @Override
   @Transactional
   public boolean deleteTariffCalculation(Long id) {
+    tariffCalculationWriter.awaitPersisted(id);
     if (tariffCalculationRepository.existsById(id)) {
       tariffCalculationRepository.deleteById(id);
       return true;
@@ -510,83 +521,130 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
   @Override
   @Transactional
   public boolean deleteAllTariffCalculations() {
+    tariffCalculationWriter.flush();
     tariffCalculationRepository.deleteAll();
     return true;
   }
 
   // ===== DTO-based create/update =====
   @Override
-  @Transactional
   public TariffCalculationResponse createTariffCalculation(TariffCalculationRequest request) {
+    TariffCalculationResponse response = calculateTariffCalculation(request, getScheduleLookup());
+
+    BigDecimal totalTariffAmount = response.getTotalTariffAmount();
+    BigDecimal totalImportPrice = response.getTotalImportPrice();
+
+    TariffCalculation entity =
+        new TariffCalculation(
+            cleanHtsCode(request.getHtsCode()),
+            request.getDestinationCountry(), // countryCode for backward compatibility
+            request.getOriginCountry(),
+            request.getDestinationCountry(),
+            request.getProductValue(),
+            request.getQuantity(),
+            "STANDARD",
+            totalTariffAmount,
+            totalImportPrice,
+            request.getTariffEffectiveDate(),
+            request.getTariffExpirationDate(),
+            request.getCurrency());
+    entity.setScheduleVersion(pinnedVersion(response.getScheduleVersion()));
+    // Queued for a batched insert; the quote does not wait for the commit
+    response.setCalculationId(tariffCalculationWriter.submit(entity));
+    return response;
+  }
+
+  @Override
+  public TariffCalculationResponse calculateTariffCalculation(
+      TariffCalculationRequest request, TariffScheduleLookup lookup) {
+    return calculateTariffCalculation(request, lookup, null, null);
+  }
+
+  @Override
+  public TariffCalculationResponse calculateTariffCalculation(
+      TariffCalculationRequest request, TariffScheduleLookup lookup, LocalDate pricedOn, LocalDate fxDate) {
     Objects.requireNonNull(request, "request");
-    Map<String, Object> validation = validateHtsCode(request.getHtsCode());
+    Map<String, Object> validation = validateHtsCode(request.getHtsCode(), lookup);
     if (!(Boolean) validation.getOrDefault("valid", false)) {
       throw new RuntimeException("Invalid HTS code: " + validation.get("message"));
     }
 
-    Map<String, Object> calc;
-
     // Use tariff date range calculation if dates are provided
-    if (request.getTariffEffectiveDate() != null || request.getTariffExpirationDate() != null) {
+    boolean dateRange =
+        request.getTariffEffectiveDate() != null || request.getTariffExpirationDate() != null;
+    TariffCalculationResult calc;
+    try {
       calc =
-          calculateTariffWithDateRange(
+          resolveTariff(
               request.getHtsCode(),
               request.getOriginCountry(),
               request.getDestinationCountry(),
               request.getProductValue().doubleValue(),
               request.getQuantity().intValue(),
+              dateRange,
               request.getTariffEffectiveDate(),
-              request.getTariffExpirationDate());
-    } else {
-      calc =
-          calculateTariff(
-              request.getHtsCode(),
-              request.getOriginCountry(),
-              request.getDestinationCountry(),
-              request.getProductValue().doubleValue(),
-              request.getQuantity().intValue());
-    }
-
-    if (calc.containsKey("error")) {
-      throw new RuntimeException("Tariff calculation failed: " + calc.get("error"));
+              request.getTariffExpirationDate(),
+              lookup,
+              pricedOn);
+    } catch (CalculationRejectedException e) {
+      throw new RuntimeException("Tariff calculation failed: " + e.getMessage());
     }
 
     TariffCalculationResponse response =
         new TariffCalculationResponse(
             cleanHtsCode(request.getHtsCode()),
-            null, // productDescription will be set later from database
+            calc.productDescription(),
             request.getOriginCountry(),
             request.getDestinationCountry(),
             request.getProductValue(),
             request.getQuantity(),
             request.getCurrency());
-    populateResponseFromCalculationResult(response, calc);
+    populateResponseFromCalculationResult(response, calc, fxDate);
+    response.setScheduleVersion(lookup.getScheduleVersion());
+    return response;
+  }
 
-    BigDecimal totalTariffAmount = response.getTotalTariffAmount();
-    BigDecimal totalImportPrice = response.getTotalImportPrice();
+  @Override
+  public Optional<TariffCalculationResponse> replayTariffCalculation(Long id) {
+    Optional<TariffCalculation> saved = getTariffCalculationById(id);
+    if (saved.isEmpty()) {
+      return Optional.empty();
+    }
+    TariffCalculation calculation = saved.get();
+    if (calculation.getScheduleVersion() == null) {
+      throw new IllegalStateException(
+          "Tariff calculation " + id + " was saved before schedule versioning and cannot be replayed");
+    }
+    TariffCalculationRequest request =
+        new TariffCalculationRequest(
+            calculation.getHtsCode(),
+            calculation.getOriginCountry(),
+            calculation.getDestinationCountry(),
+            calculation.getProductValue(),
+            calculation.getQuantity(),
+            calculation.getCurrency(),
+            calculation.getTariffEffectiveDate(),
+            calculation.getTariffExpirationDate());
+    Set<String> countries = new HashSet<>();
+    countries.add(calculation.getOriginCountry());
+    countries.add(calculation.getDestinationCountry());
+    countries.remove(null);
 
-    TariffCalculation entity =
-        new TariffCalculation(
-            cleanHtsCode(request.getHtsCode()),
-            request.getDestinationCountry(), // countryCode for backward compatibility
-            request.getOriginCountry(),
-            request.getDestinationCountry(),
-            request.getProductValue(),
-            request.getQuantity(),
-            "STANDARD",
-            totalTariffAmount,
-            totalImportPrice,
-            request.getTariffEffectiveDate(),
-            request.getTariffExpirationDate(),
-            request.getCurrency());
-    tariffCalculationRepository.save(entity);
-    return response;
+    TariffCalculationResponse response =
+        calculateTariffCalculation(
+            request,
+            scheduleVersionService.at(calculation.getScheduleVersion(), calculation.getHtsCode(), countries),
+            null,
+            calculation.getPricedFxDate());
+    response.setCalculationId(id);
+    return Optional.of(response);
   }
 
   @Override
   @Transactional
   public TariffCalculationResponse updateTariffCalculation(
       Long id, TariffCalculationRequest request) {
+    tariffCalculationWriter.awaitPersisted(id);
     TariffCalculation existing =
         tariffCalculationRepository
             .findById(id)
@@ -597,20 +655,29 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
       throw new RuntimeException("Invalid HTS code: " + validation.get("message"));
     }
 
-    Map<String, Object> calc =
-        calculateTariff(
-            request.getHtsCode(),
-            request.getDestinationCountry(),
-            request.getProductValue().doubleValue(),
-            request.getQuantity().intValue());
-    if (calc.containsKey("error")) {
-      throw new RuntimeException("Tariff calculation failed: " + calc.get("error"));
+    TariffScheduleLookup lookup = getScheduleLookup();
+    TariffCalculationResult calc;
+    try {
+      calc =
+          resolveTariff(
+              request.getHtsCode(),
+              null,
+              request.getDestinationCountry(),
+              request.getProductValue().doubleValue(),
+              request.getQuantity().intValue(),
+              false,
+              null,
+              null,
+              lookup,
+              null);
+    } catch (CalculationRejectedException e) {
+      throw new RuntimeException("Tariff calculation failed: " + e.getMessage());
     }
 
     TariffCalculationResponse response =
         new TariffCalculationResponse(
             cleanHtsCode(request.getHtsCode()),
-            null, // productDescription will be set later from database
+            calc.productDescription(),
             request.getOriginCountry(),
             request.getDestinationCountry(),
             request.getProductValue(),
@@ -630,53 +697,134 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
     existing.setCalculationType("STANDARD");
     existing.setTotalTariffAmount(totalTariffAmount);
     existing.setCalculationResult(totalImportPrice);
+    existing.setScheduleVersion(pinnedVersion(lookup.getScheduleVersion()));
+    existing.setFxDate(LocalDate.now());
     tariffCalculationRepository.save(existing);
 
     return response;
   }
 
-  // ===== Helpers =====
-  private void populateResponseFromCalculationResult(
-      TariffCalculationResponse response, Map<String, Object> tariffResult) {
+  /**
+   * The version a saved calculation records: its lookup's, or the latest when the lookup read the
+   * live tables
+   */
+  private Long pinnedVersion(Long lookupVersion) {
+    return lookupVersion != null ? lookupVersion : scheduleVersionService.currentVersion();
+  }
 
-    // ----- 0) Set product description from database -----
-    Optional<Product> product = findByHtsCode(response.getHtsCode());
-    if (product.isPresent()) {
-      response.setProductDescription(product.get().getBriefDescription());
+  // ===== Schedule reads (in-memory snapshot; database until the first snapshot is loaded) =====
+  @Override
+  public TariffScheduleLookup getScheduleLookup() {
+    Optional<TariffScheduleSnapshot> snapshot = tariffScheduleService.current();
+    return snapshot.isPresent() ? snapshot.get() : databaseLookup;
+  }
+
+  @Override
+  public TariffScheduleLookup getScheduleLookup(
+      Collection<String> htsCodes, Collection<String> countryCodes) {
+    Optional<TariffScheduleSnapshot> snapshot = tariffScheduleService.current();
+    if (snapshot.isPresent()) {
+      return snapshot.get();
+    }
+    Set<String> codes = new HashSet<>();
+    for (String htsCode : htsCodes) {
+      String cleaned = cleanHtsCode(htsCode);
+      if (cleaned.length() == 8) {
+        codes.add(cleaned);
+      }
+    }
+    if (codes.isEmpty()) {
+      return databaseLookup;
     }
+    Set<String> countries = new HashSet<>(countryCodes);
+    countries.remove(null);
+    return new PrefetchedScheduleLookup(
+        tariffScheduleService.slice(codes, countries), codes, countries, databaseLookup);
+  }
 
-    // ----- 1) Program & label selection (same as before, but we keep label text for parsing) -----
-    @SuppressWarnings("unchecked")
-    Map<String, Object> recommendedRate = (Map<String, Object>) tariffResult.get("recommendedRate");
+  private final TariffScheduleLookup databaseLookup =
+      new TariffScheduleLookup() {
+        @Override
+        public Optional<Product> findProduct(String hts8) {
+          return productRepository.findByHts8(hts8);
+        }
 
-    String appliedTextRate = null;
-    String programType = "MFN";
-    String programName = "MFN";
+        @Override
+        public Optional<MfnTariffRate> findMfnRate(String hts8) {
+          return mfnService.getMfnTariffRate(hts8);
+        }
 
-    if (recommendedRate != null) {
-      // Preferential vs MFN labels
-      String rateType = (String) recommendedRate.get("rateType");
-      if ("Preferential".equalsIgnoreCase(rateType)) {
-        programType = "Preferential";
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> preferentialRates =
-            (List<Map<String, Object>>) tariffResult.get("preferentialRates");
-        if (preferentialRates != null && !preferentialRates.isEmpty()) {
-          Map<String, Object> bestPrefRate = preferentialRates.get(0);
-          programName = (String) bestPrefRate.getOrDefault("agreementName", "Preferential");
-          appliedTextRate = (String) bestPrefRate.get("textRate");
+        @Override
+        public List<AgreementRate> getAgreementRates(String hts8, String countryCode) {
+          return productService.getAgreementRates(hts8, countryCode);
         }
-      } else {
-        // MFN path
-        programType = "MFN";
-        programName = "MFN";
-        @SuppressWarnings("unchecked")
-        Map<String, Object> mfnRate = (Map<String, Object>) tariffResult.get("mfnRate");
-        if (mfnRate != null) {
-          appliedTextRate = (String) mfnRate.get("textRate");
+
+        @Override
+        public RateTimeline<MfnTariffRate> getMfnRateTimeline(String hts8) {
+          // Only the row findByHts8 returns; the snapshot indexes every MFN row
+          return RateTimeline.of(
+              mfnService.getMfnTariffRate(hts8).map(List::of).orElse(List.of()),
+              MfnTariffRate::getBeginEffectDate,
+              MfnTariffRate::getEndEffectiveDate);
+        }
+
+        @Override
+        public List<RateTimeline<AgreementRate>> getAgreementRateTimelines(
+            String hts8, String countryCode) {
+          return TariffScheduleSnapshot.agreementTimelines(
+              productService.getAgreementRates(hts8, countryCode));
         }
+
+        @Override
+        public List<TradeAgreement> getAgreementsBetweenCountries(String country1, String country2) {
+          return tradeAgreementService.getTradeAgreementsBetweenCountries(country1, country2);
+        }
+
+        @Override
+        public RateExpression rateExpression(String textRate) {
+          if (textRate == null) {
+            return RateExpressionCompiler.compile(null);
+          }
+          // Keyed by text, so an edited row simply compiles under its new text
+          if (compiledRates.size() >= MAX_COMPILED_RATES) {
+            compiledRates.clear();
+          }
+          return compiledRates.computeIfAbsent(textRate, RateExpressionCompiler::compile);
+        }
+      };
+
+  private static final int MAX_COMPILED_RATES = 10_000;
+  private final Map<String, RateExpression> compiledRates = new ConcurrentHashMap<>();
+
+  // ===== Helpers =====
+  void populateResponseFromCalculationResult(
+      TariffCalculationResponse response, TariffCalculationResult tariffResult) {
+    populateResponseFromCalculationResult(response, tariffResult, null);
+  }
+
+  /** Fills in the response, converting totals at the rates of {@code fxDate}, or the latest if null */
+  void populateResponseFromCalculationResult(
+      TariffCalculationResponse response, TariffCalculationResult tariffResult, LocalDate fxDate) {
+
+    // ----- 1) Program & label selection (we keep label text for parsing) -----
+    TariffCalculationResult.Recommendation recommendedRate = tariffResult.recommendation();
+
+    TariffCalculationResult.RateLeg appliedRate = null;
+    String programType = "MFN";
+    String programName = "MFN";
+
+    if (recommendedRate.preferential()) {
+      programType = "Preferential";
+      List<TariffCalculationResult.RateLeg> preferentialRates = tariffResult.preferentialRates();
+      if (!preferentialRates.isEmpty()) {
+        appliedRate = preferentialRates.get(0);
+        programName = appliedRate.agreementName();
       }
+    } else {
+      // MFN path
+      appliedRate = tariffResult.mfnRate();
     }
+    String appliedTextRate = appliedRate != null ? appliedRate.textRate() : null;
 
     response.setProgramType(programType);
     response.setProgramName(programName);
@@ -693,51 +841,18 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
     // Customs base is value per unit * quantity
     BigDecimal customsBase = unitPrice.multiply(qty);
 
-    // ----- 3) Pull numeric rate components (percent, specific, other) -----
-    BigDecimal adValoremPercent = BigDecimal.ZERO; // e.g., 10 means 10%
-    BigDecimal specificPerUnit = BigDecimal.ZERO; // per-unit specific duty
-    BigDecimal otherFlat = BigDecimal.ZERO; // flat per line
-
-    if (recommendedRate != null) {
-      // try common keys (support multiple naming variants)
-      adValoremPercent =
-          firstDecimal(
-              recommendedRate,
-              "adValoremRatePercent",
-              "adValoremRate",
-              "percent",
-              "pct",
-              "ratePercent");
-
-      specificPerUnit =
-          firstDecimal(recommendedRate, "specificRatePerUnit", "specificRate", "specific");
-
-      otherFlat = firstDecimal(recommendedRate, "otherFlatCharge", "otherRate", "flatRate");
-    }
-
-    // If percent not provided numerically, try parsing from the text label like "10%"
-    if ((adValoremPercent == null || adValoremPercent.compareTo(BigDecimal.ZERO) == 0)
-        && appliedTextRate != null) {
-      adValoremPercent = parsePercentFromLabel(appliedTextRate);
-    }
-    if (adValoremPercent == null) adValoremPercent = BigDecimal.ZERO;
-    if (specificPerUnit == null) specificPerUnit = BigDecimal.ZERO;
-    if (otherFlat == null) otherFlat = BigDecimal.ZERO;
-
-    // ----- 4) Duty math (correct with quantity) -----
-    BigDecimal pct = adValoremPercent.movePointLeft(2); // 10 -> 0.10
-    BigDecimal adValoremDuty = customsBase.multiply(pct); // base * pct
-    BigDecimal specificDuty = specificPerUnit.multiply(qty); // per-unit * qty
-    BigDecimal otherDuty = otherFlat; // flat
-
+    // ----- 3) Duty math from the compiled text rate (ad valorem on customs base, specific per unit) -----
+    // Quantity is an item count: specific duty per kg, litre, ... is left out and reported as unpriced
     BigDecimal totalTariff =
-        adValoremDuty.add(specificDuty).add(otherDuty).setScale(2, RoundingMode.HALF_UP);
+        appliedRate != null
+            ? FixedPointDuty.duty(appliedRate.expression().perItemPart(), customsBase, qtyInt)
+            : BigDecimal.ZERO.setScale(2);
+    boolean partlyUnpriced = appliedRate != null && !appliedRate.expression().perItem();
 
-    // If upstream had a calculatedDuty, we ignore it now since we recomputed correctly
+    // The calculatedDuty on the result is per line, so we recompute with quantity here
     response.setTotalTariffAmount(totalTariff);
 
-    // Savings if provided (optional)
-    BigDecimal savings = firstDecimal(recommendedRate, "savings");
+    BigDecimal savings = recommendedRate.savings();
     response.setSavingsVsMfn(
         savings != null ? savings.setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
 
@@ -748,19 +863,16 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
     String targetCurrency = response.getCurrency();
     if (targetCurrency != null && !targetCurrency.isEmpty()) {
       // Convert totalImportPrice to target currency
-      BigDecimal convertedTotalImportPrice = currencyService.convertCurrency(
-          totalImportPrice, "USD", targetCurrency);
+      BigDecimal convertedTotalImportPrice = convert(totalImportPrice, targetCurrency, fxDate);
       response.setTotalImportPrice(convertedTotalImportPrice);
       
       // Also convert tariff amount to target currency
-      BigDecimal convertedTariffAmount = currencyService.convertCurrency(
-          totalTariff, "USD", targetCurrency);
+      BigDecimal convertedTariffAmount = convert(totalTariff, targetCurrency, fxDate);
       response.setTotalTariffAmount(convertedTariffAmount);
       
       // Convert savings if any
       if (response.getSavingsVsMfn() != null && response.getSavingsVsMfn().compareTo(BigDecimal.ZERO) > 0) {
-        BigDecimal convertedSavings = currencyService.convertCurrency(
-            response.getSavingsVsMfn(), "USD", targetCurrency);
+        BigDecimal convertedSavings = convert(response.getSavingsVsMfn(), targetCurrency, fxDate);
         response.setSavingsVsMfn(convertedSavings);
       }
     } else {
@@ -768,83 +880,35 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
     }
 
     // ----- 6) Applicable agreements & metadata -----
-    @SuppressWarnings("unchecked")
-    List<String> applicablePrograms = (List<String>) tariffResult.get("applicablePrograms");
-    response.setApplicableAgreements(applicablePrograms != null ? applicablePrograms : List.of());
-
-    // Effective date: from tariff calculation result if present, else today
-    Object eff = tariffResult.get("tariffEffectiveDate");
-    String effectiveDate =
-        (eff instanceof String && !((String) eff).isBlank())
-            ? (String) eff
-            : LocalDate.now().toString();
-    response.setEffectiveDate(effectiveDate);
+    response.setApplicableAgreements(tariffResult.applicablePrograms());
+
+    // Effective date: today
+    response.setEffectiveDate(LocalDate.now().toString());
 
     // Notes
-    @SuppressWarnings("unchecked")
-    List<String> complianceNotes = (List<String>) tariffResult.get("complianceNotes");
-    if (complianceNotes != null && !complianceNotes.isEmpty()) {
+    List<String> complianceNotes = tariffResult.complianceNotes();
+    if (!complianceNotes.isEmpty()) {
       response.setNotes(String.join("; ", complianceNotes));
     } else if (response.getNotes() == null) {
       response.setNotes(
           "Ensure proper documentation for preferential treatment; Verify country of origin certification requirements");
     }
+    if (partlyUnpriced) {
+      response.setNotes(
+          "Duty excludes the specific rate per weight or volume in \""
+              + appliedTextRate
+              + "\": the calculation has no measure to price it; "
+              + response.getNotes());
+    }
 
-    // If no applied label was set earlier, synthesize one from numeric parts
+    // Rows without a text rate carry no label duty
     if (response.getAppliedRateLabel() == null || response.getAppliedRateLabel().isBlank()) {
-      String label;
-      if (adValoremPercent.compareTo(BigDecimal.ZERO) == 0
-          && specificPerUnit.compareTo(BigDecimal.ZERO) == 0
-          && otherFlat.compareTo(BigDecimal.ZERO) == 0) {
-        label = "Free";
-      } else {
-        List<String> parts = new ArrayList<>();
-        if (adValoremPercent.compareTo(BigDecimal.ZERO) > 0)
-          parts.add(adValoremPercent.stripTrailingZeros().toPlainString() + "%");
-        if (specificPerUnit.compareTo(BigDecimal.ZERO) > 0)
-          parts.add(specificPerUnit.stripTrailingZeros().toPlainString() + " per unit");
-        if (otherFlat.compareTo(BigDecimal.ZERO) > 0)
-          parts.add("$" + otherFlat.stripTrailingZeros().toPlainString() + " flat");
-        label = String.join(" + ", parts);
-      }
-      response.setAppliedRateLabel(label);
+      response.setAppliedRateLabel("Free");
     }
   }
 
   /* ===== helpers (put in the same class) ===== */
 
-  private static BigDecimal firstDecimal(Map<String, Object> m, String... keys) {
-    if (m == null) return null;
-    for (String k : keys) {
-      Object v = m.get(k);
-      if (v == null) continue;
-      if (v instanceof BigDecimal bd) return bd;
-      if (v instanceof Number n) return new BigDecimal(n.toString());
-      if (v instanceof String s && !s.isBlank()) {
-        try {
-          return new BigDecimal(s.trim());
-        } catch (NumberFormatException ignored) {
-        }
-      }
-    }
-    return null;
-  }
-
-  private static BigDecimal parsePercentFromLabel(String label) {
-    if (label == null) return BigDecimal.ZERO;
-    String s = label.trim();
-    // e.g., "10%" or "10 %"
-    int pctIdx = s.indexOf('%');
-    if (pctIdx >= 0) {
-      String num = s.substring(0, pctIdx).trim();
-      try {
-        return new BigDecimal(num);
-      } catch (NumberFormatException ignored) {
-      }
-    }
-    return BigDecimal.ZERO;
-  }
-
   private void validateInputs(String htsCode, Double productValue, Integer quantity) {
     if (htsCode == null || htsCode.isBlank()) {
       throw new IllegalArgumentException("HTS code is required");
@@ -862,95 +926,112 @@ public class TariffCalculationServiceImpl implements TariffCalculationService {
     return htsCode.replaceAll("[^0-9]", "");
   }
 
+  private BigDecimal convert(BigDecimal usdAmount, String targetCurrency, LocalDate fxDate) {
+    return fxDate != null
+        ? currencyService.convertCurrency(usdAmount, "USD", targetCurrency, fxDate)
+        : currencyService.convertCurrency(usdAmount, "USD", targetCurrency);
+  }
+
   private String formatMoney(BigDecimal v) {
     return String.format("$%.2f", v.doubleValue());
   }
 
-  /** Validates that tariff date range is within the valid MFN and agreement rate periods */
+  /**
+   * Validates that tariff date range is within the MFN validity periods and checks it against the
+   * destination's agreement rate periods. Each series is judged by its earliest start and latest
+   * end, so a range spanning consecutive rate versions is valid.
+   */
   private Map<String, Object> validateTariffDateRange(
       String htsCode,
+      String destinationCountry,
       java.time.LocalDate tariffEffectiveDate,
-      java.time.LocalDate tariffExpirationDate) {
+      java.time.LocalDate tariffExpirationDate,
+      TariffScheduleLookup lookup) {
     Map<String, Object> result = new HashMap<>();
 
     try {
-      // Get MFN rate for this product
-      Optional<MfnTariffRate> mfnRateOpt = mfnService.getMfnTariffRate(htsCode);
-      if (mfnRateOpt.isPresent()) {
-        MfnTariffRate mfnRate = mfnRateOpt.get();
+      // Get MFN rate periods for this product
+      RateTimeline<MfnTariffRate> mfnTimeline = lookup.getMfnRateTimeline(htsCode);
+      if (!mfnTimeline.isEmpty()) {
+        LocalDate mfnBegin = mfnTimeline.earliestStart();
+        LocalDate mfnEnd = mfnTimeline.latestEnd();
 
         // Check if tariff dates are within MFN rate validity period
-        if (tariffEffectiveDate != null && mfnRate.getBeginEffectDate() != null) {
-          if (tariffEffectiveDate.isBefore(mfnRate.getBeginEffectDate())) {
+        if (tariffEffectiveDate != null && mfnBegin != null) {
+          if (tariffEffectiveDate.isBefore(mfnBegin)) {
             result.put(
                 "error",
                 "Tariff effective date ("
                     + tariffEffectiveDate
                     + ") is before MFN rate effective date ("
-                    + mfnRate.getBeginEffectDate()
+                    + mfnBegin
                     + ")");
             return result;
           }
         }
 
-        if (tariffExpirationDate != null && mfnRate.getEndEffectiveDate() != null) {
-          if (tariffExpirationDate.isAfter(mfnRate.getEndEffectiveDate())) {
+        if (tariffExpirationDate != null && mfnEnd != null) {
+          if (tariffExpirationDate.isAfter(mfnEnd)) {
             result.put(
                 "error",
                 "Tariff expiration date ("
                     + tariffExpirationDate
                     + ") is after MFN rate expiration date ("
-                    + mfnRate.getEndEffectiveDate()
+                    + mfnEnd
                     + ")");
             return result;
           }
         }
 
         // Check if tariff effective date is after MFN expiration date
-        if (tariffEffectiveDate != null && mfnRate.getEndEffectiveDate() != null) {
-          if (tariffEffectiveDate.isAfter(mfnRate.getEndEffectiveDate())) {
+        if (tariffEffectiveDate != null && mfnEnd != null) {
+          if (tariffEffectiveDate.isAfter(mfnEnd)) {
             result.put(
                 "error",
                 "Tariff effective date ("
                     + tariffEffectiveDate
                     + ") is after MFN rate expiration date ("
-                    + mfnRate.getEndEffectiveDate()
+                    + mfnEnd
                     + ")");
             return result;
           }
         }
       }
 
-      // Get agreement rates for this product and validate against them
-      List<AgreementRate> agreementRates =
-          productService.getAgreementRates(htsCode, "US"); // Default to US for validation
+      // Validate against each agreement's rate periods for the destination
+      List<RateTimeline<AgreementRate>> agreementTimelines =
+          lookup.getAgreementRateTimelines(htsCode, destinationCountry);
+
+      for (RateTimeline<AgreementRate> agreementTimeline : agreementTimelines) {
+        String agreementCode = agreementTimeline.rows().get(0).getAgreement().getAgreementCode();
+        LocalDate agreementBegin = agreementTimeline.earliestStart();
+        LocalDate agreementEnd = agreementTimeline.latestEnd();
 
-      for (AgreementRate agreementRate : agreementRates) {
         // Check if tariff dates overlap with agreement rate validity period
-        if (tariffEffectiveDate != null && agreementRate.getEffectiveDate() != null) {
-          if (tariffEffectiveDate.isBefore(agreementRate.getEffectiveDate())) {
+        if (tariffEffectiveDate != null && agreementBegin != null) {
+          if (tariffEffectiveDate.isBefore(agreementBegin)) {
             result.put(
                 "warning",
                 "Tariff effective date ("
                     + tariffEffectiveDate
                     + ") is before agreement rate effective date ("
-                    + agreementRate.getEffectiveDate()
+                    + agreementBegin
                     + ") for agreement "
-                    + agreementRate.getAgreement().getAgreementCode());
+                    + agreementCode);
             // This is a warning, not an error, so we continue
           }
         }
 
-        if (tariffExpirationDate != null && agreementRate.getExpirationDate() != null) {
-          if (tariffExpirationDate.isAfter(agreementRate.getExpirationDate())) {
+        if (tariffExpirationDate != null && agreementEnd != null) {
+          if (tariffExpirationDate.isAfter(agreementEnd)) {
             result.put(
                 "warning",
                 "Tariff expiration date ("
                     + tariffExpirationDate
                     + ") is after agreement rate expiration date ("
-                    + agreementRate.getExpirationDate()
+                    + agreementEnd
                     + ") for agreement "
-                    + agreementRate.getAgreement().getAgreementCode());
+                    + agreementCode);
             // This is a warning, not an error, so we continue
           }
         }
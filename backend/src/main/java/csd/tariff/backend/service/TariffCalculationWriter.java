@@ -0,0 +1,419 @@
+package csd.tariff.backend.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import csd.tariff.backend.model.TariffCalculation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind persister for saved tariff calculations.
+ *
+ * <p>{@link #submit} assigns the row's ID from a locally pooled block of sequence values and hands
+ * the row to a bounded queue, so a quote never waits for a database commit. A background thread
+ * drains the queue and writes the rows in JDBC batches. When the queue is full the caller writes
+ * its own row, which holds request threads back to the database's pace instead of dropping rows.
+ * Rows still queued at shutdown are written before the context closes.
+ *
+ * <p>A row whose insert fails stays pending and is retried every
+ * {@code app.calculations.write-behind.retry-interval-ms}, so a database outage delays rows rather
+ * than losing them. After {@link #MAX_RETRIES} retries the row is given up, logged with its values,
+ * and reads of its ID fail instead of finding nothing.
+ *
+ * <p>Reads that must see a row just submitted call {@link #awaitPersisted} or {@link #flush}.
+ */
+@Service
+public class TariffCalculationWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(TariffCalculationWriter.class);
+
+    /**
+     * IDs reserved per sequence call. Must equal the sequence increment (V7) and the entity's
+     * allocationSize: each call returns the top of a block of this many IDs.
+     */
+    static final int ID_BLOCK_SIZE = 50;
+
+    /** Retries of a failed row before it is given up */
+    static final int MAX_RETRIES = 10;
+
+    /** Given-up IDs remembered so that reads of them fail */
+    private static final int MAX_LOST_IDS = 10_000;
+
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private static final String NEXT_ID_BLOCK_SQL = "SELECT nextval('tariff.calculations_id_seq')";
+
+    private static final String INSERT_CALCULATION_SQL =
+            "INSERT INTO tariff.calculations (id, hts_code, country_code, origin_country, destination_country, "
+            + "product_value, quantity, calculation_type, calculation_result, total_tariff_amount, "
+            + "tariff_effective_date, tariff_expiration_date, currency, schedule_version, fx_date, created_at, "
+            + "updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** A submitted row; failure and retries are only touched by the thread writing it */
+    private static final class Pending {
+        final TariffCalculation calculation;
+        final CompletableFuture<Long> persisted = new CompletableFuture<>();
+        volatile RuntimeException failure;
+        int retries;
+
+        Pending(TariffCalculation calculation) {
+            this.calculation = calculation;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final long awaitTimeoutMillis;
+
+    private final BlockingQueue<Pending> queue;
+    // Submitted rows not yet written, by ID, for read-your-writes
+    private final Map<Long, Pending> inFlight = new ConcurrentHashMap<>();
+    // Rows whose insert failed, waiting for the next retry
+    private final Queue<Pending> failed = new ConcurrentLinkedQueue<>();
+    // Why given-up rows were not saved, by ID, oldest first
+    private final Map<Long, String> lost = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > MAX_LOST_IDS;
+        }
+    });
+    private final ArrayDeque<Long> idPool = new ArrayDeque<>(ID_BLOCK_SIZE);
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public TariffCalculationWriter(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.calculations.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.calculations.write-behind.batch-size:500}") int batchSize,
+            @Value("${app.calculations.write-behind.offer-timeout-ms:200}") long offerTimeoutMillis,
+            @Value("${app.calculations.write-behind.await-timeout-ms:5000}") long awaitTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::drainLoop, "calculation-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Stop the background thread once its current batch is written, then write every queued row
+     * and retry the failed ones once more. The thread is not interrupted, so a batch it is writing
+     * is never abandoned half way.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            try {
+                flusher.join(awaitTimeoutMillis + POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushPending();
+        retryFailed();
+        for (Pending pending; (pending = failed.poll()) != null; ) {
+            giveUp(pending);
+        }
+    }
+
+    /**
+     * Write the rows whose insert failed again. Rows that still fail wait for the next retry, up
+     * to {@link #MAX_RETRIES} times.
+     */
+    @Scheduled(
+        fixedDelayString = "${app.calculations.write-behind.retry-interval-ms:30000}",
+        initialDelayString = "${app.calculations.write-behind.retry-interval-ms:30000}")
+    public void retryFailed() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        int count = failed.size();
+        for (Pending pending; count-- > 0 && (pending = failed.poll()) != null; ) {
+            pending.retries++;
+            batch.add(pending);
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Queue a calculation for insert. The ID is assigned to the entity before this returns.
+     *
+     * @return the assigned ID
+     */
+    public Long submit(TariffCalculation calculation) {
+        Long id = nextId();
+        LocalDateTime now = LocalDateTime.now();
+        calculation.setId(id);
+        calculation.setCreatedAt(now);
+        calculation.setUpdatedAt(now);
+        if (calculation.getFxDate() == null) {
+            calculation.setFxDate(now.toLocalDate());
+        }
+
+        Pending pending = new Pending(calculation);
+        inFlight.put(id, pending);
+
+        boolean queued = false;
+        if (running) {
+            try {
+                queued = queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (queued && !running) {
+                    // Stopped while offering; the shutdown flush may already have run
+                    flushPending();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!queued) {
+            // Back-pressure: the queue is full or the writer is stopped, so write on this thread
+            write(List.of(pending));
+        }
+        return id;
+    }
+
+    /**
+     * Completes with the ID once the row is committed, or exceptionally if it was given up.
+     * Already complete for IDs that are not pending.
+     */
+    public CompletableFuture<Long> whenPersisted(Long id) {
+        Pending pending = inFlight.get(id);
+        if (pending != null) {
+            return pending.persisted;
+        }
+        String reason = lost.get(id);
+        return reason == null
+                ? CompletableFuture.completedFuture(id)
+                : CompletableFuture.failedFuture(new IllegalStateException(notSaved(id, reason)));
+    }
+
+    /**
+     * Wait, up to the configured timeout, until a submitted row is written. Returns at once for
+     * IDs that are not pending.
+     *
+     * @throws IllegalStateException if the row's insert failed and it is waiting for a retry, or it
+     *     was given up
+     */
+    public void awaitPersisted(Long id) {
+        if (id == null) {
+            return;
+        }
+        Pending pending = inFlight.get(id);
+        if (pending != null) {
+            await(pending.persisted);
+            RuntimeException failure = pending.failure;
+            if (!pending.persisted.isDone() && failure != null) {
+                throw new IllegalStateException("Tariff calculation " + id + " is not saved yet, its insert is "
+                        + "retried: " + failure.getMessage(), failure);
+            }
+        }
+        String reason = lost.get(id);
+        if (reason != null) {
+            throw new IllegalStateException(notSaved(id, reason));
+        }
+    }
+
+    /**
+     * Wait, up to the configured timeout, until every row submitted so far is written
+     */
+    public void flush() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        await(CompletableFuture.allOf(inFlight.values().stream()
+                .filter(pending -> pending.failure == null)
+                .map(pending -> pending.persisted)
+                .toArray(CompletableFuture<?>[]::new)));
+    }
+
+    /**
+     * Number of rows submitted but not yet written
+     */
+    public int pendingCount() {
+        return inFlight.size();
+    }
+
+    private void await(CompletableFuture<?> future) {
+        try {
+            future.get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Callers check for failed rows; a slow one is read as not yet saved
+            log.debug("Calculation write not confirmed: {}", e.toString());
+        }
+    }
+
+    private void drainLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Not interrupted by stop(); the remaining rows are written by flushPending
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Calculation writer failed", e);
+            } finally {
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    /**
+     * Write every queued row on the calling thread
+     */
+    void flushPending() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            rows.add(toRow(pending.calculation));
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_CALCULATION_SQL, rows);
+            for (Pending pending : batch) {
+                complete(pending, null);
+            }
+        } catch (RuntimeException batchFailure) {
+            // One bad row fails the whole batch; retry one by one so only that row waits
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    jdbcTemplate.update(INSERT_CALCULATION_SQL, rows.get(i));
+                    complete(batch.get(i), null);
+                } catch (RuntimeException e) {
+                    fail(batch.get(i), e);
+                }
+            }
+        }
+    }
+
+    private void fail(Pending pending, RuntimeException failure) {
+        pending.failure = failure;
+        if (pending.retries < MAX_RETRIES) {
+            log.warn("Failed to save tariff calculation {}, will retry: {}",
+                    pending.calculation.getId(), failure.getMessage());
+            failed.add(pending);
+        } else {
+            giveUp(pending);
+        }
+    }
+
+    /** The row is logged with its values so that it can be restored by hand */
+    private void giveUp(Pending pending) {
+        Long id = pending.calculation.getId();
+        RuntimeException failure = pending.failure;
+        String reason = failure != null ? failure.getMessage() : "writer stopped";
+        log.error("Giving up on tariff calculation {} after {} retries, row not saved: {}",
+                id, pending.retries, Arrays.toString(toRow(pending.calculation)), failure);
+        lost.put(id, reason);
+        complete(pending, failure != null ? failure : new IllegalStateException(reason));
+    }
+
+    private void complete(Pending pending, Throwable failure) {
+        Long id = pending.calculation.getId();
+        inFlight.remove(id);
+        if (failure == null) {
+            pending.persisted.complete(id);
+        } else {
+            pending.persisted.completeExceptionally(failure);
+        }
+    }
+
+    private static String notSaved(Long id, String reason) {
+        return "Tariff calculation " + id + " could not be saved: " + reason;
+    }
+
+    /**
+     * Next ID from the local pool. Each sequence call returns the top of a block of
+     * {@link #ID_BLOCK_SIZE} IDs, matching Hibernate's pooled optimizer for the same sequence.
+     */
+    private Long nextId() {
+        synchronized (idPool) {
+            if (idPool.isEmpty()) {
+                Long hi = jdbcTemplate.queryForObject(NEXT_ID_BLOCK_SQL, Long.class);
+                if (hi == null) {
+                    throw new IllegalStateException("Sequence tariff.calculations_id_seq returned no value");
+                }
+                // A fresh sequence starts at 1, below a full block
+                for (long id = Math.max(1, hi - ID_BLOCK_SIZE + 1); id <= hi; id++) {
+                    idPool.addLast(id);
+                }
+            }
+            return idPool.removeFirst();
+        }
+    }
+
+    private static Object[] toRow(TariffCalculation calculation) {
+        return new Object[] {
+            calculation.getId(),
+            calculation.getHtsCode(),
+            calculation.getCountryCode(),
+            calculation.getOriginCountry(),
+            calculation.getDestinationCountry(),
+            calculation.getProductValue(),
+            calculation.getQuantity(),
+            calculation.getCalculationType(),
+            calculation.getCalculationResult(),
+            calculation.getTotalTariffAmount(),
+            calculation.getTariffEffectiveDate(),
+            calculation.getTariffExpirationDate(),
+            calculation.getCurrency(),
+            calculation.getScheduleVersion(),
+            calculation.getFxDate(),
+            Timestamp.valueOf(calculation.getCreatedAt()),
+            Timestamp.valueOf(calculation.getUpdatedAt())
+        };
+    }
+}
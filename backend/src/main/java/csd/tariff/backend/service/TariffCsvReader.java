@@ -0,0 +1,145 @@
+package csd.tariff.backend.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV records one at a time, so a file of any size is parsed in constant memory.
+ *
+ * <p>Quoted fields may contain commas, doubled quotes and line breaks. Blank lines and a leading
+ * byte order mark are skipped. The reader is lenient: a quote inside an unquoted field is kept as
+ * text and an unterminated quoted field runs to the end of input, leaving the record to fail
+ * validation rather than aborting the read. Each record keeps its first line number and its raw
+ * text for quarantine.
+ */
+final class TariffCsvReader implements Closeable {
+
+    private static final int NONE = -2;
+
+    private final BufferedReader in;
+    private final StringBuilder field = new StringBuilder();
+    private final StringBuilder raw = new StringBuilder();
+
+    private int pushedBack = NONE;
+    private long line = 1;
+    private long recordLine;
+    private boolean started;
+
+    TariffCsvReader(Reader in) {
+        this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in, 1 << 16);
+    }
+
+    /**
+     * The next record's fields, or {@code null} at the end of input
+     */
+    String[] next() throws IOException {
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        recordLine = line;
+        raw.setLength(0);
+        field.setLength(0);
+        List<String> fields = new ArrayList<>();
+        boolean inQuotes = false;
+        boolean quoted = false;
+        while (true) {
+            if (inQuotes) {
+                if (c == -1) {
+                    fields.add(field.toString());
+                    return fields.toArray(String[]::new);
+                }
+                raw.append((char) c);
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                        raw.append('"');
+                    } else {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                quoted = false;
+                raw.append(',');
+            } else if (c == '"' && !quoted && field.length() == 0) {
+                inQuotes = true;
+                quoted = true;
+                raw.append('"');
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                fields.add(field.toString());
+                return fields.toArray(String[]::new);
+            } else {
+                field.append((char) c);
+                raw.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * The line on which the last record returned by {@link #next} started, counting from 1
+     */
+    long recordLine() {
+        return recordLine;
+    }
+
+    /**
+     * The last record returned by {@link #next} as it appeared in the input, without its line break
+     */
+    String rawRecord() {
+        return raw.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pushedBack != NONE) {
+            c = pushedBack;
+            pushedBack = NONE;
+        } else {
+            c = in.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+        if (c == '\n') {
+            line--;
+        }
+    }
+}
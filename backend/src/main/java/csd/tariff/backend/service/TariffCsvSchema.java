@@ -0,0 +1,283 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Columns of the USITC tariff database CSV, in file order, which is also the column order of
+ * {@code tariff.tariffs_raw} (V1) and {@code tariff.tariffs_staging} (V8).
+ *
+ * <p>{@link #validate} checks one record against the column types so that a bad record is
+ * quarantined on its own instead of failing the whole {@code COPY}, and {@link #appendCopyRow}
+ * writes an accepted record in the CSV form the {@code COPY} statement reads.
+ */
+final class TariffCsvSchema {
+
+    enum Kind {
+        VARCHAR,
+        TEXT,
+        DECIMAL,
+        DATE
+    }
+
+    record Column(String name, Kind kind, int maxLength) {}
+
+    static final List<Column> COLUMNS = List.of(
+            varchar("hts8", 8),
+            text("brief_description"),
+            varchar("quantity_1_code", 10),
+            varchar("quantity_2_code", 10),
+            varchar("wto_binding_code", 1),
+            text("mfn_text_rate"),
+            varchar("mfn_rate_type_code", 10),
+            decimal("mfn_ave"),
+            decimal("mfn_ad_val_rate"),
+            decimal("mfn_specific_rate"),
+            decimal("mfn_other_rate"),
+            text("col1_special_text"),
+            varchar("col1_special_mod", 50),
+            varchar("gsp_indicator", 10),
+            text("gsp_ctry_excluded"),
+            varchar("apta_indicator", 10),
+            varchar("civil_air_indicator", 10),
+            varchar("nafta_canada_ind", 10),
+            varchar("nafta_mexico_ind", 10),
+            varchar("mexico_rate_type_code", 10),
+            decimal("mexico_ad_val_rate"),
+            decimal("mexico_specific_rate"),
+            varchar("cbi_indicator", 10),
+            decimal("cbi_ad_val_rate"),
+            decimal("cbi_specific_rate"),
+            varchar("agoa_indicator", 10),
+            varchar("cbtpa_indicator", 10),
+            varchar("cbtpa_rate_type_code", 10),
+            decimal("cbtpa_ad_val_rate"),
+            decimal("cbtpa_specific_rate"),
+            varchar("israel_fta_indicator", 10),
+            varchar("atpa_indicator", 10),
+            decimal("atpa_ad_val_rate"),
+            decimal("atpa_specific_rate"),
+            varchar("atpdea_indicator", 10),
+            varchar("jordan_indicator", 10),
+            varchar("jordan_rate_type_code", 10),
+            decimal("jordan_ad_val_rate"),
+            decimal("jordan_specific_rate"),
+            decimal("jordan_other_rate"),
+            varchar("singapore_indicator", 10),
+            varchar("singapore_rate_type_code", 10),
+            decimal("singapore_ad_val_rate"),
+            decimal("singapore_specific_rate"),
+            decimal("singapore_other_rate"),
+            varchar("chile_indicator", 10),
+            varchar("chile_rate_type_code", 10),
+            decimal("chile_ad_val_rate"),
+            decimal("chile_specific_rate"),
+            decimal("chile_other_rate"),
+            varchar("morocco_indicator", 10),
+            varchar("morocco_rate_type_code", 10),
+            decimal("morocco_ad_val_rate"),
+            decimal("morocco_specific_rate"),
+            decimal("morocco_other_rate"),
+            varchar("australia_indicator", 10),
+            varchar("australia_rate_type_code", 10),
+            decimal("australia_ad_val_rate"),
+            decimal("australia_specific_rate"),
+            decimal("australia_other_rate"),
+            varchar("bahrain_indicator", 10),
+            varchar("bahrain_rate_type_code", 10),
+            decimal("bahrain_ad_val_rate"),
+            decimal("bahrain_specific_rate"),
+            decimal("bahrain_other_rate"),
+            varchar("dr_cafta_indicator", 10),
+            varchar("dr_cafta_rate_type_code", 10),
+            decimal("dr_cafta_ad_val_rate"),
+            decimal("dr_cafta_specific_rate"),
+            decimal("dr_cafta_other_rate"),
+            varchar("dr_cafta_plus_indicator", 10),
+            varchar("dr_cafta_plus_rate_type_code", 10),
+            decimal("dr_cafta_plus_ad_val_rate"),
+            decimal("dr_cafta_plus_specific_rate"),
+            decimal("dr_cafta_plus_other_rate"),
+            varchar("oman_indicator", 10),
+            varchar("oman_rate_type_code", 10),
+            decimal("oman_ad_val_rate"),
+            decimal("oman_specific_rate"),
+            decimal("oman_other_rate"),
+            varchar("peru_indicator", 10),
+            varchar("peru_rate_type_code", 10),
+            decimal("peru_ad_val_rate"),
+            decimal("peru_specific_rate"),
+            decimal("peru_other_rate"),
+            varchar("pharmaceutical_ind", 10),
+            varchar("dyes_indicator", 10),
+            text("col2_text_rate"),
+            varchar("col2_rate_type_code", 10),
+            decimal("col2_ad_val_rate"),
+            decimal("col2_specific_rate"),
+            decimal("col2_other_rate"),
+            date("begin_effect_date"),
+            date("end_effective_date"),
+            text("footnote_comment"),
+            text("additional_duty"),
+            varchar("korea_indicator", 10),
+            varchar("korea_rate_type_code", 10),
+            decimal("korea_ad_val_rate"),
+            decimal("korea_specific_rate"),
+            decimal("korea_other_rate"),
+            varchar("colombia_indicator", 10),
+            varchar("colombia_rate_type_code", 10),
+            decimal("colombia_ad_val_rate"),
+            decimal("colombia_specific_rate"),
+            decimal("colombia_other_rate"),
+            varchar("panama_indicator", 10),
+            varchar("panama_rate_type_code", 10),
+            decimal("panama_ad_val_rate"),
+            decimal("panama_specific_rate"),
+            decimal("panama_other_rate"),
+            varchar("nepal_indicator", 10),
+            varchar("japan_indicator", 10),
+            varchar("japan_rate_type_code", 10),
+            decimal("japan_ad_val_rate"),
+            decimal("japan_specific_rate"),
+            decimal("japan_other_rate"),
+            varchar("usmca_indicator", 10),
+            varchar("usmca_rate_type_code", 10),
+            decimal("usmca_ad_val_rate"),
+            decimal("usmca_specific_rate"),
+            decimal("usmca_other_rate"));
+
+    /** Index of the HTS code, which must be present in every record */
+    static final int HTS8 = 0;
+
+    /** Index of the description, which products require */
+    static final int BRIEF_DESCRIPTION = 1;
+
+    /** Column list for {@code INSERT} and {@code COPY} statements */
+    static final String COLUMN_LIST =
+            COLUMNS.stream().map(Column::name).collect(Collectors.joining(", "));
+
+    private static final Pattern HTS8_PATTERN = Pattern.compile("\\d{8}");
+    private static final Pattern DATE_PATTERN = Pattern.compile("(\\d{1,2})/(\\d{1,2})/(\\d{4})");
+
+    /** Integer digits allowed by DECIMAL(18,6) */
+    private static final int MAX_INTEGER_DIGITS = 12;
+
+    private TariffCsvSchema() {
+    }
+
+    /**
+     * Why the record cannot be loaded, or {@code null} if it can
+     */
+    static String validate(String[] fields) {
+        if (fields.length != COLUMNS.size()) {
+            return "Expected " + COLUMNS.size() + " columns but found " + fields.length;
+        }
+        String hts8 = fields[HTS8].trim();
+        if (!HTS8_PATTERN.matcher(hts8).matches()) {
+            return "hts8 must be 8 digits: '" + fields[HTS8] + "'";
+        }
+        if (fields[BRIEF_DESCRIPTION].isBlank()) {
+            return "brief_description is required";
+        }
+        for (int i = 0; i < fields.length; i++) {
+            String error = validate(COLUMNS.get(i), fields[i]);
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Append a validated record as one CSV line for {@code COPY ... (FORMAT csv, NULL '')}: empty
+     * values are written unquoted and load as NULL, others are quoted
+     */
+    static void appendCopyRow(String[] fields, StringBuilder out) {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            String value = COLUMNS.get(i).kind() == Kind.TEXT ? fields[i] : fields[i].trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            out.append('"');
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+            out.append('"');
+        }
+        out.append('\n');
+    }
+
+    private static String validate(Column column, String raw) {
+        if (raw.indexOf('\0') >= 0) {
+            // PostgreSQL text cannot hold NUL
+            return column.name() + " contains a NUL character";
+        }
+        String value = raw.trim();
+        if (value.isEmpty()) {
+            return null;
+        }
+        switch (column.kind()) {
+            case VARCHAR -> {
+                if (value.codePointCount(0, value.length()) > column.maxLength()) {
+                    return column.name() + " is longer than " + column.maxLength() + " characters";
+                }
+            }
+            case DECIMAL -> {
+                try {
+                    BigDecimal number = new BigDecimal(value);
+                    if (number.precision() - number.scale() > MAX_INTEGER_DIGITS) {
+                        return column.name() + " is out of range: " + value;
+                    }
+                } catch (NumberFormatException e) {
+                    return column.name() + " is not a number: '" + value + "'";
+                }
+            }
+            case DATE -> {
+                Matcher date = DATE_PATTERN.matcher(value);
+                if (!date.matches()) {
+                    return column.name() + " is not an MM/DD/YYYY date: '" + value + "'";
+                }
+                try {
+                    LocalDate.of(
+                            Integer.parseInt(date.group(3)),
+                            Integer.parseInt(date.group(1)),
+                            Integer.parseInt(date.group(2)));
+                } catch (DateTimeException e) {
+                    return column.name() + " is not a valid date: '" + value + "'";
+                }
+            }
+            case TEXT -> {
+                // Any text is accepted
+            }
+        }
+        return null;
+    }
+
+    private static Column varchar(String name, int maxLength) {
+        return new Column(name, Kind.VARCHAR, maxLength);
+    }
+
+    private static Column text(String name) {
+        return new Column(name, Kind.TEXT, Integer.MAX_VALUE);
+    }
+
+    private static Column decimal(String name) {
+        return new Column(name, Kind.DECIMAL, 0);
+    }
+
+    private static Column date(String name) {
+        return new Column(name, Kind.DATE, 0);
+    }
+}
@@ -0,0 +1,742 @@
+package csd.tariff.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.repository.ProductRepository;
+import csd.tariff.backend.service.CalculationRepricingService.RatesChanged;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingScope;
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
+
+/**
+ * Loads a USITC tariff database CSV into the normalized schema from inside the application,
+ * replacing the manual {@code psql \copy} of {@code load_tariffs.sql} followed by V5.
+ *
+ * <p>An import runs in two phases:
+ * <ol>
+ *   <li><b>Loading.</b> The file is parsed one record at a time and each record is checked against
+ *   {@link TariffCsvSchema}. Accepted records are streamed through the PostgreSQL {@code COPY}
+ *   protocol into {@code tariff.tariffs_staging}; rejected records (wrong column count, bad HTS
+ *   code, numbers or dates, repeated HTS codes) go to {@code tariff.import_quarantine} with the
+ *   reason and their raw text. The file is never held in memory as a whole.</li>
+ *   <li><b>Normalizing.</b> {@code tariffs_raw}, {@code products} and {@code mfn_tariff_rates} are
+ *   updated from staging in one transaction, then the agreement rates with one statement per
+ *   agreement and partner country, up to {@code app.tariff.import.parallelism} at a time, each in
+ *   its own transaction.</li>
+ * </ol>
+ *
+ * <p>Every normalized product, MFN and agreement rate row carries an MD5 {@code row_hash} of the
+ * columns the import writes (seeded by V9). In {@link ImportMode#INCREMENTAL} mode a row is only
+ * rewritten when the hash of its incoming values differs, so a revised schedule costs as many
+ * writes as it has changes; {@link ImportMode#FULL} rewrites every row from the file, overwriting
+ * edits made through the API. In both modes rates that are still in effect but no longer in the
+ * file are closed by end-dating them yesterday, unless the file covers less than half of the
+ * current products, which looks like a partial file rather than a schedule.
+ *
+ * <p>Each insert, update and closure is recorded in the change manifest
+ * {@code tariff.import_changes}, written by the same statement as the change. Afterwards only the
+ * affected HTS codes are reloaded into the schedule snapshot and product suggestions, only the
+ * data sets that changed get a new version, and a {@link RatesChanged} event queues re-pricing of
+ * the saved calculations under each changed MFN rate and agreement rate. The tables stay readable for the whole import, so no
+ * downtime is needed, and re-running an import after a failure is safe. Progress is reported to
+ * the caller's listener and kept for {@link #latestProgress}; each run is recorded in
+ * {@code tariff.import_runs}. Only one import runs at a time.
+ */
+@Service
+public class TariffImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(TariffImportService.class);
+
+    /** Progress is reported every this many records read */
+    static final int PROGRESS_INTERVAL = 5000;
+
+    /** Accepted records are written to COPY in chunks of about this many characters */
+    static final int COPY_BUFFER_CHARS = 1 << 16;
+
+    /** Quarantined records are inserted with one JDBC batch per this many records */
+    static final int QUARANTINE_BATCH_SIZE = 500;
+
+    public enum ImportMode {
+        /** Rewrite only rows whose values changed since the last import */
+        INCREMENTAL,
+        /** Rewrite every row in the file */
+        FULL
+    }
+
+    public enum Phase {
+        LOADING,
+        NORMALIZING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * State of an import: records read from the file, loaded into staging and quarantined, how
+     * many of the per-agreement rate statements have finished, and once normalized, how many
+     * normalized rows were inserted, updated and closed
+     */
+    public record ImportProgress(
+            long runId,
+            Phase phase,
+            long rowsRead,
+            long rowsLoaded,
+            long rowsQuarantined,
+            int agreementsNormalized,
+            int agreementsTotal,
+            long inserted,
+            long updated,
+            long closed,
+            String message) {}
+
+    /**
+     * One manifest entry: a product ({@code PRODUCTS}), MFN rate ({@code MFN_RATES}) or agreement
+     * rate ({@code AGREEMENT_RATES}) that an import inserted, updated or closed
+     */
+    public record ImportChange(
+            String dataset,
+            String changeType,
+            String hts8,
+            String agreementCode,
+            String countryCode) {}
+
+    /** What a run changed, read back from its manifest */
+    private record ChangeSummary(long inserted, long updated, long closed, Set<String> hts8s, Set<String> productCodes,
+            Set<Dataset> datasets, Set<RepricingScope> repricingScopes) {}
+
+    /**
+     * Staging columns holding one partner country's rates under an agreement, as V5 maps them. A
+     * null column loads as NULL.
+     */
+    record AgreementMapping(
+            String agreementCode,
+            String countryCode,
+            String rateTypeColumn,
+            String adValoremColumn,
+            String specificColumn,
+            String textRate,
+            String indicatorColumn) {
+
+        /**
+         * Upsert of the partner's rates from staging, closure of its rates missing from staging,
+         * and their manifest entries, in one statement. Parameters: text rate, agreement code,
+         * country code, whether to close, agreement code, country code, run id, agreement code,
+         * country code.
+         */
+        String upsertSql(ImportMode mode) {
+            return "WITH incoming AS ("
+                    + "SELECT p.id AS product_id, ta.id AS agreement_id, c.id AS country_id, "
+                    + column(rateTypeColumn, "VARCHAR") + " AS rate_type_code, "
+                    + column(adValoremColumn, "DECIMAL") + " AS ad_valorem_rate, "
+                    + column(specificColumn, "DECIMAL") + " AS specific_rate, "
+                    + "CAST(? AS TEXT) AS text_rate, tr." + indicatorColumn + " AS indicator "
+                    + "FROM tariff.tariffs_staging tr "
+                    + "JOIN tariff.products p ON p.hts8 = tr.hts8 "
+                    + "JOIN tariff.trade_agreements ta ON ta.agreement_code = ? "
+                    + "JOIN tariff.countries c ON c.country_code = ? "
+                    + "WHERE tr." + indicatorColumn + " IS NOT NULL AND tr." + indicatorColumn + " != ''), "
+                    + "written AS ("
+                    + "INSERT INTO tariff.agreement_tariff_rates AS atr (product_id, agreement_id, country_id, "
+                    + String.join(", ", AGREEMENT_RATE_COLUMNS) + ", row_hash) "
+                    + "SELECT product_id, agreement_id, country_id, " + String.join(", ", AGREEMENT_RATE_COLUMNS) + ", "
+                    + rowHash(AGREEMENT_RATE_COLUMNS) + " FROM incoming "
+                    + "ON CONFLICT (product_id, agreement_id, country_id) "
+                    + upsertAction("atr", mode, "expiration_date = NULL, ", AGREEMENT_RATE_COLUMNS)
+                    + " RETURNING atr.product_id, (atr.xmax = 0) AS inserted), "
+                    + "closed AS ("
+                    + "UPDATE tariff.agreement_tariff_rates AS atr "
+                    + "SET expiration_date = CURRENT_DATE - 1, row_hash = NULL, updated_at = CURRENT_TIMESTAMP "
+                    + "FROM tariff.trade_agreements ta, tariff.countries c "
+                    + "WHERE ? AND ta.id = atr.agreement_id AND ta.agreement_code = ? "
+                    + "AND c.id = atr.country_id AND c.country_code = ? "
+                    + "AND (atr.expiration_date IS NULL OR atr.expiration_date >= CURRENT_DATE) "
+                    + "AND NOT EXISTS (SELECT 1 FROM incoming i WHERE i.product_id = atr.product_id) "
+                    + "RETURNING atr.product_id) "
+                    + "INSERT INTO tariff.import_changes (run_id, dataset, change_type, hts8, agreement_code, country_code) "
+                    + "SELECT ?, 'AGREEMENT_RATES', ch.change_type, p.hts8, ?, ? FROM " + CHANGES_OF_WRITTEN_AND_CLOSED
+                    + " JOIN tariff.products p ON p.id = ch.product_id";
+        }
+
+        /** A staging column, or a NULL of the target type when the agreement has no such column */
+        private static String column(String name, String type) {
+            return name == null ? "CAST(NULL AS " + type + ")" : "tr." + name;
+        }
+
+        @Override
+        public String toString() {
+            return agreementCode + "/" + countryCode;
+        }
+    }
+
+    static final List<AgreementMapping> AGREEMENT_MAPPINGS = List.of(
+            new AgreementMapping("USMCA", "CA", "nafta_canada_ind", null, null, "USMCA Rate", "nafta_canada_ind"),
+            new AgreementMapping("USMCA", "MX", "mexico_rate_type_code", "mexico_ad_val_rate", "mexico_specific_rate",
+                    "USMCA Rate", "nafta_mexico_ind"),
+            fta("KORUS", "KR", "korea", "KORUS Rate"),
+            fta("SINGAPORE", "SG", "singapore", "Singapore FTA Rate"),
+            fta("AUSTRALIA", "AU", "australia", "Australia FTA Rate"),
+            fta("CHILE", "CL", "chile", "Chile FTA Rate"),
+            fta("MOROCCO", "MA", "morocco", "Morocco FTA Rate"),
+            fta("BAHRAIN", "BH", "bahrain", "Bahrain FTA Rate"),
+            fta("JORDAN", "JO", "jordan", "Jordan FTA Rate"),
+            fta("PANAMA", "PA", "panama", "Panama TPA Rate"),
+            fta("COLOMBIA", "CO", "colombia", "Colombia TPA Rate"),
+            fta("PERU", "PE", "peru", "Peru TPA Rate"),
+            fta("OMAN", "OM", "oman", "Oman FTA Rate"),
+            new AgreementMapping("ISRAEL", "IL", null, null, null, "Israel FTA Rate", "israel_fta_indicator"),
+            fta("JAPAN", "JP", "japan", "Japan FTA Rate"),
+            new AgreementMapping("NEPAL", "NP", null, null, null, "Nepal Trade Preference Rate", "nepal_indicator"));
+
+    private static final String COPY_STAGING_SQL =
+            "COPY tariff.tariffs_staging (" + TariffCsvSchema.COLUMN_LIST + ") FROM STDIN WITH (FORMAT csv, NULL '')";
+
+    private static final String START_RUN_SQL =
+            "INSERT INTO tariff.import_runs (source_name, import_mode, status) VALUES (?, ?, 'RUNNING') RETURNING id";
+
+    private static final String FINISH_RUN_SQL =
+            "UPDATE tariff.import_runs SET status = ?, rows_read = ?, rows_loaded = ?, rows_quarantined = ?, "
+            + "error_message = ?, finished_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    private static final String INSERT_QUARANTINE_SQL =
+            "INSERT INTO tariff.import_quarantine (run_id, line_number, reason, raw_record) VALUES (?, ?, ?, ?)";
+
+    private static final String REPLACE_RAW_SQL =
+            "INSERT INTO tariff.tariffs_raw (" + TariffCsvSchema.COLUMN_LIST + ") "
+            + "SELECT " + TariffCsvSchema.COLUMN_LIST + " FROM tariff.tariffs_staging";
+
+    private static final String[] PRODUCT_COLUMNS = {
+        "brief_description", "quantity_1_code", "quantity_2_code", "wto_binding_code"
+    };
+
+    private static final String[] MFN_COLUMNS = {
+        "mfn_text_rate", "mfn_rate_type_code", "mfn_ave", "mfn_ad_val_rate", "mfn_specific_rate", "mfn_other_rate",
+        "col1_special_text", "col1_special_mod", "col2_text_rate", "col2_rate_type_code", "col2_ad_val_rate",
+        "col2_specific_rate", "col2_other_rate", "begin_effect_date", "end_effective_date"
+    };
+
+    private static final String[] AGREEMENT_RATE_COLUMNS = {
+        "rate_type_code", "ad_valorem_rate", "specific_rate", "text_rate", "indicator"
+    };
+
+    /** Rows written by an upsert CTE {@code written} and closed by a CTE {@code closed}, as {@code ch} */
+    private static final String CHANGES_OF_WRITTEN_AND_CLOSED =
+            "(SELECT product_id, CASE WHEN inserted THEN 'INSERT' ELSE 'UPDATE' END AS change_type FROM written "
+            + "UNION ALL SELECT product_id, 'CLOSE' FROM closed) ch";
+
+    private static final String COUNT_PRODUCTS_SQL = "SELECT COUNT(*) FROM tariff.products";
+
+    private static final String SUMMARIZE_CHANGES_SQL =
+            "SELECT dataset, change_type, hts8, country_code FROM tariff.import_changes WHERE run_id = ?";
+
+    private static final String SELECT_CHANGES_SQL =
+            "SELECT dataset, change_type, hts8, agreement_code, country_code FROM tariff.import_changes "
+            + "WHERE run_id = ? ORDER BY id";
+
+    /** Products are never closed: they have no validity period. Parameter: run id. */
+    private static String upsertProductsSql(ImportMode mode) {
+        return "WITH written AS ("
+                + "INSERT INTO tariff.products AS p (hts8, " + String.join(", ", PRODUCT_COLUMNS) + ", row_hash) "
+                + "SELECT hts8, " + String.join(", ", PRODUCT_COLUMNS) + ", " + rowHash(PRODUCT_COLUMNS) + " "
+                + "FROM tariff.tariffs_staging "
+                + "ON CONFLICT (hts8) " + upsertAction("p", mode, "", PRODUCT_COLUMNS)
+                + " RETURNING p.hts8, (p.xmax = 0) AS inserted) "
+                + "INSERT INTO tariff.import_changes (run_id, dataset, change_type, hts8) "
+                + "SELECT ?, 'PRODUCTS', CASE WHEN inserted THEN 'INSERT' ELSE 'UPDATE' END, hts8 FROM written";
+    }
+
+    /** Parameters: whether to close, run id */
+    private static String upsertMfnSql(ImportMode mode) {
+        return "WITH incoming AS ("
+                + "SELECT p.id AS product_id, "
+                + Arrays.stream(MFN_COLUMNS)
+                        .map(c -> (c.endsWith("_date") ? "to_date(tr." + c + ", 'MM/DD/YYYY')" : "tr." + c) + " AS " + c)
+                        .collect(Collectors.joining(", "))
+                + " FROM tariff.tariffs_staging tr "
+                + "JOIN tariff.products p ON p.hts8 = tr.hts8), "
+                + "written AS ("
+                + "INSERT INTO tariff.mfn_tariff_rates AS m (product_id, " + String.join(", ", MFN_COLUMNS) + ", row_hash) "
+                + "SELECT product_id, " + String.join(", ", MFN_COLUMNS) + ", " + rowHash(MFN_COLUMNS) + " FROM incoming "
+                + "ON CONFLICT (product_id) " + upsertAction("m", mode, "", MFN_COLUMNS)
+                + " RETURNING m.product_id, (m.xmax = 0) AS inserted), "
+                + "closed AS ("
+                + "UPDATE tariff.mfn_tariff_rates AS m "
+                + "SET end_effective_date = CURRENT_DATE - 1, row_hash = NULL, updated_at = CURRENT_TIMESTAMP "
+                + "WHERE ? AND (m.end_effective_date IS NULL OR m.end_effective_date >= CURRENT_DATE) "
+                + "AND NOT EXISTS (SELECT 1 FROM incoming i WHERE i.product_id = m.product_id) "
+                + "RETURNING m.product_id) "
+                + "INSERT INTO tariff.import_changes (run_id, dataset, change_type, hts8) "
+                + "SELECT ?, 'MFN_RATES', ch.change_type, p.hts8 FROM " + CHANGES_OF_WRITTEN_AND_CLOSED
+                + " JOIN tariff.products p ON p.id = ch.product_id";
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductRepository productRepository;
+    private final TariffScheduleService tariffScheduleService;
+    private final ProductSuggestionService productSuggestionService;
+    private final DatasetVersionService datasetVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int parallelism;
+    private final int maxQuarantined;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<ImportProgress> latest = new AtomicReference<>();
+
+    public TariffImportService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ProductRepository productRepository,
+            TariffScheduleService tariffScheduleService,
+            ProductSuggestionService productSuggestionService,
+            DatasetVersionService datasetVersionService,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.tariff.import.parallelism:4}") int parallelism,
+            @Value("${app.tariff.import.max-quarantined:10000}") int maxQuarantined) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productRepository = productRepository;
+        this.tariffScheduleService = tariffScheduleService;
+        this.productSuggestionService = productSuggestionService;
+        this.datasetVersionService = datasetVersionService;
+        this.eventPublisher = eventPublisher;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxQuarantined = maxQuarantined;
+    }
+
+    /**
+     * Whether an import is in progress
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Progress of the running import, or of the last one since startup
+     */
+    public Optional<ImportProgress> latestProgress() {
+        return Optional.ofNullable(latest.get());
+    }
+
+    /**
+     * Import a USITC tariff database CSV, with a header line, from {@code in} in the given mode. {@code listener}
+     * receives every progress report on the calling thread; if it throws, the import carries on
+     * without it.
+     *
+     * @return the final progress, in phase {@link Phase#COMPLETED}
+     * @throws IllegalStateException if another import is running, or normalization failed
+     * @throws IllegalArgumentException if the file is empty, its header has the wrong number of
+     *         columns, or more than {@code app.tariff.import.max-quarantined} records are rejected
+     */
+    public ImportProgress importCsv(InputStream in, String sourceName, ImportMode mode,
+            Consumer<ImportProgress> listener) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A tariff import is already running");
+        }
+        Tracker tracker = null;
+        boolean normalizing = false;
+        try {
+            long runId = jdbcTemplate.queryForObject(START_RUN_SQL, Long.class, sourceName, mode.name());
+            tracker = new Tracker(runId, listener);
+            log.info("Tariff import {} started from {} ({})", runId, sourceName, mode);
+
+            load(in, tracker);
+            normalizing = true;
+            normalize(tracker, mode);
+            normalizing = false;
+            applyChanges(tracker);
+
+            finishRun(tracker, Phase.COMPLETED, null);
+            ImportProgress done = tracker.report(Phase.COMPLETED, "Imported " + tracker.rowsLoaded + " records, quarantined "
+                    + tracker.rowsQuarantined + "; " + tracker.inserted + " rows inserted, " + tracker.updated
+                    + " updated, " + tracker.closed + " closed");
+            log.info("Tariff import {} completed: {}", runId, done);
+            return done;
+        } catch (IOException | RuntimeException e) {
+            if (tracker != null) {
+                String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                log.warn("Tariff import {} failed: {}", tracker.runId, message);
+                if (normalizing) {
+                    // Statements that finished before the failure committed their changes
+                    try {
+                        applyChanges(tracker);
+                    } catch (RuntimeException applyFailure) {
+                        log.warn("Could not apply the changes of tariff import {}: {}", tracker.runId,
+                                applyFailure.getMessage());
+                    }
+                }
+                try {
+                    finishRun(tracker, Phase.FAILED, message);
+                } catch (RuntimeException recordFailure) {
+                    log.warn("Could not record failure of tariff import {}: {}", tracker.runId, recordFailure.getMessage());
+                }
+                tracker.report(Phase.FAILED, message);
+            }
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Validate every record and COPY the accepted ones into staging, in one transaction
+     */
+    private void load(InputStream in, Tracker tracker) throws IOException {
+        TariffCsvReader reader = new TariffCsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String[] header = reader.next();
+        if (header == null) {
+            throw new IllegalArgumentException("The tariff file is empty");
+        }
+        if (header.length != TariffCsvSchema.COLUMNS.size()) {
+            throw new IllegalArgumentException("Expected a header of " + TariffCsvSchema.COLUMNS.size()
+                    + " columns but found " + header.length);
+        }
+        tracker.report(Phase.LOADING, "Loading records into staging");
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // COPY holds the connection, so rejected records are written once it ends
+                List<Object[]> quarantined = jdbcTemplate.execute((ConnectionCallback<List<Object[]>>) connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("TRUNCATE tariff.tariffs_staging");
+                    }
+                    CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING_SQL);
+                    try {
+                        List<Object[]> rejected = copyRecords(reader, copy, tracker);
+                        copy.endCopy();
+                        return rejected;
+                    } finally {
+                        if (copy.isActive()) {
+                            copy.cancelCopy();
+                        }
+                    }
+                });
+                for (int from = 0; from < quarantined.size(); from += QUARANTINE_BATCH_SIZE) {
+                    jdbcTemplate.batchUpdate(INSERT_QUARANTINE_SQL,
+                            quarantined.subList(from, Math.min(from + QUARANTINE_BATCH_SIZE, quarantined.size())));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        tracker.report(Phase.LOADING, "Loaded " + tracker.rowsLoaded + " records into staging");
+    }
+
+    private List<Object[]> copyRecords(TariffCsvReader reader, CopyIn copy, Tracker tracker) throws SQLException {
+        List<Object[]> quarantined = new ArrayList<>();
+        Map<String, Long> seen = new HashMap<>();
+        StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 4096);
+        String[] fields;
+        while ((fields = next(reader)) != null) {
+            tracker.rowsRead++;
+            String reason = TariffCsvSchema.validate(fields);
+            if (reason == null) {
+                Long firstLine = seen.putIfAbsent(fields[TariffCsvSchema.HTS8].trim(), reader.recordLine());
+                if (firstLine != null) {
+                    reason = "Duplicate hts8, first seen on line " + firstLine;
+                }
+            }
+            if (reason != null) {
+                quarantined.add(new Object[] {tracker.runId, reader.recordLine(), reason, reader.rawRecord()});
+                tracker.rowsQuarantined++;
+                if (quarantined.size() > maxQuarantined) {
+                    throw new IllegalArgumentException("More than " + maxQuarantined
+                            + " records were rejected; is this a USITC tariff database file?");
+                }
+            } else {
+                TariffCsvSchema.appendCopyRow(fields, buffer);
+                tracker.rowsLoaded++;
+                if (buffer.length() >= COPY_BUFFER_CHARS) {
+                    writeToCopy(copy, buffer);
+                }
+            }
+            if (tracker.rowsRead % PROGRESS_INTERVAL == 0) {
+                tracker.report(Phase.LOADING, null);
+            }
+        }
+        writeToCopy(copy, buffer);
+        return quarantined;
+    }
+
+    /**
+     * Diff products and MFN rates in one transaction, then each agreement's rates in parallel
+     */
+    private void normalize(Tracker tracker, ImportMode mode) {
+        Long productCount = jdbcTemplate.queryForObject(COUNT_PRODUCTS_SQL, Long.class);
+        boolean close = productCount == null || tracker.rowsLoaded * 2 >= productCount;
+        tracker.report(Phase.NORMALIZING, close
+                ? "Updating products and MFN rates"
+                : "Updating products and MFN rates; the file covers " + tracker.rowsLoaded + " of " + productCount
+                        + " products, so missing rates are not closed");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("TRUNCATE tariff.tariffs_raw RESTART IDENTITY");
+            jdbcTemplate.update(REPLACE_RAW_SQL);
+            int products = jdbcTemplate.update(upsertProductsSql(mode), tracker.runId);
+            int mfnRates = jdbcTemplate.update(upsertMfnSql(mode), close, tracker.runId);
+            log.info("Tariff import {}: {} product and {} MFN rate changes", tracker.runId, products, mfnRates);
+        });
+
+        tracker.report(Phase.NORMALIZING, "Updating agreement rates");
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, AGREEMENT_MAPPINGS.size()), task -> {
+            Thread thread = new Thread(task, "tariff-import-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<String> failures = new ArrayList<>();
+        try {
+            CompletionService<String> completion = new ExecutorCompletionService<>(pool);
+            for (AgreementMapping mapping : AGREEMENT_MAPPINGS) {
+                completion.submit(() -> normalizeAgreement(tracker.runId, mapping, mode, close));
+            }
+            for (int i = 0; i < AGREEMENT_MAPPINGS.size(); i++) {
+                String failure = completion.take().get();
+                if (failure != null) {
+                    failures.add(failure);
+                }
+                tracker.agreementsNormalized++;
+                tracker.report(Phase.NORMALIZING, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while updating agreement rates", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Agreement rate update failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Agreement rates were not updated for " + String.join("; ", failures));
+        }
+    }
+
+    /**
+     * Diff one agreement partner's rates in its own transaction
+     *
+     * @return null on success, otherwise a description of the failure
+     */
+    private String normalizeAgreement(long runId, AgreementMapping mapping, ImportMode mode, boolean close) {
+        try {
+            Integer rows = transactionTemplate.execute(status -> jdbcTemplate.update(mapping.upsertSql(mode),
+                    mapping.textRate(), mapping.agreementCode(), mapping.countryCode(),
+                    close, mapping.agreementCode(), mapping.countryCode(),
+                    runId, mapping.agreementCode(), mapping.countryCode()));
+            log.info("Tariff import {}: {} {} rate changes", runId, rows, mapping);
+            return null;
+        } catch (RuntimeException e) {
+            log.warn("Tariff import {}: {} rates failed: {}", runId, mapping, e.getMessage());
+            return mapping + " (" + e.getMessage() + ")";
+        }
+    }
+
+    /**
+     * Every manifest entry of a run, in the order the changes were made
+     */
+    public void streamChanges(long runId, Consumer<ImportChange> sink) {
+        jdbcTemplate.query(SELECT_CHANGES_SQL, rs -> {
+            sink.accept(new ImportChange(rs.getString("dataset"), rs.getString("change_type"), rs.getString("hts8"),
+                    rs.getString("agreement_code"), rs.getString("country_code")));
+        }, runId);
+    }
+
+    /**
+     * Count the run's committed changes and refresh just what they touched: the snapshot entries
+     * and suggestion documents of the changed HTS codes, the versions of the changed data sets,
+     * and the saved calculations priced from the changed rates
+     */
+    private void applyChanges(Tracker tracker) {
+        ChangeSummary summary;
+        try {
+            summary = summarize(tracker.runId);
+        } catch (RuntimeException e) {
+            // Without the manifest the changed rates are unknown, so saved calculations are left as they are
+            log.warn("Could not read the changes of tariff import {}, reloading everything: {}", tracker.runId,
+                    e.getMessage());
+            tariffScheduleService.refresh();
+            productSuggestionService.rebuild();
+            datasetVersionService.bump(Dataset.PRODUCTS, Dataset.MFN_RATES, Dataset.TRADE_AGREEMENTS);
+            return;
+        }
+        tracker.inserted = summary.inserted();
+        tracker.updated = summary.updated();
+        tracker.closed = summary.closed();
+        if (summary.hts8s().isEmpty()) {
+            return;
+        }
+        tariffScheduleService.refresh(summary.hts8s());
+        if (!summary.productCodes().isEmpty()) {
+            for (Product product : productRepository.findByHts8In(summary.productCodes())) {
+                productSuggestionService.index(product);
+            }
+        }
+        datasetVersionService.bump(summary.datasets().toArray(Dataset[]::new));
+        if (!summary.repricingScopes().isEmpty()) {
+            eventPublisher.publishEvent(new RatesChanged("Tariff import " + tracker.runId, summary.repricingScopes()));
+        }
+    }
+
+    private ChangeSummary summarize(long runId) {
+        long[] counts = new long[3];
+        Set<String> hts8s = new HashSet<>();
+        Set<String> productCodes = new HashSet<>();
+        Set<Dataset> datasets = EnumSet.noneOf(Dataset.class);
+        Set<RepricingScope> repricingScopes = new LinkedHashSet<>();
+        jdbcTemplate.query(SUMMARIZE_CHANGES_SQL, rs -> {
+            String dataset = rs.getString("dataset");
+            String hts8 = rs.getString("hts8");
+            switch (rs.getString("change_type")) {
+                case "INSERT" -> counts[0]++;
+                case "UPDATE" -> counts[1]++;
+                default -> counts[2]++;
+            }
+            hts8s.add(hts8);
+            RepricingScope scope = repricingScope(dataset, hts8, rs.getString("country_code"));
+            if (scope != null) {
+                repricingScopes.add(scope);
+            }
+            switch (dataset) {
+                case "PRODUCTS" -> {
+                    productCodes.add(hts8);
+                    datasets.add(Dataset.PRODUCTS);
+                }
+                case "MFN_RATES" -> datasets.add(Dataset.MFN_RATES);
+                default -> datasets.add(Dataset.TRADE_AGREEMENTS);
+            }
+        }, runId);
+        return new ChangeSummary(counts[0], counts[1], counts[2], hts8s, productCodes, datasets, repricingScopes);
+    }
+
+    /**
+     * The saved calculations a manifest entry can change the duty of: every destination for an MFN
+     * rate, the partner country for an agreement rate, and none for a product, whose columns are
+     * not priced
+     */
+    static RepricingScope repricingScope(String dataset, String hts8, String countryCode) {
+        return switch (dataset) {
+            case "MFN_RATES" -> RepricingScope.of(hts8);
+            case "AGREEMENT_RATES" -> new RepricingScope(hts8, countryCode);
+            default -> null;
+        };
+    }
+
+    private void finishRun(Tracker tracker, Phase phase, String error) {
+        jdbcTemplate.update(FINISH_RUN_SQL, phase.name(), tracker.rowsRead, tracker.rowsLoaded,
+                tracker.rowsQuarantined, error, tracker.runId);
+    }
+
+    private static String[] next(TariffCsvReader reader) {
+        try {
+            return reader.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeToCopy(CopyIn copy, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    /**
+     * {@code ON CONFLICT} action that overwrites the columns and hash, after any {@code reopen}
+     * assignments that undo a closure; incrementally, only when the stored hash differs from the
+     * incoming one. Closed rows have no hash, so they are always rewritten.
+     */
+    static String upsertAction(String alias, ImportMode mode, String reopen, String... columns) {
+        String assignments = Arrays.stream(columns).map(c -> c + " = EXCLUDED." + c).collect(Collectors.joining(", "));
+        String action = "DO UPDATE SET " + reopen + assignments + ", row_hash = EXCLUDED.row_hash, updated_at = CURRENT_TIMESTAMP";
+        return mode == ImportMode.INCREMENTAL
+                ? action + " WHERE " + alias + ".row_hash IS DISTINCT FROM EXCLUDED.row_hash"
+                : action;
+    }
+
+    /**
+     * MD5 of the columns' text form; V9 seeds existing rows with the same expression
+     */
+    static String rowHash(String... columns) {
+        return "md5(ROW(" + String.join(", ", columns) + ")::text)";
+    }
+
+    private static AgreementMapping fta(String agreementCode, String countryCode, String prefix, String textRate) {
+        return new AgreementMapping(agreementCode, countryCode, prefix + "_rate_type_code", prefix + "_ad_val_rate",
+                prefix + "_specific_rate", textRate, prefix + "_indicator");
+    }
+
+    /**
+     * Counters of one run, updated and reported by the importing thread only
+     */
+    private final class Tracker {
+
+        final long runId;
+        private Consumer<ImportProgress> listener;
+        long rowsRead;
+        long rowsLoaded;
+        long rowsQuarantined;
+        int agreementsNormalized;
+        long inserted;
+        long updated;
+        long closed;
+
+        Tracker(long runId, Consumer<ImportProgress> listener) {
+            this.runId = runId;
+            this.listener = listener;
+        }
+
+        ImportProgress report(Phase phase, String message) {
+            ImportProgress progress = new ImportProgress(runId, phase, rowsRead, rowsLoaded, rowsQuarantined,
+                    agreementsNormalized, AGREEMENT_MAPPINGS.size(), inserted, updated, closed, message);
+            latest.set(progress);
+            if (listener != null) {
+                try {
+                    listener.accept(progress);
+                } catch (RuntimeException e) {
+                    // The client went away; the import does not depend on it
+                    log.debug("Import progress listener failed, no longer reporting to it: {}", e.getMessage());
+                    listener = null;
+                }
+            }
+            return progress;
+        }
+    }
+}
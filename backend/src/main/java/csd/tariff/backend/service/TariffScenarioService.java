@@ -0,0 +1,612 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import csd.tariff.backend.dto.TariffCalculationRequest;
+import csd.tariff.backend.dto.TariffCalculationResponse;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Prices calculations under a what-if scenario and reports how they would change.
+ *
+ * <p>A scenario is a list of rules laid over the current schedule: an ad valorem rate added to, or
+ * set in place of, the rates of an HTS prefix, and an agreement suspended. Each rule can be limited
+ * to an HTS prefix, an agreement ({@code "MFN"} for the MFN rates) and an origin country. The rules
+ * are applied by a {@link ScenarioScheduleLookup} over the lookup that prices the baseline, so the
+ * schedule itself is never changed and every line is priced twice against the same rows.
+ *
+ * <p>Lines are priced a chunk of {@code app.tariff.scenarios.chunk-size} at a time against one
+ * lookup, the chunk spread over a fork/join pool of {@code app.tariff.scenarios.parallelism}
+ * threads. A portfolio of up to {@code app.tariff.scenarios.max-inline-lines} can be evaluated
+ * while the caller waits, its per-line deltas streamed back in order. Larger portfolios and the
+ * saved calculation history run as a background job, one at a time, recorded in
+ * {@code tariff.scenario_runs} with the lines that changed in {@code tariff.scenario_lines}.
+ */
+@Service
+public class TariffScenarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(TariffScenarioService.class);
+
+    public enum RuleType {
+        /** Add {@code rate} to the ad valorem rate */
+        ADD_AD_VALOREM,
+        /** Replace the rate with an ad valorem {@code rate}, dropping any specific part */
+        SET_AD_VALOREM,
+        /** Withdraw the preference of {@code agreementCode} */
+        SUSPEND_AGREEMENT
+    }
+
+    /**
+     * One overlay rule. Null {@code htsPrefix}, {@code originCountry} or {@code agreementCode}
+     * matches every code, origin or program; rates are fractions (0.25 for 25%).
+     */
+    public record ScenarioRule(
+            RuleType type, String htsPrefix, String originCountry, String agreementCode, BigDecimal rate) {}
+
+    /**
+     * A scenario to evaluate against {@code portfolio}, or against the saved calculation history
+     * when no portfolio is given
+     */
+    public record ScenarioRequest(String name, List<ScenarioRule> rules, List<TariffCalculationRequest> portfolio) {}
+
+    public enum Source {
+        PORTFOLIO,
+        HISTORY
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * One line priced on the current schedule and under the scenario; {@code error} is set instead
+     * of the amounts when either could not be priced
+     */
+    public record LineDelta(
+            long line,
+            Long calculationId,
+            String htsCode,
+            String originCountry,
+            String destinationCountry,
+            String currency,
+            BigDecimal baselineTariffAmount,
+            BigDecimal scenarioTariffAmount,
+            BigDecimal tariffDelta,
+            BigDecimal baselineImportPrice,
+            BigDecimal scenarioImportPrice,
+            String baselineProgram,
+            String scenarioProgram,
+            String error) {
+
+        boolean changed() {
+            return error == null && (tariffDelta.signum() != 0
+                    || !CalculationRepricingService.sameAmount(baselineImportPrice, scenarioImportPrice));
+        }
+    }
+
+    /** Summed amounts of the lines priced in one currency */
+    public record CurrencyTotals(
+            BigDecimal baselineTariffAmount,
+            BigDecimal scenarioTariffAmount,
+            BigDecimal tariffDelta,
+            BigDecimal baselineImportPrice,
+            BigDecimal scenarioImportPrice) {
+
+        static final CurrencyTotals ZERO = new CurrencyTotals(
+                BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        CurrencyTotals plus(LineDelta line) {
+            return new CurrencyTotals(
+                    baselineTariffAmount.add(line.baselineTariffAmount()),
+                    scenarioTariffAmount.add(line.scenarioTariffAmount()),
+                    tariffDelta.add(line.tariffDelta()),
+                    baselineImportPrice.add(line.baselineImportPrice()),
+                    scenarioImportPrice.add(line.scenarioImportPrice()));
+        }
+    }
+
+    /** Aggregate of every line evaluated; amounts are kept apart per currency */
+    public record ScenarioTotals(
+            long linesEvaluated, long linesChanged, long linesFailed, Map<String, CurrencyTotals> byCurrency) {}
+
+    /** State of a background run, with its totals as of the last chunk */
+    public record ScenarioRun(
+            long runId,
+            String name,
+            Source source,
+            Status status,
+            long linesEvaluated,
+            long linesChanged,
+            long linesFailed,
+            Map<String, CurrencyTotals> totals,
+            String message) {}
+
+    /** A line to evaluate: its position, the saved calculation it came from, and the request */
+    record ScenarioLine(long line, Long calculationId, TariffCalculationRequest request) {}
+
+    private static final BigDecimal MAX_RATE = BigDecimal.TEN;
+
+    private static final TypeReference<Map<String, CurrencyTotals>> TOTALS_TYPE = new TypeReference<>() {};
+
+    private static final String HISTORY_CHUNK_SQL =
+            "SELECT id, hts_code, origin_country, destination_country, product_value, quantity, currency, "
+            + "tariff_effective_date, tariff_expiration_date FROM tariff.calculations "
+            + "WHERE hts_code LIKE ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String INSERT_RUN_SQL =
+            "INSERT INTO tariff.scenario_runs (name, source, status, rules) VALUES (?, ?, 'QUEUED', CAST(? AS jsonb)) "
+            + "RETURNING id";
+
+    private static final String START_RUN_SQL =
+            "UPDATE tariff.scenario_runs SET status = 'RUNNING', started_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    private static final String UPDATE_RUN_SQL =
+            "UPDATE tariff.scenario_runs SET lines_evaluated = ?, lines_changed = ?, lines_failed = ?, "
+            + "totals = CAST(? AS jsonb) WHERE id = ?";
+
+    private static final String FINISH_RUN_SQL =
+            "UPDATE tariff.scenario_runs SET status = ?, error_message = ?, finished_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    private static final String SELECT_RUN_SQL =
+            "SELECT id, name, source, status, lines_evaluated, lines_changed, lines_failed, totals, error_message "
+            + "FROM tariff.scenario_runs WHERE id = ?";
+
+    private static final String INSERT_LINE_SQL =
+            "INSERT INTO tariff.scenario_lines (run_id, line_no, calculation_id, hts_code, origin_country, "
+            + "destination_country, currency, baseline_tariff_amount, scenario_tariff_amount, tariff_delta, "
+            + "baseline_import_price, scenario_import_price, baseline_program, scenario_program, error_message) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_LINES_SQL =
+            "SELECT line_no, calculation_id, hts_code, origin_country, destination_country, currency, "
+            + "baseline_tariff_amount, scenario_tariff_amount, tariff_delta, baseline_import_price, "
+            + "scenario_import_price, baseline_program, scenario_program, error_message "
+            + "FROM tariff.scenario_lines WHERE run_id = ? ORDER BY line_no";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TariffCalculationService tariffCalculationService;
+    private final TariffCalculationWriter tariffCalculationWriter;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxInlineLines;
+
+    private final ForkJoinPool pool;
+    private final ExecutorService executor;
+
+    public TariffScenarioService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            TariffCalculationService tariffCalculationService,
+            TariffCalculationWriter tariffCalculationWriter,
+            ObjectMapper objectMapper,
+            @Value("${app.tariff.scenarios.chunk-size:1000}") int chunkSize,
+            @Value("${app.tariff.scenarios.parallelism:4}") int parallelism,
+            @Value("${app.tariff.scenarios.max-inline-lines:10000}") int maxInlineLines) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tariffCalculationService = tariffCalculationService;
+        this.tariffCalculationWriter = tariffCalculationWriter;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxInlineLines = Math.max(0, maxInlineLines);
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "tariff-scenarios");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Check a scenario and normalize its rules; {@code inline} also requires a portfolio small
+     * enough to evaluate while the caller waits
+     *
+     * @throws IllegalArgumentException naming the first problem found
+     */
+    public ScenarioRequest validate(ScenarioRequest request, boolean inline) {
+        if (request == null || request.rules() == null || request.rules().isEmpty()) {
+            throw new IllegalArgumentException("A scenario needs at least one rule");
+        }
+        List<ScenarioRule> rules = new ArrayList<>(request.rules().size());
+        for (int i = 0; i < request.rules().size(); i++) {
+            rules.add(normalize(request.rules().get(i), i + 1));
+        }
+        List<TariffCalculationRequest> portfolio = request.portfolio();
+        if (inline && (portfolio == null || portfolio.isEmpty())) {
+            throw new IllegalArgumentException("No portfolio given; submit a job to evaluate the calculation history");
+        }
+        if (portfolio != null && portfolio.contains(null)) {
+            throw new IllegalArgumentException("Portfolio lines must not be null");
+        }
+        if (inline && portfolio.size() > maxInlineLines) {
+            throw new IllegalArgumentException(
+                    "Portfolios over " + maxInlineLines + " lines must be submitted as a job");
+        }
+        return new ScenarioRequest(request.name(), List.copyOf(rules), portfolio);
+    }
+
+    private static ScenarioRule normalize(ScenarioRule rule, int position) {
+        String at = "Rule " + position + ": ";
+        if (rule == null || rule.type() == null) {
+            throw new IllegalArgumentException(at + "type is required");
+        }
+        String prefix = blankToNull(rule.htsPrefix());
+        if (prefix != null) {
+            prefix = prefix.replace(".", "");
+            if (!prefix.matches("\\d{2,8}")) {
+                throw new IllegalArgumentException(at + "htsPrefix must be 2 to 8 digits");
+            }
+        }
+        String origin = upper(rule.originCountry());
+        String agreement = upper(rule.agreementCode());
+        BigDecimal rate = rule.rate();
+        if (rule.type() == RuleType.SUSPEND_AGREEMENT) {
+            if (agreement == null || agreement.equals(ScenarioScheduleLookup.MFN)) {
+                throw new IllegalArgumentException(at + "agreementCode of the agreement to suspend is required");
+            }
+            if (rate != null) {
+                throw new IllegalArgumentException(at + "a suspension takes no rate");
+            }
+        } else {
+            if (rate == null) {
+                throw new IllegalArgumentException(at + "rate is required");
+            }
+            boolean inRange = rule.type() == RuleType.ADD_AD_VALOREM ? rate.signum() > 0 : rate.signum() >= 0;
+            if (!inRange || rate.compareTo(MAX_RATE) > 0) {
+                throw new IllegalArgumentException(at + "rate must be a fraction between 0 and " + MAX_RATE
+                        + (rule.type() == RuleType.ADD_AD_VALOREM ? ", above 0" : ""));
+            }
+        }
+        return new ScenarioRule(rule.type(), prefix, origin, agreement, rate);
+    }
+
+    /**
+     * Evaluate a scenario against its portfolio while the caller waits, handing each line's delta
+     * to {@code sink} in portfolio order
+     */
+    public ScenarioTotals evaluate(ScenarioRequest request, Consumer<LineDelta> sink) {
+        ScenarioRequest scenario = validate(request, true);
+        List<TariffCalculationRequest> portfolio = scenario.portfolio();
+        Tally tally = new Tally();
+        for (int from = 0; from < portfolio.size(); from += chunkSize) {
+            for (LineDelta delta : evaluateChunk(portfolioChunk(portfolio, from), scenario.rules())) {
+                tally.add(delta);
+                sink.accept(delta);
+            }
+        }
+        return tally.totals();
+    }
+
+    /**
+     * Queue a scenario to run in the background, against its portfolio or, without one, the
+     * saved calculation history. Returns the run id at once.
+     */
+    public long submit(ScenarioRequest request) {
+        ScenarioRequest scenario = validate(request, false);
+        Source source = scenario.portfolio() != null && !scenario.portfolio().isEmpty()
+                ? Source.PORTFOLIO : Source.HISTORY;
+        long runId = jdbcTemplate.queryForObject(
+                INSERT_RUN_SQL, Long.class, scenario.name(), source.name(), json(scenario.rules()));
+        executor.execute(() -> {
+            try {
+                run(runId, scenario);
+            } catch (RuntimeException e) {
+                log.warn("Scenario run {} failed: {}", runId, e.getMessage());
+            }
+        });
+        return runId;
+    }
+
+    /**
+     * A background run as last recorded
+     */
+    public Optional<ScenarioRun> findRun(long runId) {
+        return jdbcTemplate.query(SELECT_RUN_SQL, this::mapRun, runId).stream().findFirst();
+    }
+
+    /**
+     * The lines a background run changed or could not price, in line order
+     */
+    public void streamLines(long runId, Consumer<LineDelta> sink) {
+        jdbcTemplate.query(SELECT_LINES_SQL, rs -> {
+            long calculationId = rs.getLong("calculation_id");
+            sink.accept(new LineDelta(rs.getLong("line_no"), rs.wasNull() ? null : calculationId,
+                    rs.getString("hts_code"), rs.getString("origin_country"), rs.getString("destination_country"),
+                    rs.getString("currency"), rs.getBigDecimal("baseline_tariff_amount"),
+                    rs.getBigDecimal("scenario_tariff_amount"), rs.getBigDecimal("tariff_delta"),
+                    rs.getBigDecimal("baseline_import_price"), rs.getBigDecimal("scenario_import_price"),
+                    rs.getString("baseline_program"), rs.getString("scenario_program"),
+                    rs.getString("error_message")));
+        }, runId);
+    }
+
+    /**
+     * One background run, a chunk at a time; each chunk's lines and the run's totals are written in
+     * one transaction
+     */
+    ScenarioTotals run(long runId, ScenarioRequest scenario) {
+        jdbcTemplate.update(START_RUN_SQL, runId);
+        log.info("Scenario run {} started: {}", runId, scenario.name());
+        Tally tally = new Tally();
+        try {
+            List<TariffCalculationRequest> portfolio = scenario.portfolio();
+            if (portfolio != null && !portfolio.isEmpty()) {
+                for (int from = 0; from < portfolio.size(); from += chunkSize) {
+                    runChunk(runId, portfolioChunk(portfolio, from), scenario.rules(), tally);
+                }
+            } else {
+                // Rows still queued by the write-behind writer would be missed
+                tariffCalculationWriter.flush();
+                long line = 0;
+                for (String prefix : historyPrefixes(scenario.rules())) {
+                    long lastId = 0;
+                    while (true) {
+                        long first = line;
+                        List<ScenarioLine> chunk = jdbcTemplate.query(HISTORY_CHUNK_SQL,
+                                (rs, rowNum) -> historyLine(first + rowNum, rs), prefix + "%", lastId, chunkSize);
+                        if (chunk.isEmpty()) {
+                            break;
+                        }
+                        runChunk(runId, chunk, scenario.rules(), tally);
+                        line += chunk.size();
+                        lastId = chunk.get(chunk.size() - 1).calculationId();
+                        if (chunk.size() < chunkSize) {
+                            break;
+                        }
+                    }
+                }
+            }
+            jdbcTemplate.update(FINISH_RUN_SQL, Status.COMPLETED.name(), null, runId);
+            ScenarioTotals totals = tally.totals();
+            log.info("Scenario run {} completed: {}", runId, totals);
+            return totals;
+        } catch (RuntimeException e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            try {
+                jdbcTemplate.update(FINISH_RUN_SQL, Status.FAILED.name(), message, runId);
+            } catch (RuntimeException recordFailure) {
+                log.warn("Could not record failure of scenario run {}: {}", runId, recordFailure.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    private void runChunk(long runId, List<ScenarioLine> chunk, List<ScenarioRule> rules, Tally tally) {
+        List<Object[]> rows = new ArrayList<>();
+        for (LineDelta delta : evaluateChunk(chunk, rules)) {
+            tally.add(delta);
+            if (delta.error() != null || delta.changed()) {
+                rows.add(new Object[] {runId, delta.line(), delta.calculationId(), clip(delta.htsCode(), 20),
+                    clip(delta.originCountry(), 10), clip(delta.destinationCountry(), 10),
+                    clip(delta.currency(), 10), delta.baselineTariffAmount(), delta.scenarioTariffAmount(),
+                    delta.tariffDelta(), delta.baselineImportPrice(), delta.scenarioImportPrice(),
+                    delta.baselineProgram(), delta.scenarioProgram(), delta.error()});
+            }
+        }
+        String totals = json(tally.byCurrency);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_LINE_SQL, rows);
+            }
+            jdbcTemplate.update(UPDATE_RUN_SQL, tally.evaluated, tally.changed, tally.failed, totals, runId);
+        });
+    }
+
+    /**
+     * Price a chunk on one lookup, once as scheduled and once under the scenario. Lines are spread
+     * over the pool and come back in chunk order.
+     */
+    List<LineDelta> evaluateChunk(List<ScenarioLine> chunk, List<ScenarioRule> rules) {
+        Set<String> htsCodes = new HashSet<>();
+        Set<String> countries = new HashSet<>();
+        for (ScenarioLine line : chunk) {
+            htsCodes.add(line.request().getHtsCode());
+            countries.add(line.request().getOriginCountry());
+            countries.add(line.request().getDestinationCountry());
+        }
+        htsCodes.remove(null);
+        countries.remove(null);
+        TariffScheduleLookup baseline = tariffCalculationService.getScheduleLookup(htsCodes, countries);
+
+        // One overlay per origin, built up front so the workers only read
+        Map<String, TariffScheduleLookup> scenarios = new HashMap<>();
+        for (ScenarioLine line : chunk) {
+            scenarios.computeIfAbsent(originKey(line.request()),
+                    origin -> new ScenarioScheduleLookup(baseline, rules, origin));
+        }
+
+        // A parallel stream started inside a fork/join pool runs on that pool, not the common one
+        return pool.submit(() -> chunk.parallelStream()
+                .map(line -> evaluateLine(line, baseline, scenarios.get(originKey(line.request()))))
+                .toList()).join();
+    }
+
+    private LineDelta evaluateLine(ScenarioLine line, TariffScheduleLookup baseline, TariffScheduleLookup scenario) {
+        TariffCalculationRequest request = line.request();
+        String currency = currency(request);
+        try {
+            TariffCalculationResponse before = tariffCalculationService.calculateTariffCalculation(request, baseline);
+            TariffCalculationResponse after = tariffCalculationService.calculateTariffCalculation(request, scenario);
+            BigDecimal baselineTariff = amount(before.getTotalTariffAmount());
+            BigDecimal scenarioTariff = amount(after.getTotalTariffAmount());
+            return new LineDelta(line.line(), line.calculationId(), before.getHtsCode(), request.getOriginCountry(),
+                    request.getDestinationCountry(), currency, baselineTariff, scenarioTariff,
+                    scenarioTariff.subtract(baselineTariff), amount(before.getTotalImportPrice()),
+                    amount(after.getTotalImportPrice()), before.getProgramName(), after.getProgramName(), null);
+        } catch (RuntimeException e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            return new LineDelta(line.line(), line.calculationId(), request.getHtsCode(), request.getOriginCountry(),
+                    request.getDestinationCountry(), currency, null, null, null, null, null, null, null, message);
+        }
+    }
+
+    /**
+     * Prefixes whose saved calculations a scenario can change, without those a shorter one
+     * covers; the empty prefix when a rule applies to every code
+     */
+    static List<String> historyPrefixes(List<ScenarioRule> rules) {
+        TreeSet<String> prefixes = new TreeSet<>();
+        for (ScenarioRule rule : rules) {
+            if (rule.htsPrefix() == null) {
+                return List.of("");
+            }
+            prefixes.add(rule.htsPrefix());
+        }
+        // Sorted, so a covering prefix comes right before the prefixes it covers
+        List<String> merged = new ArrayList<>();
+        for (String prefix : prefixes) {
+            if (merged.isEmpty() || !prefix.startsWith(merged.get(merged.size() - 1))) {
+                merged.add(prefix);
+            }
+        }
+        return merged;
+    }
+
+    private List<ScenarioLine> portfolioChunk(List<TariffCalculationRequest> portfolio, int from) {
+        int to = Math.min(portfolio.size(), from + chunkSize);
+        List<ScenarioLine> chunk = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            chunk.add(new ScenarioLine(i, null, portfolio.get(i)));
+        }
+        return chunk;
+    }
+
+    private static ScenarioLine historyLine(long line, ResultSet rs) throws SQLException {
+        return new ScenarioLine(line, rs.getLong("id"), new TariffCalculationRequest(
+                rs.getString("hts_code"),
+                rs.getString("origin_country"),
+                rs.getString("destination_country"),
+                rs.getBigDecimal("product_value"),
+                rs.getInt("quantity"),
+                rs.getString("currency"),
+                rs.getObject("tariff_effective_date", LocalDate.class),
+                rs.getObject("tariff_expiration_date", LocalDate.class)));
+    }
+
+    private ScenarioRun mapRun(ResultSet rs, int rowNum) throws SQLException {
+        String totals = rs.getString("totals");
+        return new ScenarioRun(
+                rs.getLong("id"),
+                rs.getString("name"),
+                Source.valueOf(rs.getString("source")),
+                Status.valueOf(rs.getString("status")),
+                rs.getLong("lines_evaluated"),
+                rs.getLong("lines_changed"),
+                rs.getLong("lines_failed"),
+                totals != null ? readTotals(totals) : Map.of(),
+                rs.getString("error_message"));
+    }
+
+    private Map<String, CurrencyTotals> readTotals(String totals) {
+        try {
+            return objectMapper.readValue(totals, TOTALS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable scenario totals", e);
+        }
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + value, e);
+        }
+    }
+
+    /** Amounts are compared and reported with two decimals */
+    private static BigDecimal amount(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO.setScale(2) : value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /** Responses are in the request currency, USD when none is given */
+    private static String currency(TariffCalculationRequest request) {
+        String currency = request.getCurrency();
+        return currency == null || currency.isBlank() ? "USD" : currency.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String originKey(TariffCalculationRequest request) {
+        String origin = request.getOriginCountry();
+        return origin == null ? "" : origin.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String upper(String value) {
+        String trimmed = blankToNull(value);
+        return trimmed == null ? null : trimmed.toUpperCase(Locale.ROOT);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static String clip(String value, int length) {
+        return value == null || value.length() <= length ? value : value.substring(0, length);
+    }
+
+    /**
+     * Running aggregate of a scenario, added to in line order by one thread
+     */
+    private static final class Tally {
+
+        long evaluated;
+        long changed;
+        long failed;
+        final Map<String, CurrencyTotals> byCurrency = new TreeMap<>();
+
+        void add(LineDelta line) {
+            evaluated++;
+            if (line.error() != null) {
+                failed++;
+                return;
+            }
+            if (line.changed()) {
+                changed++;
+            }
+            byCurrency.put(line.currency(), byCurrency.getOrDefault(line.currency(), CurrencyTotals.ZERO).plus(line));
+        }
+
+        ScenarioTotals totals() {
+            return new ScenarioTotals(evaluated, changed, failed, Collections.unmodifiableMap(new TreeMap<>(byCurrency)));
+        }
+    }
+}
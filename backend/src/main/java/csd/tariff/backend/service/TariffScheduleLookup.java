@@ -0,0 +1,88 @@
+package csd.tariff.backend.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+
+/**
+ * Schedule reads needed to price a tariff calculation
+ */
+public interface TariffScheduleLookup {
+
+    /**
+     * Find a product by its 8-digit HTS code
+     */
+    Optional<Product> findProduct(String hts8);
+
+    /**
+     * Find the MFN rate for an 8-digit HTS code
+     */
+    Optional<MfnTariffRate> findMfnRate(String hts8);
+
+    /**
+     * Get agreement tariff rates for a product and country
+     */
+    List<AgreementRate> getAgreementRates(String hts8, String countryCode);
+
+    /**
+     * Every MFN row of an 8-digit HTS code by validity period
+     */
+    RateTimeline<MfnTariffRate> getMfnRateTimeline(String hts8);
+
+    /**
+     * Agreement rates for a product and country, one timeline per agreement
+     */
+    List<RateTimeline<AgreementRate>> getAgreementRateTimelines(String hts8, String countryCode);
+
+    /**
+     * Find the MFN rate in effect on a date
+     */
+    default Optional<MfnTariffRate> findMfnRate(String hts8, LocalDate date) {
+        return getMfnRateTimeline(hts8).asOf(date);
+    }
+
+    /**
+     * Get the agreement rates in effect on a date for a product and country
+     */
+    default List<AgreementRate> getAgreementRates(String hts8, String countryCode, LocalDate date) {
+        return RateTimeline.asOf(getAgreementRateTimelines(hts8, countryCode), date);
+    }
+
+    /**
+     * Get trade agreements between two countries
+     */
+    List<TradeAgreement> getAgreementsBetweenCountries(String country1, String country2);
+
+    /**
+     * "CODE - Name" of every agreement between two countries that is active on a date: started
+     * before it and not expired by it
+     */
+    default List<String> getApplicableTradePrograms(String country1, String country2, LocalDate date) {
+        List<String> out = new ArrayList<>();
+        for (TradeAgreement agreement : getAgreementsBetweenCountries(country1, country2)) {
+            if (AgreementMatrix.isActive(agreement, date)) {
+                out.add(agreement.getAgreementCode() + " - " + agreement.getAgreementName());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Compiled form of an MFN or agreement text rate
+     */
+    RateExpression rateExpression(String textRate);
+
+    /**
+     * Schedule version every read of this lookup reflects, or null when reads go to the live
+     * tables and may straddle versions
+     */
+    default Long getScheduleVersion() {
+        return null;
+    }
+}
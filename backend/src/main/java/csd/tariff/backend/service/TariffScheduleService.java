@@ -0,0 +1,194 @@
+package csd.tariff.backend.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.repository.AgreementParticipantRepository;
+import csd.tariff.backend.repository.AgreementRateRepository;
+import csd.tariff.backend.repository.MfnTariffRateRepository;
+import csd.tariff.backend.repository.ProductRepository;
+
+/**
+ * Holds the current {@link TariffScheduleSnapshot}.
+ *
+ * <p>The snapshot is loaded once the application is ready and rebuilt after every write through
+ * {@link MfnService}, {@link ProductService} or {@link TradeAgreementService}; a tariff import
+ * reloads just the HTS codes it changed. Readers always see
+ * either the previous or the new snapshot, never a partially built one. Until the first load
+ * succeeds {@link #current()} is empty and callers read from the database instead.
+ *
+ * <p>Nodes that cannot hold the whole schedule set {@code app.tariff.schedule.snapshot-enabled}
+ * to false and always read from the database. Multi-line work there goes through {@link #slice},
+ * which reads the rows of just the codes and countries involved.
+ */
+@Service
+public class TariffScheduleService {
+
+    private static final Logger log = LoggerFactory.getLogger(TariffScheduleService.class);
+
+    private final ProductRepository productRepository;
+    private final MfnTariffRateRepository mfnTariffRateRepository;
+    private final AgreementRateRepository agreementRateRepository;
+    private final AgreementParticipantRepository agreementParticipantRepository;
+    private final ScheduleVersionService scheduleVersionService;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final AtomicReference<TariffScheduleSnapshot> current = new AtomicReference<>();
+
+    @Value("${app.tariff.schedule.snapshot-enabled:true}")
+    private boolean snapshotEnabled = true;
+
+    public TariffScheduleService(
+            ProductRepository productRepository,
+            MfnTariffRateRepository mfnTariffRateRepository,
+            AgreementRateRepository agreementRateRepository,
+            AgreementParticipantRepository agreementParticipantRepository,
+            ScheduleVersionService scheduleVersionService,
+            PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.mfnTariffRateRepository = mfnTariffRateRepository;
+        this.agreementRateRepository = agreementRateRepository;
+        this.agreementParticipantRepository = agreementParticipantRepository;
+        this.scheduleVersionService = scheduleVersionService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // One snapshot for the version and the rows it labels
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * The snapshot currently in use, or empty if none has been loaded yet
+     */
+    public Optional<TariffScheduleSnapshot> current() {
+        return Optional.ofNullable(current.get());
+    }
+
+    /**
+     * Reload the schedule and swap it in. Runs in one read-only transaction so that shared
+     * products and agreements resolve to the same instances, pinned to the latest schedule version
+     * so that the snapshot is exactly that version. A failed load keeps the previous snapshot.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void refresh() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        try {
+            TariffScheduleSnapshot snapshot = readOnlyTransaction.execute(status -> {
+                Long version = scheduleVersionService.pinCurrentVersion();
+                return TariffScheduleSnapshot.of(
+                    productRepository.findAll(),
+                    mfnTariffRateRepository.findAll(),
+                    agreementRateRepository.findAll(),
+                    agreementParticipantRepository.findAll()).atVersion(version);
+            });
+            current.set(snapshot);
+            log.info("Loaded {}", snapshot);
+        } catch (RuntimeException e) {
+            log.warn("Tariff schedule snapshot refresh failed, keeping previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload just the given HTS codes into the current snapshot, e.g. after an incremental import
+     * or a single-row write. Falls back to {@link #refresh()} when nothing is loaded yet or the
+     * codes are over half the schedule, where one full read is cheaper.
+     */
+    public void refresh(Collection<String> hts8s) {
+        refresh(hts8s, false);
+    }
+
+    /**
+     * As {@link #refresh(Collection)}, also reloading every agreement membership, for writes to an
+     * agreement: its rates are under the given codes, but its memberships are shared by all of them
+     */
+    public void refreshAgreement(Collection<String> hts8s) {
+        refresh(hts8s, true);
+    }
+
+    private synchronized void refresh(Collection<String> hts8s, boolean memberships) {
+        TariffScheduleSnapshot previous = current.get();
+        if (!snapshotEnabled || (hts8s.isEmpty() && !memberships)) {
+            return;
+        }
+        if (previous == null || hts8s.size() * 2 > previous.getProductCount()) {
+            refresh();
+            return;
+        }
+        // An empty IN list is not valid SQL on every database
+        Collection<String> codes = hts8s.isEmpty() ? List.of("") : hts8s;
+        try {
+            TariffScheduleSnapshot slice = readOnlyTransaction.execute(status -> {
+                Long version = scheduleVersionService.pinCurrentVersion();
+                return TariffScheduleSnapshot.of(
+                    productRepository.findByHts8In(codes),
+                    mfnTariffRateRepository.findByHts8In(codes),
+                    agreementRateRepository.findByHts8In(codes),
+                    memberships ? agreementParticipantRepository.findAll() : List.of()).atVersion(version);
+            });
+            current.set(previous.replacing(hts8s, slice, memberships));
+            log.info("Reloaded {} HTS codes into the tariff schedule snapshot", hts8s.size());
+        } catch (RuntimeException e) {
+            log.warn("Partial tariff schedule refresh failed, reloading everything: {}", e.getMessage());
+            refresh();
+        }
+    }
+
+    /**
+     * A snapshot of just the given HTS codes and countries: each product with its MFN rows and
+     * its agreement rates into those countries, read in one statement, plus the countries'
+     * agreement memberships, at the latest schedule version. Codes missing from the database are
+     * simply absent.
+     */
+    public TariffScheduleSnapshot slice(Collection<String> hts8s, Collection<String> countryCodes) {
+        if (hts8s.isEmpty()) {
+            return TariffScheduleSnapshot.of(List.of(), List.of(), List.of(), List.of());
+        }
+        // An empty IN list is not valid SQL on every database
+        Collection<String> countries = countryCodes.isEmpty() ? List.of("") : countryCodes;
+        return readOnlyTransaction.execute(status -> {
+            Long version = scheduleVersionService.pinCurrentVersion();
+            Map<Long, Product> products = new LinkedHashMap<>();
+            Map<Long, MfnTariffRate> mfnRates = new LinkedHashMap<>();
+            Map<Long, AgreementRate> agreementRates = new LinkedHashMap<>();
+            for (Object[] row : productRepository.findScheduleRows(hts8s, countries)) {
+                Product product = (Product) row[0];
+                products.putIfAbsent(product.getId(), product);
+                if (row[1] instanceof MfnTariffRate mfn) {
+                    mfnRates.putIfAbsent(mfn.getId(), mfn);
+                }
+                if (row[2] instanceof AgreementRate rate) {
+                    agreementRates.putIfAbsent(rate.getId(), rate);
+                }
+            }
+            // Rows come ordered by product; the snapshot keeps the first MFN row by id per code
+            List<MfnTariffRate> mfnById = new ArrayList<>(mfnRates.values());
+            mfnById.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+            List<AgreementRate> ratesById = new ArrayList<>(agreementRates.values());
+            ratesById.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+            return TariffScheduleSnapshot.of(
+                new ArrayList<>(products.values()),
+                mfnById,
+                ratesById,
+                agreementParticipantRepository.findByCountryCodeIn(countries)).atVersion(version);
+        });
+    }
+}
@@ -0,0 +1,336 @@
+package csd.tariff.backend.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import csd.tariff.backend.model.AgreementParticipant;
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+
+/**
+ * Immutable, HTS-keyed view of the tariff schedule used by the calculation hot path.
+ *
+ * <p>Entries are detached entities loaded by {@link TariffScheduleService}; callers must treat them
+ * as read-only. A new snapshot is built and swapped in whenever the schedule changes.
+ *
+ * <p>Besides the current-row maps, every MFN row and every agreement's rows per HTS code and
+ * country are kept as {@link RateTimeline}s, so date-ranged and historical calculations resolve the
+ * row in effect on a date without reading the database. Product codes are also indexed in an
+ * {@link HtsTrie} for prefix autocomplete.
+ */
+public final class TariffScheduleSnapshot implements TariffScheduleLookup {
+
+    private final Map<String, Product> productsByHts;
+    private final Map<String, MfnTariffRate> mfnRatesByHts;
+    private final Map<String, Map<String, List<AgreementRate>>> agreementRatesByHts;
+    private final Map<String, RateTimeline<MfnTariffRate>> mfnTimelinesByHts;
+    private final Map<String, Map<String, List<RateTimeline<AgreementRate>>>> agreementTimelinesByHts;
+    private final AgreementMatrix agreementMatrix;
+    private final HtsTrie htsTrie;
+    private final Map<String, RateExpression> expressionsByText;
+    private final Instant loadedAt;
+    private final Long scheduleVersion;
+
+    private TariffScheduleSnapshot(
+            Map<String, Product> productsByHts,
+            Map<String, MfnTariffRate> mfnRatesByHts,
+            Map<String, Map<String, List<AgreementRate>>> agreementRatesByHts,
+            Map<String, RateTimeline<MfnTariffRate>> mfnTimelinesByHts,
+            Map<String, Map<String, List<RateTimeline<AgreementRate>>>> agreementTimelinesByHts,
+            AgreementMatrix agreementMatrix,
+            HtsTrie htsTrie,
+            Map<String, RateExpression> expressionsByText,
+            Instant loadedAt,
+            Long scheduleVersion) {
+        this.productsByHts = productsByHts;
+        this.mfnRatesByHts = mfnRatesByHts;
+        this.agreementRatesByHts = agreementRatesByHts;
+        this.mfnTimelinesByHts = mfnTimelinesByHts;
+        this.agreementTimelinesByHts = agreementTimelinesByHts;
+        this.agreementMatrix = agreementMatrix;
+        this.htsTrie = htsTrie;
+        this.expressionsByText = expressionsByText;
+        this.loadedAt = loadedAt;
+        this.scheduleVersion = scheduleVersion;
+    }
+
+    /**
+     * Build a snapshot from full table reads. Rows are indexed in the order given, so the first MFN
+     * row for an HTS code wins and agreement rates keep their load order. Every MFN and agreement
+     * text rate is compiled here, so calculations never parse rate text.
+     */
+    public static TariffScheduleSnapshot of(
+            List<Product> products,
+            List<MfnTariffRate> mfnRates,
+            List<AgreementRate> agreementRates,
+            List<AgreementParticipant> participants) {
+
+        Map<String, Product> productsByHts = new HashMap<>(products.size() * 2);
+        for (Product product : products) {
+            if (product.getHts8() != null) {
+                productsByHts.putIfAbsent(product.getHts8(), product);
+            }
+        }
+
+        Map<String, RateExpression> expressionsByText = new HashMap<>();
+        Map<String, MfnTariffRate> mfnRatesByHts = new HashMap<>(mfnRates.size() * 2);
+        Map<String, List<MfnTariffRate>> mfnHistoryByHts = new HashMap<>(mfnRates.size() * 2);
+        for (MfnTariffRate rate : mfnRates) {
+            compileInto(expressionsByText, rate.getMfnTextRate());
+            String hts8 = rate.getProduct() != null ? rate.getProduct().getHts8() : null;
+            if (hts8 != null) {
+                mfnRatesByHts.putIfAbsent(hts8, rate);
+                mfnHistoryByHts.computeIfAbsent(hts8, k -> new ArrayList<>(1)).add(rate);
+            }
+        }
+        Map<String, RateTimeline<MfnTariffRate>> mfnTimelinesByHts = new HashMap<>(mfnHistoryByHts.size() * 2);
+        mfnHistoryByHts.forEach((hts8, rows) -> mfnTimelinesByHts.put(hts8,
+            RateTimeline.of(rows, MfnTariffRate::getBeginEffectDate, MfnTariffRate::getEndEffectiveDate)));
+
+        Map<String, Map<String, List<AgreementRate>>> ratesByHts = new HashMap<>();
+        for (AgreementRate rate : agreementRates) {
+            compileInto(expressionsByText, rate.getTextRate());
+            String hts8 = rate.getProduct() != null ? rate.getProduct().getHts8() : null;
+            String countryCode = rate.getCountry() != null ? rate.getCountry().getCountryCode() : null;
+            if (hts8 == null || countryCode == null) {
+                continue;
+            }
+            ratesByHts
+                .computeIfAbsent(hts8, k -> new HashMap<>())
+                .computeIfAbsent(countryCode, k -> new ArrayList<>())
+                .add(rate);
+        }
+        Map<String, Map<String, List<AgreementRate>>> frozenRates = new HashMap<>(ratesByHts.size() * 2);
+        Map<String, Map<String, List<RateTimeline<AgreementRate>>>> agreementTimelines =
+            new HashMap<>(ratesByHts.size() * 2);
+        ratesByHts.forEach((hts8, byCountry) -> {
+            Map<String, List<AgreementRate>> frozen = new HashMap<>(byCountry.size() * 2);
+            Map<String, List<RateTimeline<AgreementRate>>> timelines = new HashMap<>(byCountry.size() * 2);
+            byCountry.forEach((country, list) -> {
+                frozen.put(country, List.copyOf(list));
+                timelines.put(country, agreementTimelines(list));
+            });
+            frozenRates.put(hts8, Collections.unmodifiableMap(frozen));
+            agreementTimelines.put(hts8, Collections.unmodifiableMap(timelines));
+        });
+
+        return new TariffScheduleSnapshot(
+            Collections.unmodifiableMap(productsByHts),
+            Collections.unmodifiableMap(mfnRatesByHts),
+            Collections.unmodifiableMap(frozenRates),
+            Collections.unmodifiableMap(mfnTimelinesByHts),
+            Collections.unmodifiableMap(agreementTimelines),
+            AgreementMatrix.of(participants),
+            HtsTrie.of(productsByHts.values(), hts8 -> {
+                MfnTariffRate rate = mfnRatesByHts.get(hts8);
+                return rate != null ? rate.getMfnTextRate() : null;
+            }),
+            Collections.unmodifiableMap(expressionsByText),
+            Instant.now(),
+            null);
+    }
+
+    /**
+     * A copy of this snapshot in which every entry of the given HTS codes comes from
+     * {@code slice}, typically a snapshot of just those codes re-read after they changed. Codes
+     * absent from the slice are dropped. Agreement memberships are kept; compiled rates are merged,
+     * and the copy takes the slice's schedule version.
+     */
+    public TariffScheduleSnapshot replacing(Collection<String> hts8s, TariffScheduleSnapshot slice) {
+        return replacing(hts8s, slice, false);
+    }
+
+    /**
+     * As {@link #replacing(Collection, TariffScheduleSnapshot)}, taking the agreement memberships
+     * from {@code slice} too when {@code memberships} is set, for a slice read with all of them
+     */
+    public TariffScheduleSnapshot replacing(
+            Collection<String> hts8s, TariffScheduleSnapshot slice, boolean memberships) {
+        Map<String, Product> products = new HashMap<>(productsByHts);
+        Map<String, MfnTariffRate> mfnRates = new HashMap<>(mfnRatesByHts);
+        Map<String, Map<String, List<AgreementRate>>> agreementRates = new HashMap<>(agreementRatesByHts);
+        Map<String, RateTimeline<MfnTariffRate>> mfnTimelines = new HashMap<>(mfnTimelinesByHts);
+        Map<String, Map<String, List<RateTimeline<AgreementRate>>>> agreementTimelines =
+            new HashMap<>(agreementTimelinesByHts);
+        for (String hts8 : hts8s) {
+            replace(products, slice.productsByHts, hts8);
+            replace(mfnRates, slice.mfnRatesByHts, hts8);
+            replace(agreementRates, slice.agreementRatesByHts, hts8);
+            replace(mfnTimelines, slice.mfnTimelinesByHts, hts8);
+            replace(agreementTimelines, slice.agreementTimelinesByHts, hts8);
+        }
+        Map<String, RateExpression> expressions = new HashMap<>(expressionsByText);
+        expressions.putAll(slice.expressionsByText);
+
+        return new TariffScheduleSnapshot(
+            Collections.unmodifiableMap(products),
+            Collections.unmodifiableMap(mfnRates),
+            Collections.unmodifiableMap(agreementRates),
+            Collections.unmodifiableMap(mfnTimelines),
+            Collections.unmodifiableMap(agreementTimelines),
+            memberships ? slice.agreementMatrix : agreementMatrix,
+            HtsTrie.of(products.values(), hts8 -> {
+                MfnTariffRate rate = mfnRates.get(hts8);
+                return rate != null ? rate.getMfnTextRate() : null;
+            }),
+            Collections.unmodifiableMap(expressions),
+            Instant.now(),
+            slice.scheduleVersion);
+    }
+
+    /**
+     * This snapshot labelled with the schedule version it was read at, null if unversioned
+     */
+    public TariffScheduleSnapshot atVersion(Long version) {
+        return new TariffScheduleSnapshot(productsByHts, mfnRatesByHts, agreementRatesByHts, mfnTimelinesByHts,
+            agreementTimelinesByHts, agreementMatrix, htsTrie, expressionsByText, loadedAt, version);
+    }
+
+    private static <V> void replace(Map<String, V> target, Map<String, V> source, String hts8) {
+        V value = source.get(hts8);
+        if (value != null) {
+            target.put(hts8, value);
+        } else {
+            target.remove(hts8);
+        }
+    }
+
+    /** One timeline per agreement, shared by the snapshot and the database lookup */
+    static List<RateTimeline<AgreementRate>> agreementTimelines(List<AgreementRate> rates) {
+        return RateTimeline.bySeries(
+            rates,
+            rate -> rate.getAgreement() != null ? rate.getAgreement().getAgreementCode() : null,
+            AgreementRate::getEffectiveDate,
+            AgreementRate::getExpirationDate);
+    }
+
+    private static void compileInto(Map<String, RateExpression> expressions, String textRate) {
+        if (textRate != null) {
+            expressions.computeIfAbsent(textRate, RateExpressionCompiler::compile);
+        }
+    }
+
+    /**
+     * Find a product by its 8-digit HTS code
+     */
+    @Override
+    public Optional<Product> findProduct(String hts8) {
+        return hts8 == null ? Optional.empty() : Optional.ofNullable(productsByHts.get(hts8));
+    }
+
+    /**
+     * Find the MFN rate for an 8-digit HTS code
+     */
+    @Override
+    public Optional<MfnTariffRate> findMfnRate(String hts8) {
+        return hts8 == null ? Optional.empty() : Optional.ofNullable(mfnRatesByHts.get(hts8));
+    }
+
+    /**
+     * Agreement rates for a product and country, matching {@code findByHts8AndCountryCode}
+     */
+    @Override
+    public List<AgreementRate> getAgreementRates(String hts8, String countryCode) {
+        if (hts8 == null || countryCode == null) {
+            return List.of();
+        }
+        Map<String, List<AgreementRate>> byCountry = agreementRatesByHts.get(hts8);
+        if (byCountry == null) {
+            return List.of();
+        }
+        return byCountry.getOrDefault(countryCode, List.of());
+    }
+
+    /**
+     * Every MFN row of an HTS code by validity period
+     */
+    @Override
+    public RateTimeline<MfnTariffRate> getMfnRateTimeline(String hts8) {
+        RateTimeline<MfnTariffRate> timeline = hts8 != null ? mfnTimelinesByHts.get(hts8) : null;
+        return timeline != null ? timeline : RateTimeline.empty();
+    }
+
+    /**
+     * Agreement rate timelines for a product and country, one per agreement
+     */
+    @Override
+    public List<RateTimeline<AgreementRate>> getAgreementRateTimelines(String hts8, String countryCode) {
+        if (hts8 == null || countryCode == null) {
+            return List.of();
+        }
+        Map<String, List<RateTimeline<AgreementRate>>> byCountry = agreementTimelinesByHts.get(hts8);
+        if (byCountry == null) {
+            return List.of();
+        }
+        return byCountry.getOrDefault(countryCode, List.of());
+    }
+
+    /**
+     * Trade agreements both countries participate in, matching {@code findBetweenCountries}
+     */
+    @Override
+    public List<TradeAgreement> getAgreementsBetweenCountries(String country1, String country2) {
+        return agreementMatrix.between(country1, country2);
+    }
+
+    /**
+     * Programs from one AND of the countries' membership bitsets and the active mask
+     */
+    @Override
+    public List<String> getApplicableTradePrograms(String country1, String country2, LocalDate date) {
+        return agreementMatrix.activePrograms(country1, country2, date);
+    }
+
+    /**
+     * Compiled text rate; text that was not loaded with the snapshot is compiled on demand
+     */
+    @Override
+    public RateExpression rateExpression(String textRate) {
+        RateExpression expression = textRate != null ? expressionsByText.get(textRate) : null;
+        return expression != null ? expression : RateExpressionCompiler.compile(textRate);
+    }
+
+    /**
+     * Prefix trie over the snapshot's HTS codes, labelled with their current MFN text rate
+     */
+    public HtsTrie getHtsTrie() {
+        return htsTrie;
+    }
+
+    public int getProductCount() {
+        return productsByHts.size();
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    @Override
+    public Long getScheduleVersion() {
+        return scheduleVersion;
+    }
+
+    @Override
+    public String toString() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("products", productsByHts.size());
+        stats.put("mfnRates", mfnRatesByHts.size());
+        stats.put("htsWithAgreementRates", agreementRatesByHts.size());
+        stats.put("countries", agreementMatrix.countryCount());
+        stats.put("agreements", agreementMatrix.agreementCount());
+        stats.put("compiledRates", expressionsByText.size());
+        stats.put("loadedAt", loadedAt);
+        stats.put("scheduleVersion", scheduleVersion);
+        return "TariffScheduleSnapshot" + stats;
+    }
+}
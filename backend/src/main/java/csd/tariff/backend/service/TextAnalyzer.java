@@ -0,0 +1,97 @@
+package csd.tariff.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tokenizer and light English stemmer for product text.
+ *
+ * <p>Text is lower-cased and split on anything that is not a letter or digit; stop words and
+ * single characters are dropped. The stemmer strips plural and common inflectional suffixes
+ * ("horses", "horse" and "horsed" share a stem) so the same analysis applied to documents and
+ * queries makes their forms match. It is deliberately conservative: stems are only compared
+ * with each other, never shown.
+ */
+public final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "any", "are", "as", "at", "be", "by", "for", "from", "in", "into", "is",
+        "it", "its", "of", "on", "or", "such", "than", "that", "the", "their", "this", "to", "with");
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Stemmed terms of the text in order, repeats included
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                String word = token.toString();
+                token.setLength(0);
+                if (word.length() > 1 && !STOP_WORDS.contains(word)) {
+                    terms.add(stem(word));
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Strip one plural suffix, then one of -ing, -ed, -ly
+     */
+    static String stem(String word) {
+        if (word.length() <= 3 || !Character.isLetter(word.charAt(word.length() - 1))) {
+            return word;
+        }
+        String w = word;
+        if (w.endsWith("sses")) {
+            w = w.substring(0, w.length() - 2);
+        } else if (w.endsWith("ies") && w.length() > 4) {
+            w = w.substring(0, w.length() - 3) + "y";
+        } else if (w.endsWith("es") && (w.endsWith("ches") || w.endsWith("shes") || w.endsWith("xes") || w.endsWith("zes"))) {
+            w = w.substring(0, w.length() - 2);
+        } else if (w.endsWith("s") && !w.endsWith("ss") && !w.endsWith("us") && !w.endsWith("is")) {
+            w = w.substring(0, w.length() - 1);
+        }
+
+        if (w.endsWith("ing") && w.length() > 5 && hasVowel(w, w.length() - 3)) {
+            w = undouble(w.substring(0, w.length() - 3));
+        } else if (w.endsWith("ed") && w.length() > 4 && hasVowel(w, w.length() - 2)) {
+            w = undouble(w.substring(0, w.length() - 2));
+        } else if (w.endsWith("ly") && w.length() > 4) {
+            w = w.substring(0, w.length() - 2);
+        }
+        // "horse" and "hors(ed)" should meet: drop a trailing silent e
+        if (w.endsWith("e") && w.length() > 3) {
+            w = w.substring(0, w.length() - 1);
+        }
+        return w;
+    }
+
+    private static boolean hasVowel(String w, int end) {
+        for (int i = 0; i < end; i++) {
+            if ("aeiouy".indexOf(w.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String undouble(String w) {
+        int n = w.length();
+        if (n > 2 && w.charAt(n - 1) == w.charAt(n - 2) && "lsz".indexOf(w.charAt(n - 1)) < 0) {
+            return w.substring(0, n - 1);
+        }
+        return w;
+    }
+}
@@ -3,7 +3,9 @@ package csd.tariff.backend.service;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.TradeAgreement;
 
 public interface TradeAgreementService {
@@ -12,6 +14,16 @@ public interface TradeAgreementService {
      * Get all trade agreements
      */
     List<TradeAgreement> getAllTradeAgreements();
+
+    /**
+     * Get one keyset page of trade agreements with IDs after the cursor
+     */
+    CursorPage<TradeAgreement> getTradeAgreementPage(Long cursor, int limit);
+
+    /**
+     * Stream every trade agreement by ID; must be consumed inside a transaction
+     */
+    Stream<TradeAgreement> streamAllTradeAgreements();
     
     /**
      * Get trade agreement by ID
@@ -2,27 +2,63 @@ package csd.tariff.backend.service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.TradeAgreement;
+import csd.tariff.backend.repository.AgreementRateRepository;
 import csd.tariff.backend.repository.TradeAgreementRepository;
+import csd.tariff.backend.service.CalculationRepricingService.RatesChanged;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingScope;
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
 
 @Service
 public class TradeAgreementServiceImpl implements TradeAgreementService {
     
     @Autowired
     private TradeAgreementRepository tradeAgreementRepository;
-    
+
+    @Autowired
+    private AgreementRateRepository agreementRateRepository;
+
+    @Autowired
+    private TariffScheduleService tariffScheduleService;
+
+    @Autowired
+    private DatasetVersionService datasetVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     @Override
     public List<TradeAgreement> getAllTradeAgreements() {
         return tradeAgreementRepository.findAll();
     }
     
+    @Override
+    public CursorPage<TradeAgreement> getTradeAgreementPage(Long cursor, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<TradeAgreement> rows = tradeAgreementRepository.findPageAfterId(
+            cursor != null ? cursor : 0L, PageRequest.of(0, pageSize + 1));
+        return CursorPage.of(rows, pageSize, TradeAgreement::getId);
+    }
+
+    @Override
+    public Stream<TradeAgreement> streamAllTradeAgreements() {
+        return tradeAgreementRepository.streamAllOrderById();
+    }
+
     @Override
     public Optional<TradeAgreement> getTradeAgreementById(Long id) {
         return tradeAgreementRepository.findById(id);
@@ -105,7 +141,10 @@ public class TradeAgreementServiceImpl implements TradeAgreementService {
             tradeAgreement.setIsMultilateral(false);
         }
         
-        return tradeAgreementRepository.save(tradeAgreement);
+        // A new agreement has no rates or members yet, so the schedule snapshot is unchanged
+        TradeAgreement saved = tradeAgreementRepository.save(tradeAgreement);
+        datasetVersionService.bump(Dataset.TRADE_AGREEMENTS);
+        return saved;
     }
     
     @Override
@@ -116,6 +155,7 @@ public class TradeAgreementServiceImpl implements TradeAgreementService {
         }
         
         TradeAgreement existing = existingAgreement.get();
+        boolean repricing = changesPricing(existing, tradeAgreement);
         existing.setAgreementName(tradeAgreement.getAgreementName());
         existing.setAgreementCode(tradeAgreement.getAgreementCode());
         existing.setAgreementType(tradeAgreement.getAgreementType());
@@ -126,7 +166,14 @@ public class TradeAgreementServiceImpl implements TradeAgreementService {
         // Note: participatingCountries, tariffReductionSchedule, and notes are now handled through separate entities
         // in the schema (AgreementParticipant, AgreementRate, ProductNote)
         
-        return tradeAgreementRepository.save(existing);
+        TradeAgreement saved = tradeAgreementRepository.save(existing);
+        List<RepricingScope> scopes = rateScopes(saved.getId());
+        tariffScheduleService.refreshAgreement(rateCodes(scopes));
+        datasetVersionService.bump(Dataset.TRADE_AGREEMENTS);
+        if (repricing) {
+            repriceCalculations("Trade agreement " + saved.getAgreementCode() + " updated", scopes);
+        }
+        return saved;
     }
     
     @Override
@@ -137,6 +184,7 @@ public class TradeAgreementServiceImpl implements TradeAgreementService {
         }
         
         TradeAgreement existing = existingAgreement.get();
+        boolean repricing = changesPricing(existing, tradeAgreement);
         existing.setAgreementName(tradeAgreement.getAgreementName());
         existing.setAgreementCode(tradeAgreement.getAgreementCode());
         existing.setAgreementType(tradeAgreement.getAgreementType());
@@ -145,7 +193,14 @@ public class TradeAgreementServiceImpl implements TradeAgreementService {
         existing.setIsMultilateral(tradeAgreement.getIsMultilateral());
         existing.setUpdatedAt(LocalDateTime.now());
         
-        return tradeAgreementRepository.save(existing);
+        TradeAgreement saved = tradeAgreementRepository.save(existing);
+        List<RepricingScope> scopes = rateScopes(saved.getId());
+        tariffScheduleService.refreshAgreement(rateCodes(scopes));
+        datasetVersionService.bump(Dataset.TRADE_AGREEMENTS);
+        if (repricing) {
+            repriceCalculations("Trade agreement " + saved.getAgreementCode() + " updated", scopes);
+        }
+        return saved;
     }
     
     @Override
@@ -154,6 +209,48 @@ public class TradeAgreementServiceImpl implements TradeAgreementService {
         if (existingAgreement.isEmpty()) {
             throw new IllegalArgumentException("Trade agreement not found with code: " + agreementCode);
         }
+        // The agreement's rates are deleted with it
+        List<RepricingScope> scopes = rateScopes(existingAgreement.get().getId());
         tradeAgreementRepository.deleteById(existingAgreement.get().getId());
+        tariffScheduleService.refreshAgreement(rateCodes(scopes));
+        datasetVersionService.bump(Dataset.TRADE_AGREEMENTS);
+        repriceCalculations("Trade agreement " + agreementCode + " deleted", scopes);
+    }
+
+    /**
+     * The calculations an agreement's rates apply to: each HTS code it has a rate for, into the
+     * rate's partner country
+     */
+    private List<RepricingScope> rateScopes(Long agreementId) {
+        List<RepricingScope> scopes = new ArrayList<>();
+        for (Object[] row : agreementRateRepository.findHts8AndCountryCodesByAgreementId(agreementId)) {
+            scopes.add(new RepricingScope((String) row[0], (String) row[1]));
+        }
+        return scopes;
+    }
+
+    /** The HTS codes of an agreement's rates, whose snapshot entries hold the agreement */
+    private static Set<String> rateCodes(List<RepricingScope> scopes) {
+        Set<String> codes = new LinkedHashSet<>();
+        for (RepricingScope scope : scopes) {
+            codes.add(scope.hts8());
+        }
+        return codes;
+    }
+
+    /**
+     * Whether an update changes what the agreement's rates price: its code or validity period. A
+     * rename alone leaves every saved calculation as it is.
+     */
+    private static boolean changesPricing(TradeAgreement existing, TradeAgreement update) {
+        return !Objects.equals(existing.getAgreementCode(), update.getAgreementCode())
+            || !Objects.equals(existing.getEffectiveDate(), update.getEffectiveDate())
+            || !Objects.equals(existing.getExpirationDate(), update.getExpirationDate());
+    }
+
+    private void repriceCalculations(String trigger, List<RepricingScope> scopes) {
+        if (!scopes.isEmpty()) {
+            eventPublisher.publishEvent(new RatesChanged(trigger, scopes));
+        }
     }
 }
@@ -0,0 +1,148 @@
+package csd.tariff.backend.service;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Resolves the principal for a verified bearer token.
+ *
+ * <p>By default ({@code app.auth.principal-source=database}) the user is loaded through
+ * {@link EmailUserDetailsService} and kept for {@code app.auth.principal-cache.ttl-seconds}, so a
+ * burst of requests from one session costs one {@code findByEmail} query instead of one each.
+ * {@link UserService} invalidates a user's entry after every write to that user, and a load that
+ * raced with an invalidation is not cached.
+ *
+ * <p>With {@code app.auth.principal-source=token} the principal is built from the token's own
+ * subject and {@code roles} claim and the database is not read at all. Tokens issued before the
+ * user's role was changed or the user was deleted are refused; those revocations are kept in this
+ * process for one token lifetime, so this mode assumes a single instance like the other caches.
+ */
+@Service
+public class UserPrincipalService {
+
+    public enum PrincipalSource {
+        DATABASE,
+        TOKEN
+    }
+
+    private record CachedPrincipal(UserDetails user, long loadedAt) {}
+
+    private final EmailUserDetailsService userDetailsService;
+    private final PrincipalSource source;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final long tokenTtlMillis;
+
+    private final Map<String, CachedPrincipal> principals = new ConcurrentHashMap<>();
+    // Bumped by every invalidation so a load that raced with it is not cached
+    private final AtomicLong generation = new AtomicLong();
+    // Lower-cased email -> epoch millis of the user's last revocation
+    private final Map<String, Long> revokedAt = new ConcurrentHashMap<>();
+
+    public UserPrincipalService(
+            EmailUserDetailsService userDetailsService,
+            @Value("${app.auth.principal-source:database}") String source,
+            @Value("${app.auth.principal-cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("${app.auth.principal-cache.max-entries:10000}") int maxEntries,
+            @Value("${app.jwt.ttl-seconds:3600}") long tokenTtlSeconds) {
+        this.userDetailsService = userDetailsService;
+        this.source = PrincipalSource.valueOf(source.trim().toUpperCase(Locale.ROOT));
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.tokenTtlMillis = TimeUnit.SECONDS.toMillis(tokenTtlSeconds);
+    }
+
+    /**
+     * The principal for verified claims, or {@code null} if the token has been revoked
+     *
+     * @throws UsernameNotFoundException if the subject is not a user (database mode)
+     */
+    public UserDetails resolve(Claims claims) {
+        if (source == PrincipalSource.TOKEN) {
+            return fromClaims(claims);
+        }
+        return load(claims.getSubject());
+    }
+
+    /**
+     * The user with this email, from the cache while it is fresh
+     */
+    public UserDetails load(String email) {
+        CachedPrincipal cached = principals.get(email);
+        long now = System.nanoTime();
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            return cached.user();
+        }
+        long loadGeneration = generation.get();
+        UserDetails user = userDetailsService.loadUserByUsername(email);
+        if (principals.size() >= maxEntries) {
+            principals.values().removeIf(entry -> now - entry.loadedAt() >= ttlNanos);
+            if (principals.size() >= maxEntries) {
+                principals.clear();
+            }
+        }
+        principals.put(email, new CachedPrincipal(user, now));
+        if (generation.get() != loadGeneration) {
+            // Invalidated while loading; the row may have changed after it was read
+            principals.remove(email);
+        }
+        return user;
+    }
+
+    /**
+     * Drop the cached principal for a user whose row changed
+     */
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        principals.keySet().removeIf(key -> key.equalsIgnoreCase(email));
+    }
+
+    /**
+     * Drop the cached principal and refuse the user's existing tokens in token mode; for role
+     * changes and deletions
+     */
+    public void revoke(String email) {
+        if (email == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        revokedAt.put(email.toLowerCase(Locale.ROOT), now);
+        // Revocations outlive every token issued before them after one token lifetime
+        revokedAt.values().removeIf(at -> now - at > tokenTtlMillis);
+        invalidate(email);
+    }
+
+    private UserDetails fromClaims(Claims claims) {
+        String email = claims.getSubject();
+        Long revoked = email == null ? null : revokedAt.get(email.toLowerCase(Locale.ROOT));
+        Date issuedAt = claims.getIssuedAt();
+        // iat has whole second precision; a token from the revocation's own second is refused too
+        if (revoked != null && (issuedAt == null || issuedAt.getTime() / 1000 <= revoked / 1000)) {
+            return null;
+        }
+        String roles = claims.get("roles", String.class);
+        String[] authorities = roles == null || roles.isBlank()
+            ? new String[0]
+            : Arrays.stream(roles.split(",")).map(String::trim).filter(r -> !r.isEmpty()).toArray(String[]::new);
+        return User.withUsername(email)
+            .password("")
+            .authorities(authorities)
+            .build();
+    }
+}
@@ -2,10 +2,13 @@ package csd.tariff.backend.service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.User;
 import csd.tariff.backend.repository.UserRepository;
 
@@ -14,10 +17,13 @@ public class UserService {
     
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserPrincipalService userPrincipalService;
     
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       UserPrincipalService userPrincipalService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userPrincipalService = userPrincipalService;
     }
     
     public User createUser(String username, String email, String password, User.Role role) {
@@ -54,6 +60,19 @@ public class UserService {
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
+
+    /** One keyset page of users with IDs after the cursor */
+    public CursorPage<User> getUserPage(Long cursor, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<User> rows = userRepository.findPageAfterId(
+            cursor != null ? cursor : 0L, PageRequest.of(0, pageSize + 1));
+        return CursorPage.of(rows, pageSize, User::getId);
+    }
+
+    /** Every user by ID; must be consumed inside a transaction */
+    public Stream<User> streamAllUsers() {
+        return userRepository.streamAllOrderById();
+    }
     
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
@@ -71,9 +90,12 @@ public class UserService {
             throw new IllegalArgumentException("Username " + username + " already exists");
         }
         
+        User.Role previousRole = user.getRole();
         user.setUsername(username);
         user.setRole(role);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        forgetPrincipal(user.getEmail(), previousRole != role);
+        return saved;
     }
     
     public User updateUserUsernameWithPassword(Long id, String username, String password, User.Role role) {
@@ -84,17 +106,22 @@ public class UserService {
             throw new IllegalArgumentException("Username " + username + " already exists");
         }
         
+        User.Role previousRole = user.getRole();
         user.setUsername(username);
         user.setPassword(passwordEncoder.encode(password));
         user.setRole(role);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        forgetPrincipal(user.getEmail(), previousRole != role);
+        return saved;
     }
     
     public void deleteUser(Long id) {
         if (!userRepository.existsById(id)) {
             throw new IllegalArgumentException("User with id " + id + " not found");
         }
+        String email = userRepository.findById(id).map(User::getEmail).orElse(null);
         userRepository.deleteById(id);
+        forgetPrincipal(email, true);
     }
     
     public User updateProfile(String email, String username) {
@@ -106,7 +133,9 @@ public class UserService {
         }
         
         user.setUsername(username);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        forgetPrincipal(email, false);
+        return saved;
     }
     
     public void changePassword(String email, String currentPassword, String newPassword) {
@@ -119,6 +148,7 @@ public class UserService {
         
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        forgetPrincipal(email, false);
     }
     
     public void deleteAccount(String email) {
@@ -126,5 +156,18 @@ public class UserService {
             .orElseThrow(() -> new IllegalArgumentException("User with email " + email + " not found"));
         
         userRepository.delete(user);
+        forgetPrincipal(email, true);
+    }
+    
+    /**
+     * Drop the user's cached principal after a write; role changes and deletions also revoke the
+     * user's tokens when principals come from token claims
+     */
+    private void forgetPrincipal(String email, boolean revoke) {
+        if (revoke) {
+            userPrincipalService.revoke(email);
+        } else {
+            userPrincipalService.invalidate(email);
+        }
     }
 }
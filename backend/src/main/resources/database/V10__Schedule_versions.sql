@@ -0,0 +1,135 @@
+-- =====================================================
+-- V10: Versioned tariff schedule (ScheduleVersionService)
+-- Every transaction that writes the schedule tables gets one immutable
+-- version id, and the before-image of each row it changed is kept as a
+-- delta. The schedule as of version V is the current rows with every
+-- delta after V undone, so a calculation that records V can be priced
+-- again exactly as it was.
+-- =====================================================
+
+-- Version ids are handed out as writers commit, so they follow commit
+-- order: a snapshot that sees version V sees every version below it, and
+-- readers pin a version with a plain MAX(id) without taking any lock.
+CREATE TABLE IF NOT EXISTS tariff.schedule_versions (
+    id BIGSERIAL PRIMARY KEY,
+    transaction_id BIGINT NOT NULL UNIQUE, -- txid_current() of the writing transaction
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- One row per changed schedule row and statement: I(nsert), U(pdate) or
+-- D(elete), with the whole row as it was before the change (NULL for an
+-- insert). Deltas belong to their writer's transaction; the version is the
+-- schedule_versions row of that transaction. hts8 is NULL for agreements
+-- and participants.
+CREATE TABLE IF NOT EXISTS tariff.schedule_deltas (
+    id BIGSERIAL PRIMARY KEY,
+    transaction_id BIGINT NOT NULL,
+    table_name VARCHAR(40) NOT NULL,
+    row_id BIGINT NOT NULL,
+    hts8 VARCHAR(8),
+    operation CHAR(1) NOT NULL,
+    old_row JSONB
+);
+
+CREATE INDEX IF NOT EXISTS idx_schedule_deltas_hts8 ON tariff.schedule_deltas (hts8, transaction_id);
+CREATE INDEX IF NOT EXISTS idx_schedule_deltas_agreements ON tariff.schedule_deltas (transaction_id) WHERE hts8 IS NULL;
+
+-- Transactions that wrote the schedule and have not committed yet; each
+-- row fires the deferred trigger below once, at commit
+CREATE TABLE IF NOT EXISTS tariff.schedule_version_claims (
+    transaction_id BIGINT PRIMARY KEY
+);
+
+-- Runs at commit. The exclusive advisory lock is held until the commit is
+-- visible, so the next writer cannot take a higher id before this one is
+-- committed. Only writers take it, and only for the commit itself.
+CREATE OR REPLACE FUNCTION tariff.commit_schedule_version() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(5380612);
+    INSERT INTO tariff.schedule_versions (transaction_id) VALUES (NEW.transaction_id);
+    DELETE FROM tariff.schedule_version_claims WHERE transaction_id = NEW.transaction_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS schedule_version_commit ON tariff.schedule_version_claims;
+CREATE CONSTRAINT TRIGGER schedule_version_commit AFTER INSERT ON tariff.schedule_version_claims
+    DEFERRABLE INITIALLY DEFERRED FOR EACH ROW EXECUTE FUNCTION tariff.commit_schedule_version();
+
+-- Statement-level, so a bulk import records its deltas with one insert
+-- per statement rather than one per row
+CREATE OR REPLACE FUNCTION tariff.record_schedule_deltas() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        IF NOT EXISTS (SELECT 1 FROM new_rows) THEN
+            RETURN NULL;
+        END IF;
+        INSERT INTO tariff.schedule_version_claims VALUES (txid_current()) ON CONFLICT DO NOTHING;
+        INSERT INTO tariff.schedule_deltas (transaction_id, table_name, row_id, hts8, operation, old_row)
+        SELECT txid_current(), TG_TABLE_NAME, r.id, COALESCE(to_jsonb(r) ->> 'hts8', p.hts8), 'I', NULL
+        FROM new_rows r
+        LEFT JOIN tariff.products p ON p.id = (to_jsonb(r) ->> 'product_id')::BIGINT;
+    ELSE
+        IF NOT EXISTS (SELECT 1 FROM old_rows) THEN
+            RETURN NULL;
+        END IF;
+        INSERT INTO tariff.schedule_version_claims VALUES (txid_current()) ON CONFLICT DO NOTHING;
+        INSERT INTO tariff.schedule_deltas (transaction_id, table_name, row_id, hts8, operation, old_row)
+        SELECT txid_current(), TG_TABLE_NAME, r.id, COALESCE(to_jsonb(r) ->> 'hts8', p.hts8), left(TG_OP, 1), to_jsonb(r)
+        FROM old_rows r
+        LEFT JOIN tariff.products p ON p.id = (to_jsonb(r) ->> 'product_id')::BIGINT;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A product's rates would otherwise go with the ON DELETE CASCADE after
+-- the product row is gone, and their deltas would have no hts8. Deleting
+-- them first, while the product is still there, records the code.
+CREATE OR REPLACE FUNCTION tariff.delete_product_rates() RETURNS trigger AS $$
+BEGIN
+    DELETE FROM tariff.mfn_tariff_rates WHERE product_id = OLD.id;
+    DELETE FROM tariff.agreement_tariff_rates WHERE product_id = OLD.id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS products_delete_rates ON tariff.products;
+CREATE TRIGGER products_delete_rates BEFORE DELETE ON tariff.products
+    FOR EACH ROW EXECUTE FUNCTION tariff.delete_product_rates();
+
+-- Transition tables allow one event per trigger
+DO $$
+DECLARE
+    tracked TEXT;
+BEGIN
+    FOREACH tracked IN ARRAY ARRAY['products', 'mfn_tariff_rates', 'agreement_tariff_rates',
+                                   'trade_agreements', 'agreement_participants'] LOOP
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON tariff.%I', tracked || '_versions_insert', tracked);
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON tariff.%I', tracked || '_versions_update', tracked);
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON tariff.%I', tracked || '_versions_delete', tracked);
+        EXECUTE format('CREATE TRIGGER %I AFTER INSERT ON tariff.%I REFERENCING NEW TABLE AS new_rows '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION tariff.record_schedule_deltas()',
+                       tracked || '_versions_insert', tracked);
+        EXECUTE format('CREATE TRIGGER %I AFTER UPDATE ON tariff.%I REFERENCING OLD TABLE AS old_rows '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION tariff.record_schedule_deltas()',
+                       tracked || '_versions_update', tracked);
+        EXECUTE format('CREATE TRIGGER %I AFTER DELETE ON tariff.%I REFERENCING OLD TABLE AS old_rows '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION tariff.record_schedule_deltas()',
+                       tracked || '_versions_delete', tracked);
+    END LOOP;
+END;
+$$;
+
+-- The version each calculation was priced against; NULL for rows saved
+-- before versioning, which cannot be replayed
+ALTER TABLE tariff.calculations ADD COLUMN IF NOT EXISTS schedule_version BIGINT;
+
+COMMENT ON COLUMN tariff.calculations.schedule_version IS 'Schedule version the calculation was priced against';
+
+-- Totals in other currencies are converted at the rates of this date, so
+-- a replay converts them again at the same rates. NULL for rows saved
+-- before it was recorded, which use their creation date.
+ALTER TABLE tariff.calculations ADD COLUMN IF NOT EXISTS fx_date DATE;
+
+COMMENT ON COLUMN tariff.calculations.fx_date IS 'Date of the exchange rates the totals were converted at';
@@ -0,0 +1,43 @@
+-- =====================================================
+-- V11: Re-pricing of saved calculations after rate changes
+-- (CalculationRepricingService)
+-- =====================================================
+
+-- Dependency index: the calculations that depend on an HTS code and
+-- destination, in id order, so a rate change pages through just its
+-- own calculations instead of scanning the table
+CREATE INDEX IF NOT EXISTS idx_calculations_dependency
+    ON tariff.calculations (hts_code, destination_country, id);
+
+CREATE TABLE IF NOT EXISTS tariff.repricing_runs (
+    id BIGSERIAL PRIMARY KEY,
+    trigger_name VARCHAR(255),
+    status VARCHAR(20) NOT NULL, -- RUNNING, COMPLETED, FAILED
+    scopes INT NOT NULL DEFAULT 0,
+    rows_scanned BIGINT NOT NULL DEFAULT 0,
+    rows_repriced BIGINT NOT NULL DEFAULT 0,
+    rows_failed BIGINT NOT NULL DEFAULT 0,
+    error_message TEXT,
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+-- Delta report: one row per calculation a run re-priced, with its
+-- totals and schedule version before and after
+CREATE TABLE IF NOT EXISTS tariff.repricing_changes (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES tariff.repricing_runs(id) ON DELETE CASCADE,
+    calculation_id BIGINT NOT NULL,
+    hts_code VARCHAR(8) NOT NULL,
+    destination_country VARCHAR(3),
+    old_total_tariff_amount NUMERIC(18,2),
+    new_total_tariff_amount NUMERIC(18,2),
+    old_calculation_result NUMERIC(38,2),
+    new_calculation_result NUMERIC(38,2),
+    old_schedule_version BIGINT,
+    new_schedule_version BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS idx_repricing_changes_run ON tariff.repricing_changes(run_id, id);
+
+COMMENT ON TABLE tariff.repricing_changes IS 'Saved calculations each re-pricing run changed, before and after';
@@ -0,0 +1,45 @@
+-- =====================================================
+-- V12: What-if tariff scenarios run in the background
+-- (TariffScenarioService)
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS tariff.scenario_runs (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255),
+    source VARCHAR(20) NOT NULL, -- PORTFOLIO, HISTORY
+    status VARCHAR(20) NOT NULL, -- QUEUED, RUNNING, COMPLETED, FAILED
+    rules JSONB NOT NULL,
+    lines_evaluated BIGINT NOT NULL DEFAULT 0,
+    lines_changed BIGINT NOT NULL DEFAULT 0,
+    lines_failed BIGINT NOT NULL DEFAULT 0,
+    -- Baseline and scenario totals per currency, as of the last finished chunk
+    totals JSONB,
+    error_message TEXT,
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+-- Per-line deltas of a run: only lines whose tariff changed or that
+-- could not be priced, so a scenario over the whole history stays small
+CREATE TABLE IF NOT EXISTS tariff.scenario_lines (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES tariff.scenario_runs(id) ON DELETE CASCADE,
+    line_no BIGINT NOT NULL,
+    calculation_id BIGINT,
+    hts_code VARCHAR(20),
+    origin_country VARCHAR(10),
+    destination_country VARCHAR(10),
+    currency VARCHAR(10),
+    baseline_tariff_amount NUMERIC(18,2),
+    scenario_tariff_amount NUMERIC(18,2),
+    tariff_delta NUMERIC(18,2),
+    baseline_import_price NUMERIC(38,2),
+    scenario_import_price NUMERIC(38,2),
+    baseline_program VARCHAR(255),
+    scenario_program VARCHAR(255),
+    error_message TEXT
+);
+
+CREATE INDEX IF NOT EXISTS idx_scenario_lines_run ON tariff.scenario_lines(run_id, line_no);
+
+COMMENT ON TABLE tariff.scenario_lines IS 'Lines a what-if scenario run changed or could not price, baseline and scenario';
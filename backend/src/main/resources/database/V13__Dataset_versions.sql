@@ -0,0 +1,20 @@
+-- =====================================================
+-- V13: Shared data set versions for conditional GETs
+-- (DatasetVersionService)
+-- One counter per data set, advanced in the same transaction as every
+-- write; each node polls the table, so all nodes hand out the same ETag
+-- and Last-Modified.
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS tariff.dataset_versions (
+    dataset VARCHAR(40) PRIMARY KEY, -- DatasetVersionService.Dataset name
+    version BIGINT NOT NULL DEFAULT 0,
+    modified_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO tariff.dataset_versions (dataset) VALUES
+    ('COUNTRIES'),
+    ('TRADE_AGREEMENTS'),
+    ('MFN_RATES'),
+    ('PRODUCTS')
+ON CONFLICT (dataset) DO NOTHING;
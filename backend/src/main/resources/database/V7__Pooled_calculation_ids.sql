@@ -0,0 +1,13 @@
+-- =====================================================
+-- Pooled IDs for tariff.calculations
+-- Each nextval call reserves the block (value - 49 .. value], so the
+-- application can assign IDs before inserting and batch the inserts.
+-- Must match TariffCalculation's allocationSize and
+-- TariffCalculationWriter.ID_BLOCK_SIZE.
+-- Inserts that still use the column default take the returned value
+-- itself, which no block claims.
+-- =====================================================
+ALTER SEQUENCE tariff.calculations_id_seq INCREMENT BY 50;
+
+-- Start past any IDs already in use so the first block cannot collide
+SELECT setval('tariff.calculations_id_seq', COALESCE((SELECT MAX(id) FROM tariff.calculations), 0) + 50);
@@ -0,0 +1,45 @@
+-- =====================================================
+-- V8: Staging and bookkeeping tables for the in-application
+-- tariff CSV importer (TariffImportService)
+-- =====================================================
+
+-- Rows of the file being imported, loaded with COPY. Same columns as
+-- tariffs_raw without the surrogate key and timestamps. Unlogged: the
+-- contents are rebuilt by every import and need no crash recovery.
+CREATE UNLOGGED TABLE IF NOT EXISTS tariff.tariffs_staging AS
+SELECT * FROM tariff.tariffs_raw WITH NO DATA;
+
+ALTER TABLE tariff.tariffs_staging
+    DROP COLUMN IF EXISTS id,
+    DROP COLUMN IF EXISTS created_at,
+    DROP COLUMN IF EXISTS updated_at;
+
+CREATE INDEX IF NOT EXISTS idx_tariffs_staging_hts8 ON tariff.tariffs_staging(hts8);
+
+-- One row per import attempt
+CREATE TABLE IF NOT EXISTS tariff.import_runs (
+    id BIGSERIAL PRIMARY KEY,
+    source_name VARCHAR(255),
+    status VARCHAR(20) NOT NULL, -- RUNNING, COMPLETED, FAILED
+    rows_read BIGINT NOT NULL DEFAULT 0,
+    rows_loaded BIGINT NOT NULL DEFAULT 0,
+    rows_quarantined BIGINT NOT NULL DEFAULT 0,
+    error_message TEXT,
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+-- Rows rejected by validation, kept verbatim for correction and re-import
+CREATE TABLE IF NOT EXISTS tariff.import_quarantine (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES tariff.import_runs(id) ON DELETE CASCADE,
+    line_number BIGINT NOT NULL,
+    reason TEXT NOT NULL,
+    raw_record TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_import_quarantine_run ON tariff.import_quarantine(run_id);
+
+COMMENT ON TABLE tariff.tariffs_staging IS 'COPY target for the tariff CSV importer; rebuilt by every import';
+COMMENT ON TABLE tariff.import_quarantine IS 'CSV records rejected by the tariff importer';
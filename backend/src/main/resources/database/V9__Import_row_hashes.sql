@@ -0,0 +1,46 @@
+-- =====================================================
+-- V9: Row hashes and change manifests for incremental
+-- tariff imports (TariffImportService)
+-- =====================================================
+
+-- MD5 of the columns an import writes, as text. An import only rewrites
+-- a row when the hash of its incoming values differs. NULL means the row
+-- must be rewritten by the next import (e.g. it was closed).
+ALTER TABLE tariff.products ADD COLUMN IF NOT EXISTS row_hash VARCHAR(32);
+ALTER TABLE tariff.mfn_tariff_rates ADD COLUMN IF NOT EXISTS row_hash VARCHAR(32);
+ALTER TABLE tariff.agreement_tariff_rates ADD COLUMN IF NOT EXISTS row_hash VARCHAR(32);
+
+-- Seed the hashes from the rows V5 loaded so the first import only
+-- touches rows that really changed. Must match the expressions in
+-- TariffImportService.
+UPDATE tariff.products
+SET row_hash = md5(ROW(brief_description, quantity_1_code, quantity_2_code, wto_binding_code)::text);
+
+UPDATE tariff.mfn_tariff_rates
+SET row_hash = md5(ROW(mfn_text_rate, mfn_rate_type_code, mfn_ave, mfn_ad_val_rate, mfn_specific_rate,
+                       mfn_other_rate, col1_special_text, col1_special_mod, col2_text_rate, col2_rate_type_code,
+                       col2_ad_val_rate, col2_specific_rate, col2_other_rate, begin_effect_date,
+                       end_effective_date)::text);
+
+UPDATE tariff.agreement_tariff_rates
+SET row_hash = md5(ROW(rate_type_code, ad_valorem_rate, specific_rate, text_rate, indicator)::text);
+
+ALTER TABLE tariff.import_runs ADD COLUMN IF NOT EXISTS import_mode VARCHAR(20) NOT NULL DEFAULT 'INCREMENTAL';
+
+-- Change manifest: one row per product, MFN rate or agreement rate an
+-- import inserted, updated or closed (end-dated because it is no longer
+-- in the file)
+CREATE TABLE IF NOT EXISTS tariff.import_changes (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES tariff.import_runs(id) ON DELETE CASCADE,
+    dataset VARCHAR(20) NOT NULL, -- PRODUCTS, MFN_RATES, AGREEMENT_RATES
+    change_type VARCHAR(10) NOT NULL, -- INSERT, UPDATE, CLOSE
+    hts8 VARCHAR(8) NOT NULL,
+    agreement_code VARCHAR(20),
+    country_code VARCHAR(3),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_import_changes_run ON tariff.import_changes(run_id, hts8);
+
+COMMENT ON TABLE tariff.import_changes IS 'Rows each tariff import inserted, updated or closed';
@@ -0,0 +1,117 @@
+package csd.tariff.backend.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import csd.tariff.backend.service.DatasetVersionService;
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
+
+/**
+ * Unit tests for DatasetETagInterceptor conditional GET handling
+ */
+@DisplayName("DatasetETagInterceptor Unit Tests")
+class DatasetETagInterceptorTest {
+
+    private DatasetVersionService datasetVersionService;
+    private DatasetETagInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        datasetVersionService = new DatasetVersionService(mock(JdbcTemplate.class), 1000);
+        interceptor = new DatasetETagInterceptor(datasetVersionService, Dataset.COUNTRIES);
+    }
+
+    @Test
+    @DisplayName("Should add validators and continue when the client has no copy")
+    void preHandle_ShouldAddValidatorsAndContinue_WhenNoConditionalHeaders() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/country");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        // Assert
+        assertTrue(proceed);
+        assertEquals(datasetVersionService.current(Dataset.COUNTRIES).etag(), response.getHeader(HttpHeaders.ETAG));
+        assertEquals("no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should answer 304 without reaching the handler when the ETag matches")
+    void preHandle_ShouldReturnNotModified_WhenEtagMatches() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/country");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, datasetVersionService.current(Dataset.COUNTRIES).etag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        // Assert
+        assertFalse(proceed);
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should serve the full response after a write bumps the version")
+    void preHandle_ShouldContinue_WhenDatasetChangedSinceEtag() {
+        // Arrange
+        String staleEtag = datasetVersionService.current(Dataset.COUNTRIES).etag();
+        datasetVersionService.bump(Dataset.COUNTRIES);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/country");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, staleEtag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        // Assert
+        assertTrue(proceed);
+        assertEquals(datasetVersionService.current(Dataset.COUNTRIES).etag(), response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 when unchanged since If-Modified-Since")
+    void preHandle_ShouldReturnNotModified_WhenNotModifiedSince() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/country");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE,
+            datasetVersionService.current(Dataset.COUNTRIES).lastModified() + 1000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        // Assert
+        assertFalse(proceed);
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should leave writes untouched")
+    void preHandle_ShouldIgnoreNonGetRequests() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/country");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "*");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        // Assert
+        assertTrue(proceed);
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+    }
+}
@@ -31,6 +31,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import csd.tariff.backend.controller.CountryController;
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.Country;
 import csd.tariff.backend.service.CountryService;
 
@@ -116,6 +117,21 @@ class CountryControllerUnitTest {
         verify(countryService, times(1)).getAllCountries();
     }
 
+    @Test
+    @DisplayName("Should return a cursor page when a limit is given")
+    void getCountryPage_ShouldReturnCursorPage_WhenLimitGiven() throws Exception {
+        // Arrange
+        when(countryService.getCountryPage(5L, 1)).thenReturn(new CursorPage<>(List.of(testCountry), 1L));
+
+        // Act & Assert
+        mockMvc.perform(get("/country").param("limit", "1").param("cursor", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].countryCode").value("US"))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+
+        verify(countryService, times(1)).getCountryPage(5L, 1);
+    }
+
     // ===== CREATE COUNTRY TESTS =====
 
     @Test
@@ -37,6 +37,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import csd.tariff.backend.controller.MfnController;
+import csd.tariff.backend.dto.MfnRateView;
 import csd.tariff.backend.model.MfnTariffRate;
 import csd.tariff.backend.model.Product;
 import csd.tariff.backend.service.MfnService;
@@ -128,7 +129,7 @@ class MfnControllerUnitTest {
     @DisplayName("Should get all MFN tariff rates successfully")
     void getAllMfnTariffRates_ShouldReturnAllRates() throws Exception {
         // Arrange
-        List<MfnTariffRate> rates = Arrays.asList(testMfnRate);
+        List<MfnRateView> rates = Arrays.asList(MfnRateView.from(testMfnRate));
         when(mfnService.getAllMfnTariffRates()).thenReturn(rates);
 
         // Act & Assert
@@ -137,6 +138,7 @@ class MfnControllerUnitTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].hts8").value("12345678"))
                 .andExpect(jsonPath("$[0].mfnTextRate").value("10% + $5.00 per unit"))
                 .andExpect(jsonPath("$[0].mfnRateTypeCode").value("ADV"))
                 .andExpect(jsonPath("$[0].mfnadValoremRate").value(0.10))
@@ -168,7 +170,7 @@ class MfnControllerUnitTest {
     void getMfnTariffRatesForProduct_ShouldReturnRates_WhenFound() throws Exception {
         // Arrange
         when(mfnService.getMfnTariffRatesForProduct("12345678"))
-            .thenReturn(Optional.of(testMfnRate));
+            .thenReturn(Optional.of(MfnRateView.from(testMfnRate)));
 
         // Act & Assert
         mockMvc.perform(get("/mfn/mfn-rate/{htsCode}", "12345678"))
@@ -31,6 +31,14 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import csd.tariff.backend.controller.ProductController;
+import csd.tariff.backend.dto.CursorPage;
+import csd.tariff.backend.dto.ProductDTOs.AutocompleteResponse;
+import csd.tariff.backend.dto.ProductDTOs.HtsPrefixCount;
+import csd.tariff.backend.dto.ProductDTOs.ProductMatch;
+import csd.tariff.backend.dto.ProductDTOs.ProductSearchHit;
+import csd.tariff.backend.dto.ProductDTOs.ProductSearchPage;
+import csd.tariff.backend.dto.ProductDTOs.ProductSuggestion;
+import csd.tariff.backend.dto.ProductSummary;
 import csd.tariff.backend.model.Product;
 import csd.tariff.backend.service.ProductService;
 
@@ -86,7 +94,7 @@ class ProductControllerUnitTest {
     @DisplayName("Should get all products successfully")
     void getAllProducts_ShouldReturnAllProducts() throws Exception {
         // Arrange
-        List<Product> products = Arrays.asList(testProduct);
+        List<ProductSummary> products = Arrays.asList(ProductSummary.from(testProduct));
         when(productService.getAllProducts()).thenReturn(products);
 
         // Act & Assert
@@ -104,6 +112,21 @@ class ProductControllerUnitTest {
         verify(productService, times(1)).getAllProducts();
     }
 
+    @Test
+    @DisplayName("Should return a cursor page when a limit is given")
+    void getProductPage_ShouldReturnCursorPage_WhenLimitGiven() throws Exception {
+        // Arrange
+        when(productService.getProductPage(5L, 1)).thenReturn(new CursorPage<>(List.of(testProduct), 1L));
+
+        // Act & Assert
+        mockMvc.perform(get("/products").param("limit", "1").param("cursor", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].hts8").value("12345678"))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+
+        verify(productService, times(1)).getProductPage(5L, 1);
+    }
+
     @Test
     @DisplayName("Should return empty list when no products exist")
     void getAllProducts_ShouldReturnEmptyList_WhenNoProducts() throws Exception {
@@ -131,7 +154,7 @@ class ProductControllerUnitTest {
         product2.setQuantity1Code("MT");
         product2.setQuantity2Code("M3");
 
-        List<Product> products = Arrays.asList(testProduct, product2);
+        List<ProductSummary> products = Arrays.asList(ProductSummary.from(testProduct), ProductSummary.from(product2));
         when(productService.getAllProducts()).thenReturn(products);
 
         // Act & Assert
@@ -592,4 +615,73 @@ class ProductControllerUnitTest {
 
         verify(productService, times(1)).createProduct(any(Product.class));
     }
+
+    @Test
+    @DisplayName("Should return autocomplete suggestions for an HTS prefix")
+    void autocomplete_ShouldReturnSuggestions() throws Exception {
+        // Arrange
+        AutocompleteResponse response = new AutocompleteResponse("1234", "heading", 1,
+            List.of(new HtsPrefixCount("123456", "subheading", 1)),
+            List.of(new ProductSuggestion("12345678", "Test Product Description", "Free")));
+        when(productService.autocomplete("1234", 5)).thenReturn(response);
+
+        // Act & Assert
+        mockMvc.perform(get("/products/autocomplete").param("prefix", "1234").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.children[0].prefix").value("123456"))
+                .andExpect(jsonPath("$.suggestions[0].hts8").value("12345678"))
+                .andExpect(jsonPath("$.suggestions[0].mfnRate").value("Free"));
+
+        verify(productService, times(1)).autocomplete("1234", 5);
+    }
+
+    @Test
+    @DisplayName("Should return 400 for an invalid autocomplete prefix")
+    void autocomplete_ShouldReturnBadRequest_WhenPrefixInvalid() throws Exception {
+        // Arrange
+        when(productService.autocomplete("84A", 10))
+                .thenThrow(new IllegalArgumentException("HTS prefix must be up to 8 digits"));
+
+        // Act & Assert
+        mockMvc.perform(get("/products/autocomplete").param("prefix", "84A"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("HTS prefix must be up to 8 digits"));
+    }
+
+    @Test
+    @DisplayName("Should return a ranked search page with its next cursor")
+    void searchProducts_ShouldReturnPage() throws Exception {
+        // Arrange
+        ProductSearchPage page = new ProductSearchPage("test",
+            List.of(new ProductSearchHit(1L, "12345678", "Test Product Description", 0.5f,
+                "<b>Test</b> Product Description")),
+            "next");
+        when(productService.searchProducts("test", 20, null)).thenReturn(page);
+
+        // Act & Assert
+        mockMvc.perform(get("/products/search").param("q", "test"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].hts8").value("12345678"))
+                .andExpect(jsonPath("$.results[0].snippet").value("<b>Test</b> Product Description"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(productService, times(1)).searchProducts("test", 20, null);
+    }
+
+    @Test
+    @DisplayName("Should return classification suggestions for a description")
+    void suggestProducts_ShouldReturnMatches() throws Exception {
+        // Arrange
+        when(productService.suggestProducts("portable computer", 10))
+                .thenReturn(List.of(new ProductMatch(1L, "12345678", "Test Product Description", 2.5f)));
+
+        // Act & Assert
+        mockMvc.perform(get("/products/suggest").param("q", "portable computer"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hts8").value("12345678"))
+                .andExpect(jsonPath("$[0].score").value(2.5));
+
+        verify(productService, times(1)).suggestProducts("portable computer", 10);
+    }
 }
@@ -1,6 +1,7 @@
 package csd.tariff.backend.controller;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -17,6 +18,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -24,6 +26,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -189,6 +192,26 @@ class TariffCalculationControllerUnitTest {
         verify(tariffCalculationService, times(1)).getTariffCalculationById(1L);
     }
 
+    @Test
+    @DisplayName("Should answer 304 for a saved calculation whose row has not changed")
+    void getTariffCalculationById_ShouldReturnNotModified_WhenRowUnchanged() throws Exception {
+        // Arrange
+        testCalculation.setScheduleVersion(7L);
+        testCalculation.setUpdatedAt(LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+        when(tariffCalculationService.getTariffCalculationById(1L)).thenReturn(Optional.of(testCalculation));
+        String etag = mockMvc.perform(get("/tariff/calculate/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Act & Assert
+        mockMvc.perform(get("/tariff/calculate/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        testCalculation.setScheduleVersion(8L);
+        mockMvc.perform(get("/tariff/calculate/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName("Should return not found when tariff calculation does not exist")
     void getTariffCalculationById_ShouldReturnNotFound_WhenNotExists() throws Exception {
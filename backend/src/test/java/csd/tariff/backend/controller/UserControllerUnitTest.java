@@ -28,7 +28,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 
 import csd.tariff.backend.controller.UserController;
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.User;
+import csd.tariff.backend.service.JsonArrayStreamer;
 import csd.tariff.backend.service.UserService;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,6 +43,9 @@ class UserControllerUnitTest {
     @Mock
     private Authentication authentication;
 
+    @Mock
+    private JsonArrayStreamer jsonArrayStreamer;
+
     private UserController userController;
 
     private User testUser;
@@ -48,7 +53,7 @@ class UserControllerUnitTest {
 
     @BeforeEach
     void setUp() {
-        userController = new UserController(userService);
+        userController = new UserController(userService, jsonArrayStreamer);
         
         testUser = new User();
         testUser.setUsername("testuser");
@@ -88,6 +93,23 @@ class UserControllerUnitTest {
         verify(userService, times(1)).getAllUsers();
     }
 
+    @Test
+    @DisplayName("Should return a cursor page of user summaries when a limit is given")
+    void getUserPage_ShouldReturnSummaryPage() {
+        // Arrange
+        when(userService.getUserPage(5L, 1)).thenReturn(new CursorPage<>(List.of(testAdminUser), 6L));
+
+        // Act
+        ResponseEntity<CursorPage<UserController.UserSummary>> response = userController.getUserPage(5L, 1);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(1, response.getBody().items().size());
+        assertEquals(testAdminUser.getUsername(), response.getBody().items().get(0).username());
+        assertEquals(6L, response.getBody().nextCursor());
+    }
+
     @Test
     @DisplayName("Should get user by ID successfully")
     void getUserById_ShouldReturnUser() {
@@ -8,17 +8,28 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.TestPropertySource;
 
+import csd.tariff.backend.dto.MfnRateView;
+import csd.tariff.backend.dto.ProductSummary;
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.Country;
+import csd.tariff.backend.model.MfnTariffRate;
 import csd.tariff.backend.model.Product;
 import csd.tariff.backend.model.TariffCalculation;
+import csd.tariff.backend.model.TradeAgreement;
 import csd.tariff.backend.model.User;
 
 /**
@@ -55,6 +66,13 @@ class RepositoryTests {
     private TariffCalculation testCalculation;
     private User testUser;
 
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
     @BeforeEach
     void setUp() {
         // Create test product
@@ -208,6 +226,130 @@ class RepositoryTests {
         assertEquals("New Test Product", saved.getBriefDescription());
     }
 
+    @Test
+    @DisplayName("Should page description matches by ID after the keyset position")
+    void findByBriefDescriptionContainingAfterId_ShouldReturnNextPage() {
+        // Given
+        Product second = new Product();
+        second.setHts8("87654321");
+        second.setBriefDescription("Another test product");
+        second = entityManager.persistAndFlush(second);
+
+        // When
+        List<Product> firstPage = productRepository.findByBriefDescriptionContainingAfterId(
+            "TEST PRODUCT", 0L, PageRequest.of(0, 1));
+        List<Product> nextPage = productRepository.findByBriefDescriptionContainingAfterId(
+            "TEST PRODUCT", firstPage.get(0).getId(), PageRequest.of(0, 1));
+
+        // Then
+        assertEquals(1, firstPage.size());
+        assertEquals(testProduct.getId(), firstPage.get(0).getId());
+        assertEquals(1, nextPage.size());
+        assertEquals(second.getId(), nextPage.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Should list product summaries in one statement without loading entities")
+    void findAllSummaries_ShouldSelectColumnsOnly() {
+        // Given
+        entityManager.clear();
+        Statistics statistics = statistics();
+
+        // When
+        List<ProductSummary> summaries = productRepository.findAllSummaries();
+
+        // Then
+        assertEquals(1, summaries.size());
+        assertEquals("12345678", summaries.get(0).hts8());
+        assertEquals("Test Product", summaries.get(0).briefDescription());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("Should read MFN rate views with their HTS code in one statement each")
+    void findAllViews_ShouldJoinProductOnce() {
+        // Given
+        MfnTariffRate rate = new MfnTariffRate();
+        rate.setProduct(testProduct);
+        rate.setMfnTextRate("2.5%");
+        rate.setMfnadValoremRate(new BigDecimal("0.025"));
+        entityManager.persistAndFlush(rate);
+        entityManager.clear();
+        Statistics statistics = statistics();
+
+        // When
+        List<MfnRateView> views = mfnTariffRateRepository.findAllViews();
+        Optional<MfnRateView> detail = mfnTariffRateRepository.findViewByHts8("12345678");
+
+        // Then
+        assertEquals(1, views.size());
+        assertEquals("12345678", views.get(0).hts8());
+        assertEquals("2.5%", views.get(0).mfnTextRate());
+        assertTrue(detail.isPresent());
+        assertEquals(rate.getId(), detail.get().id());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("Should read products, MFN rows and agreement rates of a set of codes in one statement")
+    void findScheduleRows_ShouldReadScheduleInOneStatement() {
+        // Given
+        Country us = entityManager.persist(new Country("US", "United States"));
+        Country ca = entityManager.persist(new Country("CA", "Canada"));
+        TradeAgreement usmca = entityManager.persist(
+            new TradeAgreement("USMCA", "United States-Mexico-Canada Agreement", "FTA"));
+        MfnTariffRate rate = new MfnTariffRate();
+        rate.setProduct(testProduct);
+        rate.setMfnTextRate("2.5%");
+        entityManager.persist(rate);
+        AgreementRate intoUs = entityManager.persist(new AgreementRate(testProduct, usmca, us));
+        entityManager.persist(new AgreementRate(testProduct, usmca, ca));
+        Product other = new Product();
+        other.setHts8("87654321");
+        other.setBriefDescription("Other Product");
+        entityManager.persistAndFlush(other);
+        entityManager.clear();
+        Statistics statistics = statistics();
+
+        // When
+        List<Object[]> rows = productRepository.findScheduleRows(List.of("12345678", "87654321"), List.of("US"));
+
+        // Then
+        assertEquals(2, rows.size());
+        Object[] first = rows.get(0);
+        assertEquals("12345678", ((Product) first[0]).getHts8());
+        assertEquals("2.5%", ((MfnTariffRate) first[1]).getMfnTextRate());
+        assertEquals(intoUs.getId(), ((AgreementRate) first[2]).getId());
+        assertSame(first[3], ((AgreementRate) first[2]).getAgreement());
+        assertEquals("US", ((AgreementRate) first[2]).getCountry().getCountryCode());
+        assertEquals("87654321", ((Product) rows.get(1)[0]).getHts8());
+        assertNull(rows.get(1)[1]);
+        assertNull(rows.get(1)[2]);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should find products and MFN rows of a set of codes")
+    void findByHts8In_ShouldReturnRowsOfEveryCode() {
+        // Given
+        MfnTariffRate rate = new MfnTariffRate();
+        rate.setProduct(testProduct);
+        rate.setMfnTextRate("Free");
+        entityManager.persistAndFlush(rate);
+        entityManager.clear();
+
+        // When
+        List<Product> products = productRepository.findByHts8In(List.of("12345678", "99999999"));
+        List<MfnTariffRate> rates = mfnTariffRateRepository.findByHts8In(List.of("12345678"));
+
+        // Then
+        assertEquals(1, products.size());
+        assertEquals(1, rates.size());
+        assertEquals("12345678", rates.get(0).getProduct().getHts8());
+    }
+
     @Test
     @DisplayName("Should find user by username")
     void findUserByUsername_ShouldReturnUser() {
@@ -20,10 +20,11 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 
 import csd.tariff.backend.security.JwtAuthFilter;
 import csd.tariff.backend.service.JwtService;
+import csd.tariff.backend.service.UserPrincipalService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.DispatcherType;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -35,16 +36,19 @@ class JwtAuthFilterTest {
     private JwtService jwtService;
 
     @Mock
-    private UserDetailsService userDetailsService;
+    private UserPrincipalService userPrincipalService;
 
     @Mock
     private FilterChain filterChain;
 
+    @Mock
+    private Claims claims;
+
     private JwtAuthFilter jwtAuthFilter;
 
     @BeforeEach
     void setUp() {
-        jwtAuthFilter = new JwtAuthFilter(jwtService, userDetailsService);
+        jwtAuthFilter = new JwtAuthFilter(jwtService, userPrincipalService);
         // Clear security context before each test
         SecurityContextHolder.clearContext();
     }
@@ -61,7 +65,7 @@ class JwtAuthFilterTest {
 
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService, never()).extractEmail(anyString());
+        verify(jwtService, never()).parseClaims(anyString());
     }
 
     @Test
@@ -76,7 +80,7 @@ class JwtAuthFilterTest {
 
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService, never()).extractEmail(anyString());
+        verify(jwtService, never()).parseClaims(anyString());
     }
 
     @Test
@@ -99,7 +103,7 @@ class JwtAuthFilterTest {
 
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService, never()).extractEmail(anyString());
+        verify(jwtService, never()).parseClaims(anyString());
     }
 
     @Test
@@ -113,7 +117,7 @@ class JwtAuthFilterTest {
 
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService, never()).extractEmail(anyString());
+        verify(jwtService, never()).parseClaims(anyString());
     }
 
     @Test
@@ -128,7 +132,7 @@ class JwtAuthFilterTest {
 
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService, never()).extractEmail(anyString());
+        verify(jwtService, never()).parseClaims(anyString());
     }
 
     @Test
@@ -144,18 +148,19 @@ class JwtAuthFilterTest {
                 .authorities("ROLE_USER")
                 .build();
 
-        when(jwtService.extractEmail("valid-token")).thenReturn("test@example.com");
-        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(userDetails);
-        when(jwtService.isValid("valid-token", userDetails)).thenReturn(true);
+        when(jwtService.parseClaims("valid-token")).thenReturn(claims);
+        when(claims.getSubject()).thenReturn("test@example.com");
+        when(userPrincipalService.resolve(claims)).thenReturn(userDetails);
+        when(jwtService.isValidClaims(claims, userDetails)).thenReturn(true);
 
         // Act
         jwtAuthFilter.doFilter(request, response, filterChain);
 
         // Assert
         verify(filterChain).doFilter(request, response);
-        verify(jwtService).extractEmail("valid-token");
-        verify(userDetailsService).loadUserByUsername("test@example.com");
-        verify(jwtService).isValid("valid-token", userDetails);
+        verify(jwtService).parseClaims("valid-token");
+        verify(userPrincipalService).resolve(claims);
+        verify(jwtService).isValidClaims(claims, userDetails);
         
         // Verify authentication was set
         assertNotNull(SecurityContextHolder.getContext().getAuthentication());
@@ -174,9 +179,10 @@ class JwtAuthFilterTest {
                 .authorities("ROLE_USER")
                 .build();
 
-        when(jwtService.extractEmail("invalid-token")).thenReturn("test@example.com");
-        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(userDetails);
-        when(jwtService.isValid("invalid-token", userDetails)).thenReturn(false);
+        when(jwtService.parseClaims("invalid-token")).thenReturn(claims);
+        when(claims.getSubject()).thenReturn("test@example.com");
+        when(userPrincipalService.resolve(claims)).thenReturn(userDetails);
+        when(jwtService.isValidClaims(claims, userDetails)).thenReturn(false);
 
         // Act
         jwtAuthFilter.doFilter(request, response, filterChain);
@@ -193,7 +199,7 @@ class JwtAuthFilterTest {
         MockHttpServletResponse response = new MockHttpServletResponse();
         request.addHeader("Authorization", "Bearer expired-token");
 
-        when(jwtService.extractEmail("expired-token"))
+        when(jwtService.parseClaims("expired-token"))
                 .thenThrow(new io.jsonwebtoken.ExpiredJwtException(null, null, "Token expired"));
 
         // Act
@@ -211,7 +217,7 @@ class JwtAuthFilterTest {
         MockHttpServletResponse response = new MockHttpServletResponse();
         request.addHeader("Authorization", "Bearer malformed-token");
 
-        when(jwtService.extractEmail("malformed-token"))
+        when(jwtService.parseClaims("malformed-token"))
                 .thenThrow(new io.jsonwebtoken.JwtException("Malformed token"));
 
         // Act
@@ -229,8 +235,9 @@ class JwtAuthFilterTest {
         MockHttpServletResponse response = new MockHttpServletResponse();
         request.addHeader("Authorization", "Bearer valid-token");
 
-        when(jwtService.extractEmail("valid-token")).thenReturn("nonexistent@example.com");
-        when(userDetailsService.loadUserByUsername("nonexistent@example.com"))
+        when(jwtService.parseClaims("valid-token")).thenReturn(claims);
+        when(claims.getSubject()).thenReturn("nonexistent@example.com");
+        when(userPrincipalService.resolve(claims))
                 .thenThrow(new org.springframework.security.core.userdetails.UsernameNotFoundException("User not found"));
 
         // Act & Assert
@@ -7,6 +7,7 @@ import java.util.Collections;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -541,6 +542,53 @@ class JwtServiceComprehensiveTest {
         assertFalse(isValid);
     }
 
+    @Test
+    @DisplayName("Should return cached claims for a repeated token")
+    void parseClaims_ShouldReturnCachedClaims_ForRepeatedToken() {
+        // Arrange
+        String token = jwtService.generate("test@example.com", testAuthorities);
+        Claims first = jwtService.parseClaims(token);
+
+        // Act
+        Claims second = jwtService.parseClaims(token);
+
+        // Assert
+        assertSame(first, second);
+        assertTrue(jwtService.isValidClaims(second, testUserDetails));
+    }
+
+    @Test
+    @DisplayName("Should verify a cached token again after the secret changes")
+    void parseClaims_ShouldRejectCachedToken_AfterSecretChanges() {
+        // Arrange
+        String token = jwtService.generate("test@example.com", testAuthorities);
+        jwtService.parseClaims(token);
+        ReflectionTestUtils.setField(jwtService, "secret", "rotatedSecretKeyForJwtServiceTestingPurposesOnlyMustBeLongEnough");
+
+        // Act & Assert
+        assertThrows(JwtException.class, () -> jwtService.parseClaims(token));
+        assertFalse(jwtService.isValid(token, testUserDetails));
+    }
+
+    @Test
+    @DisplayName("Should keep verifying tokens once the cache is full")
+    void parseClaims_ShouldKeepVerifying_WhenCacheIsFull() {
+        // Arrange
+        ReflectionTestUtils.setField(jwtService, "cacheSize", 2);
+        String first = jwtService.generate("first@example.com", null);
+        String second = jwtService.generate("second@example.com", null);
+        String third = jwtService.generate("third@example.com", null);
+
+        // Act
+        jwtService.parseClaims(first);
+        jwtService.parseClaims(second);
+        Claims claims = jwtService.parseClaims(third);
+
+        // Assert
+        assertEquals("third@example.com", claims.getSubject());
+        assertEquals("first@example.com", jwtService.extractEmail(first));
+    }
+
     // ===== HELPER CLASS =====
 
     private static class TestGrantedAuthority implements GrantedAuthority {
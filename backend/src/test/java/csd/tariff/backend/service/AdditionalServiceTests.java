@@ -81,6 +81,15 @@ class AdditionalServiceTests {
     @Mock
     private CurrencyService currencyService;
 
+    @Mock
+    private TariffScheduleService tariffScheduleService;
+
+    @Mock
+    private DatasetVersionService datasetVersionService;
+
+    @Mock
+    private ScheduleVersionService scheduleVersionService;
+
     @InjectMocks
     private TariffCalculationServiceImpl tariffCalculationService;
 
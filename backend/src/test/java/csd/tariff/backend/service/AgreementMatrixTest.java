@@ -0,0 +1,81 @@
+package csd.tariff.backend.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import csd.tariff.backend.model.AgreementParticipant;
+import csd.tariff.backend.model.Country;
+import csd.tariff.backend.model.TradeAgreement;
+
+/**
+ * Unit tests for AgreementMatrix membership and active-program lookups
+ */
+@DisplayName("AgreementMatrix Unit Tests")
+class AgreementMatrixTest {
+
+    private static final Country US = new Country("US", "United States");
+    private static final Country MX = new Country("MX", "Mexico");
+    private static final Country CA = new Country("CA", "Canada");
+
+    private static TradeAgreement agreement(String code, LocalDate effective, LocalDate expiration) {
+        TradeAgreement agreement = new TradeAgreement(code, code + " Agreement", "FTA");
+        agreement.setEffectiveDate(effective);
+        agreement.setExpirationDate(expiration);
+        return agreement;
+    }
+
+    @Test
+    @DisplayName("Should intersect memberships across bitset words")
+    void between_ShouldIntersectMemberships() {
+        // Arrange: 130 agreements so membership spans three words
+        List<AgreementParticipant> participants = new ArrayList<>();
+        List<TradeAgreement> shared = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            TradeAgreement agreement = agreement("A" + i, LocalDate.of(2000, 1, 1), null);
+            participants.add(new AgreementParticipant(agreement, US, "PARTNER"));
+            if (i % 3 == 0) {
+                participants.add(new AgreementParticipant(agreement, MX, "PARTNER"));
+                shared.add(agreement);
+            }
+        }
+        participants.add(new AgreementParticipant(shared.get(0), MX, "PARTNER"));
+
+        // Act
+        AgreementMatrix matrix = AgreementMatrix.of(participants);
+
+        // Assert
+        assertEquals(shared, matrix.between("us", "MX"));
+        assertEquals(shared, matrix.between("MX", "US"));
+        assertEquals(130, matrix.agreementCount());
+        assertTrue(matrix.between("US", "CA").isEmpty());
+        assertTrue(matrix.between(null, "US").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should list only programs active on the date")
+    void activePrograms_ShouldFilterByDate() {
+        // Arrange
+        TradeAgreement usmca = agreement("USMCA", LocalDate.of(2020, 7, 1), null);
+        TradeAgreement nafta = agreement("NAFTA", LocalDate.of(1994, 1, 1), LocalDate.of(2020, 6, 30));
+        TradeAgreement undated = agreement("GSP", null, null);
+        List<AgreementParticipant> participants = new ArrayList<>();
+        for (TradeAgreement agreement : List.of(usmca, nafta, undated)) {
+            participants.add(new AgreementParticipant(agreement, US, "PARTNER"));
+            participants.add(new AgreementParticipant(agreement, CA, "PARTNER"));
+        }
+        AgreementMatrix matrix = AgreementMatrix.of(participants);
+
+        // Act & Assert
+        assertEquals(List.of("NAFTA - NAFTA Agreement"), matrix.activePrograms("US", "CA", LocalDate.of(2019, 1, 1)));
+        assertEquals(List.of(), matrix.activePrograms("US", "CA", LocalDate.of(2020, 7, 1)));
+        assertEquals(List.of("USMCA - USMCA Agreement"), matrix.activePrograms("US", "CA", LocalDate.of(2020, 7, 2)));
+        assertEquals(List.of("USMCA - USMCA Agreement"), matrix.activePrograms("CA", "US", LocalDate.now()));
+        assertEquals(List.of(), matrix.activePrograms("CA", "JP", LocalDate.now()));
+    }
+}
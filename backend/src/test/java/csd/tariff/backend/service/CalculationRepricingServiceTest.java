@@ -0,0 +1,177 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import csd.tariff.backend.dto.TariffCalculationRequest;
+import csd.tariff.backend.dto.TariffCalculationResponse;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingProgress;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingScope;
+import csd.tariff.backend.service.CalculationRepricingService.Status;
+import csd.tariff.backend.service.CalculationRepricingService.StoredCalculation;
+
+/**
+ * Unit tests for CalculationRepricingService scope merging and chunk re-pricing
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CalculationRepricingService Unit Tests")
+class CalculationRepricingServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TariffCalculationService tariffCalculationService;
+
+    @Mock
+    private TariffCalculationWriter tariffCalculationWriter;
+
+    @Mock
+    private ScheduleVersionService scheduleVersionService;
+
+    @Mock
+    private TariffScheduleLookup lookup;
+
+    private CalculationRepricingService repricingService;
+
+    private static final LocalDate PRICED_ON = LocalDate.of(2025, 3, 12);
+
+    private static final LocalDate FX_DATE = LocalDate.of(2025, 3, 14);
+
+    @BeforeEach
+    void setUp() {
+        repricingService = new CalculationRepricingService(jdbcTemplate, transactionManager, tariffCalculationService,
+            tariffCalculationWriter, scheduleVersionService, 10);
+    }
+
+    private static StoredCalculation stored(long id, String totalTariff, String importPrice) {
+        return new StoredCalculation(id, "12345678", "MX", "US", new BigDecimal("1000.00"), 10, "USD", null, null,
+            new BigDecimal(totalTariff), new BigDecimal(importPrice), 3L, PRICED_ON, FX_DATE);
+    }
+
+    private static TariffCalculationResponse priced(String totalTariff, String importPrice) {
+        TariffCalculationResponse response = new TariffCalculationResponse();
+        response.setTotalTariffAmount(new BigDecimal(totalTariff));
+        response.setTotalImportPrice(new BigDecimal(importPrice));
+        return response;
+    }
+
+    @Test
+    @DisplayName("Should drop destination scopes an all-destination scope for the same code covers")
+    void merge_ShouldDropCoveredScopes() {
+        // Act
+        List<RepricingScope> merged = CalculationRepricingService.merge(List.of(
+            new RepricingScope("12345678", "US"),
+            RepricingScope.of("12345678"),
+            new RepricingScope("87654321", "US"),
+            new RepricingScope("87654321", "US")));
+
+        // Assert
+        assertEquals(List.of(RepricingScope.of("12345678"), new RepricingScope("87654321", "US")), merged);
+    }
+
+    @Test
+    @DisplayName("Should write and report only the calculations whose totals changed on their own pricing day")
+    @SuppressWarnings("unchecked")
+    void reprice_ShouldUpdateOnlyChangedRows() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("MFN rate updated"), eq(1))).thenReturn(7L);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("12345678"), eq(""), eq(0L), eq(10)))
+            .thenReturn(List.of(stored(1L, "100.00", "1100.00"), stored(2L, "100.00", "1100.00")));
+        when(tariffCalculationService.getScheduleLookup(anySet(), anySet())).thenReturn(lookup);
+        when(lookup.getScheduleVersion()).thenReturn(9L);
+        when(tariffCalculationService.calculateTariffCalculation(
+                any(TariffCalculationRequest.class), eq(lookup), eq(PRICED_ON), eq(FX_DATE)))
+            .thenReturn(priced("100.004", "1100.00"), priced("120.00", "1120.00"));
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE tariff.calculations"), anyList())).thenReturn(new int[] {1});
+
+        // Act
+        RepricingProgress done = repricingService.reprice("MFN rate updated", List.of(RepricingScope.of("12345678")));
+
+        // Assert
+        assertEquals(Status.COMPLETED, done.status());
+        assertEquals(2, done.rowsScanned());
+        assertEquals(1, done.rowsRepriced());
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE tariff.calculations"), updates.capture());
+        assertEquals(1, updates.getValue().size());
+        assertArrayEquals(new Object[] {new BigDecimal("120.00"), new BigDecimal("1120.00"), 9L, 2L,
+            new BigDecimal("100.00"), new BigDecimal("1100.00")}, updates.getValue().get(0));
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO tariff.repricing_changes"), anyList());
+        verify(tariffCalculationWriter).flush();
+    }
+
+    @Test
+    @DisplayName("Should not rewrite calculations whose rate on their pricing day is unchanged")
+    @SuppressWarnings("unchecked")
+    void reprice_ShouldKeepRowsAndScheduleVersion_WhenDatedRateUnchanged() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("MFN rate updated"), eq(1))).thenReturn(7L);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("12345678"), eq(""), eq(0L), eq(10)))
+            .thenReturn(List.of(stored(1L, "100.00", "1100.00")));
+        when(tariffCalculationService.getScheduleLookup(anySet(), anySet())).thenReturn(lookup);
+        when(lookup.getScheduleVersion()).thenReturn(9L);
+        when(tariffCalculationService.calculateTariffCalculation(
+                any(TariffCalculationRequest.class), eq(lookup), eq(PRICED_ON), eq(FX_DATE)))
+            .thenReturn(priced("100.00", "1100.00"));
+
+        // Act
+        RepricingProgress done = repricingService.reprice("MFN rate updated", List.of(RepricingScope.of("12345678")));
+
+        // Assert
+        assertEquals(1, done.rowsScanned());
+        assertEquals(0, done.rowsRepriced());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Should leave calculations that can no longer be priced and count them as failed")
+    @SuppressWarnings("unchecked")
+    void reprice_ShouldCountFailures_WhenPricingThrows() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), anyString(), eq(1))).thenReturn(8L);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("12345678"), eq("US"), eq(0L), eq(10)))
+            .thenReturn(List.of(stored(1L, "100.00", "1100.00")));
+        when(tariffCalculationService.getScheduleLookup(anySet(), anySet())).thenReturn(lookup);
+        when(tariffCalculationService.calculateTariffCalculation(
+                any(TariffCalculationRequest.class), eq(lookup), eq(PRICED_ON), eq(FX_DATE)))
+            .thenThrow(new RuntimeException("Invalid HTS code"));
+
+        // Act
+        RepricingProgress done = repricingService.reprice("MFN rate deleted",
+            List.of(new RepricingScope("12345678", "US")));
+
+        // Assert
+        assertEquals(1, done.rowsFailed());
+        assertEquals(0, done.rowsRepriced());
+        assertTrue(done.message().contains("1 could not be priced"));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}
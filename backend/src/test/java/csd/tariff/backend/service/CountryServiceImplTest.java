@@ -23,12 +23,16 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.model.Country;
 import csd.tariff.backend.repository.CountryRepository;
 import csd.tariff.backend.service.CountryServiceImpl;
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
 
 /**
  * Tests for CountryServiceImpl
@@ -41,6 +45,9 @@ class CountryServiceImplTest {
     @Mock
     private CountryRepository countryRepository;
 
+    @Mock
+    private DatasetVersionService datasetVersionService;
+
     @InjectMocks
     private CountryServiceImpl countryService;
 
@@ -114,6 +121,38 @@ class CountryServiceImplTest {
         verify(countryRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("Should return a page with a cursor when more countries follow")
+    void getCountryPage_ShouldReturnNextCursor_WhenMoreRowsExist() {
+        // Arrange
+        setId(testCountry, 2L);
+        Country third = new Country();
+        setId(third, 3L);
+        when(countryRepository.findPageAfterId(0L, PageRequest.of(0, 3)))
+            .thenReturn(Arrays.asList(existingCountry, testCountry, third));
+
+        // Act
+        CursorPage<Country> page = countryService.getCountryPage(null, 2);
+
+        // Assert
+        assertEquals(Arrays.asList(existingCountry, testCountry), page.items());
+        assertEquals(2L, page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should return the last page of countries without a cursor")
+    void getCountryPage_ShouldReturnNullCursor_WhenLastPage() {
+        // Arrange
+        when(countryRepository.findPageAfterId(1L, PageRequest.of(0, 3))).thenReturn(List.of(testCountry));
+
+        // Act
+        CursorPage<Country> page = countryService.getCountryPage(1L, 2);
+
+        // Assert
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
     // ===== Create Country Tests =====
 
     @Test
@@ -144,6 +183,7 @@ class CountryServiceImplTest {
         assertEquals("MXN", result.getCurrency());
         verify(countryRepository, times(1)).findByCountryCode("MX");
         verify(countryRepository, times(1)).save(any(Country.class));
+        verify(datasetVersionService, times(1)).bump(Dataset.COUNTRIES);
     }
 
     @Test
@@ -275,6 +315,7 @@ class CountryServiceImplTest {
         assertEquals("A country with this code already exists.", exception.getMessage());
         verify(countryRepository, times(1)).findByCountryCode("US");
         verify(countryRepository, never()).save(any(Country.class));
+        verifyNoInteractions(datasetVersionService);
     }
 
     @Test
@@ -493,6 +534,7 @@ class CountryServiceImplTest {
         // Then
         verify(countryRepository, times(1)).findById(1L);
         verify(countryRepository, times(1)).delete(existingCountry);
+        verify(datasetVersionService, times(1)).bump(Dataset.COUNTRIES);
     }
 
     @Test
@@ -2,6 +2,7 @@ package csd.tariff.backend.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -38,6 +39,12 @@ class CurrencyServiceTest {
     @Mock
     private CurrencyExchangeRateRepository currencyExchangeRateRepository;
 
+    @Mock
+    private FxRateService fxRateService;
+
+    @Mock
+    private FxRateHistoryService fxRateHistoryService;
+
     @InjectMocks
     private CurrencyService currencyService;
 
@@ -179,13 +186,13 @@ class CurrencyServiceTest {
     // ===== Currency Conversion Tests (Specific Date) =====
 
     @Test
-    @DisplayName("Should convert currency using specific date exchange rate")
-    void convertCurrencyWithDate_ShouldConvertUsingSpecificDateRate() {
+    @DisplayName("Should convert currency using the rate in effect on the date")
+    void convertCurrencyWithDate_ShouldConvertUsingRateInEffect() {
         // Given
         BigDecimal amount = new BigDecimal("100.00");
         LocalDate specificDate = LocalDate.of(2024, 1, 15);
-        when(currencyExchangeRateRepository.findExchangeRateByDate("USD", "EUR", specificDate))
-                .thenReturn(Optional.of(testExchangeRate));
+        when(fxRateHistoryService.rateOn("USD", "EUR", specificDate))
+                .thenReturn(Optional.of(new BigDecimal("0.850000")));
 
         // When
         BigDecimal result = currencyService.convertCurrency(amount, "USD", "EUR", specificDate);
@@ -193,39 +200,16 @@ class CurrencyServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(new BigDecimal("85.00"), result);
-        verify(currencyExchangeRateRepository, times(1)).findExchangeRateByDate("USD", "EUR", specificDate);
-    }
-
-    @Test
-    @DisplayName("Should convert currency using reverse rate for specific date")
-    void convertCurrencyWithDate_ShouldConvertUsingReverseRateForSpecificDate() {
-        // Given
-        BigDecimal amount = new BigDecimal("100.00");
-        LocalDate specificDate = LocalDate.of(2024, 1, 15);
-        when(currencyExchangeRateRepository.findExchangeRateByDate("EUR", "USD", specificDate))
-                .thenReturn(Optional.empty());
-        when(currencyExchangeRateRepository.findExchangeRateByDate("USD", "EUR", specificDate))
-                .thenReturn(Optional.of(reverseExchangeRate));
-
-        // When
-        BigDecimal result = currencyService.convertCurrency(amount, "EUR", "USD", specificDate);
-
-        // Then
-        assertNotNull(result);
-        assertEquals(new BigDecimal("84.75"), result); // 100 / 1.18 = 84.75
-        verify(currencyExchangeRateRepository, times(1)).findExchangeRateByDate("EUR", "USD", specificDate);
-        verify(currencyExchangeRateRepository, times(1)).findExchangeRateByDate("USD", "EUR", specificDate);
+        verify(currencyExchangeRateRepository, never()).findLatestExchangeRate(anyString(), anyString(), any());
     }
 
     @Test
-    @DisplayName("Should fallback to latest rate when specific date not found")
+    @DisplayName("Should fallback to latest rate when no rate is in effect on the date")
     void convertCurrencyWithDate_ShouldFallbackToLatestRate() {
         // Given
         BigDecimal amount = new BigDecimal("100.00");
         LocalDate specificDate = LocalDate.of(2024, 1, 15);
-        when(currencyExchangeRateRepository.findExchangeRateByDate("USD", "EUR", specificDate))
-                .thenReturn(Optional.empty());
-        when(currencyExchangeRateRepository.findExchangeRateByDate("EUR", "USD", specificDate))
+        when(fxRateHistoryService.rateOn("USD", "EUR", specificDate))
                 .thenReturn(Optional.empty());
         when(currencyExchangeRateRepository.findLatestExchangeRate("USD", "EUR", LocalDate.now()))
                 .thenReturn(Optional.of(testExchangeRate));
@@ -236,8 +220,7 @@ class CurrencyServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(new BigDecimal("85.00"), result);
-        verify(currencyExchangeRateRepository, times(1)).findExchangeRateByDate("USD", "EUR", specificDate);
-        verify(currencyExchangeRateRepository, times(1)).findExchangeRateByDate("EUR", "USD", specificDate);
+        verify(fxRateHistoryService, times(1)).rateOn("USD", "EUR", specificDate);
         verify(currencyExchangeRateRepository, times(1)).findLatestExchangeRate("USD", "EUR", LocalDate.now());
     }
 
@@ -254,7 +237,7 @@ class CurrencyServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(amount, result);
-        verify(currencyExchangeRateRepository, never()).findExchangeRateByDate(anyString(), anyString(), any());
+        verify(fxRateHistoryService, never()).rateOn(anyString(), anyString(), any());
     }
 
     @Test
@@ -462,4 +445,45 @@ class CurrencyServiceTest {
         assertEquals(new BigDecimal("85.68"), result); // Rounded to 2 decimal places
         verify(currencyExchangeRateRepository, times(1)).findLatestExchangeRate("USD", "EUR", LocalDate.now());
     }
-}
\ No newline at end of file
+
+    // ===== In-Memory Rate Matrix Tests =====
+
+    @Test
+    @DisplayName("Should convert from the rate matrix without querying the database")
+    void convertCurrency_ShouldUseRateMatrix_WhenLoaded() {
+        // Given
+        when(fxRateService.current()).thenReturn(Optional.of(
+                FxRateMatrix.of(List.of(testExchangeRate), LocalDate.now())));
+
+        // When
+        BigDecimal direct = currencyService.convertCurrency(new BigDecimal("100.00"), "USD", "EUR");
+        BigDecimal reverse = currencyService.convertCurrency(new BigDecimal("100.00"), "EUR", "USD");
+        BigDecimal missing = currencyService.convertCurrency(new BigDecimal("100.00"), "USD", "JPY");
+
+        // Then
+        assertEquals(new BigDecimal("85.00"), direct);
+        assertEquals(new BigDecimal("117.65"), reverse); // 100 * (1 / 0.85 = 1.176471)
+        assertEquals(new BigDecimal("100.00"), missing);
+        verify(currencyExchangeRateRepository, never()).findLatestExchangeRate(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should return matrix rates including USD cross rates")
+    void getExchangeRate_ShouldUseRateMatrix_WhenLoaded() {
+        // Given
+        CurrencyExchangeRate usdToCad = new CurrencyExchangeRate();
+        usdToCad.setBaseCurrencyCode("USD");
+        usdToCad.setTargetCurrencyCode("CAD");
+        usdToCad.setExchangeRate(new BigDecimal("1.360000"));
+        usdToCad.setEffectiveDate(LocalDate.of(2024, 1, 1));
+        when(fxRateService.current()).thenReturn(Optional.of(
+                FxRateMatrix.of(List.of(testExchangeRate, usdToCad), LocalDate.now())));
+
+        // When
+        Optional<BigDecimal> result = currencyService.getExchangeRate("EUR", "CAD");
+
+        // Then
+        assertEquals(Optional.of(new BigDecimal("1.600001")), result); // 1.176471 * 1.36
+        verify(currencyExchangeRateRepository, never()).findLatestExchangeRate(anyString(), anyString(), any());
+    }
+}
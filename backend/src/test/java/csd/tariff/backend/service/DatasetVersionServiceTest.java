@@ -0,0 +1,198 @@
+package csd.tariff.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import csd.tariff.backend.service.DatasetVersionService.Dataset;
+import csd.tariff.backend.service.DatasetVersionService.Version;
+
+/**
+ * Unit tests for DatasetVersionService counters, shared and in-process, and validator matching
+ */
+@DisplayName("DatasetVersionService Unit Tests")
+class DatasetVersionServiceTest {
+
+    private final DatasetVersionService datasetVersionService = new DatasetVersionService(mock(JdbcTemplate.class), 1000);
+
+    @Test
+    @DisplayName("Should change only the ETags that include the bumped data set")
+    void bump_ShouldChangeEtagOfBumpedDatasetOnly() {
+        // Arrange
+        Version countries = datasetVersionService.current(Dataset.COUNTRIES);
+        Version products = datasetVersionService.current(Dataset.PRODUCTS, Dataset.MFN_RATES);
+
+        // Act
+        datasetVersionService.bump(Dataset.MFN_RATES);
+
+        // Assert
+        assertEquals(countries, datasetVersionService.current(Dataset.COUNTRIES));
+        assertNotEquals(products.etag(), datasetVersionService.current(Dataset.PRODUCTS, Dataset.MFN_RATES).etag());
+        assertTrue(datasetVersionService.current(Dataset.MFN_RATES).lastModified() >= products.lastModified());
+    }
+
+    @Test
+    @DisplayName("Should match strong, weak, listed and wildcard If-None-Match tags")
+    void matches_ShouldCompareEntityTags() {
+        // Arrange
+        Version version = datasetVersionService.current(Dataset.COUNTRIES);
+        String etag = version.etag();
+
+        // Act & Assert
+        assertTrue(version.matches(etag));
+        assertTrue(version.matches("W/" + etag));
+        assertTrue(version.matches("\"other\", " + etag));
+        assertTrue(version.matches("*"));
+        assertFalse(version.matches("\"other\""));
+        assertFalse(version.matches(null));
+    }
+
+    @Test
+    @DisplayName("Should compare If-Modified-Since at whole-second precision")
+    void notModifiedSince_ShouldIgnoreMilliseconds() {
+        // Arrange
+        Version version = new Version("\"v\"", 1_700_000_000_750L);
+
+        // Act & Assert
+        assertTrue(version.notModifiedSince(1_700_000_000_000L));
+        assertFalse(version.notModifiedSince(1_699_999_999_000L));
+        assertFalse(version.notModifiedSince(-1));
+    }
+
+    @Test
+    @DisplayName("Should advance the shared counters of each bumped data set in ordinal order")
+    void bump_ShouldUpdateSharedCounters_OnPostgreSql() {
+        // Arrange
+        JdbcTemplate jdbcTemplate = postgreSql();
+        DatasetVersionService shared = new DatasetVersionService(jdbcTemplate, 1000);
+
+        // Act
+        shared.bump(Dataset.PRODUCTS, Dataset.COUNTRIES, Dataset.PRODUCTS);
+
+        // Assert
+        List<Object[]> rows = bumpedRows(jdbcTemplate);
+        assertEquals(2, rows.size());
+        assertEquals("COUNTRIES", rows.get(0)[0]);
+        assertEquals("PRODUCTS", rows.get(1)[0]);
+    }
+
+    @Test
+    @DisplayName("Should advance the shared counters once, just before the transaction commits")
+    void bump_ShouldUpdateSharedCountersBeforeCommit_InTransaction() {
+        // Arrange
+        JdbcTemplate jdbcTemplate = postgreSql();
+        DatasetVersionService shared = new DatasetVersionService(jdbcTemplate, 1000);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            shared.bump(Dataset.MFN_RATES);
+            shared.bump(Dataset.PRODUCTS, Dataset.MFN_RATES);
+            verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.beforeCommit(false);
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        List<Object[]> rows = bumpedRows(jdbcTemplate);
+        assertEquals(2, rows.size());
+        assertEquals("MFN_RATES", rows.get(0)[0]);
+        assertEquals("PRODUCTS", rows.get(1)[0]);
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should build validators from the shared counter rows and serve them from memory")
+    void current_ShouldServeSharedCountersFromMemory_OnPostgreSql() throws Exception {
+        // Arrange
+        JdbcTemplate jdbcTemplate = postgreSql();
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("dataset")).thenReturn("COUNTRIES", "PRODUCTS");
+        when(rs.getLong("version")).thenReturn(4L, 9L);
+        when(rs.getTimestamp("modified_at")).thenReturn(new Timestamp(1_000L), new Timestamp(2_000L));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        DatasetVersionService shared = new DatasetVersionService(jdbcTemplate, 60_000);
+
+        // Act
+        Version version = shared.current(Dataset.COUNTRIES, Dataset.PRODUCTS, Dataset.MFN_RATES);
+        Version again = shared.current(Dataset.COUNTRIES, Dataset.PRODUCTS, Dataset.MFN_RATES);
+
+        // Assert
+        assertEquals(new Version("\"d-4-9-0\"", 2_000L), version);
+        assertEquals(version, again);
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("Should pick up another node's write on the next poll")
+    void pollSharedCounters_ShouldLoadNewerVersions() {
+        // Arrange
+        JdbcTemplate jdbcTemplate = postgreSql();
+        AtomicLong countries = new AtomicLong(1);
+        doAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("dataset")).thenReturn("COUNTRIES");
+            when(rs.getLong("version")).thenReturn(countries.get());
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        DatasetVersionService shared = new DatasetVersionService(jdbcTemplate, 60_000);
+        Version before = shared.current(Dataset.COUNTRIES);
+
+        // Act
+        countries.set(2);
+        Version unpolled = shared.current(Dataset.COUNTRIES);
+        shared.pollSharedCounters();
+
+        // Assert
+        assertEquals(before, unpolled);
+        assertEquals("\"d-2\"", shared.current(Dataset.COUNTRIES).etag());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JdbcTemplate postgreSql() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        return jdbcTemplate;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object[]> bumpedRows(JdbcTemplate jdbcTemplate) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        return rows.getValue();
+    }
+}
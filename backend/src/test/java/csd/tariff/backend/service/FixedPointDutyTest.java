@@ -0,0 +1,144 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Property tests for FixedPointDuty: every result must equal the BigDecimal computation cent for
+ * cent. Samples come from a seeded Random so failures are reproducible.
+ */
+@DisplayName("FixedPointDuty Unit Tests")
+class FixedPointDutyTest {
+
+    private static final int SAMPLES = 20_000;
+
+    private static BigDecimal randomRate(Random random) {
+        // 0 to 99.999999% with 0-6 decimals, as stored in the rate columns
+        int scale = random.nextInt(7);
+        long bound = (long) Math.pow(10, scale);
+        return BigDecimal.valueOf((long) (random.nextDouble() * bound), scale);
+    }
+
+    private static BigDecimal randomAmount(Random random) {
+        int scale = random.nextInt(7);
+        long unscaled = (long) (random.nextDouble() * 100_000 * Math.pow(10, scale));
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private static double randomValue(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return random.nextInt(10_000_000) / 100.0;
+            case 1:
+                return random.nextDouble() * 1_000_000;
+            case 2:
+                return Math.round(random.nextDouble() * 1_000_000) + 0.5;
+            default:
+                return random.nextDouble() * 1e15;
+        }
+    }
+
+    private static RateExpression randomExpression(Random random, int depth) {
+        int kind = random.nextInt(depth > 0 ? 6 : 4);
+        switch (kind) {
+            case 0:
+                return RateExpressionCompiler.FREE;
+            case 1:
+                return new RateExpression.Unparsed("n/a");
+            case 2:
+                return new RateExpression.AdValorem(randomRate(random));
+            case 3:
+                return new RateExpression.Specific(randomAmount(random), "kg");
+            default:
+                List<RateExpression> parts = new ArrayList<>();
+                int count = 2 + random.nextInt(2);
+                for (int i = 0; i < count; i++) {
+                    parts.add(randomExpression(random, depth - 1));
+                }
+                return kind == 4 ? new RateExpression.Compound(parts) : new RateExpression.Alternative(parts);
+        }
+    }
+
+    @Test
+    @DisplayName("calculateDuty should equal the BigDecimal computation for random inputs")
+    void calculateDuty_ShouldMatchBigDecimal_ForRandomInputs() {
+        Random random = new Random(20240501L);
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal adValorem = random.nextInt(10) == 0 ? null : randomRate(random);
+            BigDecimal specific = random.nextInt(3) == 0 ? null : randomAmount(random);
+            Double value = random.nextInt(10) == 0 ? null : randomValue(random);
+            Integer quantity = random.nextInt(10) == 0 ? null : random.nextInt(100_000);
+
+            BigDecimal expected = FixedPointDuty.calculateDutyExact(adValorem, specific, value, quantity);
+            BigDecimal actual = FixedPointDuty.calculateDuty(adValorem, specific, value, quantity);
+
+            assertEquals(expected, actual,
+                () -> "adValorem=" + adValorem + " specific=" + specific + " value=" + value + " qty=" + quantity);
+        }
+    }
+
+    @Test
+    @DisplayName("duty should equal the rounded BigDecimal duty of random rate expressions")
+    void duty_ShouldMatchBigDecimal_ForRandomExpressions() {
+        Random random = new Random(42L);
+        for (int i = 0; i < SAMPLES; i++) {
+            RateExpression expression = randomExpression(random, 2);
+            BigDecimal customsValue = random.nextBoolean()
+                ? BigDecimal.valueOf(random.nextInt(100_000_000), 2)
+                : randomAmount(random).multiply(BigDecimal.valueOf(random.nextInt(1000)));
+            int quantity = random.nextInt(10_000);
+
+            BigDecimal expected = expression
+                .duty(customsValue, BigDecimal.valueOf(quantity))
+                .setScale(2, java.math.RoundingMode.HALF_UP);
+
+            assertEquals(expected, FixedPointDuty.duty(expression, customsValue, quantity),
+                () -> expression + " value=" + customsValue + " qty=" + quantity);
+        }
+    }
+
+    @Test
+    @DisplayName("Should round half-cent ties up")
+    void calculateDuty_ShouldRoundTiesUp() {
+        // 5% of 0.10 = 0.005
+        assertEquals(new BigDecimal("0.01"), FixedPointDuty.calculateDuty(new BigDecimal("0.05"), null, 0.10, null));
+        // 0.125 * 1 = 0.125
+        assertEquals(new BigDecimal("0.13"), FixedPointDuty.calculateDuty(null, new BigDecimal("0.125"), null, 1));
+        // -0.005 rounds away from zero
+        assertEquals(new BigDecimal("-0.01"), FixedPointDuty.calculateDuty(new BigDecimal("0.05"), null, -0.10, null));
+    }
+
+    @Test
+    @DisplayName("Should fall back to BigDecimal when values do not fit")
+    void calculateDuty_ShouldFallBack_WhenValuesDoNotFit() {
+        BigDecimal manyDecimals = new BigDecimal("0.0123456789");
+        assertEquals(FixedPointDuty.calculateDutyExact(manyDecimals, null, 12345.67, null),
+            FixedPointDuty.calculateDuty(manyDecimals, null, 12345.67, null));
+
+        BigDecimal huge = new BigDecimal("999999999999");
+        assertEquals(FixedPointDuty.calculateDutyExact(null, huge, null, Integer.MAX_VALUE),
+            FixedPointDuty.calculateDuty(null, huge, null, Integer.MAX_VALUE));
+
+        assertEquals(FixedPointDuty.calculateDutyExact(new BigDecimal("0.05"), null, 1e300, null),
+            FixedPointDuty.calculateDuty(new BigDecimal("0.05"), null, 1e300, null));
+    }
+
+    @Test
+    @DisplayName("toMicros should reject values without an exact micro-unit form")
+    void toMicros_ShouldRejectInexactValues() {
+        assertEquals(50_000L, FixedPointDuty.toMicros(new BigDecimal("0.05")));
+        assertEquals(100_000_000L, FixedPointDuty.toMicros(new BigDecimal("1E+2")));
+        assertEquals(50_000L, FixedPointDuty.toMicros(new BigDecimal("0.05000000")));
+        assertEquals(0L, FixedPointDuty.toMicros(new BigDecimal("0E-8")));
+        assertEquals(FixedPointDuty.NOT_FIXED, FixedPointDuty.toMicros(new BigDecimal("0.0000001")));
+        assertEquals(123_450_000L, FixedPointDuty.toMicros(123.45));
+        assertEquals(FixedPointDuty.NOT_FIXED, FixedPointDuty.toMicros(0.1234567));
+        assertEquals(FixedPointDuty.NOT_FIXED, FixedPointDuty.toMicros(Double.NaN));
+    }
+}
@@ -0,0 +1,115 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import csd.tariff.backend.model.CurrencyExchangeRate;
+import csd.tariff.backend.repository.CurrencyExchangeRateRepository;
+
+/**
+ * Unit tests for FxRateHistoryService pair resolution and caching
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FxRateHistoryService Unit Tests")
+class FxRateHistoryServiceTest {
+
+    @Mock
+    private CurrencyExchangeRateRepository currencyExchangeRateRepository;
+
+    private FxRateHistoryService fxRateHistoryService;
+
+    @BeforeEach
+    void setUp() {
+        fxRateHistoryService = new FxRateHistoryService(currencyExchangeRateRepository, 2);
+    }
+
+    private static CurrencyExchangeRate rate(String base, String target, LocalDate effective, String rate) {
+        CurrencyExchangeRate row = new CurrencyExchangeRate();
+        row.setBaseCurrencyCode(base);
+        row.setTargetCurrencyCode(target);
+        row.setExchangeRate(new BigDecimal(rate));
+        row.setEffectiveDate(effective);
+        return row;
+    }
+
+    private void stubPair(String base, String target, CurrencyExchangeRate... rows) {
+        when(currencyExchangeRateRepository.findByBaseCurrencyCodeAndTargetCurrencyCodeOrderByEffectiveDateAsc(base, target))
+            .thenReturn(List.of(rows));
+    }
+
+    @Test
+    @DisplayName("Should answer repeated dated lookups from one load per pair")
+    void rateOn_ShouldLoadEachPairOnce() {
+        // Arrange
+        stubPair("USD", "EUR", rate("USD", "EUR", LocalDate.of(2024, 1, 1), "0.900000"));
+        stubPair("EUR", "USD");
+
+        // Act
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 365; i++) {
+            assertEquals(Optional.of(new BigDecimal("0.900000")),
+                fxRateHistoryService.rateOn("USD", "EUR", day.plusDays(i)));
+        }
+
+        // Assert
+        verify(currencyExchangeRateRepository, times(1))
+            .findByBaseCurrencyCodeAndTargetCurrencyCodeOrderByEffectiveDateAsc("USD", "EUR");
+        verify(currencyExchangeRateRepository, times(1))
+            .findByBaseCurrencyCodeAndTargetCurrencyCodeOrderByEffectiveDateAsc("EUR", "USD");
+    }
+
+    @Test
+    @DisplayName("Should invert the opposite pair when it has the more recent rate")
+    void rateOn_ShouldUseLaterDatedInverse() {
+        // Arrange
+        stubPair("EUR", "USD", rate("EUR", "USD", LocalDate.of(2024, 1, 1), "1.100000"));
+        stubPair("USD", "EUR", rate("USD", "EUR", LocalDate.of(2024, 2, 1), "0.800000"));
+
+        // Act & Assert
+        assertEquals(Optional.of(new BigDecimal("1.100000")),
+            fxRateHistoryService.rateOn("EUR", "USD", LocalDate.of(2024, 1, 31)));
+        assertEquals(Optional.of(new BigDecimal("1.250000")),
+            fxRateHistoryService.rateOn("EUR", "USD", LocalDate.of(2024, 2, 1)));
+        assertEquals(Optional.empty(),
+            fxRateHistoryService.rateOn("EUR", "USD", LocalDate.of(2023, 12, 31)));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used pair and reload after invalidation")
+    void series_ShouldEvictLeastRecentlyUsed() {
+        // Arrange
+        when(currencyExchangeRateRepository.findByBaseCurrencyCodeAndTargetCurrencyCodeOrderByEffectiveDateAsc(anyString(), anyString()))
+            .thenReturn(List.of());
+
+        // Act
+        fxRateHistoryService.series("USD", "EUR");
+        fxRateHistoryService.series("USD", "CAD");
+        fxRateHistoryService.series("USD", "EUR");
+        fxRateHistoryService.series("USD", "JPY");
+        fxRateHistoryService.series("USD", "EUR");
+        fxRateHistoryService.series("USD", "CAD");
+        fxRateHistoryService.invalidateAll();
+        fxRateHistoryService.series("USD", "EUR");
+
+        // Assert
+        verify(currencyExchangeRateRepository, times(2))
+            .findByBaseCurrencyCodeAndTargetCurrencyCodeOrderByEffectiveDateAsc("USD", "EUR");
+        verify(currencyExchangeRateRepository, times(2))
+            .findByBaseCurrencyCodeAndTargetCurrencyCodeOrderByEffectiveDateAsc("USD", "CAD");
+        assertEquals(1, fxRateHistoryService.cachedPairs());
+    }
+}
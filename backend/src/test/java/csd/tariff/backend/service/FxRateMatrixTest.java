@@ -0,0 +1,77 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import csd.tariff.backend.model.CurrencyExchangeRate;
+
+/**
+ * Unit tests for FxRateMatrix pair resolution
+ */
+@DisplayName("FxRateMatrix Unit Tests")
+class FxRateMatrixTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    private static CurrencyExchangeRate rate(String base, String target, String rate, LocalDate effective) {
+        CurrencyExchangeRate row = new CurrencyExchangeRate();
+        row.setBaseCurrencyCode(base);
+        row.setTargetCurrencyCode(target);
+        row.setExchangeRate(new BigDecimal(rate));
+        row.setEffectiveDate(effective);
+        return row;
+    }
+
+    @Test
+    @DisplayName("Should use the latest rate effective on the matrix date")
+    void of_ShouldKeepLatestEffectiveRate() {
+        // Arrange
+        FxRateMatrix matrix = FxRateMatrix.of(List.of(
+            rate("USD", "EUR", "0.900000", LocalDate.of(2024, 1, 1)),
+            rate("USD", "EUR", "0.920000", LocalDate.of(2024, 5, 1)),
+            rate("USD", "EUR", "0.950000", LocalDate.of(2024, 7, 1))), TODAY);
+
+        // Act & Assert
+        assertEquals(Optional.of(new BigDecimal("0.920000")), matrix.rate("USD", "EUR"));
+        assertEquals(TODAY, matrix.asOf());
+    }
+
+    @Test
+    @DisplayName("Should prefer a pair's own rate over the inverse of the opposite pair")
+    void of_ShouldPreferDirectOverInverse() {
+        // Arrange
+        FxRateMatrix matrix = FxRateMatrix.of(List.of(
+            rate("USD", "EUR", "0.800000", TODAY),
+            rate("EUR", "USD", "1.300000", TODAY),
+            rate("USD", "CAD", "1.360000", TODAY)), TODAY);
+
+        // Act & Assert
+        assertEquals(Optional.of(new BigDecimal("0.800000")), matrix.rate("USD", "EUR"));
+        assertEquals(Optional.of(new BigDecimal("1.300000")), matrix.rate("EUR", "USD"));
+        assertEquals(Optional.of(new BigDecimal("0.735294")), matrix.rate("CAD", "USD"));
+    }
+
+    @Test
+    @DisplayName("Should triangulate cross rates through USD")
+    void of_ShouldTriangulateThroughUsd() {
+        // Arrange
+        FxRateMatrix matrix = FxRateMatrix.of(List.of(
+            rate("EUR", "USD", "1.100000", TODAY),
+            rate("USD", "JPY", "150.000000", TODAY),
+            rate("GBP", "CHF", "1.120000", TODAY)), TODAY);
+
+        // Act & Assert
+        assertEquals(Optional.of(new BigDecimal("165.000000")), matrix.rate("EUR", "JPY"));
+        assertEquals(Optional.of(new BigDecimal("0.006061")), matrix.rate("JPY", "EUR"));
+        assertEquals(Optional.empty(), matrix.rate("EUR", "GBP"));
+        assertEquals(Optional.empty(), matrix.rate("EUR", "XXX"));
+        assertEquals(Optional.of(BigDecimal.ONE), matrix.rate("XXX", "XXX"));
+        assertEquals(5, matrix.currencyCount());
+    }
+}
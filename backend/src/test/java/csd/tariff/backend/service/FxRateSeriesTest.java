@@ -0,0 +1,61 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import csd.tariff.backend.model.CurrencyExchangeRate;
+
+/**
+ * Unit tests for FxRateSeries nearest-preceding-date lookups
+ */
+@DisplayName("FxRateSeries Unit Tests")
+class FxRateSeriesTest {
+
+    private static CurrencyExchangeRate rate(LocalDate effective, String rate) {
+        CurrencyExchangeRate row = new CurrencyExchangeRate();
+        row.setBaseCurrencyCode("USD");
+        row.setTargetCurrencyCode("EUR");
+        row.setExchangeRate(new BigDecimal(rate));
+        row.setEffectiveDate(effective);
+        return row;
+    }
+
+    @Test
+    @DisplayName("Should return the rate on or most recently before a date")
+    void rateOn_ShouldUseNearestPrecedingRate() {
+        // Arrange: Friday and Monday rows, nothing over the weekend
+        FxRateSeries series = FxRateSeries.of(List.of(
+            rate(LocalDate.of(2024, 1, 8), "0.913000"),
+            rate(LocalDate.of(2024, 1, 5), "0.915000")));
+
+        // Act & Assert
+        assertEquals(Optional.of(new BigDecimal("0.915000")), series.rateOn(LocalDate.of(2024, 1, 5)));
+        assertEquals(Optional.of(new BigDecimal("0.915000")), series.rateOn(LocalDate.of(2024, 1, 7)));
+        assertEquals(Optional.of(new BigDecimal("0.913000")), series.rateOn(LocalDate.of(2024, 1, 8)));
+        assertEquals(Optional.of(new BigDecimal("0.913000")), series.rateOn(LocalDate.of(2025, 1, 1)));
+        assertEquals(Optional.empty(), series.rateOn(LocalDate.of(2024, 1, 4)));
+    }
+
+    @Test
+    @DisplayName("Should keep the last row given for a date and skip unusable rows")
+    void of_ShouldCollapseDuplicateDates() {
+        // Arrange
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        FxRateSeries series = FxRateSeries.of(List.of(
+            rate(day, "0.910000"),
+            rate(day, "0.92"),
+            rate(null, "0.930000"),
+            rate(LocalDate.of(2024, 3, 2), "0")));
+
+        // Act & Assert
+        assertEquals(1, series.size());
+        assertEquals(Optional.of(new BigDecimal("0.920000")), series.rateOn(day.plusDays(1)));
+        assertEquals(0, FxRateSeries.of(List.of()).size());
+    }
+}
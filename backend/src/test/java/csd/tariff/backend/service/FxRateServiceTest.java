@@ -0,0 +1,107 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import csd.tariff.backend.model.CurrencyExchangeRate;
+import csd.tariff.backend.repository.CurrencyExchangeRateRepository;
+
+/**
+ * Unit tests for FxRateService loading and change detection
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FxRateService Unit Tests")
+class FxRateServiceTest {
+
+    @Mock
+    private CurrencyExchangeRateRepository currencyExchangeRateRepository;
+
+    @Mock
+    private FxRateHistoryService fxRateHistoryService;
+
+    @InjectMocks
+    private FxRateService fxRateService;
+
+    private CurrencyExchangeRate usdToEur;
+
+    @BeforeEach
+    void setUp() {
+        usdToEur = new CurrencyExchangeRate();
+        usdToEur.setBaseCurrencyCode("USD");
+        usdToEur.setTargetCurrencyCode("EUR");
+        usdToEur.setExchangeRate(new BigDecimal("0.850000"));
+        usdToEur.setEffectiveDate(LocalDate.of(2024, 1, 1));
+    }
+
+    @Test
+    @DisplayName("Should be empty until the first load")
+    void current_ShouldBeEmpty_BeforeRefresh() {
+        assertTrue(fxRateService.current().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should load every rate into a matrix for today")
+    void refresh_ShouldLoadMatrix() {
+        // Arrange
+        when(currencyExchangeRateRepository.findAll()).thenReturn(List.of(usdToEur));
+
+        // Act
+        fxRateService.refresh();
+
+        // Assert
+        FxRateMatrix matrix = fxRateService.current().orElseThrow();
+        assertEquals(LocalDate.now(), matrix.asOf());
+        assertEquals(Optional.of(new BigDecimal("0.850000")), matrix.rate("USD", "EUR"));
+        verify(fxRateHistoryService, times(1)).invalidateAll();
+    }
+
+    @Test
+    @DisplayName("Should keep the previous matrix when a load fails")
+    void refresh_ShouldKeepPreviousMatrix_WhenLoadFails() {
+        // Arrange
+        when(currencyExchangeRateRepository.findAll())
+            .thenReturn(List.of(usdToEur))
+            .thenThrow(new RuntimeException("Database unavailable"));
+        fxRateService.refresh();
+
+        // Act
+        fxRateService.refresh();
+
+        // Assert
+        assertTrue(fxRateService.current().isPresent());
+    }
+
+    @Test
+    @DisplayName("Should reload only when the rate table changes")
+    void refreshIfChanged_ShouldReloadOnlyOnChange() {
+        // Arrange
+        LocalDateTime loadedAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(currencyExchangeRateRepository.count()).thenReturn(1L, 1L, 2L, 2L);
+        when(currencyExchangeRateRepository.findLastUpdatedAt()).thenReturn(loadedAt);
+        when(currencyExchangeRateRepository.findAll()).thenReturn(List.of(usdToEur));
+        fxRateService.refresh();
+
+        // Act
+        fxRateService.refreshIfChanged();
+        fxRateService.refreshIfChanged();
+
+        // Assert
+        verify(currencyExchangeRateRepository, times(2)).findAll();
+    }
+}
@@ -0,0 +1,93 @@
+package csd.tariff.backend.service;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import csd.tariff.backend.dto.ProductDTOs.AutocompleteResponse;
+import csd.tariff.backend.dto.ProductDTOs.HtsPrefixCount;
+import csd.tariff.backend.model.Product;
+
+/**
+ * Unit tests for HtsTrie prefix suggestions and drill-down counts
+ */
+@DisplayName("HtsTrie Unit Tests")
+class HtsTrieTest {
+
+    private static Product product(String hts8, String description) {
+        Product product = new Product();
+        product.setHts8(hts8);
+        product.setBriefDescription(description);
+        return product;
+    }
+
+    private static HtsTrie trie() {
+        List<Product> products = List.of(
+            product("84713001", "Laptops"),
+            product("01012100", "Horses, purebred"),
+            product("84713090", "Other portable machines"),
+            product("84714100", "Other data processing machines"),
+            product("01022100", "Cattle, purebred"),
+            product("8471X000", "Malformed code"));
+        Map<String, String> mfnRates = Map.of("84713001", "Free", "01012100", "Free");
+        return HtsTrie.of(products, mfnRates::get);
+    }
+
+    @Test
+    @DisplayName("Should return the first products in code order with their MFN rate")
+    void autocomplete_ShouldReturnTopKInCodeOrder() {
+        // Act
+        AutocompleteResponse response = trie().autocomplete("8471", 2);
+
+        // Assert
+        assertEquals("heading", response.level());
+        assertEquals(3, response.total());
+        assertEquals(2, response.suggestions().size());
+        assertEquals("84713001", response.suggestions().get(0).hts8());
+        assertEquals("Free", response.suggestions().get(0).mfnRate());
+        assertEquals("84713090", response.suggestions().get(1).hts8());
+        assertNull(response.suggestions().get(1).mfnRate());
+    }
+
+    @Test
+    @DisplayName("Should count products under each child at the next HTS level")
+    void autocomplete_ShouldReportDrillDownCounts() {
+        // Act
+        AutocompleteResponse chapters = trie().autocomplete("", 10);
+        AutocompleteResponse subheadings = trie().autocomplete("847", 10);
+
+        // Assert
+        assertEquals(5, chapters.total());
+        assertEquals(
+            List.of(new HtsPrefixCount("01", "chapter", 2), new HtsPrefixCount("84", "chapter", 3)),
+            chapters.children());
+        assertEquals(List.of(new HtsPrefixCount("8471", "heading", 3)), subheadings.children());
+        assertEquals(
+            List.of(new HtsPrefixCount("847130", "subheading", 2), new HtsPrefixCount("847141", "subheading", 1)),
+            trie().autocomplete("8471", 10).children());
+    }
+
+    @Test
+    @DisplayName("Should return nothing for unknown prefixes and no children for full codes")
+    void autocomplete_ShouldHandleLeavesAndMisses() {
+        // Arrange
+        HtsTrie trie = trie();
+
+        // Act
+        AutocompleteResponse miss = trie.autocomplete("99", 10);
+        AutocompleteResponse leaf = trie.autocomplete("84713001", 10);
+
+        // Assert
+        assertEquals(0, miss.total());
+        assertTrue(miss.suggestions().isEmpty());
+        assertEquals("tariff line", leaf.level());
+        assertEquals(1, leaf.total());
+        assertTrue(leaf.children().isEmpty());
+        assertEquals(0, HtsTrie.empty().count(""));
+    }
+}
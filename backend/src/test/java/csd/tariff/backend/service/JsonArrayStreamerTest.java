@@ -0,0 +1,94 @@
+package csd.tariff.backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Unit tests for JsonArrayStreamer output and persistence context clearing
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("JsonArrayStreamer Unit Tests")
+class JsonArrayStreamerTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private JsonArrayStreamer jsonArrayStreamer;
+
+    @BeforeEach
+    void setUp() {
+        jsonArrayStreamer = new JsonArrayStreamer(new ObjectMapper(), transactionManager);
+        ReflectionTestUtils.setField(jsonArrayStreamer, "entityManager", entityManager);
+    }
+
+    @Test
+    @DisplayName("Should write every row as one JSON array")
+    void write_ShouldWriteJsonArray() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Map<String, Object>> rows = List.of(
+            Map.of("id", 1, "hts8", "01012100"),
+            Map.of("id", 2, "hts8", "01012900"));
+
+        // Act
+        long written = jsonArrayStreamer.write(rows::stream, out);
+
+        // Assert
+        assertEquals(2L, written);
+        assertEquals(rows, new ObjectMapper().readValue(out.toString(StandardCharsets.UTF_8), List.class));
+        verify(entityManager, never()).clear();
+    }
+
+    @Test
+    @DisplayName("Should write an empty array when there are no rows")
+    void write_ShouldWriteEmptyArray_WhenNoRows() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long written = jsonArrayStreamer.write(Stream::empty, out);
+
+        // Assert
+        assertEquals(0L, written);
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should clear the persistence context every interval of rows")
+    void write_ShouldClearPersistenceContext_EveryInterval() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int rows = JsonArrayStreamer.CLEAR_INTERVAL * 2 + 1;
+
+        // Act
+        long written = jsonArrayStreamer.write(() -> IntStream.range(0, rows).boxed(), out);
+
+        // Assert
+        assertEquals(rows, written);
+        verify(entityManager, times(2)).clear();
+    }
+}
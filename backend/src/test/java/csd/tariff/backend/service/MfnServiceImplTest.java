@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -18,6 +19,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.never;
@@ -25,11 +27,15 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import csd.tariff.backend.dto.MfnRateView;
 import csd.tariff.backend.model.MfnTariffRate;
 import csd.tariff.backend.model.Product;
 import csd.tariff.backend.repository.MfnTariffRateRepository;
 import csd.tariff.backend.repository.ProductRepository;
+import csd.tariff.backend.service.CalculationRepricingService.RatesChanged;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingScope;
 import csd.tariff.backend.service.MfnServiceImpl;
 
 /**
@@ -46,6 +52,15 @@ class MfnServiceImplTest {
     @Mock
     private MfnTariffRateRepository mfnTariffRateRepository;
 
+    @Mock
+    private TariffScheduleService tariffScheduleService;
+
+    @Mock
+    private DatasetVersionService datasetVersionService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private MfnServiceImpl mfnService;
 
@@ -112,32 +127,32 @@ class MfnServiceImplTest {
     @DisplayName("Should return all MFN tariff rates when rates exist")
     void getAllMfnTariffRates_ShouldReturnAllRates_WhenRatesExist() {
         // Arrange
-        List<MfnTariffRate> expectedRates = Arrays.asList(testMfnRate1, testMfnRate2);
-        when(mfnTariffRateRepository.findAll()).thenReturn(expectedRates);
+        List<MfnRateView> expectedRates = Arrays.asList(MfnRateView.from(testMfnRate1), MfnRateView.from(testMfnRate2));
+        when(mfnTariffRateRepository.findAllViews()).thenReturn(expectedRates);
 
         // Act
-        List<MfnTariffRate> actualRates = mfnService.getAllMfnTariffRates();
+        List<MfnRateView> actualRates = mfnService.getAllMfnTariffRates();
 
         // Assert
         assertNotNull(actualRates);
         assertEquals(2, actualRates.size());
         assertEquals(expectedRates, actualRates);
-        verify(mfnTariffRateRepository, times(1)).findAll();
+        verify(mfnTariffRateRepository, times(1)).findAllViews();
     }
 
     @Test
     @DisplayName("Should return empty list when no MFN rates exist")
     void getAllMfnTariffRates_ShouldReturnEmptyList_WhenNoRatesExist() {
         // Arrange
-        when(mfnTariffRateRepository.findAll()).thenReturn(Collections.emptyList());
+        when(mfnTariffRateRepository.findAllViews()).thenReturn(Collections.emptyList());
 
         // Act
-        List<MfnTariffRate> actualRates = mfnService.getAllMfnTariffRates();
+        List<MfnRateView> actualRates = mfnService.getAllMfnTariffRates();
 
         // Assert
         assertNotNull(actualRates);
         assertTrue(actualRates.isEmpty());
-        verify(mfnTariffRateRepository, times(1)).findAll();
+        verify(mfnTariffRateRepository, times(1)).findAllViews();
     }
 
     // ===== GET MFN TARIFF RATE TESTS =====
@@ -182,21 +197,17 @@ class MfnServiceImplTest {
     void getMfnTariffRatesForProduct_ShouldReturnRate_WhenRateExists() {
         // Arrange
         String htsCode = "12345678";
-        Product testProduct = new Product();
-        setId(testProduct, 1L);
-        testProduct.setHts8(htsCode);
-        
-        when(productRepository.findByHts8(htsCode)).thenReturn(Optional.of(testProduct));
-        when(mfnTariffRateRepository.findByProductId(1L)).thenReturn(Optional.of(testMfnRate1));
+        MfnRateView view = MfnRateView.from(testMfnRate1);
+        when(mfnTariffRateRepository.findViewByHts8(htsCode)).thenReturn(Optional.of(view));
 
         // Act
-        Optional<MfnTariffRate> actualRate = mfnService.getMfnTariffRatesForProduct(htsCode);
+        Optional<MfnRateView> actualRate = mfnService.getMfnTariffRatesForProduct(htsCode);
 
         // Assert
         assertTrue(actualRate.isPresent());
-        assertEquals(testMfnRate1, actualRate.get());
-        verify(productRepository, times(1)).findByHts8(htsCode);
-        verify(mfnTariffRateRepository, times(1)).findByProductId(1L);
+        assertEquals(view, actualRate.get());
+        verify(mfnTariffRateRepository, times(1)).findViewByHts8(htsCode);
+        verify(productRepository, never()).findByHts8(htsCode);
     }
 
     @Test
@@ -204,14 +215,14 @@ class MfnServiceImplTest {
     void getMfnTariffRatesForProduct_ShouldReturnEmpty_WhenRateDoesNotExist() {
         // Arrange
         String htsCode = "99999999";
-        when(productRepository.findByHts8(htsCode)).thenReturn(Optional.empty());
+        when(mfnTariffRateRepository.findViewByHts8(htsCode)).thenReturn(Optional.empty());
 
         // Act
-        Optional<MfnTariffRate> actualRate = mfnService.getMfnTariffRatesForProduct(htsCode);
+        Optional<MfnRateView> actualRate = mfnService.getMfnTariffRatesForProduct(htsCode);
 
         // Assert
-        assertNull(actualRate);
-        verify(productRepository, times(1)).findByHts8(htsCode);
+        assertTrue(actualRate.isEmpty());
+        verify(mfnTariffRateRepository, times(1)).findViewByHts8(htsCode);
     }
 
     // ===== CREATE MFN TARIFF RATE TESTS =====
@@ -398,6 +409,31 @@ class MfnServiceImplTest {
         verify(mfnTariffRateRepository, times(1)).save(any(MfnTariffRate.class));
     }
 
+    @Test
+    @DisplayName("Should queue re-pricing of the HTS code's saved calculations when its MFN rate is updated")
+    void updateMfnTariffRateByHtsCode_ShouldPublishRatesChanged() {
+        // Arrange
+        String htsCode = "12345678";
+        Product testProduct = new Product();
+        setId(testProduct, 1L);
+        testProduct.setHts8(htsCode);
+        MfnTariffRate updateData = new MfnTariffRate();
+        updateData.setProduct(testProduct);
+        updateData.setMfnadValoremRate(new BigDecimal("0.12"));
+
+        when(productRepository.findByHts8(htsCode)).thenReturn(Optional.of(testProduct));
+        when(mfnTariffRateRepository.findByProductId(1L)).thenReturn(Optional.of(testMfnRate1));
+        when(mfnTariffRateRepository.save(any(MfnTariffRate.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        mfnService.updateMfnTariffRateByHtsCode(htsCode, updateData);
+
+        // Assert
+        ArgumentCaptor<RatesChanged> event = ArgumentCaptor.forClass(RatesChanged.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(List.of(RepricingScope.of(htsCode)), event.getValue().scopes());
+    }
+
     @Test
     @DisplayName("Should return null when updating MFN tariff rate by non-existent HTS code")
     void updateMfnTariffRateByHtsCode_ShouldReturnNull_WhenRateDoesNotExist() {
@@ -436,6 +472,8 @@ class MfnServiceImplTest {
         verify(productRepository, times(1)).findByHts8(htsCode);
         verify(mfnTariffRateRepository, times(1)).findByProductId(1L);
         verify(mfnTariffRateRepository, times(1)).deleteById(1L);
+        verify(tariffScheduleService).refresh(Set.of(htsCode));
+        verify(tariffScheduleService, never()).refresh();
     }
 
     @Test
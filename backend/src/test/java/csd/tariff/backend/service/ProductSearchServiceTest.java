@@ -0,0 +1,132 @@
+package csd.tariff.backend.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import csd.tariff.backend.dto.ProductDTOs.ProductSearchHit;
+import csd.tariff.backend.dto.ProductDTOs.ProductSearchPage;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.repository.ProductRepository;
+
+/**
+ * Unit tests for ProductSearchService ranking, keyset cursors and the LIKE fallback
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductSearchService Unit Tests")
+class ProductSearchServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductSearchService productSearchService;
+
+    private static Product product(long id, String hts8, String description) {
+        Product product = new Product();
+        try {
+            java.lang.reflect.Field idField = Product.class.getDeclaredField("id");
+            idField.setAccessible(true);
+            idField.set(product, id);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to set ID using reflection", e);
+        }
+        product.setHts8(hts8);
+        product.setBriefDescription(description);
+        return product;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void databaseIs(String productName) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(productName);
+    }
+
+    @Test
+    @DisplayName("Should page ranked PostgreSQL results with a cursor from the last row")
+    @SuppressWarnings("unchecked")
+    void search_ShouldReturnRankedPageAndCursor_WhenPostgres() {
+        // Arrange
+        databaseIs("PostgreSQL");
+        List<ProductSearchHit> rows = List.of(
+            new ProductSearchHit(7L, "84713001", "Portable computers", 0.6f, "Portable <b>computers</b>"),
+            new ProductSearchHit(3L, "84714100", "Other computers", 0.3f, "Other <b>computers</b>"),
+            new ProductSearchHit(9L, "84715001", "Computer parts", 0.1f, "<b>Computer</b> parts"));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any(), any()))
+            .thenReturn(rows);
+
+        // Act
+        ProductSearchPage page = productSearchService.search(" computers ", 2, null);
+        ProductSearchService.Cursor cursor = ProductSearchService.Cursor.decode(page.nextCursor());
+
+        // Assert
+        assertEquals("computers", page.query());
+        assertEquals(2, page.results().size());
+        assertEquals("Portable <b>computers</b>", page.results().get(0).snippet());
+        assertEquals(0.3f, cursor.rank());
+        assertEquals(3L, cursor.id());
+        verify(jdbcTemplate).query(anyString(), any(RowMapper.class),
+            eq("computers"), eq(Float.POSITIVE_INFINITY), eq(Float.POSITIVE_INFINITY), eq(0L), eq(3));
+    }
+
+    @Test
+    @DisplayName("Should fall back to LIKE ordered by ID when not on PostgreSQL")
+    void search_ShouldUseLikeFallback_WhenNotPostgres() {
+        // Arrange
+        databaseIs("H2");
+        String after = new ProductSearchService.Cursor(0f, 4L).encode();
+        when(productRepository.findByBriefDescriptionContainingAfterId("horse", 4L, PageRequest.of(0, 21)))
+            .thenReturn(List.of(product(5L, "01012100", "Purebred Horses")));
+
+        // Act
+        ProductSearchPage page = productSearchService.search("horse", 20, after);
+
+        // Assert
+        assertEquals(1, page.results().size());
+        assertEquals("Purebred <b>Horse</b>s", page.results().get(0).snippet());
+        assertEquals(0f, page.results().get(0).rank());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should reject blank queries and malformed cursors")
+    void search_ShouldThrowException_WhenInputInvalid() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> productSearchService.search("  ", 10, null));
+        assertThrows(IllegalArgumentException.class, () -> productSearchService.search("horse", 10, "not-a-cursor"));
+    }
+
+    @Test
+    @DisplayName("Should round-trip cursors exactly")
+    void cursor_ShouldRoundTrip() {
+        // Arrange
+        ProductSearchService.Cursor cursor = new ProductSearchService.Cursor(0.0607927f, 123456789L);
+
+        // Act
+        String encoded = cursor.encode();
+
+        // Assert
+        assertNotNull(encoded);
+        assertEquals(cursor, ProductSearchService.Cursor.decode(encoded));
+    }
+}
@@ -22,7 +22,11 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
+import csd.tariff.backend.dto.CursorPage;
+import csd.tariff.backend.dto.ProductDTOs.AutocompleteResponse;
+import csd.tariff.backend.dto.ProductSummary;
 import csd.tariff.backend.model.AgreementRate;
 import csd.tariff.backend.model.Product;
 import csd.tariff.backend.model.TradeAgreement;
@@ -43,6 +47,15 @@ class ProductServiceImplTest {
     @Mock
     private AgreementRateRepository agreementRateRepository;
 
+    @Mock
+    private TariffScheduleService tariffScheduleService;
+
+    @Mock
+    private ProductSuggestionService productSuggestionService;
+
+    @Mock
+    private DatasetVersionService datasetVersionService;
+
     @InjectMocks
     private ProductServiceImpl productService;
 
@@ -96,32 +109,65 @@ class ProductServiceImplTest {
     @DisplayName("Should return all products when products exist")
     void getAllProducts_ShouldReturnAllProducts_WhenProductsExist() {
         // Arrange
-        List<Product> expectedProducts = Arrays.asList(testProduct1, testProduct2);
-        when(productRepository.findAllWithMfnRates()).thenReturn(expectedProducts);
+        List<ProductSummary> expectedProducts = Arrays.asList(
+            ProductSummary.from(testProduct1), ProductSummary.from(testProduct2));
+        when(productRepository.findAllSummaries()).thenReturn(expectedProducts);
 
         // Act
-        List<Product> actualProducts = productService.getAllProducts();
+        List<ProductSummary> actualProducts = productService.getAllProducts();
 
         // Assert
         assertNotNull(actualProducts);
         assertEquals(2, actualProducts.size());
         assertEquals(expectedProducts, actualProducts);
-        verify(productRepository, times(1)).findAllWithMfnRates();
+        verify(productRepository, times(1)).findAllSummaries();
     }
 
     @Test
     @DisplayName("Should return empty list when no products exist")
     void getAllProducts_ShouldReturnEmptyList_WhenNoProductsExist() {
         // Arrange
-        when(productRepository.findAllWithMfnRates()).thenReturn(Collections.emptyList());
+        when(productRepository.findAllSummaries()).thenReturn(Collections.emptyList());
 
         // Act
-        List<Product> actualProducts = productService.getAllProducts();
+        List<ProductSummary> actualProducts = productService.getAllProducts();
 
         // Assert
         assertNotNull(actualProducts);
         assertTrue(actualProducts.isEmpty());
-        verify(productRepository, times(1)).findAllWithMfnRates();
+        verify(productRepository, times(1)).findAllSummaries();
+    }
+
+    @Test
+    @DisplayName("Should return a page with a cursor when more products follow")
+    void getProductPage_ShouldReturnNextCursor_WhenMoreRowsExist() {
+        // Arrange
+        Product testProduct3 = new Product();
+        setProductId(testProduct3, 3L);
+        when(productRepository.findPageAfterId(0L, PageRequest.of(0, 3)))
+            .thenReturn(Arrays.asList(testProduct1, testProduct2, testProduct3));
+
+        // Act
+        CursorPage<Product> page = productService.getProductPage(null, 2);
+
+        // Assert
+        assertEquals(Arrays.asList(testProduct1, testProduct2), page.items());
+        assertEquals(2L, page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should return the last page without a cursor")
+    void getProductPage_ShouldReturnNullCursor_WhenLastPage() {
+        // Arrange
+        when(productRepository.findPageAfterId(1L, PageRequest.of(0, 3)))
+            .thenReturn(Collections.singletonList(testProduct2));
+
+        // Act
+        CursorPage<Product> page = productService.getProductPage(1L, 2);
+
+        // Assert
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
     }
 
     // ===== GET AGREEMENT RATES TESTS =====
@@ -222,6 +268,7 @@ class ProductServiceImplTest {
         assertEquals("11111111", result.getHts8());
         assertEquals("Brief description for new product", result.getBriefDescription());
         verify(productRepository, times(1)).save(any(Product.class));
+        verify(productSuggestionService, times(1)).index(result);
     }
 
     @Test
@@ -273,6 +320,7 @@ class ProductServiceImplTest {
         assertEquals("Updated brief description", result.getBriefDescription());
         verify(productRepository, times(1)).findById(productId);
         verify(productRepository, times(1)).save(any(Product.class));
+        verify(productSuggestionService, times(1)).index(result);
     }
 
     @Test
@@ -332,6 +380,7 @@ class ProductServiceImplTest {
         // Assert
         verify(productRepository, times(1)).findById(productId);
         verify(productRepository, times(1)).delete(testProduct1);
+        verify(productSuggestionService, times(1)).remove(productId);
     }
 
     @Test
@@ -405,11 +454,11 @@ class ProductServiceImplTest {
     @DisplayName("Should handle repository exception gracefully")
     void getAllProducts_ShouldHandleRepositoryException_Gracefully() {
         // Arrange
-        when(productRepository.findAllWithMfnRates()).thenThrow(new RuntimeException("Database connection error"));
+        when(productRepository.findAllSummaries()).thenThrow(new RuntimeException("Database connection error"));
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> productService.getAllProducts());
-        verify(productRepository, times(1)).findAllWithMfnRates();
+        verify(productRepository, times(1)).findAllSummaries();
     }
 
     @Test
@@ -883,6 +932,48 @@ class ProductServiceImplTest {
         assertEquals("A", result.getWtoBindingCode());
     }
 
+    @Test
+    @DisplayName("Should autocomplete from the schedule snapshot trie")
+    void autocomplete_ShouldUseSnapshotTrie_WhenLoaded() {
+        // Arrange
+        TariffScheduleSnapshot snapshot = TariffScheduleSnapshot.of(
+            Arrays.asList(testProduct1, testProduct2), List.of(), List.of(), List.of());
+        when(tariffScheduleService.current()).thenReturn(Optional.of(snapshot));
+
+        // Act
+        AutocompleteResponse result = productService.autocomplete("1234.56", 5);
+
+        // Assert
+        assertEquals("123456", result.prefix());
+        assertEquals(1, result.total());
+        assertEquals("12345678", result.suggestions().get(0).hts8());
+        verify(productRepository, times(0)).findByHts8StartingWith(any());
+    }
+
+    @Test
+    @DisplayName("Should autocomplete from the database before the snapshot is loaded")
+    void autocomplete_ShouldQueryRepository_WhenNoSnapshot() {
+        // Arrange
+        when(tariffScheduleService.current()).thenReturn(Optional.empty());
+        when(productRepository.findByHts8StartingWith("1234")).thenReturn(Arrays.asList(testProduct1));
+
+        // Act
+        AutocompleteResponse result = productService.autocomplete("1234", 0);
+
+        // Assert
+        assertEquals(1, result.total());
+        assertEquals(1, result.suggestions().size());
+        assertEquals("12345678", result.suggestions().get(0).hts8());
+    }
+
+    @Test
+    @DisplayName("Should reject prefixes that are not HTS digits")
+    void autocomplete_ShouldThrowException_WhenPrefixInvalid() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> productService.autocomplete("84A", 10));
+        assertThrows(IllegalArgumentException.class, () -> productService.autocomplete("847130010", 10));
+    }
+
     // Helper method to set Product ID using reflection
     private void setProductId(Product product, Long id) {
         try {
@@ -0,0 +1,94 @@
+package csd.tariff.backend.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import csd.tariff.backend.dto.ProductDTOs.ProductMatch;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.repository.ProductNoteRepository;
+import csd.tariff.backend.repository.ProductRepository;
+
+/**
+ * Unit tests for ProductSuggestionService index builds and incremental updates
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductSuggestionService Unit Tests")
+class ProductSuggestionServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductNoteRepository productNoteRepository;
+
+    @InjectMocks
+    private ProductSuggestionService productSuggestionService;
+
+    private static Product product(long id, String hts8, String description) {
+        Product product = new Product();
+        try {
+            java.lang.reflect.Field idField = Product.class.getDeclaredField("id");
+            idField.setAccessible(true);
+            idField.set(product, id);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to set ID using reflection", e);
+        }
+        product.setHts8(hts8);
+        product.setBriefDescription(description);
+        return product;
+    }
+
+    @Test
+    @DisplayName("Should index product descriptions and notes on rebuild")
+    void rebuild_ShouldIndexDescriptionsAndNotes() {
+        // Arrange
+        when(productRepository.findAll()).thenReturn(List.of(
+            product(1L, "84713001", "Portable data processing machines"),
+            product(2L, "01012100", "Purebred breeding horses")));
+        when(productNoteRepository.findAllNoteContents())
+            .thenReturn(List.<Object[]>of(new Object[] {1L, "Includes laptops"}));
+
+        // Act
+        productSuggestionService.rebuild();
+        List<ProductMatch> matches = productSuggestionService.suggest("laptops", 5);
+
+        // Assert
+        assertEquals(1, matches.size());
+        assertEquals("84713001", matches.get(0).hts8());
+    }
+
+    @Test
+    @DisplayName("Should reflect product writes without a rebuild")
+    void index_ShouldUpdateSuggestionsIncrementally() {
+        // Arrange
+        Product product = product(7L, "95030000", "Toys for children");
+        when(productNoteRepository.findNoteContentsByProductId(7L)).thenReturn(List.of());
+
+        // Act
+        productSuggestionService.index(product);
+        List<ProductMatch> afterCreate = productSuggestionService.suggest("toy", 5);
+        productSuggestionService.remove(7L);
+        List<ProductMatch> afterDelete = productSuggestionService.suggest("toy", 5);
+
+        // Assert
+        assertEquals(7L, afterCreate.get(0).id());
+        assertTrue(afterDelete.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject a blank query")
+    void suggest_ShouldThrowException_WhenQueryBlank() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> productSuggestionService.suggest(" ", 5));
+    }
+}
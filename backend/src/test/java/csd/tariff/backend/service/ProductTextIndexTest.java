@@ -0,0 +1,106 @@
+package csd.tariff.backend.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ProductTextIndex BM25 ranking, typo tolerance and incremental updates
+ */
+@DisplayName("ProductTextIndex Unit Tests")
+class ProductTextIndexTest {
+
+    private static ProductTextIndex index() {
+        ProductTextIndex index = new ProductTextIndex();
+        index.put(1L, "01012100", "Live purebred breeding horses", null);
+        index.put(2L, "01022100", "Live purebred breeding cattle", null);
+        index.put(3L, "84713001", "Portable automatic data processing machines", "Laptops and notebook computers");
+        index.put(4L, "84714100", "Other automatic data processing machines", null);
+        index.put(5L, "95030000", "Toys, including horses for children", null);
+        return index;
+    }
+
+    @Test
+    @DisplayName("Should rank documents matching more and rarer terms first")
+    void search_ShouldRankByBm25() {
+        // Act
+        List<ProductTextIndex.Hit> hits = index().search("purebred horse", 10);
+
+        // Assert
+        assertEquals(1L, hits.get(0).productId());
+        assertEquals(3, hits.size());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    @DisplayName("Should match note text and inflected forms")
+    void search_ShouldMatchNotesAndStems() {
+        // Act
+        List<ProductTextIndex.Hit> hits = index().search("laptop", 10);
+
+        // Assert
+        assertEquals(1, hits.size());
+        assertEquals("84713001", hits.get(0).hts8());
+    }
+
+    @Test
+    @DisplayName("Should tolerate misspelled query terms")
+    void search_ShouldMatchWithinEditDistance() {
+        // Act
+        List<ProductTextIndex.Hit> transposed = index().search("catlte", 10);
+        List<ProductTextIndex.Hit> twoEdits = index().search("procesing machnes", 10);
+
+        // Assert
+        assertEquals(2L, transposed.get(0).productId());
+        assertEquals(2, twoEdits.size());
+    }
+
+    @Test
+    @DisplayName("Should reflect updates and deletions without a rebuild")
+    void put_ShouldReplaceAndRemoveDocuments() {
+        // Arrange
+        ProductTextIndex index = index();
+
+        // Act
+        index.put(4L, "84714100", "Digital mainframes", null);
+        index.remove(5L);
+
+        // Assert
+        assertEquals(4, index.size());
+        assertEquals(List.of(3L), index.search("data processing", 10).stream().map(ProductTextIndex.Hit::productId).toList());
+        assertEquals(4L, index.search("mainframe", 10).get(0).productId());
+        assertEquals(List.of(1L), index.search("horses", 10).stream().map(ProductTextIndex.Hit::productId).toList());
+    }
+
+    @Test
+    @DisplayName("Should keep results correct after purging deleted slots")
+    void remove_ShouldPurgeDeletedPostings() {
+        // Arrange
+        ProductTextIndex index = new ProductTextIndex();
+        for (long id = 0; id < 100; id++) {
+            index.put(id, String.valueOf(id), "widget number " + id, null);
+        }
+
+        // Act
+        for (long id = 0; id < 90; id++) {
+            index.remove(id);
+        }
+
+        // Assert
+        assertEquals(10, index.size());
+        assertEquals(10, index.search("widget", 50).size());
+        assertEquals(List.of(95L), index.search("widget 95", 1).stream().map(ProductTextIndex.Hit::productId).toList());
+    }
+
+    @Test
+    @DisplayName("Should compute bounded edit distances")
+    void editDistance_ShouldCountTranspositionsAsOneEdit() {
+        // Act & Assert
+        assertEquals(1, ProductTextIndex.editDistance("cattl", "catlt", 2));
+        assertEquals(2, ProductTextIndex.editDistance("machin", "mchn", 2));
+        assertEquals(2, ProductTextIndex.editDistance("abcdef", "uvwxyz", 1));
+    }
+}
@@ -0,0 +1,103 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for RateExpressionCompiler and the expressions it builds
+ */
+@DisplayName("RateExpressionCompiler Unit Tests")
+class RateExpressionCompilerTest {
+
+    private static final BigDecimal VALUE = new BigDecimal("1000.00");
+    private static final BigDecimal QUANTITY = new BigDecimal("10");
+
+    private static BigDecimal duty(String textRate) {
+        return RateExpressionCompiler.compile(textRate).duty(VALUE, QUANTITY).setScale(2, java.math.RoundingMode.HALF_UP);
+    }
+
+    @Test
+    @DisplayName("Should compile Free regardless of case")
+    void compile_ShouldCompileFree() {
+        assertSame(RateExpressionCompiler.FREE, RateExpressionCompiler.compile(" FREE "));
+        assertEquals(new BigDecimal("0.00"), duty("Free"));
+    }
+
+    @Test
+    @DisplayName("Should compile ad valorem rates")
+    void compile_ShouldCompileAdValorem() {
+        assertInstanceOf(RateExpression.AdValorem.class, RateExpressionCompiler.compile("5%"));
+        assertEquals(new BigDecimal("50.00"), duty("5%"));
+        assertEquals(new BigDecimal("100.00"), duty("10% ad valorem"));
+        assertEquals(new BigDecimal("25.00"), duty("2.5 %"));
+    }
+
+    @Test
+    @DisplayName("Should compile specific rates in cents and dollars")
+    void compile_ShouldCompileSpecific() {
+        RateExpression cents = RateExpressionCompiler.compile("6.8¢/kg");
+        assertEquals(new RateExpression.Specific(new BigDecimal("0.068"), "kg"), cents);
+        assertEquals(new BigDecimal("0.68"), duty("6.8¢/kg"));
+        assertEquals(new BigDecimal("25.00"), duty("$2.50 per unit"));
+        assertEquals(new BigDecimal("10.00"), duty("$1.00 each"));
+    }
+
+    @Test
+    @DisplayName("Should add compound components")
+    void compile_ShouldCompileCompound() {
+        assertInstanceOf(RateExpression.Compound.class, RateExpressionCompiler.compile("6.8¢/kg + 5%"));
+        assertEquals(new BigDecimal("50.68"), duty("6.8¢/kg + 5%"));
+        assertEquals(new BigDecimal("150.00"), duty("10% + $5.00 per unit"));
+    }
+
+    @Test
+    @DisplayName("Should take the higher alternative")
+    void compile_ShouldCompileAlternative() {
+        assertInstanceOf(RateExpression.Alternative.class, RateExpressionCompiler.compile("1% or $2.00 each"));
+        assertEquals(new BigDecimal("20.00"), duty("1% or $2.00 each"));
+        assertEquals(new BigDecimal("50.00"), duty("5% or $2.50 per unit, whichever is greater"));
+    }
+
+    @Test
+    @DisplayName("Should charge unknown text at its leading percentage and missing text nothing")
+    void compile_ShouldReturnUnparsed_ForUnknownText() {
+        assertInstanceOf(RateExpression.Unparsed.class, RateExpressionCompiler.compile("See heading 9903"));
+        assertInstanceOf(RateExpression.Unparsed.class, RateExpressionCompiler.compile("5% + see note"));
+        assertInstanceOf(RateExpression.Unparsed.class, RateExpressionCompiler.compile(null));
+        assertEquals(new BigDecimal("0.00"), duty("See heading 9903"));
+        assertEquals(new BigDecimal("50.00"), duty("5% + see note"));
+        assertEquals(new BigDecimal("0.00"), duty(null));
+    }
+
+    @Test
+    @DisplayName("Should price per item only when every specific component is per item")
+    void perItem_ShouldBeFalse_ForMeasuredUnits() {
+        assertTrue(RateExpressionCompiler.compile("$1.00 each").perItem());
+        assertTrue(RateExpressionCompiler.compile("$0.50/No.").perItem());
+        assertTrue(RateExpressionCompiler.compile("10% + $5.00 per unit").perItem());
+        assertTrue(RateExpressionCompiler.compile("5%").perItem());
+        assertFalse(RateExpressionCompiler.compile("6.8¢/kg").perItem());
+        assertFalse(RateExpressionCompiler.compile("6.8¢/kg + 5%").perItem());
+        assertFalse(RateExpressionCompiler.compile("1% or 20¢/liter").perItem());
+    }
+
+    @Test
+    @DisplayName("Should keep only the per-item components of a rate with measured units")
+    void perItemPart_ShouldDropMeasuredUnitComponents() {
+        assertEquals(new BigDecimal("0.00"), RateExpressionCompiler.compile("6.8¢/kg").perItemPart()
+            .duty(VALUE, QUANTITY).setScale(2, java.math.RoundingMode.HALF_UP));
+        assertEquals(new BigDecimal("50.00"), RateExpressionCompiler.compile("6.8¢/kg + 5%").perItemPart()
+            .duty(VALUE, QUANTITY).setScale(2, java.math.RoundingMode.HALF_UP));
+        assertEquals(new BigDecimal("10.00"), RateExpressionCompiler.compile("1% or 20¢/liter").perItemPart()
+            .duty(VALUE, QUANTITY).setScale(2, java.math.RoundingMode.HALF_UP));
+        RateExpression perItem = RateExpressionCompiler.compile("10% + $5.00 per unit");
+        assertSame(perItem, perItem.perItemPart());
+    }
+}
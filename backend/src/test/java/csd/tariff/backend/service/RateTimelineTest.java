@@ -0,0 +1,103 @@
+package csd.tariff.backend.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for RateTimeline as-of-date resolution
+ */
+@DisplayName("RateTimeline Unit Tests")
+class RateTimelineTest {
+
+    private record Version(String name, LocalDate start, LocalDate end, String series) {
+        Version(String name, LocalDate start, LocalDate end) {
+            this(name, start, end, "A");
+        }
+    }
+
+    private static RateTimeline<Version> timeline(Version... versions) {
+        return RateTimeline.of(List.of(versions), Version::start, Version::end);
+    }
+
+    private static Optional<String> nameAsOf(RateTimeline<Version> timeline, LocalDate date) {
+        return timeline.asOf(date).map(Version::name);
+    }
+
+    @Test
+    @DisplayName("Should resolve consecutive versions by date regardless of input order")
+    void asOf_ShouldResolveConsecutiveVersions() {
+        // Arrange
+        RateTimeline<Version> timeline = timeline(
+            new Version("2024", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)),
+            new Version("2022", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31)),
+            new Version("2023", LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)));
+
+        // Act & Assert
+        assertEquals(Optional.of("2022"), nameAsOf(timeline, LocalDate.of(2022, 1, 1)));
+        assertEquals(Optional.of("2023"), nameAsOf(timeline, LocalDate.of(2023, 12, 31)));
+        assertEquals(Optional.of("2024"), nameAsOf(timeline, LocalDate.of(2024, 6, 15)));
+        assertEquals(Optional.empty(), nameAsOf(timeline, LocalDate.of(2021, 12, 31)));
+        assertEquals(Optional.empty(), nameAsOf(timeline, LocalDate.of(2025, 1, 1)));
+        assertEquals(List.of("2022", "2023", "2024"), timeline.rows().stream().map(Version::name).toList());
+        assertEquals(LocalDate.of(2022, 1, 1), timeline.earliestStart());
+        assertEquals(LocalDate.of(2024, 12, 31), timeline.latestEnd());
+    }
+
+    @Test
+    @DisplayName("Should treat null dates as open bounds")
+    void asOf_ShouldTreatNullDatesAsOpen() {
+        // Arrange
+        RateTimeline<Version> timeline = timeline(
+            new Version("old", null, LocalDate.of(2019, 12, 31)),
+            new Version("current", LocalDate.of(2020, 1, 1), null));
+
+        // Act & Assert
+        assertEquals(Optional.of("old"), nameAsOf(timeline, LocalDate.of(1990, 1, 1)));
+        assertEquals(Optional.of("current"), nameAsOf(timeline, LocalDate.of(2100, 1, 1)));
+        assertNull(timeline.earliestStart());
+        assertNull(timeline.latestEnd());
+    }
+
+    @Test
+    @DisplayName("Should prefer the latest start and fall back to an earlier row still in effect")
+    void asOf_ShouldResolveOverlappingRows() {
+        // Arrange
+        RateTimeline<Version> timeline = timeline(
+            new Version("base", LocalDate.of(2020, 1, 1), null),
+            new Version("temporary", LocalDate.of(2023, 3, 1), LocalDate.of(2023, 6, 30)));
+
+        // Act & Assert
+        assertEquals(Optional.of("base"), nameAsOf(timeline, LocalDate.of(2023, 2, 28)));
+        assertEquals(Optional.of("temporary"), nameAsOf(timeline, LocalDate.of(2023, 3, 1)));
+        assertEquals(Optional.of("base"), nameAsOf(timeline, LocalDate.of(2023, 7, 1)));
+    }
+
+    @Test
+    @DisplayName("Should build one timeline per series")
+    void bySeries_ShouldSplitRowsBySeriesKey() {
+        // Arrange
+        List<Version> rows = List.of(
+            new Version("usmca", LocalDate.of(2020, 7, 1), null, "USMCA"),
+            new Version("nafta", LocalDate.of(1994, 1, 1), LocalDate.of(2020, 6, 30), "NAFTA"),
+            new Version("gsp", null, null, "GSP"));
+
+        // Act
+        List<RateTimeline<Version>> timelines =
+            RateTimeline.bySeries(rows, Version::series, Version::start, Version::end);
+
+        // Assert
+        assertEquals(3, timelines.size());
+        assertEquals(List.of("nafta", "gsp"),
+            RateTimeline.asOf(timelines, LocalDate.of(2019, 1, 1)).stream().map(Version::name).toList());
+        assertEquals(List.of("usmca", "gsp"),
+            RateTimeline.asOf(timelines, LocalDate.of(2024, 1, 1)).stream().map(Version::name).toList());
+        assertTrue(RateTimeline.<Version>empty().asOf(LocalDate.of(2024, 1, 1)).isEmpty());
+    }
+}
@@ -0,0 +1,189 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.Country;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+import csd.tariff.backend.repository.AgreementParticipantRepository;
+import csd.tariff.backend.repository.AgreementRateRepository;
+import csd.tariff.backend.repository.CountryRepository;
+import csd.tariff.backend.repository.MfnTariffRateRepository;
+import csd.tariff.backend.repository.ProductRepository;
+import csd.tariff.backend.repository.TradeAgreementRepository;
+import csd.tariff.backend.service.ScheduleVersionService.Delta;
+
+/**
+ * Unit tests for ScheduleVersionService version pinning and schedule replay
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ScheduleVersionService Unit Tests")
+class ScheduleVersionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private MfnTariffRateRepository mfnTariffRateRepository;
+
+    @Mock
+    private AgreementRateRepository agreementRateRepository;
+
+    @Mock
+    private AgreementParticipantRepository agreementParticipantRepository;
+
+    @Mock
+    private TradeAgreementRepository tradeAgreementRepository;
+
+    @Mock
+    private CountryRepository countryRepository;
+
+    private ScheduleVersionService scheduleVersionService;
+
+    private Product product;
+    private MfnTariffRate mfnRate;
+    private AgreementRate agreementRate;
+    private TradeAgreement usmca;
+
+    @BeforeEach
+    void setUp() {
+        scheduleVersionService = new ScheduleVersionService(jdbcTemplate, transactionManager, productRepository,
+            mfnTariffRateRepository, agreementRateRepository, agreementParticipantRepository,
+            tradeAgreementRepository, countryRepository, new ObjectMapper());
+
+        product = new Product("12345678", "Test Product");
+        ReflectionTestUtils.setField(product, "id", 1L);
+
+        mfnRate = new MfnTariffRate();
+        mfnRate.setProduct(product);
+        mfnRate.setMfnadValoremRate(new BigDecimal("0.05"));
+        mfnRate.setMfnTextRate("5%");
+        ReflectionTestUtils.setField(mfnRate, "id", 10L);
+
+        usmca = new TradeAgreement("USMCA", "United States-Mexico-Canada Agreement", "FTA");
+        ReflectionTestUtils.setField(usmca, "id", 2L);
+        agreementRate = new AgreementRate(product, usmca, new Country("US", "United States"));
+        agreementRate.setadValoremRate(BigDecimal.ZERO);
+        ReflectionTestUtils.setField(agreementRate, "id", 100L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubDatabase(String productName) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(productName);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubDeltas(long version, Delta... deltas) {
+        stubDatabase("PostgreSQL");
+        when(productRepository.findByHts8In(List.of("12345678"))).thenReturn(List.of(product));
+        when(mfnTariffRateRepository.findByHts8In(List.of("12345678"))).thenReturn(List.of(mfnRate));
+        when(agreementRateRepository.findByHts8InAndCountryCodeIn(List.of("12345678"), Set.of("US")))
+            .thenReturn(List.of(agreementRate));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(version), eq("12345678")))
+            .thenReturn(List.of(deltas));
+    }
+
+    @Test
+    @DisplayName("Should read the current rows when nothing changed after the version")
+    void at_ShouldUseCurrentRows_WhenNoLaterDeltas() {
+        // Arrange
+        stubDeltas(5L);
+
+        // Act
+        TariffScheduleSnapshot snapshot = scheduleVersionService.at(5L, "12345678", Set.of("US"));
+
+        // Assert
+        assertSame(mfnRate, snapshot.findMfnRate("12345678").orElseThrow());
+        assertEquals(List.of(agreementRate), snapshot.getAgreementRates("12345678", "US"));
+        assertEquals(5L, snapshot.getScheduleVersion());
+    }
+
+    @Test
+    @DisplayName("Should restore updated rows from their first later delta and drop later inserts")
+    void at_ShouldUndoLaterDeltas() {
+        // Arrange
+        when(tradeAgreementRepository.findAllById(any())).thenReturn(List.of(usmca));
+        stubDeltas(5L,
+            new Delta(ScheduleVersionService.MFN_RATES, 10L, "U",
+                "{\"id\": 10, \"product_id\": 1, \"mfn_text_rate\": \"10%\", \"mfn_ad_val_rate\": 0.10}"),
+            new Delta(ScheduleVersionService.MFN_RATES, 10L, "U",
+                "{\"id\": 10, \"product_id\": 1, \"mfn_text_rate\": \"7%\", \"mfn_ad_val_rate\": 0.07}"),
+            new Delta(ScheduleVersionService.AGREEMENT_RATES, 100L, "I", null));
+
+        // Act
+        TariffScheduleSnapshot snapshot = scheduleVersionService.at(5L, "12345678", Set.of("US"));
+
+        // Assert
+        MfnTariffRate restored = snapshot.findMfnRate("12345678").orElseThrow();
+        assertNotSame(mfnRate, restored);
+        assertEquals(new BigDecimal("0.10"), restored.getMfnadValoremRate());
+        assertEquals("10%", restored.getMfnTextRate());
+        assertSame(product, restored.getProduct());
+        assertTrue(snapshot.getAgreementRates("12345678", "US").isEmpty());
+        assertEquals(5L, snapshot.getScheduleVersion());
+    }
+
+    @Test
+    @DisplayName("Should ignore restored rates that belong to another product")
+    void at_ShouldSkipRestoredRatesOfOtherProducts() {
+        // Arrange
+        stubDeltas(5L,
+            new Delta(ScheduleVersionService.MFN_RATES, 11L, "D",
+                "{\"id\": 11, \"product_id\": 2, \"mfn_text_rate\": \"10%\", \"mfn_ad_val_rate\": 0.10}"));
+
+        // Act
+        TariffScheduleSnapshot snapshot = scheduleVersionService.at(5L, "12345678", Set.of("US"));
+
+        // Assert
+        assertSame(mfnRate, snapshot.findMfnRate("12345678").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should record no version when the database is not PostgreSQL")
+    void pinCurrentVersion_ShouldReturnNull_WhenDatabaseIsNotPostgres() {
+        // Arrange
+        stubDatabase("H2");
+
+        // Act & Assert
+        assertNull(scheduleVersionService.pinCurrentVersion());
+        assertNull(scheduleVersionService.currentVersion());
+        assertThrows(IllegalStateException.class, () -> scheduleVersionService.at(5L, "12345678", Set.of("US")));
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Long.class));
+    }
+}
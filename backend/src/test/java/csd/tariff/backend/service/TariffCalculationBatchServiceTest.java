@@ -0,0 +1,204 @@
+package csd.tariff.backend.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import csd.tariff.backend.dto.TariffCalculationRequest;
+import csd.tariff.backend.dto.TariffCalculationResponse;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TariffCalculation;
+import jakarta.validation.Validator;
+
+/**
+ * Unit tests for TariffCalculationBatchService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TariffCalculationBatchService Unit Tests")
+class TariffCalculationBatchServiceTest {
+
+    @Mock
+    private TariffCalculationService tariffCalculationService;
+
+    @Mock
+    private TariffScheduleLookup databaseLookup;
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private TariffCalculationWriter tariffCalculationWriter;
+
+    private ObjectMapper objectMapper;
+    private TariffCalculationBatchService batchService;
+
+    private static final String REQUEST =
+        "{\"htsCode\":\"12345678\",\"originCountry\":\"MX\",\"destinationCountry\":\"US\","
+        + "\"productValue\":100.00,\"quantity\":2,\"currency\":\"USD\"}";
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        batchService = new TariffCalculationBatchService(
+            tariffCalculationService, objectMapper, validator, tariffCalculationWriter);
+    }
+
+    private void stubCalculation() {
+        when(tariffCalculationService.getScheduleLookup()).thenReturn(databaseLookup);
+        when(tariffCalculationService.getScheduleLookup(anyCollection(), anyCollection())).thenReturn(databaseLookup);
+        when(databaseLookup.findProduct("12345678")).thenReturn(Optional.of(new Product("12345678", "Test Product")));
+        when(tariffCalculationService.calculateTariffCalculation(any(TariffCalculationRequest.class), any(TariffScheduleLookup.class)))
+            .thenAnswer(invocation -> {
+                TariffCalculationRequest request = invocation.getArgument(0);
+                TariffScheduleLookup lookup = invocation.getArgument(1);
+                if (!"12345678".equals(request.getHtsCode())) {
+                    throw new RuntimeException("Invalid HTS code: HTS code not found in database");
+                }
+                Product product = lookup.findProduct(request.getHtsCode()).orElseThrow();
+                TariffCalculationResponse response = new TariffCalculationResponse(
+                    request.getHtsCode(),
+                    product.getBriefDescription(),
+                    request.getOriginCountry(),
+                    request.getDestinationCountry(),
+                    request.getProductValue(),
+                    request.getQuantity(),
+                    request.getCurrency());
+                response.setTotalTariffAmount(new BigDecimal("20.00"));
+                response.setTotalImportPrice(new BigDecimal("220.00"));
+                return response;
+            });
+    }
+
+    private List<JsonNode> run(String body, boolean persist) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchService.calculateBatch(
+            new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out, persist);
+        return objectMapper.readerFor(JsonNode.class)
+            .<JsonNode>readValues(out.toString(StandardCharsets.UTF_8))
+            .readAll();
+    }
+
+    @Test
+    @DisplayName("Should stream one response per NDJSON line and resolve each HTS code once")
+    void calculateBatch_ShouldStreamResponses_ForNdjsonInput() throws Exception {
+        // Arrange
+        stubCalculation();
+
+        // Act
+        List<JsonNode> lines = run(REQUEST + "\n" + REQUEST + "\n" + REQUEST + "\n", false);
+
+        // Assert
+        assertEquals(3, lines.size());
+        assertEquals("Test Product", lines.get(0).get("productDescription").asText());
+        assertEquals(0, new BigDecimal("220.00").compareTo(lines.get(2).get("totalImportPrice").decimalValue()));
+        verify(databaseLookup, times(1)).findProduct("12345678");
+        verify(tariffCalculationWriter, never()).submit(any(TariffCalculation.class));
+    }
+
+    @Test
+    @DisplayName("Should prefetch each distinct HTS code and country once per chunk without a snapshot")
+    void calculateBatch_ShouldPrefetchDistinctCodes_WhenNoSnapshot() throws Exception {
+        // Arrange
+        stubCalculation();
+        String toCanada = REQUEST.replace("\"destinationCountry\":\"US\"", "\"destinationCountry\":\"CA\"");
+
+        // Act
+        run(REQUEST + "\n" + toCanada + "\n" + REQUEST + "\n", false);
+
+        // Assert
+        verify(tariffCalculationService, times(1))
+            .getScheduleLookup(Set.of("12345678"), Set.of("MX", "US", "CA"));
+    }
+
+    @Test
+    @DisplayName("Should accept a JSON array of requests")
+    void calculateBatch_ShouldAcceptJsonArray() throws Exception {
+        // Arrange
+        stubCalculation();
+
+        // Act
+        List<JsonNode> lines = run("[" + REQUEST + "," + REQUEST + "]", false);
+
+        // Assert
+        assertEquals(2, lines.size());
+        assertEquals("12345678", lines.get(1).get("htsCode").asText());
+    }
+
+    @Test
+    @DisplayName("Should report a failed request at its position and continue")
+    void calculateBatch_ShouldReportErrorLine_WhenRequestFails() throws Exception {
+        // Arrange
+        stubCalculation();
+        String unknownHts = REQUEST.replace("12345678", "99999999");
+
+        // Act
+        List<JsonNode> lines = run(unknownHts + "\n" + REQUEST + "\n", false);
+
+        // Assert
+        assertEquals(2, lines.size());
+        assertEquals(0, lines.get(0).get("index").asLong());
+        assertTrue(lines.get(0).get("error").asText().startsWith("Invalid request"));
+        assertEquals("12345678", lines.get(1).get("htsCode").asText());
+    }
+
+    @Test
+    @DisplayName("Should report a request that cannot be bound and continue")
+    void calculateBatch_ShouldReportErrorLine_WhenRequestCannotBeBound() throws Exception {
+        // Arrange
+        stubCalculation();
+        String badQuantity = REQUEST.replace("\"quantity\":2", "\"quantity\":\"two\"");
+
+        // Act
+        List<JsonNode> lines = run(badQuantity + "\n" + REQUEST + "\n", false);
+
+        // Assert
+        assertEquals(2, lines.size());
+        assertEquals(0, lines.get(0).get("index").asLong());
+        assertTrue(lines.get(0).has("error"));
+        assertEquals("12345678", lines.get(1).get("htsCode").asText());
+    }
+
+    @Test
+    @DisplayName("Should persist successful calculations through the calculation writer")
+    void calculateBatch_ShouldSubmitToWriter_WhenRequested() throws Exception {
+        // Arrange
+        stubCalculation();
+        when(tariffCalculationWriter.submit(any(TariffCalculation.class))).thenReturn(51L, 52L);
+        ArgumentCaptor<TariffCalculation> rows = ArgumentCaptor.forClass(TariffCalculation.class);
+
+        // Act
+        List<JsonNode> lines = run(REQUEST + "\n" + REQUEST + "\n", true);
+
+        // Assert
+        verify(tariffCalculationWriter, times(2)).submit(rows.capture());
+        assertEquals("12345678", rows.getValue().getHtsCode());
+        assertEquals(new BigDecimal("20.00"), rows.getValue().getTotalTariffAmount());
+        assertEquals(new BigDecimal("220.00"), rows.getValue().getCalculationResult());
+        assertEquals(51L, lines.get(0).get("calculationId").asLong());
+        assertEquals(52L, lines.get(1).get("calculationId").asLong());
+        verify(tariffCalculationWriter).flush();
+    }
+}
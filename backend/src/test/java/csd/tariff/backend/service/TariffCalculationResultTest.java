@@ -0,0 +1,99 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for TariffCalculationResult and its legacy map rendering
+ */
+@DisplayName("TariffCalculationResult Unit Tests")
+class TariffCalculationResultTest {
+
+    private static TariffCalculationResult result(boolean dateRange, TariffCalculationResult.RateLeg mfn) {
+        TariffCalculationResult.RateLeg usmca = new TariffCalculationResult.RateLeg(
+            BigDecimal.ZERO, null, "Free", "0", new BigDecimal("0.00"), "USMCA", "US-Mexico-Canada Agreement",
+            RateExpressionCompiler.compile("Free"));
+        return new TariffCalculationResult(
+            "12345678",
+            "Test Product",
+            "MX",
+            "US",
+            1000.0,
+            1,
+            dateRange,
+            dateRange ? LocalDate.of(2024, 1, 1) : null,
+            null,
+            null,
+            mfn,
+            new BigDecimal("50.00"),
+            List.of(usmca),
+            new TariffCalculationResult.Recommendation(
+                true, new BigDecimal("0.00"), new BigDecimal("50.00"), "US-Mexico-Canada Agreement"),
+            List.of("USMCA - US-Mexico-Canada Agreement"),
+            List.of("USMCA: Verify rules of origin requirements"),
+            new BigDecimal("1000.00"));
+    }
+
+    private static TariffCalculationResult.RateLeg mfnLeg() {
+        return new TariffCalculationResult.RateLeg(
+            new BigDecimal("0.05"), null, "5%", "7", new BigDecimal("50.00"), null, null,
+            RateExpressionCompiler.compile("5%"));
+    }
+
+    @Test
+    @DisplayName("Should render the legacy calculateTariff map")
+    @SuppressWarnings("unchecked")
+    void toMap_ShouldRenderLegacyShape() {
+        // Act
+        Map<String, Object> map = result(false, mfnLeg()).toMap();
+
+        // Assert
+        assertEquals("12345678", map.get("htsCode"));
+        assertEquals(new BigDecimal("0.00"), map.get("bestTariffAmount"));
+        assertEquals("US-Mexico-Canada Agreement", map.get("bestProgramName"));
+        assertFalse(map.containsKey("tariffEffectiveDate"));
+        assertFalse(map.containsKey("dateValidationWarning"));
+
+        Map<String, Object> mfn = (Map<String, Object>) map.get("mfnRate");
+        assertEquals("5%", mfn.get("textRate"));
+        assertFalse(mfn.containsKey("agreementCode"));
+
+        List<Map<String, Object>> prefs = (List<Map<String, Object>>) map.get("preferentialRates");
+        assertEquals("USMCA", prefs.get(0).get("agreementCode"));
+        assertEquals("Unknown", prefs.get(0).get("eligibilityStatus"));
+
+        Map<String, Object> recommended = (Map<String, Object>) map.get("recommendedRate");
+        assertEquals("Preferential", recommended.get("rateType"));
+        assertEquals("Use US-Mexico-Canada Agreement for lowest duty rate", recommended.get("recommendation"));
+    }
+
+    @Test
+    @DisplayName("Should include date keys and an empty MFN map when applicable")
+    void toMap_ShouldIncludeDateKeysAndEmptyMfn() {
+        // Act
+        Map<String, Object> map = result(true, null).toMap();
+
+        // Assert
+        assertEquals(LocalDate.of(2024, 1, 1), map.get("tariffEffectiveDate"));
+        assertTrue(map.containsKey("tariffExpirationDate"));
+        assertTrue(((Map<?, ?>) map.get("mfnRate")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should be immutable")
+    void result_ShouldBeImmutable() {
+        TariffCalculationResult result = result(false, mfnLeg());
+
+        assertThrows(UnsupportedOperationException.class, () -> result.complianceNotes().add("x"));
+        assertThrows(UnsupportedOperationException.class, () -> result.preferentialRates().clear());
+    }
+}
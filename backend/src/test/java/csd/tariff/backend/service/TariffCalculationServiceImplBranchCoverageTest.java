@@ -59,6 +59,15 @@ class TariffCalculationServiceImplBranchCoverageTest {
     @Mock
     private CurrencyService currencyService;
 
+    @Mock
+    private TariffScheduleService tariffScheduleService;
+
+    @Mock
+    private TariffCalculationWriter tariffCalculationWriter;
+
+    @Mock
+    private ScheduleVersionService scheduleVersionService;
+
     @InjectMocks
     private TariffCalculationServiceImpl tariffCalculationService;
 
@@ -162,16 +171,6 @@ class TariffCalculationServiceImplBranchCoverageTest {
         }
     }
 
-    private void setTariffCalculationId(TariffCalculation calc, Long id) {
-        try {
-            Field idField = TariffCalculation.class.getDeclaredField("id");
-            idField.setAccessible(true);
-            idField.set(calc, id);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to set TariffCalculation ID", e);
-        }
-    }
-
     @Nested
     @DisplayName("calculateTariff Branch Coverage")
     class CalculateTariffBranchCoverage {
@@ -522,11 +521,7 @@ class TariffCalculationServiceImplBranchCoverageTest {
             when(productRepository.findByHts8("12345678")).thenReturn(Optional.of(testProduct));
             when(mfnService.getMfnTariffRate("12345678")).thenReturn(Optional.of(testMfnRate));
             when(productService.getAgreementRates("12345678", "US")).thenReturn(Collections.emptyList());
-            when(tariffCalculationRepository.save(any(TariffCalculation.class))).thenAnswer(invocation -> {
-                TariffCalculation calc = invocation.getArgument(0);
-                setTariffCalculationId(calc, 1L);
-                return calc;
-            });
+            when(tariffCalculationWriter.submit(any(TariffCalculation.class))).thenReturn(1L);
 
             // Act
             TariffCalculationResponse response = tariffCalculationService.createTariffCalculation(request);
@@ -554,11 +549,7 @@ class TariffCalculationServiceImplBranchCoverageTest {
             when(productRepository.findByHts8("12345678")).thenReturn(Optional.of(testProduct));
             when(mfnService.getMfnTariffRate("12345678")).thenReturn(Optional.of(testMfnRate));
             when(productService.getAgreementRates("12345678", "US")).thenReturn(Collections.emptyList());
-            when(tariffCalculationRepository.save(any(TariffCalculation.class))).thenAnswer(invocation -> {
-                TariffCalculation calc = invocation.getArgument(0);
-                setTariffCalculationId(calc, 1L);
-                return calc;
-            });
+            when(tariffCalculationWriter.submit(any(TariffCalculation.class))).thenReturn(1L);
 
             // Act
             TariffCalculationResponse response = tariffCalculationService.createTariffCalculation(request);
@@ -584,11 +575,7 @@ class TariffCalculationServiceImplBranchCoverageTest {
             when(productRepository.findByHts8("12345678")).thenReturn(Optional.of(testProduct));
             when(mfnService.getMfnTariffRate("12345678")).thenReturn(Optional.of(testMfnRate));
             when(productService.getAgreementRates("12345678", "US")).thenReturn(Collections.emptyList());
-            when(tariffCalculationRepository.save(any(TariffCalculation.class))).thenAnswer(invocation -> {
-                TariffCalculation calc = invocation.getArgument(0);
-                setTariffCalculationId(calc, 1L);
-                return calc;
-            });
+            when(tariffCalculationWriter.submit(any(TariffCalculation.class))).thenReturn(1L);
 
             // Act
             TariffCalculationResponse response = tariffCalculationService.createTariffCalculation(request);
@@ -30,10 +30,13 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
+import csd.tariff.backend.dto.CursorPage;
 import csd.tariff.backend.dto.TariffCalculationRequest;
 import csd.tariff.backend.dto.TariffCalculationResponse;
 import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.Country;
 import csd.tariff.backend.model.MfnTariffRate;
 import csd.tariff.backend.model.Product;
 import csd.tariff.backend.model.TariffCalculation;
@@ -67,6 +70,15 @@ class TariffCalculationServiceImplTest {
     @Mock
     private CurrencyService currencyService;
 
+    @Mock
+    private TariffScheduleService tariffScheduleService;
+
+    @Mock
+    private TariffCalculationWriter tariffCalculationWriter;
+
+    @Mock
+    private ScheduleVersionService scheduleVersionService;
+
     @InjectMocks
     private TariffCalculationServiceImpl tariffCalculationService;
 
@@ -204,6 +216,76 @@ class TariffCalculationServiceImplTest {
         verify(mfnService, times(1)).getMfnTariffRate(htsCode);
     }
 
+    @Test
+    @DisplayName("Should leave a per-kg specific rate unpriced instead of charging it per item")
+    void calculateTariffCalculation_ShouldReportPerKgRateUnpriced() {
+        // Arrange
+        testMfnRate.setMfnTextRate("10% + 6.8¢/kg");
+        testMfnRate.setMfnSpecificRate(new BigDecimal("0.068"));
+        TariffScheduleSnapshot snapshot = TariffScheduleSnapshot.of(
+            List.of(testProduct), List.of(testMfnRate), List.of(), List.of());
+        TariffCalculationRequest request = new TariffCalculationRequest();
+        request.setHtsCode("12345678");
+        request.setOriginCountry("US");
+        request.setDestinationCountry("CA");
+        request.setProductValue(new BigDecimal("100.00"));
+        request.setQuantity(10);
+        request.setCurrency(null);
+
+        // Act
+        TariffCalculationResponse response = tariffCalculationService.calculateTariffCalculation(request, snapshot);
+
+        // Assert: 10% of 1000.00 only; there is no weight to charge 6.8¢/kg on
+        assertEquals(new BigDecimal("100.00"), response.getTotalTariffAmount());
+        assertTrue(response.getNotes().startsWith("Duty excludes the specific rate per weight or volume in \"10% + 6.8¢/kg\""));
+    }
+
+    @Test
+    @DisplayName("Should keep charging the current MFN row on an undated quote after it ended")
+    void calculateTariffCalculation_ShouldChargeCurrentRate_WhenUndatedAfterEndDate() {
+        // Arrange
+        testMfnRate.setEndEffectiveDate(LocalDate.now().minusDays(1));
+        TariffScheduleSnapshot snapshot = TariffScheduleSnapshot.of(
+            List.of(testProduct), List.of(testMfnRate), List.of(), List.of());
+        TariffCalculationRequest request = undatedRequest();
+
+        // Act
+        TariffCalculationResponse response = tariffCalculationService.calculateTariffCalculation(request, snapshot);
+
+        // Assert
+        assertEquals(new BigDecimal("150.00"), response.getTotalTariffAmount());
+        assertEquals("MFN", response.getProgramType());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the current MFN row when none was in effect on the pricing day")
+    void calculateTariffCalculation_ShouldFallBackToCurrentRate_WhenNoneInEffectOnPricingDay() {
+        // Arrange
+        testMfnRate.setBeginEffectDate(LocalDate.of(2025, 1, 1));
+        testMfnRate.setEndEffectiveDate(LocalDate.of(2025, 12, 31));
+        TariffScheduleSnapshot snapshot = TariffScheduleSnapshot.of(
+            List.of(testProduct), List.of(testMfnRate), List.of(), List.of());
+        TariffCalculationRequest request = undatedRequest();
+
+        // Act
+        TariffCalculationResponse response = tariffCalculationService.calculateTariffCalculation(
+            request, snapshot, LocalDate.of(2026, 6, 1), null);
+
+        // Assert
+        assertEquals(new BigDecimal("150.00"), response.getTotalTariffAmount());
+    }
+
+    private static TariffCalculationRequest undatedRequest() {
+        TariffCalculationRequest request = new TariffCalculationRequest();
+        request.setHtsCode("12345678");
+        request.setOriginCountry("US");
+        request.setDestinationCountry("CA");
+        request.setProductValue(new BigDecimal("100.00"));
+        request.setQuantity(10);
+        request.setCurrency(null);
+        return request;
+    }
+
     @Test
     @DisplayName("Should calculate tariff with preferential rate when available")
     void calculateTariff_ShouldCalculateWithPreferentialRate_WhenAvailable() {
@@ -471,6 +553,65 @@ class TariffCalculationServiceImplTest {
         verify(tariffCalculationRepository, times(1)).findById(id);
     }
 
+    @Test
+    @DisplayName("Should price a saved calculation against the schedule version it recorded")
+    void replayTariffCalculation_ShouldUseRecordedScheduleVersion() {
+        // Arrange
+        Long id = 5L;
+        TariffCalculation calculation = new TariffCalculation("12345678", "US", "MX", "US",
+            new BigDecimal("1000.00"), 10, "STANDARD", BigDecimal.ZERO, BigDecimal.ZERO, null, null, "USD");
+        calculation.setScheduleVersion(7L);
+        when(tariffCalculationRepository.findById(id)).thenReturn(Optional.of(calculation));
+        TariffScheduleSnapshot atVersion7 = TariffScheduleSnapshot.of(
+            List.of(testProduct), List.of(testMfnRate), List.of(), List.of()).atVersion(7L);
+        when(scheduleVersionService.at(eq(7L), eq("12345678"), any())).thenReturn(atVersion7);
+
+        // Act
+        TariffCalculationResponse result = tariffCalculationService.replayTariffCalculation(id).orElseThrow();
+
+        // Assert
+        assertEquals(id, result.getCalculationId());
+        assertEquals(7L, result.getScheduleVersion());
+        assertEquals("12345678", result.getHtsCode());
+        verify(productRepository, never()).findByHts8(anyString());
+    }
+
+    @Test
+    @DisplayName("Should convert a replayed calculation at the rates of the date it was priced")
+    void replayTariffCalculation_ShouldConvertAtPricedDate() {
+        // Arrange
+        LocalDate pricedOn = LocalDate.of(2025, 3, 14);
+        TariffCalculation calculation = new TariffCalculation("12345678", "US", "MX", "US",
+            new BigDecimal("1000.00"), 10, "STANDARD", BigDecimal.ZERO, BigDecimal.ZERO, null, null, "EUR");
+        calculation.setScheduleVersion(7L);
+        calculation.setFxDate(pricedOn);
+        when(tariffCalculationRepository.findById(6L)).thenReturn(Optional.of(calculation));
+        when(scheduleVersionService.at(eq(7L), eq("12345678"), any())).thenReturn(TariffScheduleSnapshot.of(
+            List.of(testProduct), List.of(testMfnRate), List.of(), List.of()).atVersion(7L));
+        when(currencyService.convertCurrency(any(BigDecimal.class), eq("USD"), eq("EUR"), eq(pricedOn)))
+            .thenAnswer(invocation -> invocation.getArgument(0, BigDecimal.class).multiply(new BigDecimal("0.5")));
+
+        // Act
+        tariffCalculationService.replayTariffCalculation(6L).orElseThrow();
+
+        // Assert
+        verify(currencyService, times(2)).convertCurrency(any(BigDecimal.class), eq("USD"), eq("EUR"), eq(pricedOn));
+        verify(currencyService, never()).convertCurrency(any(BigDecimal.class), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should refuse to replay a calculation saved before schedule versioning")
+    void replayTariffCalculation_ShouldThrow_WhenNoScheduleVersion() {
+        // Arrange
+        TariffCalculation calculation = new TariffCalculation();
+        calculation.setHtsCode("12345678");
+        when(tariffCalculationRepository.findById(3L)).thenReturn(Optional.of(calculation));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> tariffCalculationService.replayTariffCalculation(3L));
+        verify(scheduleVersionService, never()).at(anyLong(), anyString(), any());
+    }
+
     @Test
     @DisplayName("Should get all tariff calculations")
     void getAllTariffCalculations_ShouldReturnAllCalculations() {
@@ -489,6 +630,26 @@ class TariffCalculationServiceImplTest {
         verify(tariffCalculationRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("Should flush queued writes before reading a page of calculations")
+    void getTariffCalculationPage_ShouldFlushWriterAndReturnPage() {
+        // Arrange
+        TariffCalculation first = new TariffCalculation();
+        first.setId(11L);
+        TariffCalculation second = new TariffCalculation();
+        second.setId(12L);
+        when(tariffCalculationRepository.findPageAfterId(10L, PageRequest.of(0, 2)))
+            .thenReturn(Arrays.asList(first, second));
+
+        // Act
+        CursorPage<TariffCalculation> page = tariffCalculationService.getTariffCalculationPage(10L, 1);
+
+        // Assert
+        assertEquals(1, page.items().size());
+        assertEquals(11L, page.nextCursor());
+        verify(tariffCalculationWriter, times(1)).flush();
+    }
+
     @Test
     @DisplayName("Should delete tariff calculation when exists")
     void deleteTariffCalculation_ShouldDelete_WhenExists() {
@@ -538,10 +699,7 @@ class TariffCalculationServiceImplTest {
         when(productRepository.findByHts8("12345678")).thenReturn(Optional.of(testProduct));
         when(mfnService.getMfnTariffRate("12345678")).thenReturn(Optional.of(testMfnRate));
         when(productService.getAgreementRates("12345678", "CA")).thenReturn(Collections.emptyList());
-        when(tariffCalculationRepository.save(any(TariffCalculation.class))).thenAnswer(invocation -> {
-            TariffCalculation calc = invocation.getArgument(0);
-            return calc;
-        });
+        when(tariffCalculationWriter.submit(any(TariffCalculation.class))).thenReturn(1L);
 
         // Act
         TariffCalculationResponse result = tariffCalculationService.createTariffCalculation(request);
@@ -554,8 +712,9 @@ class TariffCalculationServiceImplTest {
         assertEquals(new BigDecimal("1000.00"), result.getProductValue());
         assertEquals(10, result.getQuantity());
         assertEquals("USD", result.getCurrency());
+        assertEquals(1L, result.getCalculationId());
         
-        verify(tariffCalculationRepository, times(1)).save(any(TariffCalculation.class));
+        verify(tariffCalculationWriter, times(1)).submit(any(TariffCalculation.class));
     }
 
     @Test
@@ -943,10 +1102,7 @@ class TariffCalculationServiceImplTest {
         when(productService.getAgreementRates("12345678", "CA")).thenReturn(Collections.emptyList());
         when(currencyService.convertCurrency(any(BigDecimal.class), eq("USD"), eq("CAD")))
             .thenReturn(new BigDecimal("1350.00")); // Mock 1.35 exchange rate
-        when(tariffCalculationRepository.save(any(TariffCalculation.class))).thenAnswer(invocation -> {
-            TariffCalculation calc = invocation.getArgument(0);
-            return calc;
-        });
+        when(tariffCalculationWriter.submit(any(TariffCalculation.class))).thenReturn(1L);
 
         // Act
         TariffCalculationResponse result = tariffCalculationService.createTariffCalculation(request);
@@ -973,10 +1129,7 @@ class TariffCalculationServiceImplTest {
         when(productRepository.findByHts8("12345678")).thenReturn(Optional.of(testProduct));
         when(mfnService.getMfnTariffRate("12345678")).thenReturn(Optional.of(testMfnRate));
         when(productService.getAgreementRates("12345678", "CA")).thenReturn(Collections.emptyList());
-        when(tariffCalculationRepository.save(any(TariffCalculation.class))).thenAnswer(invocation -> {
-            TariffCalculation calc = invocation.getArgument(0);
-            return calc;
-        });
+        when(tariffCalculationWriter.submit(any(TariffCalculation.class))).thenReturn(1L);
 
         // Act
         TariffCalculationResponse result = tariffCalculationService.createTariffCalculation(request);
@@ -1358,10 +1511,7 @@ class TariffCalculationServiceImplTest {
         when(productService.getAgreementRates("12345678", "US")).thenReturn(Collections.emptyList());
         when(currencyService.convertCurrency(any(BigDecimal.class), eq("USD"), eq("EUR")))
             .thenReturn(new BigDecimal("8500.00")); // Mock 0.85 exchange rate
-        when(tariffCalculationRepository.save(any(TariffCalculation.class))).thenAnswer(invocation -> {
-            TariffCalculation calc = invocation.getArgument(0);
-            return calc;
-        });
+        when(tariffCalculationWriter.submit(any(TariffCalculation.class))).thenReturn(1L);
 
         // Act
         TariffCalculationResponse result = tariffCalculationService.createTariffCalculation(request);
@@ -1929,11 +2079,7 @@ class TariffCalculationServiceImplTest {
         when(productRepository.findByHts8("12345678")).thenReturn(Optional.of(testProduct));
         when(mfnService.getMfnTariffRate("12345678")).thenReturn(Optional.of(testMfnRate));
         when(productService.getAgreementRates("12345678", "CA")).thenReturn(Collections.emptyList());
-        when(productService.getAgreementRates("12345678", "US")).thenReturn(Collections.emptyList());
-        when(tariffCalculationRepository.save(any(TariffCalculation.class))).thenAnswer(invocation -> {
-            TariffCalculation calc = invocation.getArgument(0);
-            return calc;
-        });
+        when(tariffCalculationWriter.submit(any(TariffCalculation.class))).thenReturn(1L);
 
         // Act
         TariffCalculationResponse result = tariffCalculationService.createTariffCalculation(request);
@@ -1947,8 +2093,9 @@ class TariffCalculationServiceImplTest {
         assertEquals(10, result.getQuantity());
         assertEquals("USD", result.getCurrency());
         
-        // Verify repository save was called
-        verify(tariffCalculationRepository, times(1)).save(any(TariffCalculation.class));
+        // Verify the calculation was handed to the write-behind writer
+        verify(tariffCalculationWriter, times(1)).submit(any(TariffCalculation.class));
+        verify(tariffCalculationRepository, never()).save(any(TariffCalculation.class));
     }
 
     @Test
@@ -0,0 +1,235 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import csd.tariff.backend.model.TariffCalculation;
+
+/**
+ * Unit tests for TariffCalculationWriter ID pooling, batching and back-pressure
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TariffCalculationWriter Unit Tests")
+class TariffCalculationWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private static TariffCalculation calculation() {
+        TariffCalculation calculation = new TariffCalculation();
+        calculation.setHtsCode("12345678");
+        calculation.setCountryCode("US");
+        calculation.setDestinationCountry("US");
+        calculation.setProductValue(new BigDecimal("1000.00"));
+        calculation.setQuantity(10);
+        calculation.setCalculationType("STANDARD");
+        calculation.setCalculationResult(new BigDecimal("1050.00"));
+        calculation.setTotalTariffAmount(new BigDecimal("50.00"));
+        return calculation;
+    }
+
+    @Test
+    @DisplayName("Should assign IDs from one sequence call per block")
+    void submit_ShouldAssignPooledIds() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(100L, 150L);
+        TariffCalculationWriter writer = new TariffCalculationWriter(jdbcTemplate, 10, 500, 0, 1000);
+
+        // Act
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i <= TariffCalculationWriter.ID_BLOCK_SIZE; i++) {
+            ids.add(writer.submit(calculation()));
+        }
+
+        // Assert
+        assertEquals(51L, ids.get(0));
+        assertEquals(100L, ids.get(TariffCalculationWriter.ID_BLOCK_SIZE - 1));
+        assertEquals(101L, ids.get(TariffCalculationWriter.ID_BLOCK_SIZE));
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class));
+    }
+
+    @Test
+    @DisplayName("Should not hand out IDs below 1 from a fresh sequence")
+    void submit_ShouldStartAtOne_WhenSequenceIsFresh() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L, 51L);
+        TariffCalculationWriter writer = new TariffCalculationWriter(jdbcTemplate, 10, 500, 0, 1000);
+
+        // Act & Assert
+        assertEquals(1L, writer.submit(calculation()));
+        assertEquals(2L, writer.submit(calculation()));
+    }
+
+    @Test
+    @DisplayName("Should stamp the entity and write it on the caller thread when stopped")
+    void submit_ShouldWriteOnCallerThread_WhenStopped() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(50L);
+        TariffCalculationWriter writer = new TariffCalculationWriter(jdbcTemplate, 10, 500, 0, 1000);
+        TariffCalculation calculation = calculation();
+
+        // Act
+        Long id = writer.submit(calculation);
+
+        // Assert
+        assertEquals(1L, id);
+        assertEquals(id, calculation.getId());
+        assertNotNull(calculation.getCreatedAt());
+        assertEquals(0, writer.pendingCount());
+        assertTrue(writer.whenPersisted(id).isDone());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Should write on the caller thread when the queue is full")
+    void submit_ShouldApplyBackPressure_WhenQueueFull() throws InterruptedException {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(50L);
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> callerBatches = new ArrayList<>();
+        doAnswer(invocation -> {
+            if (Thread.currentThread().getName().equals("calculation-writer")) {
+                if (taken.getCount() == 0) {
+                    return new int[0];
+                }
+                // Hold the first background batch so the queue fills up behind it
+                taken.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            } else {
+                callerBatches.add(invocation.<List<Object[]>>getArgument(1).size());
+            }
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        TariffCalculationWriter writer = new TariffCalculationWriter(jdbcTemplate, 1, 500, 0, 1000);
+        writer.start();
+
+        // Act
+        Long first = writer.submit(calculation());
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        Long queued = writer.submit(calculation());
+        Long overflow = writer.submit(calculation());
+
+        // Assert
+        assertFalse(writer.whenPersisted(first).isDone());
+        assertFalse(writer.whenPersisted(queued).isDone());
+        assertTrue(writer.whenPersisted(overflow).isDone());
+        assertEquals(List.of(1), callerBatches);
+
+        release.countDown();
+        writer.stop();
+        assertEquals(0, writer.pendingCount());
+    }
+
+    @Test
+    @DisplayName("Should write every queued row in batches on stop")
+    void stop_ShouldFlushQueuedRows() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(50L);
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            synchronized (batchSizes) {
+                batchSizes.add(invocation.<List<Object[]>>getArgument(1).size());
+            }
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        TariffCalculationWriter writer = new TariffCalculationWriter(jdbcTemplate, 100, 4, 0, 1000);
+        writer.start();
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            writer.submit(calculation());
+        }
+        writer.stop();
+
+        // Assert
+        assertEquals(0, writer.pendingCount());
+        assertEquals(10, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+    }
+
+    @Test
+    @DisplayName("Should retry rows one by one when a batch fails")
+    void submit_ShouldRetryRowsIndividually_WhenBatchFails() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(50L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("batch failed"));
+        TariffCalculationWriter writer = new TariffCalculationWriter(jdbcTemplate, 10, 500, 0, 1000);
+
+        // Act
+        Long id = writer.submit(calculation());
+
+        // Assert
+        verify(jdbcTemplate, times(1)).update(anyString(), any(Object[].class));
+        assertEquals(0, writer.pendingCount());
+        assertTrue(writer.whenPersisted(id).isDone());
+    }
+
+    @Test
+    @DisplayName("Should keep a failed row pending and write it on the next retry")
+    void retryFailed_ShouldWriteRow_WhenDatabaseRecovers() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(50L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+            .thenThrow(new RuntimeException("database down"))
+            .thenReturn(new int[] {1});
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenThrow(new RuntimeException("database down"));
+        TariffCalculationWriter writer = new TariffCalculationWriter(jdbcTemplate, 10, 500, 0, 0);
+        Long id = writer.submit(calculation());
+
+        // Act & Assert
+        assertEquals(1, writer.pendingCount());
+        assertThrows(IllegalStateException.class, () -> writer.awaitPersisted(id));
+
+        writer.retryFailed();
+
+        assertEquals(0, writer.pendingCount());
+        assertEquals(id, writer.whenPersisted(id).join());
+        writer.awaitPersisted(id);
+    }
+
+    @Test
+    @DisplayName("Should give up on a row after the last retry and fail reads of its ID")
+    void retryFailed_ShouldGiveUp_AfterMaxRetries() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(50L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("bad row"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenThrow(new RuntimeException("bad row"));
+        TariffCalculationWriter writer = new TariffCalculationWriter(jdbcTemplate, 10, 500, 0, 0);
+        Long id = writer.submit(calculation());
+
+        // Act
+        for (int i = 0; i < TariffCalculationWriter.MAX_RETRIES; i++) {
+            writer.retryFailed();
+        }
+
+        // Assert
+        assertEquals(0, writer.pendingCount());
+        assertTrue(writer.whenPersisted(id).isCompletedExceptionally());
+        assertThrows(IllegalStateException.class, () -> writer.awaitPersisted(id));
+        verify(jdbcTemplate, times(TariffCalculationWriter.MAX_RETRIES + 1)).update(anyString(), any(Object[].class));
+    }
+}
@@ -0,0 +1,67 @@
+package csd.tariff.backend.service;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for TariffCsvReader record parsing
+ */
+@DisplayName("TariffCsvReader Unit Tests")
+class TariffCsvReaderTest {
+
+    @Test
+    @DisplayName("Should split plain and quoted fields and skip a byte order mark")
+    void next_ShouldParseFields() throws Exception {
+        // Arrange
+        TariffCsvReader reader = new TariffCsvReader(new StringReader("\uFEFFhts8,desc\r\n01012100,\"Horses, \"\"pure\"\"bred\",\n"));
+
+        // Act
+        String[] header = reader.next();
+        String[] record = reader.next();
+
+        // Assert
+        assertArrayEquals(new String[] {"hts8", "desc"}, header);
+        assertArrayEquals(new String[] {"01012100", "Horses, \"pure\"bred", ""}, record);
+        assertEquals("01012100,\"Horses, \"\"pure\"\"bred\",", reader.rawRecord());
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Should keep line breaks inside quotes and report the line each record starts on")
+    void next_ShouldTrackLines_WhenFieldsSpanLines() throws Exception {
+        // Arrange
+        TariffCsvReader reader = new TariffCsvReader(new StringReader("a,\"line one\nline two\"\n\nb,c"));
+
+        // Act
+        String[] first = reader.next();
+        long firstLine = reader.recordLine();
+        String[] second = reader.next();
+        long secondLine = reader.recordLine();
+
+        // Assert
+        assertArrayEquals(new String[] {"a", "line one\nline two"}, first);
+        assertEquals(1, firstLine);
+        assertArrayEquals(new String[] {"b", "c"}, second);
+        assertEquals(4, secondLine);
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Should return what was read when a quoted field is never closed")
+    void next_ShouldReturnPartialRecord_WhenQuoteUnterminated() throws Exception {
+        // Arrange
+        TariffCsvReader reader = new TariffCsvReader(new StringReader("a,\"open\nrest"));
+
+        // Act
+        String[] record = reader.next();
+
+        // Assert
+        assertArrayEquals(new String[] {"a", "open\nrest"}, record);
+        assertNull(reader.next());
+    }
+}
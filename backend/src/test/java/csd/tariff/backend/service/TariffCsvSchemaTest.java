@@ -0,0 +1,102 @@
+package csd.tariff.backend.service;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for TariffCsvSchema record validation and COPY encoding
+ */
+@DisplayName("TariffCsvSchema Unit Tests")
+class TariffCsvSchemaTest {
+
+    private static String[] record() {
+        String[] fields = new String[TariffCsvSchema.COLUMNS.size()];
+        Arrays.fill(fields, "");
+        fields[TariffCsvSchema.HTS8] = "01012100";
+        fields[TariffCsvSchema.BRIEF_DESCRIPTION] = "Horses, purebred";
+        return fields;
+    }
+
+    private static int column(String name) {
+        for (int i = 0; i < TariffCsvSchema.COLUMNS.size(); i++) {
+            if (TariffCsvSchema.COLUMNS.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    @Test
+    @DisplayName("Should match the tariffs_raw column count and order")
+    void columns_ShouldMatchTariffsRaw() {
+        // Assert
+        assertEquals(122, TariffCsvSchema.COLUMNS.size());
+        assertTrue(TariffCsvSchema.COLUMN_LIST.startsWith("hts8, brief_description, quantity_1_code"));
+        assertTrue(TariffCsvSchema.COLUMN_LIST.endsWith("usmca_specific_rate, usmca_other_rate"));
+    }
+
+    @Test
+    @DisplayName("Should accept a record with valid numbers and dates")
+    void validate_ShouldAccept_ValidRecord() {
+        // Arrange
+        String[] fields = record();
+        fields[column("mfn_ad_val_rate")] = " 0.065 ";
+        fields[column("begin_effect_date")] = "1/1/2025";
+        fields[column("end_effective_date")] = "12/31/9999";
+
+        // Act & Assert
+        assertNull(TariffCsvSchema.validate(fields));
+    }
+
+    @Test
+    @DisplayName("Should reject bad HTS codes, numbers, dates, lengths and column counts")
+    void validate_ShouldReject_InvalidRecords() {
+        // Arrange
+        String[] badHts = record();
+        badHts[TariffCsvSchema.HTS8] = "0101X100";
+        String[] noDescription = record();
+        noDescription[TariffCsvSchema.BRIEF_DESCRIPTION] = " ";
+        String[] badNumber = record();
+        badNumber[column("mfn_ave")] = "12%";
+        String[] hugeNumber = record();
+        hugeNumber[column("mfn_ave")] = "1234567890123";
+        String[] badDate = record();
+        badDate[column("begin_effect_date")] = "2/30/2025";
+        String[] tooLong = record();
+        tooLong[column("wto_binding_code")] = "BB";
+
+        // Act & Assert
+        assertTrue(TariffCsvSchema.validate(badHts).startsWith("hts8"));
+        assertTrue(TariffCsvSchema.validate(noDescription).startsWith("brief_description"));
+        assertTrue(TariffCsvSchema.validate(badNumber).startsWith("mfn_ave is not a number"));
+        assertTrue(TariffCsvSchema.validate(hugeNumber).startsWith("mfn_ave is out of range"));
+        assertTrue(TariffCsvSchema.validate(badDate).startsWith("begin_effect_date is not a valid date"));
+        assertTrue(TariffCsvSchema.validate(tooLong).startsWith("wto_binding_code is longer"));
+        assertTrue(TariffCsvSchema.validate(new String[] {"01012100"}).startsWith("Expected 122 columns"));
+    }
+
+    @Test
+    @DisplayName("Should quote values, leave empty values unquoted and trim typed columns")
+    void appendCopyRow_ShouldEncodeForCopy() {
+        // Arrange
+        String[] fields = record();
+        fields[TariffCsvSchema.BRIEF_DESCRIPTION] = "Say \"hi\", twice";
+        fields[column("mfn_ave")] = " 1.5 ";
+        StringBuilder out = new StringBuilder();
+
+        // Act
+        TariffCsvSchema.appendCopyRow(fields, out);
+
+        // Assert
+        String line = out.toString();
+        assertTrue(line.startsWith("\"01012100\",\"Say \"\"hi\"\", twice\",,,,,,\"1.5\","));
+        assertTrue(line.endsWith(",\n"));
+        // One separator between each pair of columns plus the comma inside the description
+        assertEquals(TariffCsvSchema.COLUMNS.size(), line.chars().filter(c -> c == ',').count());
+    }
+}
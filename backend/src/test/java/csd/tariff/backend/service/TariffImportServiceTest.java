@@ -0,0 +1,154 @@
+package csd.tariff.backend.service;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import csd.tariff.backend.repository.ProductRepository;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingScope;
+import csd.tariff.backend.service.TariffImportService.AgreementMapping;
+import csd.tariff.backend.service.TariffImportService.ImportMode;
+import csd.tariff.backend.service.TariffImportService.ImportProgress;
+import csd.tariff.backend.service.TariffImportService.Phase;
+
+/**
+ * Unit tests for TariffImportService run bookkeeping and agreement rate statements
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TariffImportService Unit Tests")
+class TariffImportServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private TariffScheduleService tariffScheduleService;
+
+    @Mock
+    private ProductSuggestionService productSuggestionService;
+
+    @Mock
+    private DatasetVersionService datasetVersionService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TariffImportService tariffImportService;
+
+    @BeforeEach
+    void setUp() {
+        tariffImportService = new TariffImportService(jdbcTemplate, transactionManager, productRepository, tariffScheduleService,
+            productSuggestionService, datasetVersionService, eventPublisher, 4, 100);
+    }
+
+    @Test
+    @DisplayName("Should fail the run without touching the schedule when the header has the wrong width")
+    void importCsv_ShouldFailRun_WhenHeaderWrongWidth() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("tariffs.csv"), eq("INCREMENTAL"))).thenReturn(7L);
+        List<ImportProgress> reports = new ArrayList<>();
+        ByteArrayInputStream in = new ByteArrayInputStream("hts8,brief_description\n".getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> tariffImportService.importCsv(in, "tariffs.csv", ImportMode.INCREMENTAL, reports::add));
+
+        // Assert
+        assertTrue(error.getMessage().contains("122 columns"));
+        assertEquals(Phase.FAILED, reports.get(reports.size() - 1).phase());
+        assertEquals(7L, tariffImportService.latestProgress().orElseThrow().runId());
+        assertFalse(tariffImportService.isRunning());
+        verify(jdbcTemplate).update(anyString(), eq("FAILED"), eq(0L), eq(0L), eq(0L), eq(error.getMessage()), eq(7L));
+        verify(tariffScheduleService, never()).refresh();
+        verifyNoInteractions(datasetVersionService, eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should re-price every destination for MFN changes, the partner for agreement changes, and nothing for products")
+    void repricingScope_ShouldFollowTheChangedDataset() {
+        // Assert
+        assertEquals(RepricingScope.of("12345678"), TariffImportService.repricingScope("MFN_RATES", "12345678", null));
+        assertEquals(new RepricingScope("12345678", "KR"),
+            TariffImportService.repricingScope("AGREEMENT_RATES", "12345678", "KR"));
+        assertNull(TariffImportService.repricingScope("PRODUCTS", "12345678", null));
+    }
+
+    @Test
+    @DisplayName("Should map every agreement partner V5 populates")
+    void agreementMappings_ShouldCoverV5Agreements() {
+        // Assert
+        assertEquals(16, TariffImportService.AGREEMENT_MAPPINGS.size());
+        assertEquals(16, TariffImportService.AGREEMENT_MAPPINGS.stream()
+            .map(m -> m.agreementCode() + "/" + m.countryCode()).distinct().count());
+    }
+
+    @Test
+    @DisplayName("Should build an agreement rate diff from the mapped columns")
+    void upsertSql_ShouldUseMappedColumns() {
+        // Arrange
+        AgreementMapping korea = TariffImportService.AGREEMENT_MAPPINGS.stream()
+            .filter(m -> m.countryCode().equals("KR"))
+            .findFirst()
+            .orElseThrow();
+        AgreementMapping israel = TariffImportService.AGREEMENT_MAPPINGS.stream()
+            .filter(m -> m.countryCode().equals("IL"))
+            .findFirst()
+            .orElseThrow();
+
+        // Act
+        String koreaSql = korea.upsertSql(ImportMode.INCREMENTAL);
+        String israelSql = israel.upsertSql(ImportMode.INCREMENTAL);
+
+        // Assert
+        assertTrue(koreaSql.contains("tr.korea_rate_type_code AS rate_type_code, tr.korea_ad_val_rate AS ad_valorem_rate"));
+        assertTrue(koreaSql.contains("tr.korea_indicator AS indicator"));
+        assertTrue(koreaSql.contains("ON CONFLICT (product_id, agreement_id, country_id) DO UPDATE SET expiration_date = NULL"));
+        assertTrue(koreaSql.contains("WHERE atr.row_hash IS DISTINCT FROM EXCLUDED.row_hash"));
+        assertTrue(koreaSql.contains("SET expiration_date = CURRENT_DATE - 1"));
+        assertTrue(koreaSql.contains("'AGREEMENT_RATES'"));
+        assertTrue(israelSql.contains("CAST(NULL AS VARCHAR) AS rate_type_code, CAST(NULL AS DECIMAL) AS ad_valorem_rate"));
+    }
+
+    @Test
+    @DisplayName("Should only skip unchanged rows in incremental mode")
+    void upsertAction_ShouldCompareHashes_OnlyWhenIncremental() {
+        // Act
+        String incremental = TariffImportService.upsertAction("p", ImportMode.INCREMENTAL, "", "brief_description");
+        String full = TariffImportService.upsertAction("p", ImportMode.FULL, "", "brief_description");
+
+        // Assert
+        assertEquals("DO UPDATE SET brief_description = EXCLUDED.brief_description, row_hash = EXCLUDED.row_hash, "
+            + "updated_at = CURRENT_TIMESTAMP WHERE p.row_hash IS DISTINCT FROM EXCLUDED.row_hash", incremental);
+        assertFalse(full.contains("WHERE"));
+        assertEquals("md5(ROW(brief_description, quantity_1_code)::text)",
+            TariffImportService.rowHash("brief_description", "quantity_1_code"));
+    }
+}
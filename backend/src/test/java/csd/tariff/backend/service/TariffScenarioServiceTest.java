@@ -0,0 +1,252 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.startsWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import csd.tariff.backend.dto.TariffCalculationRequest;
+import csd.tariff.backend.dto.TariffCalculationResponse;
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.Country;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+import csd.tariff.backend.service.TariffScenarioService.LineDelta;
+import csd.tariff.backend.service.TariffScenarioService.RuleType;
+import csd.tariff.backend.service.TariffScenarioService.ScenarioLine;
+import csd.tariff.backend.service.TariffScenarioService.ScenarioRequest;
+import csd.tariff.backend.service.TariffScenarioService.ScenarioRule;
+import csd.tariff.backend.service.TariffScenarioService.ScenarioTotals;
+
+/**
+ * Unit tests for TariffScenarioService rule overlays and scenario evaluation
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TariffScenarioService Unit Tests")
+class TariffScenarioServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TariffCalculationService tariffCalculationService;
+
+    @Mock
+    private TariffCalculationWriter tariffCalculationWriter;
+
+    @Mock
+    private TariffScheduleLookup lookup;
+
+    private TariffScenarioService scenarioService;
+
+    private static final ScenarioRule SURCHARGE =
+        new ScenarioRule(RuleType.ADD_AD_VALOREM, "8471", null, null, new BigDecimal("0.25"));
+
+    @BeforeEach
+    void setUp() {
+        scenarioService = new TariffScenarioService(jdbcTemplate, transactionManager, tariffCalculationService,
+            tariffCalculationWriter, new ObjectMapper(), 10, 2, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scenarioService.stop();
+    }
+
+    private static TariffCalculationRequest request(String htsCode, String origin) {
+        return new TariffCalculationRequest(htsCode, origin, "US", new BigDecimal("1000.00"), 1, "USD", null, null);
+    }
+
+    private static TariffCalculationResponse priced(String htsCode, String totalTariff, String importPrice) {
+        TariffCalculationResponse response = new TariffCalculationResponse();
+        response.setHtsCode(htsCode);
+        response.setProgramName("MFN");
+        response.setTotalTariffAmount(new BigDecimal(totalTariff));
+        response.setTotalImportPrice(new BigDecimal(importPrice));
+        return response;
+    }
+
+    /** Baseline at 5%; under the scenario 30% for 8471 codes, unchanged for the rest */
+    private void stubPricing() {
+        when(tariffCalculationService.getScheduleLookup(anySet(), anySet())).thenReturn(lookup);
+        when(tariffCalculationService.calculateTariffCalculation(any(TariffCalculationRequest.class), eq(lookup)))
+            .thenAnswer(invocation -> {
+                TariffCalculationRequest request = invocation.getArgument(0);
+                return priced(request.getHtsCode(), "50.00", "1050.00");
+            });
+        when(tariffCalculationService.calculateTariffCalculation(
+                any(TariffCalculationRequest.class), any(ScenarioScheduleLookup.class)))
+            .thenAnswer(invocation -> {
+                TariffCalculationRequest request = invocation.getArgument(0);
+                return request.getHtsCode().startsWith("8471")
+                    ? priced(request.getHtsCode(), "300.00", "1300.00")
+                    : priced(request.getHtsCode(), "50.00", "1050.00");
+            });
+    }
+
+    @Test
+    @DisplayName("Should normalize rules and reject a suspension without an agreement")
+    void validate_ShouldNormalizeRules_AndRejectInvalidOnes() {
+        // Act
+        ScenarioRequest scenario = scenarioService.validate(new ScenarioRequest("Tariff hike",
+            List.of(new ScenarioRule(RuleType.SUSPEND_AGREEMENT, "8471.30", " mx ", "usmca", null)),
+            null), false);
+        IllegalArgumentException missingAgreement = assertThrows(IllegalArgumentException.class,
+            () -> scenarioService.validate(new ScenarioRequest("Bad",
+                List.of(new ScenarioRule(RuleType.SUSPEND_AGREEMENT, null, null, null, null)), null), false));
+        IllegalArgumentException noPortfolio = assertThrows(IllegalArgumentException.class,
+            () -> scenarioService.validate(new ScenarioRequest("Inline", List.of(SURCHARGE), List.of()), true));
+
+        // Assert
+        assertEquals(new ScenarioRule(RuleType.SUSPEND_AGREEMENT, "847130", "MX", "USMCA", null),
+            scenario.rules().get(0));
+        assertTrue(missingAgreement.getMessage().startsWith("Rule 1:"));
+        assertTrue(noPortfolio.getMessage().contains("submit a job"));
+    }
+
+    @Test
+    @DisplayName("Should add the surcharge to a copy of the MFN rate and its text, leaving the schedule row alone")
+    void scenarioLookup_ShouldAdjustCopies_WhenRuleMatches() {
+        // Arrange
+        MfnTariffRate mfnRate = new MfnTariffRate();
+        mfnRate.setProduct(new Product("84713001", "Laptops"));
+        mfnRate.setMfnadValoremRate(new BigDecimal("0.05"));
+        mfnRate.setMfnTextRate("5%");
+        when(lookup.findMfnRate("84713001")).thenReturn(Optional.of(mfnRate));
+        when(lookup.rateExpression("5%")).thenReturn(RateExpressionCompiler.compile("5%"));
+        ScenarioScheduleLookup scenario = new ScenarioScheduleLookup(lookup, List.of(SURCHARGE), "CN");
+
+        // Act
+        MfnTariffRate adjusted = scenario.findMfnRate("84713001").orElseThrow();
+        RateExpression expression = scenario.rateExpression(adjusted.getMfnTextRate());
+
+        // Assert
+        assertNotSame(mfnRate, adjusted);
+        assertEquals(new BigDecimal("0.30"), adjusted.getMfnadValoremRate());
+        assertEquals("5% + 25%", adjusted.getMfnTextRate());
+        assertEquals(0, new BigDecimal("300.00").compareTo(
+            expression.duty(new BigDecimal("1000.00"), BigDecimal.ONE)));
+        assertEquals(new BigDecimal("0.05"), mfnRate.getMfnadValoremRate());
+        assertEquals("5%", mfnRate.getMfnTextRate());
+    }
+
+    @Test
+    @DisplayName("Should drop a suspended agreement's rates only for the rule's origin")
+    void scenarioLookup_ShouldSuspendAgreement_ForMatchingOrigin() {
+        // Arrange
+        TradeAgreement usmca = new TradeAgreement("USMCA", "United States-Mexico-Canada Agreement", "FTA");
+        AgreementRate rate = new AgreementRate(new Product("84713001", "Laptops"), usmca, new Country("US", "United States"));
+        rate.setadValoremRate(BigDecimal.ZERO);
+        when(lookup.getAgreementRates("84713001", "US")).thenReturn(List.of(rate));
+        List<ScenarioRule> rules =
+            List.of(new ScenarioRule(RuleType.SUSPEND_AGREEMENT, null, "MX", "USMCA", null));
+
+        // Act
+        List<AgreementRate> fromMexico =
+            new ScenarioScheduleLookup(lookup, rules, "MX").getAgreementRates("84713001", "US");
+        List<AgreementRate> fromCanada =
+            new ScenarioScheduleLookup(lookup, rules, "CA").getAgreementRates("84713001", "US");
+
+        // Assert
+        assertTrue(fromMexico.isEmpty());
+        assertEquals(List.of(rate), fromCanada);
+    }
+
+    @Test
+    @DisplayName("Should stream per-line deltas in portfolio order and total them per currency")
+    void evaluate_ShouldReturnLineDeltasAndTotals() {
+        // Arrange
+        stubPricing();
+        List<TariffCalculationRequest> portfolio = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            portfolio.add(request(i % 2 == 0 ? "84713001" : "61091000", "CN"));
+        }
+        List<LineDelta> lines = new ArrayList<>();
+
+        // Act
+        ScenarioTotals totals =
+            scenarioService.evaluate(new ScenarioRequest("Laptops", List.of(SURCHARGE), portfolio), lines::add);
+
+        // Assert
+        assertEquals(12, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(i, lines.get(i).line());
+        }
+        assertEquals(new BigDecimal("250.00"), lines.get(0).tariffDelta());
+        assertEquals(new BigDecimal("0.00"), lines.get(1).tariffDelta());
+        assertEquals(12, totals.linesEvaluated());
+        assertEquals(6, totals.linesChanged());
+        assertEquals(new BigDecimal("600.00"), totals.byCurrency().get("USD").baselineTariffAmount());
+        assertEquals(new BigDecimal("1500.00"), totals.byCurrency().get("USD").tariffDelta());
+    }
+
+    @Test
+    @DisplayName("Should merge HTS prefixes a shorter prefix already covers")
+    void historyPrefixes_ShouldDropCoveredPrefixes() {
+        // Act
+        List<String> prefixes = TariffScenarioService.historyPrefixes(List.of(
+            new ScenarioRule(RuleType.ADD_AD_VALOREM, "847130", null, null, BigDecimal.ONE),
+            SURCHARGE,
+            new ScenarioRule(RuleType.SUSPEND_AGREEMENT, "6109", null, "USMCA", null)));
+
+        // Assert
+        assertEquals(List.of("6109", "8471"), prefixes);
+    }
+
+    @Test
+    @DisplayName("Should record only the changed history lines and the run totals")
+    @SuppressWarnings("unchecked")
+    void run_ShouldWriteChangedLines_WhenEvaluatingHistory() {
+        // Arrange
+        stubPricing();
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("8471%"), eq(0L), eq(10)))
+            .thenReturn(List.of(new ScenarioLine(0, 41L, request("84713001", "CN")),
+                new ScenarioLine(1, 42L, request("84713001", "CN"))));
+        ScenarioRequest scenario = new ScenarioRequest("History", List.of(SURCHARGE), null);
+
+        // Act
+        ScenarioTotals totals = scenarioService.run(7L, scenario);
+
+        // Assert
+        assertEquals(2, totals.linesChanged());
+        verify(tariffCalculationWriter).flush();
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO tariff.scenario_lines"), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertEquals(41L, rows.getValue().get(0)[2]);
+        verify(jdbcTemplate).update(startsWith("UPDATE tariff.scenario_runs SET lines_evaluated"),
+            eq(2L), eq(2L), eq(0L), anyString(), eq(7L));
+        verify(jdbcTemplate).update(startsWith("UPDATE tariff.scenario_runs SET status"), eq("COMPLETED"),
+            isNull(), eq(7L));
+    }
+}
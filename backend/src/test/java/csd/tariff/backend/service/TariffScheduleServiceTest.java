@@ -0,0 +1,390 @@
+package csd.tariff.backend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import csd.tariff.backend.model.AgreementParticipant;
+import csd.tariff.backend.model.AgreementRate;
+import csd.tariff.backend.model.Country;
+import csd.tariff.backend.model.MfnTariffRate;
+import csd.tariff.backend.model.Product;
+import csd.tariff.backend.model.TradeAgreement;
+import csd.tariff.backend.repository.AgreementParticipantRepository;
+import csd.tariff.backend.repository.AgreementRateRepository;
+import csd.tariff.backend.repository.MfnTariffRateRepository;
+import csd.tariff.backend.repository.ProductRepository;
+import csd.tariff.backend.repository.TariffCalculationRepository;
+
+/**
+ * Unit tests for TariffScheduleService and the snapshot it builds
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TariffScheduleService Unit Tests")
+class TariffScheduleServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private MfnTariffRateRepository mfnTariffRateRepository;
+
+    @Mock
+    private AgreementRateRepository agreementRateRepository;
+
+    @Mock
+    private AgreementParticipantRepository agreementParticipantRepository;
+
+    @Mock
+    private ScheduleVersionService scheduleVersionService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private TariffScheduleService tariffScheduleService;
+
+    private Product product;
+    private MfnTariffRate mfnRate;
+    private AgreementRate agreementRate;
+    private TradeAgreement usmca;
+    private Country us;
+    private Country mx;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product("12345678", "Test Product");
+
+        mfnRate = new MfnTariffRate();
+        mfnRate.setProduct(product);
+        mfnRate.setMfnadValoremRate(new BigDecimal("0.10"));
+        mfnRate.setMfnTextRate("10%");
+
+        us = new Country("US", "United States");
+        mx = new Country("MX", "Mexico");
+
+        usmca = new TradeAgreement("USMCA", "United States-Mexico-Canada Agreement", "FTA");
+        usmca.setEffectiveDate(LocalDate.of(2020, 7, 1));
+
+        agreementRate = new AgreementRate(product, usmca, us);
+        agreementRate.setadValoremRate(BigDecimal.ZERO);
+        agreementRate.setTextRate("Free");
+    }
+
+    private void stubRepositories() {
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(mfnTariffRateRepository.findAll()).thenReturn(List.of(mfnRate));
+        when(agreementRateRepository.findAll()).thenReturn(List.of(agreementRate));
+        when(agreementParticipantRepository.findAll()).thenReturn(List.of(
+            new AgreementParticipant(usmca, us, "PARTNER"),
+            new AgreementParticipant(usmca, mx, "PARTNER")));
+    }
+
+    @Test
+    @DisplayName("Should be empty before the first refresh")
+    void current_ShouldBeEmpty_BeforeRefresh() {
+        assertFalse(tariffScheduleService.current().isPresent());
+    }
+
+    @Test
+    @DisplayName("Should index products, MFN and agreement rates by HTS code")
+    void refresh_ShouldIndexScheduleByHtsCode() {
+        // Arrange
+        stubRepositories();
+
+        // Act
+        tariffScheduleService.refresh();
+
+        // Assert
+        TariffScheduleSnapshot snapshot = tariffScheduleService.current().orElseThrow();
+        assertSame(product, snapshot.findProduct("12345678").orElseThrow());
+        assertSame(mfnRate, snapshot.findMfnRate("12345678").orElseThrow());
+        assertEquals(List.of(agreementRate), snapshot.getAgreementRates("12345678", "US"));
+        assertTrue(snapshot.getAgreementRates("12345678", "MX").isEmpty());
+        assertFalse(snapshot.findProduct("99999999").isPresent());
+        assertFalse(snapshot.findProduct(null).isPresent());
+        assertEquals(1, snapshot.getProductCount());
+        assertEquals(new RateExpression.AdValorem(new BigDecimal("0.10")), snapshot.rateExpression("10%"));
+        assertSame(snapshot.rateExpression("10%"), snapshot.rateExpression("10%"));
+    }
+
+    @Test
+    @DisplayName("Should resolve agreements shared by two countries regardless of case")
+    void refresh_ShouldResolveAgreementsBetweenCountries() {
+        // Arrange
+        stubRepositories();
+
+        // Act
+        tariffScheduleService.refresh();
+
+        // Assert
+        TariffScheduleSnapshot snapshot = tariffScheduleService.current().orElseThrow();
+        assertEquals(List.of(usmca), snapshot.getAgreementsBetweenCountries("mx", "US"));
+        assertTrue(snapshot.getAgreementsBetweenCountries("MX", "JP").isEmpty());
+        assertTrue(snapshot.getAgreementsBetweenCountries(null, "US").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should keep the previous snapshot when a refresh fails")
+    void refresh_ShouldKeepPreviousSnapshot_WhenLoadFails() {
+        // Arrange
+        stubRepositories();
+        tariffScheduleService.refresh();
+        TariffScheduleSnapshot first = tariffScheduleService.current().orElseThrow();
+        when(productRepository.findAll()).thenThrow(new RuntimeException("Database unavailable"));
+
+        // Act
+        tariffScheduleService.refresh();
+
+        // Assert
+        assertSame(first, tariffScheduleService.current().orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should serve calculations from the snapshot without repository reads")
+    void calculateTariff_ShouldReadFromSnapshot_WhenLoaded() {
+        // Arrange
+        stubRepositories();
+        tariffScheduleService.refresh();
+        MfnService mfnService = mock(MfnService.class);
+        ProductService productService = mock(ProductService.class);
+        TradeAgreementService tradeAgreementService = mock(TradeAgreementService.class);
+        TariffCalculationServiceImpl calculationService = new TariffCalculationServiceImpl(
+            productRepository,
+            mock(TariffCalculationRepository.class),
+            mfnService,
+            productService,
+            tradeAgreementService,
+            mock(CurrencyService.class),
+            tariffScheduleService,
+            mock(TariffCalculationWriter.class),
+            mock(ScheduleVersionService.class));
+
+        // Act
+        Map<String, Object> result = calculationService.calculateTariff("1234.56.78", "MX", "US", 1000.0, 1);
+
+        // Assert
+        assertFalse(result.containsKey("error"));
+        assertEquals(new BigDecimal("100.00"), result.get("mfnTariffAmount"));
+        assertEquals(new BigDecimal("0.00"), result.get("bestTariffAmount"));
+        assertEquals("United States-Mexico-Canada Agreement", result.get("bestProgramName"));
+        assertEquals(Optional.of(product), calculationService.findByHtsCode("12345678"));
+        verify(productRepository, never()).findByHts8(anyString());
+        verify(mfnService, never()).getMfnTariffRate(anyString());
+        verify(productService, never()).getAgreementRates(anyString(), anyString());
+        verify(tradeAgreementService, never()).getTradeAgreementsBetweenCountries(anyString(), anyString());
+    }
+
+    private void stubVersionedRepositories(MfnTariffRate oldMfnRate, AgreementRate intoMexico) {
+        mfnRate.setBeginEffectDate(LocalDate.of(2024, 1, 1));
+        oldMfnRate.setProduct(product);
+        oldMfnRate.setMfnadValoremRate(new BigDecimal("0.20"));
+        oldMfnRate.setMfnTextRate("20%");
+        oldMfnRate.setBeginEffectDate(LocalDate.of(2022, 1, 1));
+        oldMfnRate.setEndEffectiveDate(LocalDate.of(2023, 12, 31));
+
+        intoMexico.setadValoremRate(new BigDecimal("0.02"));
+        intoMexico.setTextRate("2%");
+        intoMexico.setEffectiveDate(LocalDate.of(2023, 7, 1));
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(mfnTariffRateRepository.findAll()).thenReturn(List.of(mfnRate, oldMfnRate));
+        when(agreementRateRepository.findAll()).thenReturn(List.of(agreementRate, intoMexico));
+        when(agreementParticipantRepository.findAll()).thenReturn(List.of());
+    }
+
+    @Test
+    @DisplayName("Should index MFN and agreement rate versions by date")
+    void refresh_ShouldIndexRateVersionsByDate() {
+        // Arrange
+        MfnTariffRate oldMfnRate = new MfnTariffRate();
+        AgreementRate intoMexico = new AgreementRate(product, usmca, mx);
+        stubVersionedRepositories(oldMfnRate, intoMexico);
+
+        // Act
+        tariffScheduleService.refresh();
+
+        // Assert
+        TariffScheduleSnapshot snapshot = tariffScheduleService.current().orElseThrow();
+        assertSame(oldMfnRate, snapshot.findMfnRate("12345678", LocalDate.of(2023, 5, 1)).orElseThrow());
+        assertSame(mfnRate, snapshot.findMfnRate("12345678", LocalDate.of(2024, 1, 1)).orElseThrow());
+        assertFalse(snapshot.findMfnRate("12345678", LocalDate.of(2021, 12, 31)).isPresent());
+        assertSame(mfnRate, snapshot.findMfnRate("12345678").orElseThrow());
+        assertTrue(snapshot.getAgreementRates("12345678", "MX", LocalDate.of(2023, 6, 30)).isEmpty());
+        assertEquals(List.of(intoMexico), snapshot.getAgreementRates("12345678", "MX", LocalDate.of(2023, 7, 1)));
+        assertEquals(1, snapshot.getAgreementRateTimelines("12345678", "US").size());
+        assertTrue(snapshot.getMfnRateTimeline("99999999").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should price date-ranged calculations with the rows in effect for the destination")
+    void calculateTariffWithDateRange_ShouldUseRowsInEffect_ForDestination() {
+        // Arrange
+        stubVersionedRepositories(new MfnTariffRate(), new AgreementRate(product, usmca, mx));
+        tariffScheduleService.refresh();
+        TariffCalculationServiceImpl calculationService = new TariffCalculationServiceImpl(
+            productRepository,
+            mock(TariffCalculationRepository.class),
+            mock(MfnService.class),
+            mock(ProductService.class),
+            mock(TradeAgreementService.class),
+            mock(CurrencyService.class),
+            tariffScheduleService,
+            mock(TariffCalculationWriter.class),
+            mock(ScheduleVersionService.class));
+
+        // Act
+        Map<String, Object> in2023 = calculationService.calculateTariffWithDateRange(
+            "12345678", "US", "MX", 1000.0, 1, LocalDate.of(2023, 3, 1), LocalDate.of(2023, 12, 31));
+        Map<String, Object> in2024 = calculationService.calculateTariffWithDateRange(
+            "12345678", "US", "MX", 1000.0, 1, LocalDate.of(2024, 3, 1), null);
+
+        // Assert
+        assertFalse(in2023.containsKey("error"));
+        assertEquals(new BigDecimal("200.00"), in2023.get("mfnTariffAmount"));
+        assertTrue(((List<?>) in2023.get("preferentialRates")).isEmpty());
+        assertTrue(((String) in2023.get("dateValidationWarning")).contains("for agreement USMCA"));
+        assertEquals(new BigDecimal("100.00"), in2024.get("mfnTariffAmount"));
+        assertEquals(new BigDecimal("20.00"), in2024.get("bestTariffAmount"));
+        assertFalse(in2024.containsKey("dateValidationWarning"));
+    }
+
+    @Test
+    @DisplayName("Should not load a snapshot when snapshots are disabled")
+    void refresh_ShouldSkipLoad_WhenSnapshotDisabled() {
+        // Arrange
+        ReflectionTestUtils.setField(tariffScheduleService, "snapshotEnabled", false);
+
+        // Act
+        tariffScheduleService.refresh();
+
+        // Assert
+        assertFalse(tariffScheduleService.current().isPresent());
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Should price a set of codes from one schedule query when no snapshot is loaded")
+    void getScheduleLookup_ShouldReadSliceOnce_WhenNoSnapshot() {
+        // Arrange
+        ReflectionTestUtils.setField(product, "id", 1L);
+        ReflectionTestUtils.setField(mfnRate, "id", 10L);
+        ReflectionTestUtils.setField(agreementRate, "id", 100L);
+        List<Object[]> rows = List.<Object[]>of(new Object[] {product, mfnRate, agreementRate, usmca, us});
+        when(productRepository.findScheduleRows(Set.of("12345678"), Set.of("MX", "US"))).thenReturn(rows);
+        when(agreementParticipantRepository.findByCountryCodeIn(Set.of("MX", "US"))).thenReturn(List.of(
+            new AgreementParticipant(usmca, us, "PARTNER"),
+            new AgreementParticipant(usmca, mx, "PARTNER")));
+        ProductService productService = mock(ProductService.class);
+        TradeAgreementService tradeAgreementService = mock(TradeAgreementService.class);
+        TariffCalculationServiceImpl calculationService = new TariffCalculationServiceImpl(
+            productRepository,
+            mock(TariffCalculationRepository.class),
+            mock(MfnService.class),
+            productService,
+            tradeAgreementService,
+            mock(CurrencyService.class),
+            tariffScheduleService,
+            mock(TariffCalculationWriter.class),
+            mock(ScheduleVersionService.class));
+
+        // Act
+        TariffScheduleLookup lookup = calculationService.getScheduleLookup(List.of("1234.56.78"), List.of("MX", "US"));
+
+        // Assert
+        assertEquals(Optional.of(product), lookup.findProduct("12345678"));
+        assertSame(mfnRate, lookup.findMfnRate("12345678").orElseThrow());
+        assertEquals(List.of(agreementRate), lookup.getAgreementRates("12345678", "US"));
+        assertEquals(List.of(usmca), lookup.getAgreementsBetweenCountries("MX", "US"));
+        assertFalse(lookup.findProduct("87654321").isPresent());
+        verify(productRepository, times(1)).findScheduleRows(Set.of("12345678"), Set.of("MX", "US"));
+        verify(productRepository).findByHts8("87654321");
+        verify(productService, never()).getAgreementRates(anyString(), anyString());
+        verify(tradeAgreementService, never()).getTradeAgreementsBetweenCountries(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should reload only the given HTS codes into the current snapshot")
+    void refresh_ShouldReplaceOnlyGivenCodes_WhenCodesChanged() {
+        // Arrange
+        Product other = new Product("87654321", "Other Product");
+        when(productRepository.findAll()).thenReturn(List.of(product, other));
+        when(mfnTariffRateRepository.findAll()).thenReturn(List.of(mfnRate));
+        when(agreementRateRepository.findAll()).thenReturn(List.of(agreementRate));
+        when(agreementParticipantRepository.findAll()).thenReturn(List.of(
+            new AgreementParticipant(usmca, us, "PARTNER"),
+            new AgreementParticipant(usmca, mx, "PARTNER")));
+        tariffScheduleService.refresh();
+        MfnTariffRate revised = new MfnTariffRate();
+        revised.setProduct(product);
+        revised.setMfnadValoremRate(new BigDecimal("0.05"));
+        revised.setMfnTextRate("5%");
+        Set<String> changed = Set.of("12345678");
+        when(productRepository.findByHts8In(changed)).thenReturn(List.of(product));
+        when(mfnTariffRateRepository.findByHts8In(changed)).thenReturn(List.of(revised));
+        when(agreementRateRepository.findByHts8In(changed)).thenReturn(List.of());
+
+        // Act
+        tariffScheduleService.refresh(changed);
+
+        // Assert
+        TariffScheduleSnapshot snapshot = tariffScheduleService.current().orElseThrow();
+        assertSame(revised, snapshot.findMfnRate("12345678").orElseThrow());
+        assertTrue(snapshot.getAgreementRates("12345678", "US").isEmpty());
+        assertSame(other, snapshot.findProduct("87654321").orElseThrow());
+        assertEquals(List.of(usmca), snapshot.getAgreementsBetweenCountries("MX", "US"));
+        assertEquals(new RateExpression.AdValorem(new BigDecimal("0.05")), snapshot.rateExpression("5%"));
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should reload agreement memberships with an agreement's HTS codes")
+    void refreshAgreement_ShouldReloadMemberships() {
+        // Arrange
+        Product other = new Product("87654321", "Other Product");
+        when(productRepository.findAll()).thenReturn(List.of(product, other));
+        when(mfnTariffRateRepository.findAll()).thenReturn(List.of(mfnRate));
+        when(agreementRateRepository.findAll()).thenReturn(List.of(agreementRate));
+        when(agreementParticipantRepository.findAll()).thenReturn(
+            List.of(new AgreementParticipant(usmca, us, "PARTNER"), new AgreementParticipant(usmca, mx, "PARTNER")),
+            List.of(new AgreementParticipant(usmca, us, "PARTNER")));
+        tariffScheduleService.refresh();
+        Set<String> changed = Set.of("12345678");
+        when(productRepository.findByHts8In(changed)).thenReturn(List.of(product));
+        when(mfnTariffRateRepository.findByHts8In(changed)).thenReturn(List.of(mfnRate));
+        when(agreementRateRepository.findByHts8In(changed)).thenReturn(List.of());
+
+        // Act
+        tariffScheduleService.refreshAgreement(changed);
+
+        // Assert
+        TariffScheduleSnapshot snapshot = tariffScheduleService.current().orElseThrow();
+        assertTrue(snapshot.getAgreementsBetweenCountries("MX", "US").isEmpty());
+        assertTrue(snapshot.getAgreementRates("12345678", "US").isEmpty());
+        assertSame(other, snapshot.findProduct("87654321").orElseThrow());
+        verify(productRepository, times(1)).findAll();
+    }
+}
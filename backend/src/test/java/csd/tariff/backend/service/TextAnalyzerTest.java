@@ -0,0 +1,37 @@
+package csd.tariff.backend.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for TextAnalyzer tokenizing and stemming
+ */
+@DisplayName("TextAnalyzer Unit Tests")
+class TextAnalyzerTest {
+
+    @Test
+    @DisplayName("Should lower-case, split on punctuation and drop stop words")
+    void analyze_ShouldTokenizeText() {
+        // Act
+        List<String> terms = TextAnalyzer.analyze("Toys, for CHILDREN (of 3 years) & w/o batteries");
+
+        // Assert
+        assertEquals(List.of("toy", "children", "year", "battery"), terms);
+    }
+
+    @Test
+    @DisplayName("Should give inflected forms the same stem")
+    void stem_ShouldConflateInflections() {
+        // Act & Assert
+        assertEquals(TextAnalyzer.stem("horse"), TextAnalyzer.stem("horses"));
+        assertEquals(TextAnalyzer.stem("machine"), TextAnalyzer.stem("machines"));
+        assertEquals(TextAnalyzer.stem("cook"), TextAnalyzer.stem("cooked"));
+        assertEquals(TextAnalyzer.stem("run"), TextAnalyzer.stem("running"));
+        assertEquals(TextAnalyzer.stem("glass"), TextAnalyzer.stem("glasses"));
+        assertEquals(TextAnalyzer.stem("box"), TextAnalyzer.stem("boxes"));
+        assertEquals("apparatus", TextAnalyzer.stem("apparatus"));
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -16,6 +17,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.never;
@@ -23,9 +25,13 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import csd.tariff.backend.model.TradeAgreement;
+import csd.tariff.backend.repository.AgreementRateRepository;
 import csd.tariff.backend.repository.TradeAgreementRepository;
+import csd.tariff.backend.service.CalculationRepricingService.RatesChanged;
+import csd.tariff.backend.service.CalculationRepricingService.RepricingScope;
 import csd.tariff.backend.service.TradeAgreementServiceImpl;
 
 /**
@@ -39,6 +45,18 @@ class TradeAgreementServiceImplTest {
     @Mock
     private TradeAgreementRepository tradeAgreementRepository;
 
+    @Mock
+    private TariffScheduleService tariffScheduleService;
+
+    @Mock
+    private DatasetVersionService datasetVersionService;
+
+    @Mock
+    private AgreementRateRepository agreementRateRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private TradeAgreementServiceImpl tradeAgreementService;
 
@@ -671,6 +689,86 @@ class TradeAgreementServiceImplTest {
         verify(tradeAgreementRepository, times(1)).deleteById(testAgreement1.getId());
     }
 
+    @Test
+    @DisplayName("Should queue re-pricing of the calculations under a deleted agreement's rates")
+    void deleteTradeAgreementByCode_ShouldPublishRatesChanged_ForAgreementRates() {
+        // Arrange
+        when(tradeAgreementRepository.findByAgreementCode("USMCA")).thenReturn(Optional.of(testAgreement1));
+        when(agreementRateRepository.findHts8AndCountryCodesByAgreementId(testAgreement1.getId()))
+            .thenReturn(List.<Object[]>of(new Object[] {"12345678", "MX"}, new Object[] {"12345678", "CA"}));
+
+        // Act
+        tradeAgreementService.deleteTradeAgreementByCode("USMCA");
+
+        // Assert
+        ArgumentCaptor<RatesChanged> event = ArgumentCaptor.forClass(RatesChanged.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(List.of(new RepricingScope("12345678", "MX"), new RepricingScope("12345678", "CA")),
+            event.getValue().scopes());
+    }
+
+    @Test
+    @DisplayName("Should queue re-pricing of the agreement's rates when an update moves its validity period")
+    void updateTradeAgreementByCode_ShouldPublishRatesChanged_WhenPeriodChanged() {
+        // Arrange
+        TradeAgreement updateData = new TradeAgreement();
+        updateData.setAgreementName("Renamed USMCA");
+        updateData.setAgreementCode(testAgreement1.getAgreementCode());
+        updateData.setEffectiveDate(testAgreement1.getEffectiveDate());
+        updateData.setExpirationDate(LocalDate.of(2040, 12, 31));
+        when(tradeAgreementRepository.findByAgreementCode("USMCA")).thenReturn(Optional.of(testAgreement1));
+        when(tradeAgreementRepository.save(any(TradeAgreement.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(agreementRateRepository.findHts8AndCountryCodesByAgreementId(testAgreement1.getId()))
+            .thenReturn(List.<Object[]>of(new Object[] {"12345678", "MX"}));
+
+        // Act
+        tradeAgreementService.updateTradeAgreementByCode("USMCA", updateData);
+
+        // Assert
+        ArgumentCaptor<RatesChanged> event = ArgumentCaptor.forClass(RatesChanged.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(List.of(new RepricingScope("12345678", "MX")), event.getValue().scopes());
+    }
+
+    @Test
+    @DisplayName("Should not re-price calculations when an update only renames the agreement")
+    void updateTradeAgreementByCode_ShouldNotPublish_WhenOnlyRenamed() {
+        // Arrange
+        TradeAgreement updateData = new TradeAgreement();
+        updateData.setAgreementName("Renamed USMCA");
+        updateData.setAgreementCode(testAgreement1.getAgreementCode());
+        updateData.setEffectiveDate(testAgreement1.getEffectiveDate());
+        updateData.setExpirationDate(testAgreement1.getExpirationDate());
+        when(tradeAgreementRepository.findByAgreementCode("USMCA")).thenReturn(Optional.of(testAgreement1));
+        when(tradeAgreementRepository.save(any(TradeAgreement.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        tradeAgreementService.updateTradeAgreementByCode("USMCA", updateData);
+
+        // Assert
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Should reload only the updated agreement's HTS codes and memberships into the schedule snapshot")
+    void updateTradeAgreementByCode_ShouldRefreshAgreementCodes() {
+        // Arrange
+        TradeAgreement updateData = new TradeAgreement();
+        updateData.setAgreementName("Renamed USMCA");
+        updateData.setAgreementCode("USMCA");
+        when(tradeAgreementRepository.findByAgreementCode("USMCA")).thenReturn(Optional.of(testAgreement1));
+        when(tradeAgreementRepository.save(any(TradeAgreement.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(agreementRateRepository.findHts8AndCountryCodesByAgreementId(testAgreement1.getId()))
+            .thenReturn(List.<Object[]>of(new Object[] {"12345678", "MX"}, new Object[] {"12345678", "CA"}));
+
+        // Act
+        tradeAgreementService.updateTradeAgreementByCode("USMCA", updateData);
+
+        // Assert
+        verify(tariffScheduleService).refreshAgreement(Set.of("12345678"));
+        verify(tariffScheduleService, never()).refresh();
+    }
+
     // ===== ADDITIONAL BRANCH COVERAGE TESTS =====
     
     @Test
@@ -0,0 +1,132 @@
+package csd.tariff.backend.service;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Unit tests for UserPrincipalService caching, invalidation and token-claim principals
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserPrincipalService Unit Tests")
+class UserPrincipalServiceTest {
+
+    @Mock
+    private EmailUserDetailsService emailUserDetailsService;
+
+    @Mock
+    private Claims claims;
+
+    private final UserDetails user = User.withUsername("test@example.com")
+        .password("encoded")
+        .roles("USER")
+        .build();
+
+    private UserPrincipalService service(String source, long ttlSeconds) {
+        return new UserPrincipalService(emailUserDetailsService, source, ttlSeconds, 100, 3600);
+    }
+
+    @Test
+    @DisplayName("Should load a user once while the cached principal is fresh")
+    void resolve_ShouldUseCache_WhenFresh() {
+        // Arrange
+        UserPrincipalService principals = service("database", 30);
+        when(claims.getSubject()).thenReturn("test@example.com");
+        when(emailUserDetailsService.loadUserByUsername("test@example.com")).thenReturn(user);
+
+        // Act
+        UserDetails first = principals.resolve(claims);
+        UserDetails second = principals.resolve(claims);
+
+        // Assert
+        assertSame(user, first);
+        assertSame(user, second);
+        verify(emailUserDetailsService, times(1)).loadUserByUsername("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should load the user again after invalidation")
+    void load_ShouldReload_AfterInvalidate() {
+        // Arrange
+        UserPrincipalService principals = service("database", 30);
+        when(emailUserDetailsService.loadUserByUsername("test@example.com")).thenReturn(user);
+        principals.load("test@example.com");
+
+        // Act
+        principals.invalidate("TEST@example.com");
+        principals.load("test@example.com");
+
+        // Assert
+        verify(emailUserDetailsService, times(2)).loadUserByUsername("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should not cache a missing user")
+    void load_ShouldPropagateAndNotCache_WhenUserMissing() {
+        // Arrange
+        UserPrincipalService principals = service("database", 30);
+        when(emailUserDetailsService.loadUserByUsername("missing@example.com"))
+            .thenThrow(new UsernameNotFoundException("No user with email missing@example.com"));
+
+        // Act & Assert
+        assertThrows(UsernameNotFoundException.class, () -> principals.load("missing@example.com"));
+        assertThrows(UsernameNotFoundException.class, () -> principals.load("missing@example.com"));
+        verify(emailUserDetailsService, times(2)).loadUserByUsername("missing@example.com");
+    }
+
+    @Test
+    @DisplayName("Should build the principal from role claims without reading the database")
+    void resolve_ShouldUseRoleClaims_InTokenMode() {
+        // Arrange
+        UserPrincipalService principals = service("token", 30);
+        when(claims.getSubject()).thenReturn("test@example.com");
+        when(claims.getIssuedAt()).thenReturn(new Date());
+        when(claims.get("roles", String.class)).thenReturn("ROLE_USER,ROLE_ADMIN");
+
+        // Act
+        UserDetails principal = principals.resolve(claims);
+
+        // Assert
+        assertEquals("test@example.com", principal.getUsername());
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"),
+            principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet()));
+        verify(emailUserDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    @DisplayName("Should refuse tokens issued before the user was revoked in token mode")
+    void resolve_ShouldReturnNull_ForTokenIssuedBeforeRevoke() {
+        // Arrange
+        UserPrincipalService principals = service("token", 30);
+        when(claims.getSubject()).thenReturn("test@example.com");
+        when(claims.getIssuedAt()).thenReturn(new Date(System.currentTimeMillis() - 60_000));
+
+        // Act
+        principals.revoke("Test@Example.com");
+        UserDetails principal = principals.resolve(claims);
+
+        // Assert
+        assertNull(principal);
+    }
+}
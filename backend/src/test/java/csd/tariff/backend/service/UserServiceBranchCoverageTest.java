@@ -32,13 +32,16 @@ class UserServiceBranchCoverageTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UserPrincipalService userPrincipalService;
+
     private UserService userService;
 
     private User testUser;
 
     @BeforeEach
     void setUp() {
-        userService = new UserService(userRepository, passwordEncoder);
+        userService = new UserService(userRepository, passwordEncoder, userPrincipalService);
         
         testUser = new User();
         setUserId(testUser, 1L);
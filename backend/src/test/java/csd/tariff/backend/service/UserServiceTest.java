@@ -45,6 +45,9 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UserPrincipalService userPrincipalService;
+
     @InjectMocks
     private UserService userService;
 
@@ -282,6 +285,7 @@ class UserServiceTest {
         verify(userRepository, times(1)).findById(1L);
         verify(userRepository, times(1)).findByUsername("updateduser");
         verify(userRepository, times(1)).save(any(User.class));
+        verify(userPrincipalService).revoke("test@example.com");
     }
 
     @Test
@@ -370,6 +374,8 @@ class UserServiceTest {
         verify(userRepository, times(1)).findByUsername("updateduser");
         verify(passwordEncoder, times(1)).encode("newpassword");
         verify(userRepository, times(1)).save(any(User.class));
+        verify(userPrincipalService).revoke("test@example.com");
+        verify(userPrincipalService, never()).invalidate(anyString());
     }
 
     // ===== User Deletion Tests =====
@@ -515,6 +521,7 @@ class UserServiceTest {
         // Then
         verify(userRepository, times(1)).findByEmail("test@example.com");
         verify(userRepository, times(1)).delete(testUser);
+        verify(userPrincipalService).revoke("test@example.com");
     }
 
     @Test